@@ -1,6 +1,16 @@
 import React, { useState, useEffect, useCallback } from 'react';
+import { autocompleteService } from '../services/autocompleteService';
 
-const AutocompleteInput = ({ label, value, name, onChange, onSearch, onItemSelected, displayField, placeholder }) => {
+// Com 'tipo' (ONIBUS, MOTOR, CAMBIO, PNEU, PRODUTO) as sugestões vêm de /api/autocomplete, só as do campo
+// 'displayField', como { id, [displayField]: valor }. Sem 'tipo', usa o onSearch do chamador.
+const buscarNoIndice = async (term, tipo, displayField) => {
+  const response = await autocompleteService.sugerir(term, [tipo], 50);
+  return response.data
+    .filter(sugestao => sugestao.campo === displayField)
+    .map(sugestao => ({ id: sugestao.id, [displayField]: sugestao.valor }));
+};
+
+const AutocompleteInput = ({ label, value, name, onChange, onSearch, onItemSelected, displayField, placeholder, tipo }) => {
   const [suggestions, setSuggestions] = useState([]);
   const [showSuggestions, setShowSuggestions] = useState(false);
 
@@ -9,19 +19,25 @@ const AutocompleteInput = ({ label, value, name, onChange, onSearch, onItemSelec
       setSuggestions([]);
       return;
     }
+    // Resposta de uma tecla anterior que chegue depois da atual é descartada
+    let obsoleta = false;
     const handler = setTimeout(async () => {
       try {
-        const results = await onSearch(value);
+        const results = tipo ? await buscarNoIndice(value, tipo, displayField) : await onSearch(value);
+        if (obsoleta) return;
         const uniqueResults = [...new Map(results.map(item => [item[displayField], item])).values()];
         setSuggestions(uniqueResults.slice(0, 7));
         setShowSuggestions(true);
       } catch (error) {
-        setSuggestions([]);
+        if (!obsoleta) setSuggestions([]);
       }
     }, 300);
 
-    return () => clearTimeout(handler);
-  }, [value, onSearch, displayField]);
+    return () => {
+      obsoleta = true;
+      clearTimeout(handler);
+    };
+  }, [value, onSearch, displayField, tipo]);
 
   const handleSelect = (item) => {
     onItemSelected(item);
@@ -1,9 +1,5 @@
-import React, { useState, useCallback } from 'react';
+import React, { useState } from 'react';
 import AutocompleteInput from '../components/AutocompleteInput';
-import { onibusService } from '../services/onibusService';
-import { motorService } from '../services/motorService';
-import { cambioService } from '../services/cambioService';
-import { pneuService } from '../services/pneuService';
 import { produtoService } from '../services/produtoService';
 import { TipoOrdemServico } from '../constants/ordemServicoEnums';
 
@@ -12,19 +8,7 @@ const OrdemServicoForm = ({ initialData, onSubmit, onCancel, isEditing }) => {
   const [itemSearch, setItemSearch] = useState('');
   const [itemQty, setItemQty] = useState(1);
   
-  // --- Lógica de Autocomplete para os Alvos ---
-  const searchOnibus = useCallback(async (term) => (await onibusService.search({ placa: term })).data, []);
-  const searchMotor = useCallback(async (term) => (await motorService.search({ numeroSerie: term })).data, []);
-  const searchCambio = useCallback(async (term) => (await cambioService.search({ numeroSerie: term })).data, []);
-  const searchPneu = useCallback(async (term) => (await pneuService.search({ numeroSerie: term })).data, []);
-  
-  const searchProduto = useCallback(async (term) => {
-    const params = { nome: term };
-    if (formData.tipo === 'PREVENTIVA') {
-      params.categoria = 'FLUIDO';
-    }
-    return (await produtoService.search(params)).data;
-  }, [formData.tipo]);
+  // As sugestões dos alvos e dos produtos vêm do índice do servidor (prop 'tipo' do AutocompleteInput)
 
   const handleSelectAlvo = (alvo, tipo) => {
     setFormData(prev => ({ 
@@ -46,8 +30,14 @@ const OrdemServicoForm = ({ initialData, onSubmit, onCancel, isEditing }) => {
   };
 
   // --- Lógica para Adicionar/Remover Itens ---
-  const handleAddItem = (produto) => {
-    if (!produto || itemQty <= 0) return;
+  const handleAddItem = async (sugestao) => {
+    if (!sugestao || itemQty <= 0) return;
+    // O índice não sabe a categoria: a OS preventiva confere o produto escolhido (uma chamada, na seleção)
+    const produto = (await produtoService.getById(sugestao.id)).data;
+    if (formData.tipo === 'PREVENTIVA' && !(produto.categoria === 'FLUIDO' && produto.unidadeMedida === 'LITRO')) {
+      alert('Ordens de Serviço Preventivas só podem adicionar produtos da categoria FLUIDO medidos em LITRO.');
+      return;
+    }
     const novoItem = { produto, quantidade: itemQty, descricao: '' };
     setFormData(prev => ({ ...prev, itens: [...prev.itens, novoItem] }));
     setItemSearch('');
@@ -83,7 +73,7 @@ const OrdemServicoForm = ({ initialData, onSubmit, onCancel, isEditing }) => {
                 name="onibus" 
                 value={formData.onibus?.placa || ''} 
                 onChange={(e) => handleAlvoInputChange(e, 'onibus', 'placa')} 
-                onSearch={searchOnibus} 
+                tipo="ONIBUS" 
                 onItemSelected={item => handleSelectAlvo(item, 'onibus')} 
                 displayField="placa" 
                 placeholder="Digite a placa..."
@@ -95,7 +85,7 @@ const OrdemServicoForm = ({ initialData, onSubmit, onCancel, isEditing }) => {
                 name="motor" 
                 value={formData.motor?.numeroSerie || ''} 
                 onChange={(e) => handleAlvoInputChange(e, 'motor', 'numeroSerie')} 
-                onSearch={searchMotor} 
+                tipo="MOTOR" 
                 onItemSelected={item => handleSelectAlvo(item, 'motor')} 
                 displayField="numeroSerie" 
                 placeholder="Digite o nº de série..."
@@ -107,7 +97,7 @@ const OrdemServicoForm = ({ initialData, onSubmit, onCancel, isEditing }) => {
                 name="cambio" 
                 value={formData.cambio?.numeroSerie || ''} 
                 onChange={(e) => handleAlvoInputChange(e, 'cambio', 'numeroSerie')} 
-                onSearch={searchCambio} 
+                tipo="CAMBIO" 
                 onItemSelected={item => handleSelectAlvo(item, 'cambio')} 
                 displayField="numeroSerie" 
                 placeholder="Digite o nº de série..."
@@ -119,7 +109,7 @@ const OrdemServicoForm = ({ initialData, onSubmit, onCancel, isEditing }) => {
                 name="pneu" 
                 value={formData.pneu?.numeroSerie || ''} 
                 onChange={(e) => handleAlvoInputChange(e, 'pneu', 'numeroSerie')} 
-                onSearch={searchPneu} 
+                tipo="PNEU" 
                 onItemSelected={item => handleSelectAlvo(item, 'pneu')} 
                 displayField="numeroSerie" 
                 placeholder="Digite o nº de série..."
@@ -161,7 +151,7 @@ const OrdemServicoForm = ({ initialData, onSubmit, onCancel, isEditing }) => {
                 name="itemSearch" 
                 value={itemSearch} 
                 onChange={(e) => setItemSearch(e.target.value)} 
-                onSearch={searchProduto} 
+                tipo="PRODUTO" 
                 onItemSelected={handleAddItem} 
                 displayField="nome" 
                 placeholder="Busque por nome do produto..."
@@ -1,8 +1,9 @@
 import { useState, useEffect, useCallback } from 'react';
-import { onibusService } from '../services/onibusService';
-import { ordemServicoService } from '../services/ordemServicoService';
+import { dashboardService } from '../services/dashboardService';
 import { estoqueService } from '../services/estoqueService';
 
+const somar = (contagens) => Object.values(contagens || {}).reduce((total, n) => total + n, 0);
+
 const useDashboardData = () => {
     const [data, setData] = useState({
         totalOnibus: 0,
@@ -17,25 +18,15 @@ const useDashboardData = () => {
         setLoading(true);
         setError(null);
         try {
-            // <<< MELHORIA: Executa todas as chamadas em paralelo
-            const [
-                onibusTotalResponse,
-                onibusEmOperacaoResponse,
-                osEmExecucaoResponse,
-                estoqueAbaixoMinimoResponse,
-            ] = await Promise.all([
-                onibusService.getAll(),
-                onibusService.search({ status: 'EM_OPERACAO' }),
-                ordemServicoService.search({ status: 'EM_EXECUCAO' }),
-                estoqueService.getEstoqueAbaixoDoMinimo(),
-            ]);
-
-            setData({
-                totalOnibus: onibusTotalResponse.data.length,
-                onibusEmOperacao: onibusEmOperacaoResponse.data.length,
-                osEmExecucao: osEmExecucaoResponse.data.length,
-                itensAbaixoMinimo: estoqueAbaixoMinimoResponse.data.length,
-            });
+            // Uma chamada: os contadores por dimensão mantidos no servidor, sem listar nem contar as tabelas
+            const { data: contadores } = await dashboardService.getContadores();
+
+            setData((atual) => ({
+                ...atual,
+                totalOnibus: somar(contadores.onibusPorStatus),
+                onibusEmOperacao: contadores.onibusPorStatus?.EM_OPERACAO ?? 0,
+                osEmExecucao: contadores.ordensServicoPorStatus?.EM_EXECUCAO ?? 0,
+            }));
         } catch (err) {
             console.error('❌ Erro ao buscar dados do dashboard:', err);
             setError('Não foi possível carregar os dados do painel.');
@@ -48,6 +39,24 @@ const useDashboardData = () => {
         fetchData();
     }, [fetchData]);
 
+    // Itens abaixo do mínimo pelo stream de alertas (em vez de polling): o snapshot traz a lista inteira e cada
+    // alerta acrescenta ou tira um produto
+    useEffect(() => {
+        let abaixoDoMinimo = new Set();
+        const encerrar = estoqueService.acompanharAlertas((evento, dados) => {
+            if (evento === 'snapshot') {
+                abaixoDoMinimo = new Set(dados.map((alerta) => alerta.produtoId));
+            } else if (evento === 'alerta') {
+                if (dados.abaixoDoMinimo) abaixoDoMinimo.add(dados.produtoId);
+                else abaixoDoMinimo.delete(dados.produtoId);
+            } else {
+                return;
+            }
+            setData((atual) => ({ ...atual, itensAbaixoMinimo: abaixoDoMinimo.size }));
+        });
+        return encerrar;
+    }, []);
+
     return { data, loading, error, refetch: fetchData };
 };
 
@@ -1,7 +1,14 @@
 // src/services/api.js
 import axios from 'axios';
 
-const API_BASE_URL = 'http://localhost:8080/api';
+export const API_BASE_URL = 'http://localhost:8080/api';
+
+// Autenticação básica do usuário fixo; exportada para as chamadas feitas fora do axios (stream de alertas)
+export const authorizationHeader = () => {
+  const username = 'admin';
+  const password = '123456';
+  return `Basic ${btoa(`${username}:${password}`)}`;
+};
 
 // Criar instância do axios com configurações corretas
 const api = axios.create({
@@ -19,10 +26,7 @@ api.interceptors.request.use(
     console.log('📦 Dados enviados:', config.data);
     
     // ✅ Adiciona autenticação básica manualmente no header
-    const username = 'admin';
-    const password = '123456';
-    const authToken = btoa(`${username}:${password}`);
-    config.headers.Authorization = `Basic ${authToken}`;
+    config.headers.Authorization = authorizationHeader();
     
     // ✅ Headers importantes para CORS
     config.headers['Access-Control-Allow-Credentials'] = 'true';
@@ -0,0 +1,7 @@
+import api from './api';
+
+export const autocompleteService = {
+  // Sugestões do índice em memória do servidor. 'tipos' é uma lista de ONIBUS, MOTOR, CAMBIO, PNEU, PRODUTO;
+  // cada sugestão vem como { tipo, id, campo, valor }.
+  sugerir: (q, tipos, limite = 10) => api.get('/autocomplete', { params: { q, tipos: tipos.join(','), limite } }),
+};
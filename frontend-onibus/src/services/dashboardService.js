@@ -0,0 +1,7 @@
+import api from './api';
+
+export const dashboardService = {
+  // Todas as contagens do painel numa chamada (mapas por dimensão: onibusPorStatus, ordensServicoPorStatus, ...)
+  getContadores: () => api.get('/dashboard'),
+  verificarConsistencia: () => api.get('/dashboard/consistencia'),
+};
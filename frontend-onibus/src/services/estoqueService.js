@@ -1,4 +1,47 @@
-import api from './api';
+import api, { API_BASE_URL, authorizationHeader } from './api';
+
+// Lê o stream SSE com fetch: o EventSource do navegador não envia o cabeçalho Authorization.
+// Chama onEvento(nome, dados) para cada evento e reconecta sozinho; devolve a função que encerra o stream.
+const acompanharStream = (caminho, onEvento) => {
+  const controle = new AbortController();
+  const conectar = async () => {
+    while (!controle.signal.aborted) {
+      try {
+        const response = await fetch(`${API_BASE_URL}${caminho}`, {
+          headers: { Authorization: authorizationHeader(), Accept: 'text/event-stream' },
+          credentials: 'include',
+          signal: controle.signal,
+        });
+        if (!response.ok) throw new Error(`HTTP ${response.status}`);
+        const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+        let pendente = '';
+        for (;;) {
+          const { value, done } = await reader.read();
+          if (done) break;
+          pendente += value;
+          const blocos = pendente.split(/\r?\n\r?\n/);
+          pendente = blocos.pop();
+          blocos.forEach((bloco) => {
+            let nome = 'message';
+            const dados = [];
+            bloco.split(/\r?\n/).forEach((linha) => {
+              if (linha.startsWith('event:')) nome = linha.slice(6).trim();
+              else if (linha.startsWith('data:')) dados.push(linha.slice(5));
+            });
+            if (dados.length > 0) onEvento(nome, JSON.parse(dados.join('\n')));
+          });
+        }
+      } catch (err) {
+        if (controle.signal.aborted) return;
+        console.error('❌ Stream de alertas interrompido:', err);
+      }
+      // Conexão caiu (ou foi desconectada por ficar para trás): tenta de novo e recebe um snapshot novo
+      await new Promise((resolve) => setTimeout(resolve, 5000));
+    }
+  };
+  conectar();
+  return () => controle.abort();
+};
 
 export const estoqueService = {
   // --- Consultas ---
@@ -16,6 +59,8 @@ export const estoqueService = {
 
   // --- Relatórios e Alertas ---
   getEstoqueAbaixoDoMinimo: () => api.get('/estoque/alertas/estoque-baixo'),
+  // Eventos "snapshot" (lista dos itens abaixo do mínimo) e "alerta" (um produto que cruzou o mínimo)
+  acompanharAlertas: (onEvento) => acompanharStream('/estoque/alertas/stream', onEvento),
   getValorTotalInventario: () => api.get('/estoque/relatorios/valor-total-inventario'),
   getValorTotalPorCategoria: () => api.get('/estoque/relatorios/valor-por-categoria'),
 };
@@ -13,6 +13,8 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.proj_db.onibus.service.BuscaPaginada;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -44,6 +46,9 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:3000"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        // Metadados de paginação das buscas (/search) vão em cabeçalhos; sem isso o navegador não os entrega ao front
+        configuration.setExposedHeaders(Arrays.asList(BuscaPaginada.CABECALHO_PAGINA, BuscaPaginada.CABECALHO_TEM_PROXIMA,
+                BuscaPaginada.CABECALHO_PROXIMO_CURSOR, BuscaPaginada.CABECALHO_TOTAL));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
 
@@ -0,0 +1,37 @@
+package com.proj_db.onibus.controller;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.proj_db.onibus.dto.AutocompleteDTO;
+import com.proj_db.onibus.service.IndiceAutocomplete;
+import com.proj_db.onibus.service.IndiceAutocomplete.TipoEntidade;
+
+@RestController
+@RequestMapping("/api/autocomplete")
+@CrossOrigin(origins = "*")
+public class AutocompleteController {
+
+    @Autowired
+    private IndiceAutocomplete indiceAutocomplete;
+
+    // Sugestões para o AutocompleteInput, servidas do índice em memória. Sem 'tipos', busca em todas as entidades.
+    @GetMapping
+    public ResponseEntity<List<AutocompleteDTO>> sugerir(
+            @RequestParam String q,
+            @RequestParam(required = false) Set<TipoEntidade> tipos,
+            @RequestParam(defaultValue = "10") int limite
+    ) {
+        Set<TipoEntidade> filtro = (tipos == null || tipos.isEmpty()) ? EnumSet.allOf(TipoEntidade.class) : tipos;
+        return ResponseEntity.ok(indiceAutocomplete.buscar(q, filtro, limite));
+    }
+}
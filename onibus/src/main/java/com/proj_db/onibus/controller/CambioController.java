@@ -17,12 +17,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.proj_db.onibus.dto.CambioCreateDTO;
 import com.proj_db.onibus.dto.CambioResponseDTO;
 import com.proj_db.onibus.dto.CambioUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.model.Cambio;
+import com.proj_db.onibus.service.BuscaPaginada;
 import com.proj_db.onibus.service.CambioService;
+import com.proj_db.onibus.service.ExportadorFrota;
 
 import jakarta.validation.Valid;
 
@@ -34,6 +39,9 @@ public class CambioController {
     @Autowired
     private CambioService cambioService;
 
+    @Autowired
+    private ExportadorFrota exportadorFrota;
+
     // --- Endpoints CRUD ---
 
     @PostMapping
@@ -78,6 +86,17 @@ public class CambioController {
         return ResponseEntity.ok(dtos);
     }
     
+    // Exportação completa em streaming (NDJSON ou CSV), para cargas noturnas; gzip=true compacta a resposta
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam(defaultValue = "NDJSON") ExportadorFrota.Formato formato,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        StreamingResponseBody corpo = exportadorFrota.exportar(ExportadorFrota.Conjunto.CAMBIOS, Cambio.class,
+                CambioResponseDTO::new, formato, gzip);
+        return ResponseEntity.ok().headers(ExportadorFrota.cabecalhos("cambios", formato, gzip)).body(corpo);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<CambioResponseDTO>> search(
             // Mapeia os parâmetros da URL para um DTO de busca
@@ -86,13 +105,12 @@ public class CambioController {
             @RequestParam(required = false) String numeroSerie,
             @RequestParam(required = false) String tipoFluido,
             @RequestParam(required = false) Cambio.TipoCambio tipo,
-            @RequestParam(required = false) Cambio.StatusCambio status
+            @RequestParam(required = false) Cambio.StatusCambio status,
+            ParametrosPaginaDTO paginacao // pagina, tamanho, ordenarPor, direcao, cursor, contar
     ) {
         CambioService.CambioSearchDTO criteria = new CambioService.CambioSearchDTO(marca, modelo, numeroSerie, tipoFluido, tipo, status);
-        List<CambioResponseDTO> dtos = cambioService.search(criteria).stream()
-                .map(CambioResponseDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        PaginaBuscaDTO<CambioResponseDTO> pagina = cambioService.search(criteria, paginacao);
+        return ResponseEntity.ok().headers(BuscaPaginada.cabecalhos(pagina)).body(pagina.itens());
     }
 
     // --- Endpoints de Ações de Negócio ---
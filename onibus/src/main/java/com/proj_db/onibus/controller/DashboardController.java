@@ -0,0 +1,57 @@
+package com.proj_db.onibus.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.proj_db.onibus.dto.CacheBuscasEstatisticasDTO;
+import com.proj_db.onibus.dto.DashboardConsistenciaDTO;
+import com.proj_db.onibus.dto.DashboardDTO;
+import com.proj_db.onibus.service.CacheBuscas;
+import com.proj_db.onibus.service.ContadoresDashboard;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@CrossOrigin(origins = "*")
+public class DashboardController {
+
+    @Autowired
+    private ContadoresDashboard contadoresDashboard;
+
+    @Autowired
+    private CacheBuscas cacheBuscas;
+
+    // Todas as contagens do dashboard numa única leitura da tabela de contadores
+    @GetMapping
+    public ResponseEntity<DashboardDTO> consultar() {
+        return ResponseEntity.ok(contadoresDashboard.consultar());
+    }
+
+    @GetMapping("/consistencia")
+    public ResponseEntity<DashboardConsistenciaDTO> verificarConsistencia() {
+        return ResponseEntity.ok(contadoresDashboard.verificar());
+    }
+
+    @PostMapping("/reconstruir")
+    public ResponseEntity<DashboardConsistenciaDTO> reconstruir() {
+        contadoresDashboard.reconstruir();
+        return ResponseEntity.ok(contadoresDashboard.verificar());
+    }
+
+    // Métricas do cache das buscas (/search): acertos, falhas, despejos, expirações e invalidações por entidade
+    @GetMapping("/cache-buscas")
+    public ResponseEntity<CacheBuscasEstatisticasDTO> estatisticasCacheBuscas() {
+        return ResponseEntity.ok(cacheBuscas.estatisticas());
+    }
+
+    @DeleteMapping("/cache-buscas")
+    public ResponseEntity<CacheBuscasEstatisticasDTO> limparCacheBuscas() {
+        cacheBuscas.limpar();
+        return ResponseEntity.ok(cacheBuscas.estatisticas());
+    }
+}
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,11 +15,20 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.proj_db.onibus.dto.EstoqueResponseDTO;
 import com.proj_db.onibus.dto.EstoqueUpdateDTO;
+import com.proj_db.onibus.dto.MovimentacaoEstoqueDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.PaginaKeysetDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.model.Estoque;
 import com.proj_db.onibus.model.Produto;
+import com.proj_db.onibus.service.AlertasEstoque;
+import com.proj_db.onibus.service.BuscaPaginada;
 import com.proj_db.onibus.service.EstoqueService;
+import com.proj_db.onibus.service.RazaoEstoque;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -32,6 +42,12 @@ public class EstoqueController {
     @Autowired
     private EstoqueService estoqueService;
 
+    @Autowired
+    private RazaoEstoque razaoEstoque;
+
+    @Autowired
+    private AlertasEstoque alertasEstoque;
+
     // DTO para a ação de adicionar estoque
     public record AdicionarEstoqueDTO(@NotNull @Positive Double quantidade) {}
 
@@ -40,7 +56,7 @@ public class EstoqueController {
     @GetMapping
     public ResponseEntity<List<EstoqueResponseDTO>> findAll() {
         List<EstoqueResponseDTO> dtos = estoqueService.findAll().stream()
-                .map(EstoqueResponseDTO::new)
+                .map(this::paraDTO)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(dtos);
     }
@@ -48,7 +64,7 @@ public class EstoqueController {
     @GetMapping("/produto/{produtoId}")
     public ResponseEntity<EstoqueResponseDTO> findByProdutoId(@PathVariable Long produtoId) {
         return estoqueService.findByProdutoId(produtoId)
-                .map(EstoqueResponseDTO::new)
+                .map(this::paraDTO)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -59,15 +75,24 @@ public class EstoqueController {
             @RequestParam(required = false) String nomeProduto,
             @RequestParam(required = false) String marcaProduto,
             @RequestParam(required = false) Produto.Categoria categoriaProduto,
-            @RequestParam(required = false) String localizacao
+            @RequestParam(required = false) String localizacao,
+            ParametrosPaginaDTO paginacao // pagina, tamanho, ordenarPor, direcao, cursor, contar
     ) {
         EstoqueService.EstoqueSearchDTO criteria = new EstoqueService.EstoqueSearchDTO(
                 produtoId, nomeProduto, marcaProduto, categoriaProduto, localizacao);
         
-        List<EstoqueResponseDTO> dtos = estoqueService.search(criteria).stream()
-                .map(EstoqueResponseDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        PaginaBuscaDTO<EstoqueResponseDTO> pagina = estoqueService.search(criteria, paginacao).map(this::comSaldoDaRazao);
+        return ResponseEntity.ok().headers(BuscaPaginada.cabecalhos(pagina)).body(pagina.itens());
+    }
+
+    // Diário de movimentações do estoque, do mais recente ao mais antigo. Passe o proximoCursor devolvido para a página seguinte.
+    @GetMapping("/{id}/movimentacoes")
+    public ResponseEntity<PaginaKeysetDTO<MovimentacaoEstoqueDTO>> listarMovimentacoes(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "50") int tamanho,
+            @RequestParam(required = false) String cursor
+    ) {
+        return ResponseEntity.ok(estoqueService.listarMovimentacoes(id, tamanho, cursor));
     }
 
     // --- Endpoints de Ações de Negócio ---
@@ -88,7 +113,7 @@ public class EstoqueController {
             @PathVariable Long produtoId, 
             @Valid @RequestBody AdicionarEstoqueDTO dto) {
         var estoqueAtualizado = estoqueService.adicionar(produtoId, dto.quantidade());
-        return ResponseEntity.ok(new EstoqueResponseDTO(estoqueAtualizado));
+        return ResponseEntity.ok(paraDTO(estoqueAtualizado));
     }
 
     // --- Endpoints de Relatórios e Alertas ---
@@ -96,11 +121,18 @@ public class EstoqueController {
     @GetMapping("/alertas/estoque-baixo")
     public ResponseEntity<List<EstoqueResponseDTO>> findEstoqueAbaixoDoMinimo() {
         List<EstoqueResponseDTO> dtos = estoqueService.findEstoqueAbaixoDoMinimo().stream()
-                .map(EstoqueResponseDTO::new)
+                .map(this::paraDTO)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(dtos);
     }
     
+    // Alertas por SSE: um evento "snapshot" com os itens abaixo do mínimo na conexão e depois um evento "alerta"
+    // a cada produto que cruza o mínimo (em qualquer sentido). Substitui o polling do endpoint acima.
+    @GetMapping(value = "/alertas/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter acompanharAlertas() {
+        return alertasEstoque.inscrever();
+    }
+
     @GetMapping("/relatorios/valor-total-inventario")
     public ResponseEntity<Double> getValorTotalInventario() {
         return ResponseEntity.ok(estoqueService.calcularValorTotalInventario());
@@ -110,4 +142,16 @@ public class EstoqueController {
     public ResponseEntity<List<Object[]>> getValorTotalPorCategoria() {
         return ResponseEntity.ok(estoqueService.calcularValorTotalPorCategoria());
     }
-}
\ No newline at end of file
+
+    private EstoqueResponseDTO paraDTO(Estoque estoque) {
+        return comSaldoDaRazao(new EstoqueResponseDTO(estoque));
+    }
+
+    // Produtos da razão em memória: o banco só recebe os movimentos na próxima descarga do WAL.
+    // O DTO recebido não é alterado; com saldo na razão sai uma cópia.
+    private EstoqueResponseDTO comSaldoDaRazao(EstoqueResponseDTO dto) {
+        double[] saldo = razaoEstoque.saldo(dto.getProduto().getId());
+        if (saldo == null) return dto;
+        return dto.withQuantidadeAtual(saldo[0]).withQuantidadeReservada(saldo[1]).withQuantidadeDisponivel(saldo[0] - saldo[1]);
+    }
+}
@@ -0,0 +1,33 @@
+package com.proj_db.onibus.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.proj_db.onibus.dto.ImportacaoViagensResultadoDTO;
+import com.proj_db.onibus.service.ImportadorViagens;
+
+@RestController
+@RequestMapping("/api/importacao")
+@CrossOrigin(origins = "*")
+public class ImportacaoController {
+
+    @Autowired
+    private ImportadorViagens importadorViagens;
+
+    // Reprocessa um log de viagens (CSV ou NDJSON) que já está no diretório de importação do servidor (arquivo é o nome
+    // relativo a ele; caminhos fora do diretório são recusados). Use offset para retomar uma importação interrompida.
+    @PostMapping("/viagens")
+    public ResponseEntity<ImportacaoViagensResultadoDTO> importarViagens(
+            @RequestParam String arquivo,
+            @RequestParam(defaultValue = "0") long offset) {
+        ImportacaoViagensResultadoDTO resultado = importadorViagens.importar(arquivo, offset);
+        HttpStatus status = (resultado.erro() == null) ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status).body(resultado);
+    }
+}
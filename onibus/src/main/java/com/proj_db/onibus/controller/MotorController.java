@@ -17,11 +17,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.proj_db.onibus.dto.MotorCreateDTO;
 import com.proj_db.onibus.dto.MotorResponseDTO;
 import com.proj_db.onibus.dto.MotorUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.model.Motor;
+import com.proj_db.onibus.service.BuscaPaginada;
+import com.proj_db.onibus.service.ExportadorFrota;
 import com.proj_db.onibus.service.MotorService;
 
 import jakarta.validation.Valid;
@@ -34,6 +39,9 @@ public class MotorController {
     @Autowired
     private MotorService motorService;
 
+    @Autowired
+    private ExportadorFrota exportadorFrota;
+
     // --- Endpoints CRUD ---
 
     @PostMapping
@@ -73,6 +81,17 @@ public class MotorController {
         return ResponseEntity.ok(dtos);
     }
     
+    // Exportação completa em streaming (NDJSON ou CSV), para cargas noturnas; gzip=true compacta a resposta
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam(defaultValue = "NDJSON") ExportadorFrota.Formato formato,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        StreamingResponseBody corpo = exportadorFrota.exportar(ExportadorFrota.Conjunto.MOTORES, Motor.class,
+                MotorResponseDTO::new, formato, gzip);
+        return ResponseEntity.ok().headers(ExportadorFrota.cabecalhos("motores", formato, gzip)).body(corpo);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<MotorResponseDTO>> search(
             // Mapeia os parâmetros da URL para um DTO de busca, tornando a API mais clara
@@ -83,13 +102,12 @@ public class MotorController {
             @RequestParam(required = false) Motor.TipoMotor tipo,
             @RequestParam(required = false) Motor.StatusMotor status,
             @RequestParam(required = false) Integer potenciaMin,
-            @RequestParam(required = false) Integer potenciaMax
+            @RequestParam(required = false) Integer potenciaMax,
+            ParametrosPaginaDTO paginacao // pagina, tamanho, ordenarPor, direcao, cursor, contar
     ) {
         MotorService.MotorSearchDTO criteria = new MotorService.MotorSearchDTO(marca, modelo, numeroSerie, tipoOleo, tipo, status, potenciaMin, potenciaMax);
-        List<MotorResponseDTO> dtos = motorService.search(criteria).stream()
-                .map(MotorResponseDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        PaginaBuscaDTO<MotorResponseDTO> pagina = motorService.search(criteria, paginacao);
+        return ResponseEntity.ok().headers(BuscaPaginada.cabecalhos(pagina)).body(pagina.itens());
     }
 
     // --- Endpoints de Ações de Negócio ---
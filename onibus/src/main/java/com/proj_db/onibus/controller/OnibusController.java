@@ -1,5 +1,6 @@
 package com.proj_db.onibus.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -17,13 +18,28 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.proj_db.onibus.dto.CustoOnibusDTO;
 import com.proj_db.onibus.dto.OnibusCreateDTO;
+import com.proj_db.onibus.dto.OnibusListaItemDTO;
 import com.proj_db.onibus.dto.OnibusResponseDTO;
 import com.proj_db.onibus.dto.OnibusUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.PaginaKeysetDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.dto.RegistroViagemDTO;
+import com.proj_db.onibus.dto.RegistroViagensLoteResultadoDTO;
+import com.proj_db.onibus.dto.SessaoOperacionalDTO;
+import com.proj_db.onibus.dto.UtilizacaoOnibusDTO;
 import com.proj_db.onibus.model.Onibus;
 import com.proj_db.onibus.model.Pneu.PosicaoPneu;
+import com.proj_db.onibus.service.AcumuladorQuilometragem;
+import com.proj_db.onibus.service.BuscaPaginada;
+import com.proj_db.onibus.service.CustosOnibus;
+import com.proj_db.onibus.service.ExportadorFrota;
 import com.proj_db.onibus.service.OnibusService;
+import com.proj_db.onibus.service.UtilizacaoOnibus;
 
 import jakarta.validation.Valid;
 
@@ -35,6 +51,18 @@ public class OnibusController {
     @Autowired
     private OnibusService onibusService;
 
+    @Autowired
+    private ExportadorFrota exportadorFrota;
+
+    @Autowired
+    private AcumuladorQuilometragem acumuladorQuilometragem;
+
+    @Autowired
+    private UtilizacaoOnibus utilizacaoOnibus;
+
+    @Autowired
+    private CustosOnibus custosOnibus;
+
     // --- Endpoints CRUD ---
 
     @PostMapping
@@ -61,6 +89,7 @@ public class OnibusController {
     public ResponseEntity<OnibusResponseDTO> findById(@PathVariable Long id) {
         return onibusService.findById(id)
                 .map(OnibusResponseDTO::new)
+                .map(this::somarKmPendente)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -69,10 +98,40 @@ public class OnibusController {
     public ResponseEntity<List<OnibusResponseDTO>> findAll() {
         List<OnibusResponseDTO> dtos = onibusService.findAll().stream()
                 .map(OnibusResponseDTO::new)
+                .map(this::somarKmPendente)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(dtos);
     }
 
+    // Listagem paginada por keyset com linhas enxutas. Passe o proximoCursor devolvido para buscar a página seguinte.
+    @GetMapping("/pagina")
+    public ResponseEntity<PaginaKeysetDTO<OnibusListaItemDTO>> listarPagina(
+            @RequestParam(defaultValue = "ID") OnibusService.OrdenacaoOnibus ordenarPor,
+            @RequestParam(defaultValue = "ASC") String direcao,
+            @RequestParam(defaultValue = "50") int tamanho,
+            @RequestParam(required = false) String cursor
+    ) {
+        PaginaKeysetDTO<OnibusListaItemDTO> pagina = onibusService.listarPagina(ordenarPor, !"DESC".equalsIgnoreCase(direcao), tamanho, cursor);
+        List<OnibusListaItemDTO> itens = pagina.itens().stream()
+                .map(item -> {
+                    double pendente = acumuladorQuilometragem.getKmPendente(item.id());
+                    return (pendente > 0) ? item.comKmAdicional(pendente) : item;
+                })
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(new PaginaKeysetDTO<>(itens, pagina.proximoCursor()));
+    }
+
+    // Exportação completa em streaming (NDJSON ou CSV), para cargas noturnas; gzip=true compacta a resposta
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam(defaultValue = "NDJSON") ExportadorFrota.Formato formato,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        StreamingResponseBody corpo = exportadorFrota.exportar(ExportadorFrota.Conjunto.ONIBUS, Onibus.class,
+                onibus -> somarKmPendente(new OnibusResponseDTO(onibus)), formato, gzip);
+        return ResponseEntity.ok().headers(ExportadorFrota.cabecalhos("onibus", formato, gzip)).body(corpo);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<OnibusResponseDTO>> search(
             @RequestParam(required = false) String chassi,
@@ -83,23 +142,33 @@ public class OnibusController {
             @RequestParam(required = false) Onibus.StatusOnibus status,
             @RequestParam(required = false) Long motorId,
             @RequestParam(required = false) Long cambioId,
-            @RequestParam(required = false) Long pneuId
+            @RequestParam(required = false) Long pneuId,
+            ParametrosPaginaDTO paginacao // pagina, tamanho, ordenarPor, direcao, cursor, contar
     ) {
         OnibusService.OnibusSearchDTO criteria = new OnibusService.OnibusSearchDTO(chassi, placa, numeroFrota, marca, modelo, status, motorId, cambioId, pneuId);
-        List<OnibusResponseDTO> dtos = onibusService.search(criteria).stream()
-                .map(OnibusResponseDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        PaginaBuscaDTO<OnibusResponseDTO> pagina = onibusService.search(criteria, paginacao).map(this::somarKmPendente);
+        return ResponseEntity.ok().headers(BuscaPaginada.cabecalhos(pagina)).body(pagina.itens());
     }
 
     // --- Endpoints de Ações de Negócio ---
 
     @PostMapping("/{id}/registrar-viagem")
     public ResponseEntity<OnibusResponseDTO> registrarViagem(@PathVariable Long id, @RequestParam Double kmPercorridos) {
+        if (acumuladorQuilometragem.isAtivo()) {
+            // Modo write-behind: a viagem foi gravada no WAL e será aplicada na próxima descarga
+            acumuladorQuilometragem.registrar(id, kmPercorridos);
+            return ResponseEntity.accepted().build();
+        }
         Onibus onibus = onibusService.registrarViagem(id, kmPercorridos);
         return ResponseEntity.ok(new OnibusResponseDTO(onibus));
     }
 
+    // Lançamento de viagens em lote (fim de turno): resposta compacta por linha, sem o grafo completo do ônibus
+    @PostMapping("/viagens")
+    public ResponseEntity<RegistroViagensLoteResultadoDTO> registrarViagens(@RequestBody List<RegistroViagemDTO> viagens) {
+        return ResponseEntity.ok(onibusService.registrarViagens(viagens));
+    }
+
     @PatchMapping("/{id}/colocar-em-operacao")
     public ResponseEntity<OnibusResponseDTO> colocarEmOperacao(@PathVariable Long id) {
         Onibus onibus = onibusService.colocarEmOperacao(id);
@@ -112,6 +181,36 @@ public class OnibusController {
         return ResponseEntity.ok(new OnibusResponseDTO(onibus));
     }
     
+    // Sessões operacionais iniciadas no período (padrão: últimos 30 dias)
+    @GetMapping("/{id}/sessoes-operacionais")
+    public ResponseEntity<List<SessaoOperacionalDTO>> listarSessoesOperacionais(
+            @PathVariable Long id,
+            @RequestParam(required = false) LocalDate de,
+            @RequestParam(required = false) LocalDate ate) {
+        LocalDate fim = ate != null ? ate : LocalDate.now();
+        LocalDate inicio = de != null ? de : fim.minusDays(30);
+        return ResponseEntity.ok(utilizacaoOnibus.listarSessoes(id, inicio, fim));
+    }
+
+    @GetMapping("/utilizacao")
+    public ResponseEntity<List<UtilizacaoOnibusDTO>> relatorioUtilizacao(
+            @RequestParam LocalDate de,
+            @RequestParam LocalDate ate,
+            @RequestParam(defaultValue = "DIA") UtilizacaoOnibus.Agrupamento agrupamento) {
+        return ResponseEntity.ok(utilizacaoOnibus.relatorioFrota(de, ate, agrupamento));
+    }
+    
+    // Custo total de propriedade, calculado na hora a partir das OS do ônibus e dos componentes que passaram por ele
+    @GetMapping("/{id}/custo-total")
+    public ResponseEntity<CustoOnibusDTO> custoTotal(@PathVariable Long id) {
+        return ResponseEntity.ok(custosOnibus.calcular(id));
+    }
+
+    @GetMapping("/custo-total")
+    public ResponseEntity<List<CustoOnibusDTO>> rankingCustoTotal(@RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(custosOnibus.ranking(limite));
+    }
+    
     // --- Endpoints de Gerenciamento de Componentes ---
 
     @PostMapping("/{onibusId}/motor/{motorId}") // POST para adicionar um novo recurso (relação)
@@ -154,4 +253,13 @@ public class OnibusController {
         Onibus onibus = onibusService.removerPneu(onibusId, posicao);
         return ResponseEntity.ok(new OnibusResponseDTO(onibus));
     }
-}
\ No newline at end of file
+
+    // Soma a quilometragem ainda pendente no modo write-behind ao ônibus e aos seus pneus
+    private OnibusResponseDTO somarKmPendente(OnibusResponseDTO dto) {
+        double pendente = acumuladorQuilometragem.getKmPendente(dto.getId());
+        if (pendente <= 0) return dto;
+        // Cópia, sem alterar o DTO recebido: ele pode ter vindo do CacheBuscas, compartilhado entre requisições
+        return dto.withQuilometragem(dto.getQuilometragem() + pendente)
+            .withPneus(dto.getPneus().stream().map(pneu -> pneu.withKmRodados(pneu.getKmRodados() + pendente)).toList());
+    }
+}
@@ -20,12 +20,17 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.proj_db.onibus.dto.AddItemDTO;
+import com.proj_db.onibus.dto.IndiceOsAtivaConsistenciaDTO;
 import com.proj_db.onibus.dto.OrdemServicoCreateDTO;
 import com.proj_db.onibus.dto.OrdemServicoResponseDTO;
 import com.proj_db.onibus.dto.OrdemServicoSearchDTO;
 import com.proj_db.onibus.dto.OrdemServicoUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.dto.UpdateItemDTO;
 import com.proj_db.onibus.model.OrdemServico;
+import com.proj_db.onibus.service.BuscaPaginada;
+import com.proj_db.onibus.service.IndiceOsAtiva;
 import com.proj_db.onibus.service.OrdemServicoService;
 
 import jakarta.validation.Valid;
@@ -38,6 +43,9 @@ public class OrdemServicoController {
     @Autowired
     private OrdemServicoService osService;
 
+    @Autowired
+    private IndiceOsAtiva indiceOsAtiva;
+
     // --- Endpoints CRUD da Ordem de Serviço ---
 
     @PostMapping
@@ -84,15 +92,14 @@ public class OrdemServicoController {
             @RequestParam(required = false) Long onibusId,
             @RequestParam(required = false) Long produtoId,
             @RequestParam(required = false) LocalDate dataAberturaInicio,
-            @RequestParam(required = false) LocalDate dataAberturaFim
+            @RequestParam(required = false) LocalDate dataAberturaFim,
+            ParametrosPaginaDTO paginacao // pagina, tamanho, ordenarPor, direcao, cursor, contar
     ) {
         OrdemServicoSearchDTO criteria = new OrdemServicoSearchDTO(
                 numeroOS, tipo, status, onibusId, null, null, null, produtoId, dataAberturaInicio, dataAberturaFim);
         
-        List<OrdemServicoResponseDTO> dtos = osService.search(criteria).stream()
-                .map(OrdemServicoResponseDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        PaginaBuscaDTO<OrdemServicoResponseDTO> pagina = osService.search(criteria, paginacao);
+        return ResponseEntity.ok().headers(BuscaPaginada.cabecalhos(pagina)).body(pagina.itens());
     }
 
     // --- Endpoints de Ações de Ciclo de Vida ---
@@ -142,4 +149,18 @@ public class OrdemServicoController {
         OrdemServico osAtualizada = osService.removeItem(osId, itemId);
         return ResponseEntity.ok(new OrdemServicoResponseDTO(osAtualizada));
     }
-}
\ No newline at end of file
+
+    // --- Endpoints do Índice de OS Ativas ---
+
+    // Compara o índice em memória com o banco e lista as divergências por tipo de alvo
+    @GetMapping("/indice-ativas/consistencia")
+    public ResponseEntity<List<IndiceOsAtivaConsistenciaDTO>> verificarIndiceAtivas() {
+        return ResponseEntity.ok(indiceOsAtiva.verificarConsistencia());
+    }
+
+    @PostMapping("/indice-ativas/reconstruir")
+    public ResponseEntity<List<IndiceOsAtivaConsistenciaDTO>> reconstruirIndiceAtivas() {
+        indiceOsAtiva.reconstruir();
+        return ResponseEntity.ok(indiceOsAtiva.verificarConsistencia());
+    }
+}
@@ -17,11 +17,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.dto.PneuCreateDTO;
 import com.proj_db.onibus.dto.PneuResponseDTO;
 import com.proj_db.onibus.dto.PneuUpdateDTO;
 import com.proj_db.onibus.model.Pneu;
+import com.proj_db.onibus.service.BuscaPaginada;
+import com.proj_db.onibus.service.ExportadorFrota;
 import com.proj_db.onibus.service.PneuService;
 
 import jakarta.validation.Valid;
@@ -34,6 +39,9 @@ public class PneuController {
     @Autowired
     private PneuService pneuService;
 
+    @Autowired
+    private ExportadorFrota exportadorFrota;
+
     // --- Endpoints CRUD ---
 
     @PostMapping
@@ -72,6 +80,17 @@ public class PneuController {
         return ResponseEntity.ok(dtos);
     }
 
+    // Exportação completa em streaming (NDJSON ou CSV), para cargas noturnas; gzip=true compacta a resposta
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam(defaultValue = "NDJSON") ExportadorFrota.Formato formato,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        StreamingResponseBody corpo = exportadorFrota.exportar(ExportadorFrota.Conjunto.PNEUS, Pneu.class,
+                PneuResponseDTO::new, formato, gzip);
+        return ResponseEntity.ok().headers(ExportadorFrota.cabecalhos("pneus", formato, gzip)).body(corpo);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<PneuResponseDTO>> search(
             @RequestParam(required = false) String marca,
@@ -80,13 +99,12 @@ public class PneuController {
             @RequestParam(required = false) Pneu.StatusPneu status,
             @RequestParam(required = false) Double kmRodadosMin,
             @RequestParam(required = false) Double kmRodadosMax,
-            @RequestParam(required = false) Long onibusId
+            @RequestParam(required = false) Long onibusId,
+            ParametrosPaginaDTO paginacao // pagina, tamanho, ordenarPor, direcao, cursor, contar
     ) {
         PneuService.PneuSearchDTO criteria = new PneuService.PneuSearchDTO(marca, medida, numeroSerie, status, kmRodadosMin, kmRodadosMax, onibusId);
-        List<PneuResponseDTO> dtos = pneuService.search(criteria).stream()
-                .map(PneuResponseDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        PaginaBuscaDTO<PneuResponseDTO> pagina = pneuService.search(criteria, paginacao);
+        return ResponseEntity.ok().headers(BuscaPaginada.cabecalhos(pagina)).body(pagina.itens());
     }
 
     // --- Endpoints de Ações de Negócio (Ciclo de Vida) ---
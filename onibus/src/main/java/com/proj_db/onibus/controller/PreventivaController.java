@@ -0,0 +1,28 @@
+package com.proj_db.onibus.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.proj_db.onibus.dto.VarreduraPreventivaRelatorioDTO;
+import com.proj_db.onibus.service.VarreduraPreventivaCoordenador;
+
+@RestController
+@RequestMapping("/api/preventivas")
+@CrossOrigin(origins = "*")
+public class PreventivaController {
+
+    @Autowired
+    private VarreduraPreventivaCoordenador coordenador;
+
+    // Dispara a varredura sob demanda. Com serial=true percorre as entidades em sequência, sem faixas, para comparar os tempos.
+    @PostMapping("/varredura")
+    public ResponseEntity<VarreduraPreventivaRelatorioDTO> executarVarredura(@RequestParam(defaultValue = "false") boolean serial) {
+        VarreduraPreventivaRelatorioDTO relatorio = serial ? coordenador.executarSerial() : coordenador.executarParalelo();
+        return ResponseEntity.ok(relatorio);
+    }
+}
@@ -18,10 +18,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.proj_db.onibus.dto.ConsumoProdutoDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.dto.ProdutoCreateDTO;
 import com.proj_db.onibus.dto.ProdutoResponseDTO;
 import com.proj_db.onibus.dto.ProdutoUpdateDTO;
 import com.proj_db.onibus.model.Produto;
+import com.proj_db.onibus.service.BuscaPaginada;
+import com.proj_db.onibus.service.ConsumoProdutos;
 import com.proj_db.onibus.service.ProdutoService;
 
 import jakarta.validation.Valid;
@@ -35,6 +40,9 @@ public class ProdutoController {
 
     @Autowired
     private ProdutoService produtoService;
+
+    @Autowired
+    private ConsumoProdutos consumoProdutos;
     
     // DTO simples para a requisição de atualização de preço
     public record UpdatePriceDTO(@NotNull @Positive Double novoPreco){}
@@ -90,13 +98,12 @@ public class ProdutoController {
             @RequestParam(required = false) String marca,
             @RequestParam(required = false) String codigoInterno,
             @RequestParam(required = false) Produto.Categoria categoria,
-            @RequestParam(required = false) Produto.StatusProduto status
+            @RequestParam(required = false) Produto.StatusProduto status,
+            ParametrosPaginaDTO paginacao // pagina, tamanho, ordenarPor, direcao, cursor, contar
     ) {
         ProdutoService.ProdutoSearchDTO criteria = new ProdutoService.ProdutoSearchDTO(nome, marca, codigoInterno, categoria, status);
-        List<ProdutoResponseDTO> dtos = produtoService.search(criteria).stream()
-                .map(ProdutoResponseDTO::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        PaginaBuscaDTO<ProdutoResponseDTO> pagina = produtoService.search(criteria, paginacao);
+        return ResponseEntity.ok().headers(BuscaPaginada.cabecalhos(pagina)).body(pagina.itens());
     }
     
     // --- Endpoints de Relatório e Auxiliares ---
@@ -120,6 +127,17 @@ public class ProdutoController {
         return ResponseEntity.ok(produtoService.findProdutosMaisUtilizados());
     }
 
+    // Janelas de consumo e previsão para o horizonte pedido, a partir do consumo diário agregado
+    @GetMapping("/{id}/consumo")
+    public ResponseEntity<ConsumoProdutoDTO> consultarConsumo(@PathVariable Long id, @RequestParam(defaultValue = "30") int horizonteDias) {
+        return ResponseEntity.ok(consumoProdutos.consultar(id, horizonteDias));
+    }
+
+    @GetMapping("/relatorios/consumo")
+    public ResponseEntity<List<ConsumoProdutoDTO>> consultarConsumoTodos(@RequestParam(defaultValue = "30") int horizonteDias) {
+        return ResponseEntity.ok(consumoProdutos.consultarTodos(horizonteDias));
+    }
+
     @GetMapping("/relatorios/contagem-por-categoria")
     public ResponseEntity<List<Object[]>> countByCategoria() {
         return ResponseEntity.ok(produtoService.countByCategoria());
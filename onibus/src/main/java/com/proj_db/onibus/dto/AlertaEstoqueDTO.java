@@ -0,0 +1,16 @@
+package com.proj_db.onibus.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de um alerta de estoque baixo enviado por SSE. abaixoDoMinimo=false indica que o produto voltou ao mínimo.
+ */
+public record AlertaEstoqueDTO(
+    Long produtoId,
+    Long estoqueId,
+    String nomeProduto,
+    Double quantidadeAtual,
+    Integer estoqueMinimo,
+    boolean abaixoDoMinimo,
+    LocalDateTime momento
+) {}
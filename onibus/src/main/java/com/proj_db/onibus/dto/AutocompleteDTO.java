@@ -0,0 +1,11 @@
+package com.proj_db.onibus.dto;
+
+/**
+ * DTO de uma sugestão do autocomplete: qual entidade, qual campo casou e o valor original do campo.
+ */
+public record AutocompleteDTO(
+    String tipo,
+    Long id,
+    String campo,
+    String valor
+) {}
@@ -0,0 +1,21 @@
+package com.proj_db.onibus.dto;
+
+import java.util.List;
+
+/**
+ * DTO com as métricas do cache de buscas (/search): totais e, por entidade, acertos, falhas, despejos por
+ * tamanho, expirações por tempo de vida e invalidações por escrita.
+ */
+public record CacheBuscasEstatisticasDTO(
+    boolean ativo,
+    int entradas,
+    int maximoEntradas,
+    long ttlMs,
+    long acertos,
+    long falhas,
+    double taxaAcerto,
+    List<Busca> buscas
+) {
+    public record Busca(String entidade, int entradas, long acertos, long falhas, double taxaAcerto,
+                        long despejos, long expiracoes, long invalidacoes) {}
+}
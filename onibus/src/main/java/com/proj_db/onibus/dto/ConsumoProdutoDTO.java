@@ -0,0 +1,17 @@
+package com.proj_db.onibus.dto;
+
+/**
+ * DTO com o consumo recente de um produto (janelas de 7, 30 e 90 dias) e a previsão de demanda pela média móvel.
+ */
+public record ConsumoProdutoDTO(
+    Long produtoId,
+    String nome,
+    double consumo7Dias,
+    double consumo30Dias,
+    double consumo90Dias,
+    double mediaDiaria,
+    int horizonteDias,
+    double previsaoHorizonte,
+    double saldoDisponivel,
+    Double diasDeCobertura
+) {}
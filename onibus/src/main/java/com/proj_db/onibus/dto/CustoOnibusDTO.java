@@ -0,0 +1,16 @@
+package com.proj_db.onibus.dto;
+
+/**
+ * DTO com o custo total de propriedade (TCO) de um ônibus, separado pela origem das OS.
+ */
+public record CustoOnibusDTO(
+    Long onibusId,
+    String placa,
+    String numeroFrota,
+    double custoOnibus,
+    double custoMotor,
+    double custoCambio,
+    double custoPneus,
+    double custoTotal,
+    long ordensServico
+) {}
@@ -0,0 +1,14 @@
+package com.proj_db.onibus.dto;
+
+import java.util.List;
+
+/**
+ * DTO com o resultado da conferência dos contadores do dashboard contra as tabelas de origem.
+ */
+public record DashboardConsistenciaDTO(
+    boolean consistente,
+    List<Divergencia> divergencias,
+    long tempoMs
+) {
+    public record Divergencia(String entidade, String dimensao, String valor, long contador, long real) {}
+}
@@ -0,0 +1,20 @@
+package com.proj_db.onibus.dto;
+
+import java.util.Map;
+
+/**
+ * DTO do dashboard da frota: todas as contagens por dimensão, lidas de uma vez da tabela de contadores.
+ */
+public record DashboardDTO(
+    Map<String, Long> onibusPorStatus,
+    Map<String, Long> onibusPorMarca,
+    Map<String, Long> motoresPorStatus,
+    Map<String, Long> motoresPorTipo,
+    Map<String, Long> cambiosPorStatus,
+    Map<String, Long> cambiosPorTipo,
+    Map<String, Long> pneusPorStatus,
+    Map<String, Long> pneusPorMarca,
+    Map<String, Long> ordensServicoPorStatus,
+    Map<String, Long> ordensServicoPorTipo,
+    Map<String, Long> produtosPorCategoria
+) {}
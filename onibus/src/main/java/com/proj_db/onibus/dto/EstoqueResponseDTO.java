@@ -2,19 +2,23 @@ package com.proj_db.onibus.dto;
 
 import com.proj_db.onibus.model.Estoque;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.With;
 
 /**
  * DTO para enviar informações de um registro de Estoque de volta ao cliente.
  */
 @Data
+@AllArgsConstructor
 public class EstoqueResponseDTO {
     private Long id;
     private ProdutoResponseDTO produto; // Inclui info do produto associado
     private String localizacaoFisica;
-    private Double quantidadeAtual;
-    private Double quantidadeReservada;
-    private Double quantidadeDisponivel; // Campo calculado
+    // @With: cópia com o saldo da RazaoEstoque (EstoqueController)
+    @With private Double quantidadeAtual;
+    @With private Double quantidadeReservada;
+    @With private Double quantidadeDisponivel; // Campo calculado
 
     public EstoqueResponseDTO(Estoque estoque) {
         this.id = estoque.getId();
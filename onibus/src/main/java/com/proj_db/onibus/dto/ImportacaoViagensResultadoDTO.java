@@ -0,0 +1,17 @@
+package com.proj_db.onibus.dto;
+
+/**
+ * DTO com o resultado de uma importação de log de viagens. O offsetFinal é a posição (em bytes) logo após o último
+ * lote aplicado: em caso de erro, basta repetir a importação a partir dele.
+ */
+public record ImportacaoViagensResultadoDTO(
+    String arquivo,
+    long offsetInicial,
+    long offsetFinal,
+    long linhasLidas,
+    long linhasImportadas,
+    long linhasRejeitadas,
+    long tempoMs,
+    double linhasPorSegundo,
+    String erro
+) {}
@@ -0,0 +1,18 @@
+package com.proj_db.onibus.dto;
+
+import java.util.List;
+
+/**
+ * DTO com o resultado da comparação entre o índice em memória de OS ativas e o banco, para um tipo de alvo.
+ */
+public record IndiceOsAtivaConsistenciaDTO(
+    String alvo,
+    int totalNoIndice,
+    int totalNoBanco,
+    List<Long> ausentesNoIndice,   // Têm OS ativa no banco, mas não estão no índice
+    List<Long> excedentesNoIndice  // Estão no índice, mas não têm OS ativa no banco
+) {
+    public boolean consistente() {
+        return ausentesNoIndice.isEmpty() && excedentesNoIndice.isEmpty();
+    }
+}
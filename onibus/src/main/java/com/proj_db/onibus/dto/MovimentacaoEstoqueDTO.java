@@ -0,0 +1,15 @@
+package com.proj_db.onibus.dto;
+
+import java.time.LocalDate;
+
+import com.proj_db.onibus.model.Estoque;
+
+/**
+ * DTO de um lançamento do diário de movimentações de um estoque.
+ */
+public record MovimentacaoEstoqueDTO(
+    Long id,
+    LocalDate data,
+    Double quantidade,
+    Estoque.TipoRegistro tipo
+) {}
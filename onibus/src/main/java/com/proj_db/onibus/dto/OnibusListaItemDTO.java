@@ -0,0 +1,24 @@
+package com.proj_db.onibus.dto;
+
+import java.time.LocalDate;
+
+import com.proj_db.onibus.model.Onibus;
+
+/**
+ * Linha enxuta da listagem paginada de ônibus. Montada direto na consulta (expressão de construtor),
+ * sem carregar a entidade, os componentes nem os históricos.
+ */
+public record OnibusListaItemDTO(
+    Long id,
+    String placa,
+    String numeroFrota,
+    String modelo,
+    Onibus.StatusOnibus status,
+    Double quilometragem,
+    LocalDate dataProximaManutencao,
+    LocalDate dataProximaReforma
+) {
+    public OnibusListaItemDTO comKmAdicional(double km) {
+        return new OnibusListaItemDTO(id, placa, numeroFrota, modelo, status, quilometragem + km, dataProximaManutencao, dataProximaReforma);
+    }
+}
@@ -6,12 +6,15 @@ import java.util.stream.Collectors;
 
 import com.proj_db.onibus.model.Onibus;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.With;
 
 /**
  * DTO para enviar informações detalhadas de um Ônibus de volta ao cliente.
  */
 @Data
+@AllArgsConstructor
 public class OnibusResponseDTO {
     // Atributos principais
     private Long id;
@@ -20,12 +23,12 @@ public class OnibusResponseDTO {
     private String marca;
     private String modelo;
     private Onibus.StatusOnibus status;
-    private Double quilometragem;
+    @With private Double quilometragem; // @With: cópia com a km pendente somada (OnibusController)
     
     // Componentes (resumidos)
     private MotorResponseDTO motor;
     private CambioResponseDTO cambio;
-    private List<PneuResponseDTO> pneus;
+    @With private List<PneuResponseDTO> pneus;
 
     // Atributos detalhados
     private Integer anoFabricacao;
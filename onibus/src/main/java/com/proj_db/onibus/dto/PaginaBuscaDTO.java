@@ -0,0 +1,21 @@
+package com.proj_db.onibus.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * DTO de uma página de busca. totalItens só vem preenchido quando a contagem foi pedida; proximoCursor vem
+ * nulo na última página.
+ */
+public record PaginaBuscaDTO<T>(
+    List<T> itens,
+    Integer pagina,
+    int tamanho,
+    boolean temProxima,
+    String proximoCursor,
+    Long totalItens
+) {
+    public <R> PaginaBuscaDTO<R> map(Function<T, R> conversor) {
+        return new PaginaBuscaDTO<>(itens.stream().map(conversor).toList(), pagina, tamanho, temProxima, proximoCursor, totalItens);
+    }
+}
@@ -0,0 +1,12 @@
+package com.proj_db.onibus.dto;
+
+import java.util.List;
+
+/**
+ * Página de uma listagem por keyset. proximoCursor é opaco e deve ser repassado na próxima chamada;
+ * vem nulo na última página.
+ */
+public record PaginaKeysetDTO<T>(
+    List<T> itens,
+    String proximoCursor
+) {}
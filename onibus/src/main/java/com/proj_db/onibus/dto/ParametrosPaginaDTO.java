@@ -0,0 +1,16 @@
+package com.proj_db.onibus.dto;
+
+/**
+ * DTO com os parâmetros de paginação das buscas (/search), lidos da query string. Todos opcionais:
+ * pagina (a partir de 0) ou cursor (keyset, devolvido no cabeçalho X-Proximo-Cursor), tamanho, ordenarPor
+ * (atributo simples da entidade, padrão id), direcao (ASC/DESC) e contar (inclui X-Total-Count). Sem pagina,
+ * tamanho nem cursor a busca não tem limite e devolve todas as linhas.
+ */
+public record ParametrosPaginaDTO(
+    Integer pagina,
+    Integer tamanho,
+    String ordenarPor,
+    String direcao,
+    String cursor,
+    Boolean contar
+) {}
@@ -2,12 +2,15 @@ package com.proj_db.onibus.dto;
 
 import com.proj_db.onibus.model.Pneu;
 import java.time.LocalDate;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.With;
 
 /**
  * DTO para enviar informações detalhadas de um Pneu de volta ao cliente.
  */
 @Data
+@AllArgsConstructor
 public class PneuResponseDTO {
     // Atributos principais
     private Long id;
@@ -16,7 +19,7 @@ public class PneuResponseDTO {
     private String medida;
     private Pneu.StatusPneu status;
     private Pneu.PosicaoPneu posicao;
-    private Double kmRodados;
+    @With private Double kmRodados;
     private OnibusSummaryDTO onibus;
 
     // Atributos detalhados
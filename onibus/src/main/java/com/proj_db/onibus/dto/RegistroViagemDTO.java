@@ -0,0 +1,10 @@
+package com.proj_db.onibus.dto;
+
+/**
+ * DTO de entrada de uma viagem no lançamento em lote (POST /api/onibus/viagens).
+ * A validação é feita linha a linha no serviço, para que uma linha inválida não derrube o lote inteiro.
+ */
+public record RegistroViagemDTO(
+    Long onibusId,
+    Double kmPercorridos
+) {}
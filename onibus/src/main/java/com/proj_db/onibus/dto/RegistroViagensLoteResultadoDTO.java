@@ -0,0 +1,17 @@
+package com.proj_db.onibus.dto;
+
+import java.util.List;
+
+/**
+ * DTO compacto com o resultado do lançamento de viagens em lote: totais, tempo gasto e o status de cada linha,
+ * na mesma ordem do corpo da requisição.
+ */
+public record RegistroViagensLoteResultadoDTO(
+    int total,
+    int registradas,
+    int rejeitadas,
+    long tempoMs,
+    List<Linha> linhas
+) {
+    public record Linha(int indice, Long onibusId, boolean ok, String erro) {}
+}
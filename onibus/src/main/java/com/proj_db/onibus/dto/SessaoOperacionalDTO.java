@@ -0,0 +1,25 @@
+package com.proj_db.onibus.dto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import com.proj_db.onibus.model.SessaoOperacional;
+
+/**
+ * DTO de uma sessão operacional (início/fim de operação) de um ônibus. Sessão em andamento vem com fim nulo.
+ */
+public record SessaoOperacionalDTO(
+    Long id,
+    LocalDateTime inicio,
+    LocalDateTime fim,
+    Double kmInicio,
+    Double kmFim,
+    Double kmRodados,
+    Double horasEmOperacao
+) {
+    public static SessaoOperacionalDTO de(SessaoOperacional sessao) {
+        Double km = sessao.getKmFim() != null ? sessao.getKmFim() - sessao.getKmInicio() : null;
+        Double horas = sessao.getFim() != null ? Duration.between(sessao.getInicio(), sessao.getFim()).toSeconds() / 3600.0 : null;
+        return new SessaoOperacionalDTO(sessao.getId(), sessao.getInicio(), sessao.getFim(), sessao.getKmInicio(), sessao.getKmFim(), km, horas);
+    }
+}
@@ -0,0 +1,17 @@
+package com.proj_db.onibus.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO de utilização de um ônibus em um período (dia ou semana iniciada na segunda-feira), lido dos agregados diários.
+ */
+public record UtilizacaoOnibusDTO(
+    Long onibusId,
+    String placa,
+    LocalDate inicioPeriodo,
+    double horasEmOperacao,
+    long sessoes,
+    double km,
+    Double kmPorSessao,
+    long diasOciosos
+) {}
@@ -0,0 +1,13 @@
+package com.proj_db.onibus.dto;
+
+import java.util.List;
+
+/**
+ * DTO com o resultado consolidado da varredura preventiva de todas as entidades.
+ * O modo indica se a execução foi PARALELO ou SERIAL, para comparação dos tempos.
+ */
+public record VarreduraPreventivaRelatorioDTO(
+    String modo,
+    List<VarreduraPreventivaResultadoDTO> entidades,
+    long tempoTotalMs
+) {}
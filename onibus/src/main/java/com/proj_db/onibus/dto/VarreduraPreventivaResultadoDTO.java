@@ -0,0 +1,11 @@
+package com.proj_db.onibus.dto;
+
+/**
+ * DTO com o resumo de uma execução da varredura de OS preventivas.
+ */
+public record VarreduraPreventivaResultadoDTO(
+    String entidade,
+    long registrosVerificados,
+    long osCriadas,
+    long tempoMs
+) {}
@@ -6,6 +6,10 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 import jakarta.persistence.CollectionTable;
@@ -18,8 +22,10 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotBlank;
@@ -31,9 +37,17 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Entity
-@Table(name = "cambios")
+@BatchSize(size = 50)
+@Table(name = "cambios", indexes = {
+    @Index(name = "idx_cambios_proxima_manutencao", columnList = "proxima_manutencao"),
+    @Index(name = "idx_cambios_proxima_revisao", columnList = "proxima_revisao")
+})
 public class Cambio {
 
+    // --- CONSTANTES DE PERIODICIDADE ---
+    public static final int MESES_LIMITE_MANUTENCAO = 2;
+    public static final int MESES_LIMITE_REVISAO = 6;
+
     // --- ATRIBUTOS ---
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -56,29 +70,32 @@ public class Cambio {
     @NotNull(message = "Data de compra é obrigatória")
     private LocalDate dataCompra;
 
+    // Próximos vencimentos materializados, mantidos pelos métodos de ciclo de vida para permitir busca indexada
+    @Column(name = "proxima_manutencao")
+    private LocalDate dataProximaManutencao;
+
+    @Column(name = "proxima_revisao")
+    private LocalDate dataProximaRevisao;
+
     // <<< NOVO: Históricos para rastreabilidade
-    @ElementCollection
-    @CollectionTable(name = "cambio_historico_envio_manutencao", joinColumns = @JoinColumn(name = "cambio_id"))
-    @Column(name = "data_envio")
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_envio_manutencao")
     private List<LocalDate> historicoEnvioManutencao = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(name = "cambio_historico_envio_revisao", joinColumns = @JoinColumn(name = "cambio_id"))
-    @Column(name = "data_envio")
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_envio_revisao")
     private List<LocalDate> historicoEnvioRevisao = new ArrayList<>();
 
     @ElementCollection
     @CollectionTable(name = "cambio_historico_fluido", joinColumns = @JoinColumn(name = "cambio_id"))
     private List<RegistroFluido> historicoFluido = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(name = "cambio_historico_retorno_manutencao", joinColumns = @JoinColumn(name = "cambio_id"))
-    @Column(name = "data_retorno")
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_retorno_manutencao")
     private List<LocalDate> historicoRetornoManutencao = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(name = "cambio_historico_retorno_revisao", joinColumns = @JoinColumn(name = "cambio_id"))
-    @Column(name = "data_retorno")
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_retorno_revisao")
     private List<LocalDate> historicoRetornoRevisao = new ArrayList<>();
 
     @Column(name = "marca", nullable = false, length = 100)
@@ -291,6 +308,7 @@ public class Cambio {
         if (this.status == StatusCambio.EM_MANUTENCAO) {
             this.status = StatusCambio.DISPONIVEL;
             this.historicoRetornoManutencao.add(LocalDate.now());
+            this.dataProximaManutencao = LocalDate.now().plusMonths(MESES_LIMITE_MANUTENCAO);
         }
     }
 
@@ -299,6 +317,9 @@ public class Cambio {
             this.status = StatusCambio.DISPONIVEL;
             trocarFluidoCompleto(this.tipoFluido);
             this.historicoRetornoRevisao.add(LocalDate.now());
+            // A revisão também zera o prazo da manutenção
+            this.dataProximaRevisao = LocalDate.now().plusMonths(MESES_LIMITE_REVISAO);
+            this.dataProximaManutencao = LocalDate.now().plusMonths(MESES_LIMITE_MANUTENCAO);
         }
     }
     
@@ -308,6 +329,44 @@ public class Cambio {
         }
     }
 
+    // --- VENCIMENTOS MATERIALIZADOS ---
+
+    @PrePersist
+    private void inicializarVencimentos() {
+        if (this.dataProximaManutencao == null || this.dataProximaRevisao == null) {
+            recalcularVencimentos();
+        }
+    }
+
+    // Recalcula os vencimentos a partir dos históricos (criação e registros anteriores às colunas)
+    public void recalcularVencimentos() {
+        if (this.dataCompra == null) return;
+        this.dataProximaManutencao = calcularProximaManutencao();
+        this.dataProximaRevisao = calcularProximaRevisao();
+    }
+
+    private LocalDate calcularProximaManutencao() {
+        LocalDate ultimaManutencao = getDataUltimaManutencao();
+        LocalDate ultimaRevisao = getDataUltimaRevisao();
+        LocalDate dataBase = this.dataCompra;
+        if (ultimaManutencao != null) dataBase = ultimaManutencao;
+        if (ultimaRevisao != null && ultimaRevisao.isAfter(dataBase)) dataBase = ultimaRevisao;
+        return dataBase.plusMonths(MESES_LIMITE_MANUTENCAO);
+    }
+
+    private LocalDate calcularProximaRevisao() {
+        LocalDate dataBaseRevisao = (getDataUltimaRevisao() == null) ? this.dataCompra : getDataUltimaRevisao();
+        return dataBaseRevisao.plusMonths(MESES_LIMITE_REVISAO);
+    }
+
+    private LocalDate proximaManutencaoEfetiva() {
+        return (dataProximaManutencao != null) ? dataProximaManutencao : calcularProximaManutencao();
+    }
+
+    private LocalDate proximaRevisaoEfetiva() {
+        return (dataProximaRevisao != null) ? dataProximaRevisao : calcularProximaRevisao();
+    }
+
     // --- MÉTODOS DE CONSULTA (GETTERS, GARANTIA, ETC.) ---
 
     // <<< AJUSTE: Métodos @Transient para pegar a última data de forma dinâmica
@@ -346,20 +405,12 @@ public class Cambio {
 
     public Long getDiasRestantesManutencao() {
         if (precisaManutencao()) return 0L;
-        LocalDate ultimaManutencao = getDataUltimaManutencao();
-        LocalDate ultimaRevisao = getDataUltimaRevisao();
-        LocalDate dataBase = this.dataCompra;
-        if (ultimaManutencao != null) dataBase = ultimaManutencao;
-        if (ultimaRevisao != null && ultimaRevisao.isAfter(dataBase)) dataBase = ultimaRevisao;
-        LocalDate proximaManutencao = dataBase.plusMonths(2);
-        return ChronoUnit.DAYS.between(LocalDate.now(), proximaManutencao);
+        return ChronoUnit.DAYS.between(LocalDate.now(), proximaManutencaoEfetiva());
     }
 
     public Long getDiasRestantesRevisao() {
         if (precisaRevisao()) return 0L;
-        LocalDate dataBaseRevisao = (getDataUltimaRevisao() == null) ? this.dataCompra : getDataUltimaRevisao();
-        LocalDate proximaRevisao = dataBaseRevisao.plusMonths(6);
-        return ChronoUnit.DAYS.between(LocalDate.now(), proximaRevisao);
+        return ChronoUnit.DAYS.between(LocalDate.now(), proximaRevisaoEfetiva());
     }
 
     public boolean manutencaoPrestesVencer() {
@@ -368,20 +419,12 @@ public class Cambio {
 
     public boolean precisaManutencao() {
         if (status == StatusCambio.DESCARTADO || status == StatusCambio.VENDIDO) return false;
-        LocalDate ultimaManutencao = getDataUltimaManutencao();
-        LocalDate ultimaRevisao = getDataUltimaRevisao();
-        LocalDate dataBase = this.dataCompra;
-        if (ultimaManutencao != null) dataBase = ultimaManutencao;
-        if (ultimaRevisao != null && ultimaRevisao.isAfter(dataBase)) dataBase = ultimaRevisao;
-        LocalDate proximaManutencao = dataBase.plusMonths(2);
-        return !LocalDate.now().isBefore(proximaManutencao);
+        return !LocalDate.now().isBefore(proximaManutencaoEfetiva());
     }
 
     public boolean precisaRevisao() {
         if (status == StatusCambio.DESCARTADO || status == StatusCambio.VENDIDO) return false;
-        LocalDate dataBaseRevisao = (getDataUltimaRevisao() == null) ? this.dataCompra : getDataUltimaRevisao();
-        LocalDate proximaRevisao = dataBaseRevisao.plusMonths(6);
-        return !LocalDate.now().isBefore(proximaRevisao);
+        return !LocalDate.now().isBefore(proximaRevisaoEfetiva());
     }
 
     public boolean revisaoPrestesVencer() {
@@ -0,0 +1,42 @@
+package com.proj_db.onibus.model;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Consumo de um produto em um dia: soma das quantidades dos itens das OS finalizadas naquele dia.
+ * Alimentada pelo ConsumoProdutos na finalização da OS; base das janelas de consumo e da previsão de demanda.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "produto_consumo_diario", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_consumo_produto_dia", columnNames = { "produto_id", "dia" })
+})
+public class ConsumoDiarioProduto {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "produto_id", nullable = false)
+    private Long produtoId;
+
+    @Column(name = "dia", nullable = false)
+    private LocalDate dia;
+
+    @Column(name = "quantidade", nullable = false)
+    private Double quantidade;
+
+    @Column(name = "ordens_servico", nullable = false)
+    private Integer ordensServico;
+}
@@ -0,0 +1,41 @@
+package com.proj_db.onibus.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Contador do dashboard: quantos registros de uma entidade têm determinado valor numa dimensão
+ * (ex.: ONIBUS / status / EM_OPERACAO -> 42). Mantido pelo ContadoresDashboard na mesma transação de cada
+ * inclusão, alteração ou exclusão, sempre por UPDATE incremental em SQL.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "dashboard_contadores", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_dashboard_contador", columnNames = { "entidade", "dimensao", "valor" })
+})
+public class ContadorDashboard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "entidade", nullable = false, length = 30)
+    private String entidade;
+
+    @Column(name = "dimensao", nullable = false, length = 30)
+    private String dimensao;
+
+    @Column(name = "valor", nullable = false, length = 100)
+    private String valor;
+
+    @Column(name = "quantidade", nullable = false)
+    private Long quantidade;
+}
@@ -0,0 +1,28 @@
+package com.proj_db.onibus.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Contador por prefixo usado na numeração das Ordens de Serviço (OS-PREV-, OS-APOSENT-, ...).
+ * Guarda o último valor já reservado; os números são distribuídos em blocos pelo GeradorNumeroOS.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "os_numeracao")
+public class ContadorNumeracaoOS {
+
+    @Id
+    @Column(name = "prefixo", length = 30)
+    private String prefixo;
+
+    @Column(name = "ultimo_valor", nullable = false)
+    @NotNull
+    private Long ultimoValor = 0L;
+}
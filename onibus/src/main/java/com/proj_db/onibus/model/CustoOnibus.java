@@ -0,0 +1,38 @@
+package com.proj_db.onibus.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Razão de custos de um ônibus: soma das OS finalizadas do próprio ônibus e dos componentes que estavam
+ * instalados nele na conclusão de cada OS, separada por origem. Mantida pelo CustosOnibus.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "onibus_custos")
+public class CustoOnibus {
+
+    @Id
+    @Column(name = "onibus_id")
+    private Long onibusId;
+
+    @Column(name = "custo_onibus", nullable = false)
+    private Double custoOnibus;
+
+    @Column(name = "custo_motor", nullable = false)
+    private Double custoMotor;
+
+    @Column(name = "custo_cambio", nullable = false)
+    private Double custoCambio;
+
+    @Column(name = "custo_pneus", nullable = false)
+    private Double custoPneus;
+
+    @Column(name = "ordens_servico", nullable = false)
+    private Integer ordensServico;
+}
@@ -1,18 +1,10 @@
 package com.proj_db.onibus.model;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 
 import jakarta.persistence.CascadeType;
-import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
-import jakarta.persistence.ElementCollection;
-import jakarta.persistence.Embeddable;
 import jakarta.persistence.Entity;
-import jakarta.persistence.EnumType;
-import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -35,11 +27,6 @@ public class Estoque {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    // <<< NOVO: Histórico detalhado de movimentações
-    @ElementCollection(fetch = FetchType.LAZY) // Usar LAZY para performance, EAGER se sempre precisar carregar
-    @CollectionTable(name = "estoque_historico_movimentacao", joinColumns = @JoinColumn(name = "estoque_id")) // <<< CORREÇÃO
-    private List<RegistroMovimentacao> historicoMovimentacao = new ArrayList<>();
-
     @Column(name = "localizacao_fisica", length = 100)
     private String localizacaoFisica;
 
@@ -58,25 +45,16 @@ public class Estoque {
     @PositiveOrZero(message = "Quantidade reservada não pode ser negativa")
     private Double quantidadeReservada = 0.0;
 
+    // O histórico de movimentações fica no diário estoque_movimentacoes (JornalMovimentacoes); aqui só as últimas datas
+    @Column(name = "data_ultima_entrada")
+    private LocalDate dataUltimaEntrada;
 
-    // --- CLASSE EMBUTIDA PARA O HISTÓRICO ---
-    @Embeddable
-    @Data
-    public static class RegistroMovimentacao {
-        @Column(name = "data_registro", nullable = false)
-        private LocalDate data;
-
-        @Column(name = "quantidade_movimentada", nullable = false)
-        private Double quantidade;
-
-        @Enumerated(EnumType.STRING)
-        @Column(name = "tipo_registro", nullable = false)
-        private TipoRegistro tipoRegistro;
+    @Column(name = "data_ultima_saida")
+    private LocalDate dataUltimaSaida;
 
-        public enum TipoRegistro {
-            ENTRADA,
-            SAIDA
-        }
+    public enum TipoRegistro {
+        ENTRADA,
+        SAIDA
     }
 
 
@@ -87,13 +65,7 @@ public class Estoque {
             throw new IllegalArgumentException("Quantidade a ser adicionada deve ser positiva.");
         }
         this.quantidadeAtual += quantidade;
-        
-        // <<< CORREÇÃO LÓGICA: Registra a quantidade que foi movimentada
-        RegistroMovimentacao registro = new RegistroMovimentacao();
-        registro.setData(LocalDate.now());
-        registro.setQuantidade(quantidade); // Registra o valor da transação
-        registro.setTipoRegistro(RegistroMovimentacao.TipoRegistro.ENTRADA);
-        this.historicoMovimentacao.add(registro);
+        this.dataUltimaEntrada = LocalDate.now();
     }
 
     public void confirmarConsumoReserva(Double quantidade) {
@@ -105,13 +77,7 @@ public class Estoque {
         }
         this.quantidadeReservada -= quantidade;
         this.quantidadeAtual -= quantidade;
-        
-        // <<< CORREÇÃO LÓGICA: Registra a quantidade que foi movimentada
-        RegistroMovimentacao registro = new RegistroMovimentacao();
-        registro.setData(LocalDate.now());
-        registro.setQuantidade(quantidade); // Registra o valor da transação
-        registro.setTipoRegistro(RegistroMovimentacao.TipoRegistro.SAIDA);
-        this.historicoMovimentacao.add(registro);
+        this.dataUltimaSaida = LocalDate.now();
     }
     
     public void liberarReserva(Double quantidade) {
@@ -157,24 +123,4 @@ public class Estoque {
         }
         return this.quantidadeAtual * this.produto.getPrecoUnitarioAtual();
     }
-
-    @Transient
-    public LocalDate getDataUltimaEntrada() {
-        // <<< LÓGICA CORRIGIDA: Ordena por data decrescente, pega o primeiro (o mais recente) e extrai a data
-        return this.historicoMovimentacao.stream()
-                .filter(h -> h.getTipoRegistro() == RegistroMovimentacao.TipoRegistro.ENTRADA)
-                .max(Comparator.comparing(RegistroMovimentacao::getData))
-                .map(RegistroMovimentacao::getData)
-                .orElse(null);
-    }
-
-    @Transient
-    public LocalDate getDataUltimaSaida() {
-        // <<< LÓGICA CORRIGIDA: Ordena por data decrescente, pega o primeiro (o mais recente) e extrai a data
-        return this.historicoMovimentacao.stream()
-                .filter(h -> h.getTipoRegistro() == RegistroMovimentacao.TipoRegistro.SAIDA)
-                .max(Comparator.comparing(RegistroMovimentacao::getData))
-                .map(RegistroMovimentacao::getData)
-                .orElse(null);
-    }
-}
\ No newline at end of file
+}
@@ -6,6 +6,10 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 import jakarta.persistence.CollectionTable;
@@ -18,8 +22,10 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotBlank;
@@ -31,10 +37,18 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Entity
+@BatchSize(size = 50)
 @NoArgsConstructor
-@Table(name = "motores")
+@Table(name = "motores", indexes = {
+    @Index(name = "idx_motores_proxima_manutencao", columnList = "proxima_manutencao"),
+    @Index(name = "idx_motores_proxima_revisao", columnList = "proxima_revisao")
+})
 public class Motor {
 
+    // --- CONSTANTES DE PERIODICIDADE ---
+    public static final int MESES_LIMITE_MANUTENCAO = 2;
+    public static final int MESES_LIMITE_REVISAO = 6;
+
     // --- ATRIBUTOS ---
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -61,20 +75,27 @@ public class Motor {
     @NotNull(message = "Data de compra é obrigatória")
     private LocalDate dataCompra;
 
-    @ElementCollection
-    @CollectionTable(name = "motor_historico_envio_manutencao", joinColumns = @JoinColumn(name = "motor_id"))
+    // Próximos vencimentos materializados, mantidos pelos métodos de ciclo de vida para permitir busca indexada
+    @Column(name = "proxima_manutencao")
+    private LocalDate dataProximaManutencao;
+
+    @Column(name = "proxima_revisao")
+    private LocalDate dataProximaRevisao;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_envio_manutencao")
     private List<LocalDate> historicoEnvioManutencao = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(name = "motor_historico_envio_revisao", joinColumns = @JoinColumn(name = "motor_id"))
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_envio_revisao")
     private List<LocalDate> historicoEnvioRevisao = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(name = "motor_historico_retorno_manutencao", joinColumns = @JoinColumn(name = "motor_id"))
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_retorno_manutencao")
     private List<LocalDate> historicoRetornoManutencao = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(name = "motor_historico_retorno_revisao", joinColumns = @JoinColumn(name = "motor_id"))
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_retorno_revisao")
     private List<LocalDate> historicoRetornoRevisao = new ArrayList<>();
 
     // <<< NOVO: Histórico específico para trocas de óleo.
@@ -262,6 +283,7 @@ public class Motor {
         if (this.status == StatusMotor.EM_MANUTENCAO) {
             this.status = StatusMotor.DISPONIVEL;
             this.historicoRetornoManutencao.add(LocalDate.now());
+            this.dataProximaManutencao = LocalDate.now().plusMonths(MESES_LIMITE_MANUTENCAO);
         }
     }
 
@@ -269,6 +291,9 @@ public class Motor {
         if (this.status == StatusMotor.EM_REVISAO) {
             this.status = StatusMotor.DISPONIVEL;
             this.historicoRetornoRevisao.add(LocalDate.now());
+            // A revisão também zera o prazo da manutenção
+            this.dataProximaRevisao = LocalDate.now().plusMonths(MESES_LIMITE_REVISAO);
+            this.dataProximaManutencao = LocalDate.now().plusMonths(MESES_LIMITE_MANUTENCAO);
         }
     }
     
@@ -278,6 +303,36 @@ public class Motor {
         }
     }
 
+    // --- VENCIMENTOS MATERIALIZADOS ---
+
+    @PrePersist
+    private void inicializarVencimentos() {
+        if (this.dataProximaManutencao == null || this.dataProximaRevisao == null) {
+            recalcularVencimentos();
+        }
+    }
+
+    // Recalcula os vencimentos a partir dos históricos (criação e registros anteriores às colunas)
+    public void recalcularVencimentos() {
+        if (this.dataCompra == null) return;
+        this.dataProximaManutencao = calcularProximaManutencao();
+        this.dataProximaRevisao = calcularProximaRevisao();
+    }
+
+    private LocalDate calcularProximaManutencao() {
+        LocalDate ultimaManutencao = getDataUltimaManutencao();
+        LocalDate ultimaRevisao = getDataUltimaRevisao();
+        LocalDate dataBase = this.dataCompra;
+        if (ultimaManutencao != null) dataBase = ultimaManutencao;
+        if (ultimaRevisao != null && ultimaRevisao.isAfter(dataBase)) dataBase = ultimaRevisao;
+        return dataBase.plusMonths(MESES_LIMITE_MANUTENCAO);
+    }
+
+    private LocalDate calcularProximaRevisao() {
+        LocalDate dataBaseRevisao = (getDataUltimaRevisao() == null) ? this.dataCompra : getDataUltimaRevisao();
+        return dataBaseRevisao.plusMonths(MESES_LIMITE_REVISAO);
+    }
+
     // --- MÉTODOS DE CONSULTA ---
     
     @Transient
@@ -319,21 +374,14 @@ public class Motor {
     public Long getDiasRestantesManutencao() {
         if (status == StatusMotor.DESCARTADO || status == StatusMotor.VENDIDO) return Long.MAX_VALUE;
         
-        LocalDate ultimaManutencao = getDataUltimaManutencao();
-        LocalDate ultimaRevisao = getDataUltimaRevisao();
-        LocalDate dataBase = this.dataCompra;
-        if (ultimaManutencao != null) dataBase = ultimaManutencao;
-        if (ultimaRevisao != null && ultimaRevisao.isAfter(dataBase)) dataBase = ultimaRevisao;
-        
-        LocalDate proximaManutencao = dataBase.plusMonths(2);
+        LocalDate proximaManutencao = (dataProximaManutencao != null) ? dataProximaManutencao : calcularProximaManutencao();
         return ChronoUnit.DAYS.between(LocalDate.now(), proximaManutencao);
     }
 
     public Long getDiasRestantesRevisao() {
         if (status == StatusMotor.DESCARTADO || status == StatusMotor.VENDIDO) return Long.MAX_VALUE;
         
-        LocalDate dataBaseRevisao = (getDataUltimaRevisao() == null) ? this.dataCompra : getDataUltimaRevisao();
-        LocalDate proximaRevisao = dataBaseRevisao.plusMonths(6);
+        LocalDate proximaRevisao = (dataProximaRevisao != null) ? dataProximaRevisao : calcularProximaRevisao();
         return ChronoUnit.DAYS.between(LocalDate.now(), proximaRevisao);
     }
 
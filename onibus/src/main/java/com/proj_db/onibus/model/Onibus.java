@@ -1,19 +1,23 @@
 package com.proj_db.onibus.model;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.proj_db.onibus.model.HistoricoComponente.TipoEvento;
 import com.proj_db.onibus.model.Pneu.PosicaoPneu;
 
 import jakarta.persistence.CascadeType;
-import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
-import jakarta.persistence.ElementCollection;
-import jakarta.persistence.Embeddable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
@@ -21,9 +25,11 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotBlank;
@@ -34,13 +40,19 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Entity
+@BatchSize(size = 50) // Proxies e associações EAGER carregados em lote, não um SELECT por linha
+@DynamicUpdate // Evita sobrescrever a quilometragem somada por UPDATEs em SQL (lote e write-behind)
 @NoArgsConstructor
-@Table(name = "onibus")
+@Table(name = "onibus", indexes = {
+    @Index(name = "idx_onibus_proxima_manutencao", columnList = "proxima_manutencao"),
+    @Index(name = "idx_onibus_proxima_reforma", columnList = "proxima_reforma")
+})
 public class Onibus {
 
     // <<< NOVO: Constantes para os limites de manutenção/reforma do ônibus
-    private static final long DIAS_LIMITE_MANUTENCAO = 120; // 4 meses
-    private static final long DIAS_LIMITE_REFORMA = 365;   // 1 ano
+    public static final long DIAS_LIMITE_MANUTENCAO = 120; // 4 meses
+    public static final long DIAS_LIMITE_REFORMA = 365;   // 1 ano
+    public static final long DIAS_ALERTA_PREVENTIVA = 30; // Janela usada por *PrestesVencer()
 
     // --- ATRIBUTOS ---
     @Id
@@ -67,6 +79,13 @@ public class Onibus {
     @NotNull
     private LocalDate dataCompra;
 
+    // Próximos vencimentos materializados, mantidos pelos métodos de ciclo de vida para permitir busca indexada
+    @Column(name = "proxima_manutencao")
+    private LocalDate dataProximaManutencao;
+
+    @Column(name = "proxima_reforma")
+    private LocalDate dataProximaReforma;
+
     @Column(name = "quilometragem", nullable = false)
     @NotNull
     @PositiveOrZero
@@ -107,47 +126,36 @@ public class Onibus {
 
     @JsonManagedReference
     @OneToMany(mappedBy = "onibus", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @BatchSize(size = 50)
     private List<Pneu> pneus = new ArrayList<>();
     
     @JsonManagedReference
     @OneToMany(mappedBy = "onibus", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<HistoricoComponente> historicoComponentes = new ArrayList<>();
     
-    @ElementCollection
+    // Históricos em colunas date[] da própria linha, em ordem cronológica: vêm junto com o ônibus e um
+    // novo registro é só um UPDATE da linha (antes, bags que eram apagados e reinseridos a cada alteração)
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_envio_manutencao")
     private List<LocalDate> historicoEnvioManutencao = new ArrayList<>();
-    @ElementCollection
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_envio_reforma")
     private List<LocalDate> historicoEnvioReforma = new ArrayList<>();
-    @ElementCollection
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_retorno_manutencao")
     private List<LocalDate> historicoRetornoManutencao = new ArrayList<>();
-    @ElementCollection
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_retorno_reforma")
     private List<LocalDate> historicoRetornoReforma = new ArrayList<>();
     
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "onibus_historico_operacional", joinColumns = @JoinColumn(name = "onibus_id"))
-    private List<RegistroOperacional> historicoOperacional = new ArrayList<>();
+    // Sessão em andamento; as encerradas ficam só em onibus_sessoes_operacionais e são lidas sob demanda
+    @OneToOne(fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST, CascadeType.MERGE })
+    @JsonIgnore
+    @JoinColumn(name = "sessao_operacional_atual_id")
+    private SessaoOperacional sessaoOperacionalAtual;
 
     
-    // --- CLASSE EMBUTIDA E ENUMS ---
-    @Embeddable // Anotação que diz ao JPA que esta classe pode ser embutida em outras
-    @Data // Lombok para getters/setters
-    public static class RegistroOperacional {
-
-        @Column(name = "data_registro", nullable = false)
-        private LocalDate data;
-
-        @Column(name = "quilometragem_no_registro", nullable = false)
-        private Double quilometragem;
-
-        @Enumerated(EnumType.STRING)
-        @Column(name = "tipo_registro", nullable = false)
-        private TipoRegistro tipoRegistro;
-
-        public enum TipoRegistro {
-            INICIO_OPERACAO,
-            FIM_OPERACAO
-        }
-    }
-
+    // --- ENUMS ---
     public enum StatusOnibus { NOVO, DISPONIVEL, EM_OPERACAO, EM_MANUTENCAO, EM_REFORMA, APOSENTADO, VENDIDO }
 
     
@@ -254,26 +262,17 @@ public class Onibus {
                 throw new IllegalStateException("Ônibus não pode ser colocado em operação. Verifique se todos os 6 pneus, motor e câmbio estão instalados.");
             }
             this.status = StatusOnibus.EM_OPERACAO;
-
-            // <<< LÓGICA CORRETA PARA ADICIONAR AO HISTÓRICO >>>
-            RegistroOperacional registro = new RegistroOperacional();
-            registro.setData(LocalDate.now());
-            registro.setQuilometragem(this.quilometragem);
-            registro.setTipoRegistro(RegistroOperacional.TipoRegistro.INICIO_OPERACAO);
-            this.historicoOperacional.add(registro);
+            this.sessaoOperacionalAtual = new SessaoOperacional(this, LocalDateTime.now(), this.quilometragem);
         }
     }
 
     public void retirarDeOperacao() {
         if (this.status == StatusOnibus.EM_OPERACAO) {
             this.status = StatusOnibus.DISPONIVEL;
-
-            // <<< LÓGICA CORRETA PARA ADICIONAR AO HISTÓRICO >>>
-            RegistroOperacional registro = new RegistroOperacional();
-            registro.setData(LocalDate.now());
-            registro.setQuilometragem(this.quilometragem);
-            registro.setTipoRegistro(RegistroOperacional.TipoRegistro.FIM_OPERACAO);
-            this.historicoOperacional.add(registro);
+            if (this.sessaoOperacionalAtual != null) {
+                this.sessaoOperacionalAtual.encerrar(LocalDateTime.now(), this.quilometragem);
+                this.sessaoOperacionalAtual = null;
+            }
         }
     }
 
@@ -290,6 +289,7 @@ public class Onibus {
         if (this.status == StatusOnibus.EM_MANUTENCAO) {
             this.status = StatusOnibus.DISPONIVEL;
             this.historicoRetornoManutencao.add(LocalDate.now());
+            this.dataProximaManutencao = LocalDate.now().plusDays(DIAS_LIMITE_MANUTENCAO);
         }
     }
     
@@ -307,6 +307,7 @@ public class Onibus {
         if (this.status == StatusOnibus.EM_REFORMA) {
             this.status = StatusOnibus.DISPONIVEL;
             this.historicoRetornoReforma.add(LocalDate.now());
+            this.dataProximaReforma = LocalDate.now().plusDays(DIAS_LIMITE_REFORMA);
         }
     }
 
@@ -337,6 +338,32 @@ public class Onibus {
         }
     }
 
+    // --- VENCIMENTOS MATERIALIZADOS ---
+
+    @PrePersist
+    private void inicializarVencimentos() {
+        if (this.dataProximaManutencao == null || this.dataProximaReforma == null) {
+            recalcularVencimentos();
+        }
+    }
+
+    // Recalcula os vencimentos a partir dos históricos (criação e registros anteriores às colunas)
+    public void recalcularVencimentos() {
+        if (this.dataCompra == null) return;
+        this.dataProximaManutencao = calcularProximaManutencao();
+        this.dataProximaReforma = calcularProximaReforma();
+    }
+
+    private LocalDate calcularProximaManutencao() {
+        LocalDate dataBase = (getDataUltimaManutencao() != null) ? getDataUltimaManutencao() : this.dataCompra;
+        return dataBase.plusDays(DIAS_LIMITE_MANUTENCAO);
+    }
+
+    private LocalDate calcularProximaReforma() {
+        LocalDate dataBase = (getDataUltimaReforma() != null) ? getDataUltimaReforma() : this.dataCompra;
+        return dataBase.plusDays(DIAS_LIMITE_REFORMA);
+    }
+
     // --- MÉTODOS DE CONSULTA E LÓGICA PREVENTIVA ---
 
     @Transient
@@ -356,9 +383,7 @@ public class Onibus {
     public Long getDiasRestantesManutencao() {
         if (status == StatusOnibus.APOSENTADO || status == StatusOnibus.VENDIDO) return Long.MAX_VALUE;
         
-        LocalDate dataBase = (getDataUltimaManutencao() != null) ? getDataUltimaManutencao() : this.dataCompra;
-        
-        LocalDate proximaManutencao = dataBase.plusDays(DIAS_LIMITE_MANUTENCAO);
+        LocalDate proximaManutencao = (dataProximaManutencao != null) ? dataProximaManutencao : calcularProximaManutencao();
         return ChronoUnit.DAYS.between(LocalDate.now(), proximaManutencao);
     }
 
@@ -366,14 +391,13 @@ public class Onibus {
     public Long getDiasRestantesReforma() {
         if (status == StatusOnibus.APOSENTADO || status == StatusOnibus.VENDIDO) return Long.MAX_VALUE;
         
-        LocalDate dataBase = (getDataUltimaReforma() != null) ? getDataUltimaReforma() : this.dataCompra;
-        LocalDate proximaReforma = dataBase.plusDays(DIAS_LIMITE_REFORMA);
+        LocalDate proximaReforma = (dataProximaReforma != null) ? dataProximaReforma : calcularProximaReforma();
         return ChronoUnit.DAYS.between(LocalDate.now(), proximaReforma);
     }
 
     public boolean manutencaoPrestesVencer() {
         Long dias = getDiasRestantesManutencao();
-        return dias != null && dias <= 30;
+        return dias != null && dias <= DIAS_ALERTA_PREVENTIVA;
     }
 
     public boolean precisaManutencao() {
@@ -383,7 +407,7 @@ public class Onibus {
 
     public boolean reformaPrestesVencer() {
         Long dias = getDiasRestantesReforma();
-        return dias != null && dias <= 30;
+        return dias != null && dias <= DIAS_ALERTA_PREVENTIVA;
     }
 
     public boolean precisaReforma() {
@@ -5,19 +5,24 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
-import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
-import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotBlank;
@@ -28,15 +33,24 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Entity
+@BatchSize(size = 50)
+@DynamicUpdate // Evita sobrescrever a quilometragem somada por UPDATEs em SQL (lote e write-behind)
 @NoArgsConstructor
-@Table(name = "pneus")
+@Table(name = "pneus", indexes = {
+    @Index(name = "idx_pneus_proxima_manutencao", columnList = "proxima_manutencao"),
+    @Index(name = "idx_pneus_proxima_reforma", columnList = "proxima_reforma"),
+    @Index(name = "idx_pneus_km_rodados", columnList = "km_rodados")
+})
 public class Pneu {
 
     // --- CONSTANTES DE LIMITE DE DESGASTE ---
-    private static final double KM_LIMITE_MANUTENCAO = 2500;
-    private static final double KM_LIMITE_REFORMA = 10000;
-    private static final long DIAS_LIMITE_MANUTENCAO = 60; // 2 meses
-    private static final long DIAS_LIMITE_REFORMA = 180; // 6 meses
+    public static final double KM_LIMITE_MANUTENCAO = 2500;
+    public static final double KM_LIMITE_REFORMA = 10000;
+    public static final double KM_ALERTA_MANUTENCAO = 500; // Janela usada por manutencaoPrestesVencer()
+    public static final double KM_ALERTA_REFORMA = 2000; // Janela usada por reformaPrestesVencer()
+    public static final long DIAS_LIMITE_MANUTENCAO = 60; // 2 meses
+    public static final long DIAS_LIMITE_REFORMA = 180; // 6 meses
+    public static final long DIAS_ALERTA_PREVENTIVA = 30;
 
     // --- ATRIBUTOS ---
     @Id
@@ -58,6 +72,14 @@ public class Pneu {
     @Column(name = "data_instalacao")
     private LocalDate dataInstalacao;
 
+    // Próximos vencimentos materializados, mantidos pelos métodos de ciclo de vida para permitir busca indexada.
+    // O limite por km é fixo, então a própria coluna km_rodados (indexada) serve de filtro.
+    @Column(name = "proxima_manutencao")
+    private LocalDate dataProximaManutencao;
+
+    @Column(name = "proxima_reforma")
+    private LocalDate dataProximaReforma;
+
     @Column(name = "km_rodados", nullable = false)
     @NotNull
     @PositiveOrZero
@@ -97,20 +119,20 @@ public class Pneu {
     @NotNull
     private StatusPneu status = StatusPneu.NOVO;
 
-    @ElementCollection
-    @CollectionTable(name = "pneu_historico_envio_manutencao", joinColumns = @JoinColumn(name = "pneu_id"))
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_envio_manutencao")
     private List<LocalDate> historicoEnvioManutencao = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(name = "pneu_historico_envio_reforma", joinColumns = @JoinColumn(name = "pneu_id"))
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_envio_reforma")
     private List<LocalDate> historicoEnvioReforma = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(name = "pneu_historico_retorno_manutencao", joinColumns = @JoinColumn(name = "pneu_id"))
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_retorno_manutencao")
     private List<LocalDate> historicoRetornoManutencao = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(name = "pneu_historico_retorno_reforma", joinColumns = @JoinColumn(name = "pneu_id"))
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "historico_retorno_reforma")
     private List<LocalDate> historicoRetornoReforma = new ArrayList<>();
 
     // --- ENUMS ---
@@ -155,6 +177,7 @@ public class Pneu {
             this.posicao = posicao;
             this.status = StatusPneu.EM_USO;
             this.dataInstalacao = LocalDate.now();
+            this.dataProximaManutencao = calcularProximaManutencao();
         }
     }
 
@@ -163,6 +186,7 @@ public class Pneu {
             this.onibus = null;
             this.posicao = null;
             this.dataInstalacao = null;
+            this.dataProximaManutencao = calcularProximaManutencao();
             this.status = StatusPneu.DISPONIVEL;
         } else {
             throw new IllegalStateException("Este pneu não está instalado no ônibus informado.");
@@ -173,6 +197,7 @@ public class Pneu {
         if (this.status == StatusPneu.EM_MANUTENCAO) {
             this.status = StatusPneu.DISPONIVEL;
             this.historicoRetornoManutencao.add(LocalDate.now());
+            this.dataProximaManutencao = LocalDate.now().plusDays(DIAS_LIMITE_MANUTENCAO);
         }
     }
 
@@ -183,6 +208,7 @@ public class Pneu {
             this.kmRodados = 0.0; // Reseta a quilometragem
             this.periodoGarantiaMeses = 12; // A garantia de um pneu reformado é menor
             this.historicoRetornoReforma.add(LocalDate.now());
+            this.dataProximaReforma = LocalDate.now().plusDays(DIAS_LIMITE_REFORMA);
         } else {
             throw new IllegalStateException("Apenas pneus EM REFORMA podem ter seus dados de reforma atualizados.");
         }
@@ -194,6 +220,33 @@ public class Pneu {
         }
     }
 
+    // --- VENCIMENTOS MATERIALIZADOS ---
+
+    @PrePersist
+    private void inicializarVencimentos() {
+        if (this.dataProximaReforma == null) {
+            recalcularVencimentos();
+        }
+    }
+
+    // Recalcula os vencimentos a partir dos históricos (criação e registros anteriores às colunas)
+    public void recalcularVencimentos() {
+        if (this.dataCompra == null) return;
+        this.dataProximaManutencao = calcularProximaManutencao();
+        this.dataProximaReforma = calcularProximaReforma();
+    }
+
+    // Nulo enquanto o pneu nunca foi instalado nem passou por manutenção
+    private LocalDate calcularProximaManutencao() {
+        LocalDate dataBase = (getDataUltimaManutencao() != null) ? getDataUltimaManutencao() : this.dataInstalacao;
+        return (dataBase == null) ? null : dataBase.plusDays(DIAS_LIMITE_MANUTENCAO);
+    }
+
+    private LocalDate calcularProximaReforma() {
+        LocalDate dataBase = (getDataUltimaReforma() != null) ? getDataUltimaReforma() : this.dataCompra;
+        return dataBase.plusDays(DIAS_LIMITE_REFORMA);
+    }
+
     // --- MÉTODOS DE CONSULTA E LÓGICA PREVENTIVA ---
     
     @Transient
@@ -240,10 +293,9 @@ public class Pneu {
     public Long getDiasRestantesManutencao() {
         if (this.status != StatusPneu.EM_USO) return Long.MAX_VALUE;
         
-        LocalDate dataBase = (getDataUltimaManutencao() != null) ? getDataUltimaManutencao() : this.dataInstalacao;
-        if (dataBase == null) return Long.MAX_VALUE; // Ainda não foi instalado
+        LocalDate proximaManutencao = (dataProximaManutencao != null) ? dataProximaManutencao : calcularProximaManutencao();
+        if (proximaManutencao == null) return Long.MAX_VALUE; // Ainda não foi instalado
         
-        LocalDate proximaManutencao = dataBase.plusDays(DIAS_LIMITE_MANUTENCAO);
         return ChronoUnit.DAYS.between(LocalDate.now(), proximaManutencao);
     }
 
@@ -251,15 +303,14 @@ public class Pneu {
     public Long getDiasRestantesReforma() {
         if (this.status != StatusPneu.EM_USO) return Long.MAX_VALUE;
 
-        LocalDate dataBase = (getDataUltimaReforma() != null) ? getDataUltimaReforma() : this.dataCompra;
-        LocalDate proximaReforma = dataBase.plusDays(DIAS_LIMITE_REFORMA);
+        LocalDate proximaReforma = (dataProximaReforma != null) ? dataProximaReforma : calcularProximaReforma();
         return ChronoUnit.DAYS.between(LocalDate.now(), proximaReforma);
     }
 
     public boolean manutencaoPrestesVencer() {
         if (this.status != StatusPneu.EM_USO) return false;
         // Alerta se faltar menos de 30 dias OU menos de 500 km
-        return getDiasRestantesManutencao() <= 30 || getKmRestantesManutencao() <= 500;
+        return getDiasRestantesManutencao() <= DIAS_ALERTA_PREVENTIVA || getKmRestantesManutencao() <= KM_ALERTA_MANUTENCAO;
     }
 
     public boolean precisaManutencao() {
@@ -270,7 +321,7 @@ public class Pneu {
     public boolean reformaPrestesVencer() {
         if (this.status != StatusPneu.EM_USO) return false;
         // Alerta se faltar menos de 30 dias OU menos de 2000 km
-        return getDiasRestantesReforma() <= 30 || getKmRestantesReforma() <= 2000;
+        return getDiasRestantesReforma() <= DIAS_ALERTA_PREVENTIVA || getKmRestantesReforma() <= KM_ALERTA_REFORMA;
     }
 
     public boolean precisaReforma() {
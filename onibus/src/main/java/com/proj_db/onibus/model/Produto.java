@@ -2,9 +2,9 @@ package com.proj_db.onibus.model;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
+
+import org.hibernate.annotations.BatchSize;
 
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
@@ -19,7 +19,6 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Table;
-import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -28,6 +27,7 @@ import lombok.NoArgsConstructor;
 
 @Data
 @Entity
+@BatchSize(size = 50)
 @NoArgsConstructor // Construtor vazio para o JPA
 @Table(name = "produtos")
 public class Produto {
@@ -64,6 +64,7 @@ public class Produto {
 
     @ElementCollection(fetch = FetchType.LAZY)
     @CollectionTable(name = "produto_historico_preco", joinColumns = @JoinColumn(name = "produto_id"))
+    @BatchSize(size = 50)
     private List<RegistroContabil> historicoPrecoUnitario = new ArrayList<>();
 
     @Column(name = "marca", nullable = false, length = 100)
@@ -74,6 +75,10 @@ public class Produto {
     @NotBlank(message = "Nome do produto é obrigatório")
     private String nome;
 
+    // Cópia do preço do registro mais recente do histórico, mantida por atualizarPreco
+    @Column(name = "preco_unitario_atual")
+    private Double precoUnitarioAtual = 0.0;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", length = 20, nullable = false)
     @NotNull(message = "Status é obrigatório")
@@ -138,7 +143,7 @@ public class Produto {
             throw new IllegalArgumentException("O novo preço deve ser um valor positivo ou zero.");
         }
 
-        Double precoAtual = getPrecoUnitarioAtual();
+        Double precoAtual = this.precoUnitarioAtual != null ? this.precoUnitarioAtual : 0.0;
         if (novoPreco.equals(precoAtual)) {
             return; // Não cria um novo registro se o preço for o mesmo
         }
@@ -156,18 +161,7 @@ public class Produto {
 
         RegistroContabil novoRegistro = new RegistroContabil(LocalDate.now(), novoPreco, tipo);
         this.historicoPrecoUnitario.add(novoRegistro);
-    }
-    
-    @Transient
-    public Double getPrecoUnitarioAtual() {
-        if (this.historicoPrecoUnitario == null || this.historicoPrecoUnitario.isEmpty()) {
-            return 0.0;
-        }
-        
-        Optional<RegistroContabil> registroMaisRecente = this.historicoPrecoUnitario.stream()
-                .max(Comparator.comparing(RegistroContabil::getData));
-        
-        return registroMaisRecente.map(RegistroContabil::getPrecoUnitario).orElse(0.0);
+        this.precoUnitarioAtual = novoPreco;
     }
 
     public boolean isProdutoParaPreventiva() {
@@ -0,0 +1,27 @@
+package com.proj_db.onibus.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Marca de segmento do WAL da razão de estoque já aplicado no banco (mesmo papel de SegmentoOdometroAplicado).
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "estoque_wal_aplicado")
+public class SegmentoEstoqueAplicado {
+
+    @Id
+    @Column(name = "segmento", length = 36)
+    private String segmento;
+
+    @Column(name = "aplicado_em", nullable = false)
+    private LocalDateTime aplicadoEm;
+}
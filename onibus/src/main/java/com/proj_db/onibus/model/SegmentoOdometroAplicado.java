@@ -0,0 +1,28 @@
+package com.proj_db.onibus.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Marca de segmento do WAL de quilometragem já aplicado no banco.
+ * É gravada na mesma transação dos incrementos, o que torna a reaplicação de um segmento após uma falha idempotente.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "odometro_wal_aplicado")
+public class SegmentoOdometroAplicado {
+
+    @Id
+    @Column(name = "segmento", length = 36)
+    private String segmento;
+
+    @Column(name = "aplicado_em", nullable = false)
+    private LocalDateTime aplicadoEm;
+}
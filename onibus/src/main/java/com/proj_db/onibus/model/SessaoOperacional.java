@@ -0,0 +1,79 @@
+package com.proj_db.onibus.model;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/*
+ * Um período em que o ônibus ficou EM_OPERACAO: criada em colocarEmOperacao e encerrada em retirarDeOperacao.
+ * Depois de encerrada a linha não muda mais (a tabela só cresce por INSERT).
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "onibus_sessoes_operacionais", indexes = {
+    @Index(name = "idx_sessao_operacional_onibus_inicio", columnList = "onibus_id, inicio")
+})
+public class SessaoOperacional {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @JoinColumn(name = "onibus_id", nullable = false)
+    private Onibus onibus;
+
+    @Column(name = "inicio", nullable = false)
+    @NotNull
+    private LocalDateTime inicio;
+
+    @Column(name = "fim")
+    private LocalDateTime fim;
+
+    @Column(name = "km_inicio", nullable = false)
+    @NotNull
+    private Double kmInicio;
+
+    @Column(name = "km_fim")
+    private Double kmFim;
+
+    public SessaoOperacional(Onibus onibus, LocalDateTime inicio, Double kmInicio) {
+        this.onibus = onibus;
+        this.inicio = inicio;
+        this.kmInicio = kmInicio;
+    }
+
+    public void encerrar(LocalDateTime fim, Double kmFim) {
+        if (this.fim != null) {
+            throw new IllegalStateException("Sessão operacional já encerrada.");
+        }
+        this.fim = fim;
+        this.kmFim = kmFim;
+    }
+
+    @Transient
+    public boolean isAberta() {
+        return this.fim == null;
+    }
+}
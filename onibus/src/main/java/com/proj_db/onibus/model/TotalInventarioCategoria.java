@@ -0,0 +1,29 @@
+package com.proj_db.onibus.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Valor total em estoque (quantidade atual x preço unitário atual) de uma categoria de produto.
+ * Atualizado incrementalmente pelo TotaisInventario a cada entrada, consumo ou mudança de preço.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "estoque_total_categoria")
+public class TotalInventarioCategoria {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "categoria", length = 50)
+    private Produto.Categoria categoria;
+
+    @Column(name = "valor", nullable = false)
+    private Double valor;
+}
@@ -0,0 +1,28 @@
+package com.proj_db.onibus.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Transação com movimentos no WAL da razão de estoque, gravada na própria transação do banco: confirma o commit
+ * quando a queda acontece entre o commit e a marca "C" no arquivo. Apagada quando o segmento é aplicado.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "estoque_wal_transacao")
+public class TransacaoEstoqueConfirmada {
+
+    @Id
+    @Column(name = "transacao", length = 36)
+    private String transacao;
+
+    @Column(name = "registrada_em", nullable = false)
+    private LocalDateTime registradaEm;
+}
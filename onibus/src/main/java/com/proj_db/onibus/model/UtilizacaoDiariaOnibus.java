@@ -0,0 +1,46 @@
+package com.proj_db.onibus.model;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Uso de um ônibus em um dia, somado a partir das sessões operacionais encerradas: tempo em operação
+ * (cada sessão dividida entre os dias que atravessa), sessões encerradas no dia e km dessas sessões.
+ * Mantida pelo UtilizacaoOnibus com incrementos em SQL.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "onibus_utilizacao_diaria", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_utilizacao_onibus_dia", columnNames = { "onibus_id", "dia" })
+})
+public class UtilizacaoDiariaOnibus {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "onibus_id", nullable = false)
+    private Long onibusId;
+
+    @Column(name = "dia", nullable = false)
+    private LocalDate dia;
+
+    @Column(name = "segundos_operacao", nullable = false)
+    private Long segundosOperacao;
+
+    @Column(name = "sessoes", nullable = false)
+    private Integer sessoes;
+
+    @Column(name = "km", nullable = false)
+    private Double km;
+}
@@ -1,21 +1,51 @@
 package com.proj_db.onibus.repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.proj_db.onibus.model.Cambio;
 
 public interface CambioRepository extends JpaRepository<Cambio, Long>, JpaSpecificationExecutor<Cambio> {
+    // Leituras que viram DTO: o ônibus vem no mesmo SELECT (sem open-in-view não há carga tardia)
+    @Override
+    @EntityGraph(attributePaths = "onibus")
+    Optional<Cambio> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "onibus")
+    List<Cambio> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "onibus")
+    List<Cambio> findAll(Specification<Cambio> spec);
+
+    @EntityGraph(attributePaths = "onibus")
     Optional<Cambio> findByNumeroSerie(String numeroSerie);
     Optional<Cambio> findByCodigoFabricacao(String codigoFabricacao);
 
+    // Câmbios da faixa de IDs com manutenção ou revisão vencendo antes da data limite (varredura preventiva)
+    @Query("SELECT c FROM Cambio c WHERE c.id BETWEEN :idInicial AND :idFinal AND c.status NOT IN ('DESCARTADO', 'VENDIDO') " +
+           "AND (c.dataProximaManutencao < :dataLimite OR c.dataProximaRevisao < :dataLimite)")
+    List<Cambio> findVencendoNaFaixa(@Param("idInicial") Long idInicial, @Param("idFinal") Long idFinal, @Param("dataLimite") LocalDate dataLimite);
+
     @Query("SELECT c.tipo, COUNT(c) FROM Cambio c GROUP BY c.tipo")
     List<Object[]> countByTipo();
     
     @Query("SELECT c.status, COUNT(c) FROM Cambio c GROUP BY c.status")
     List<Object[]> countByStatus();
+
+    // Limites de ID usados para particionar a varredura preventiva
+    @Query("SELECT COALESCE(MIN(c.id), 0) FROM Cambio c")
+    Long findMenorId();
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM Cambio c")
+    Long findMaiorId();
 }
\ No newline at end of file
@@ -3,33 +3,57 @@ package com.proj_db.onibus.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.proj_db.onibus.model.Estoque;
 import com.proj_db.onibus.model.Produto;
 
+import jakarta.persistence.LockModeType;
+
 public interface EstoqueRepository extends JpaRepository<Estoque, Long>, JpaSpecificationExecutor<Estoque> {
+    // Leituras que viram DTO: o produto no mesmo SELECT, em vez de um SELECT por estoque
+    @Override
+    @EntityGraph(attributePaths = "produto")
+    Optional<Estoque> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "produto")
+    List<Estoque> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "produto")
+    List<Estoque> findAll(Specification<Estoque> spec);
+
     Optional<Estoque> findByProduto(Produto produto);
+    @EntityGraph(attributePaths = "produto")
     Optional<Estoque> findByProdutoId(Long produtoId);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Estoque e JOIN FETCH e.produto WHERE e.produto.id = :produtoId")
+    Optional<Estoque> findByProdutoIdParaAtualizacao(@Param("produtoId") Long produtoId);
+
+    // Reserva e liberação atômicas: a condição é avaliada pelo banco na própria linha, sem ler a entidade antes.
+    // Retornam 0 quando o saldo (ou a reserva) não basta ou quando o produto não tem estoque.
+    @Modifying
+    @Query("UPDATE Estoque e SET e.quantidadeReservada = e.quantidadeReservada + :quantidade " +
+           "WHERE e.produto.id = :produtoId AND e.quantidadeAtual - e.quantidadeReservada >= :quantidade")
+    int reservarSeDisponivel(@Param("produtoId") Long produtoId, @Param("quantidade") Double quantidade);
+
+    @Modifying
+    @Query("UPDATE Estoque e SET e.quantidadeReservada = e.quantidadeReservada - :quantidade " +
+           "WHERE e.produto.id = :produtoId AND e.quantidadeReservada >= :quantidade")
+    int liberarSeReservado(@Param("produtoId") Long produtoId, @Param("quantidade") Double quantidade);
+
+    boolean existsByProdutoId(Long produtoId);
+
     // Query para encontrar itens que estão abaixo do estoque mínimo definido no produto
-    @Query("SELECT e FROM Estoque e WHERE e.quantidadeAtual < e.produto.estoqueMinimo")
+    @Query("SELECT e FROM Estoque e JOIN FETCH e.produto p WHERE e.quantidadeAtual < p.estoqueMinimo")
     List<Estoque> findItensAbaixoDoEstoqueMinimo();
-    
-    @Query("SELECT SUM(e.quantidadeAtual * rc.precoUnitario) " +
-           "FROM Estoque e " +
-           "JOIN e.produto p " +
-           "JOIN p.historicoPrecoUnitario rc " +
-           "WHERE rc.data = (SELECT MAX(rc2.data) FROM p.historicoPrecoUnitario rc2)")
-    Optional<Double> calcularValorTotalInventario();
-
-    @Query("SELECT p.categoria, SUM(e.quantidadeAtual * rc.precoUnitario) " +
-           "FROM Estoque e " +
-           "JOIN e.produto p " +
-           "JOIN p.historicoPrecoUnitario rc " +
-           "WHERE rc.data = (SELECT MAX(rc2.data) FROM p.historicoPrecoUnitario rc2) " +
-           "GROUP BY p.categoria")
-    List<Object[]> calcularValorTotalPorCategoria();
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor; // <<< NOVO
 import org.springframework.data.jpa.repository.Query;
@@ -14,8 +16,22 @@ import com.proj_db.onibus.model.Motor.StatusMotor;
 
 // <<< Adicionamos JpaSpecificationExecutor para buscas dinâmicas
 public interface MotorRepository extends JpaRepository<Motor, Long>, JpaSpecificationExecutor<Motor> {
+    // Leituras que viram DTO: o ônibus vem no mesmo SELECT (sem open-in-view não há carga tardia)
+    @Override
+    @EntityGraph(attributePaths = "onibus")
+    Optional<Motor> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "onibus")
+    List<Motor> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "onibus")
+    List<Motor> findAll(Specification<Motor> spec);
+
 
     // ✅ MÉTODOS DE BUSCA SIMPLES (continuam úteis)
+    @EntityGraph(attributePaths = "onibus")
     Optional<Motor> findByNumeroSerie(String numeroSerie);
     Optional<Motor> findByCodigoFabricacao(String codigoFabricacao);
     List<Motor> findByStatus(StatusMotor status);
@@ -28,19 +44,26 @@ public interface MotorRepository extends JpaRepository<Motor, Long>, JpaSpecific
     List<Motor> findMotoresComGarantiaVencendo(@Param("hoje") LocalDate hoje, @Param("dataLimite") LocalDate dataLimite);
 
     // Encontra motores que precisam de revisão (última revisão há mais de 6 meses ou nunca feita)
-    // Esta é uma query complexa que demonstra o poder do JPQL
-    @Query("SELECT m FROM Motor m WHERE m.status IN ('EM_USO', 'DISPONIVEL') AND " +
-           "( " +
-           "    (SELECT MAX(h) FROM m.historicoRetornoRevisao h) IS NULL AND FUNCTION('DATE_ADD', m.dataCompra, 6, 'MONTH') <= :hoje " +
-           "    OR " +
-           "    (SELECT MAX(h) FROM m.historicoRetornoRevisao h) IS NOT NULL AND FUNCTION('DATE_ADD', (SELECT MAX(h) FROM m.historicoRetornoRevisao h), 6, 'MONTH') <= :hoje " +
-           ")")
+    // Usa a coluna materializada proxima_revisao (indexada) em vez de percorrer o histórico
+    @Query("SELECT m FROM Motor m WHERE m.status IN ('EM_USO', 'DISPONIVEL') AND m.dataProximaRevisao <= :hoje")
     List<Motor> findMotoresPrecisandoRevisao(@Param("hoje") LocalDate hoje);
 
+    // Motores da faixa de IDs com manutenção ou revisão vencendo até a data limite (varredura preventiva)
+    @Query("SELECT m FROM Motor m WHERE m.id BETWEEN :idInicial AND :idFinal AND m.status NOT IN ('DESCARTADO', 'VENDIDO') " +
+           "AND (m.dataProximaManutencao <= :dataLimite OR m.dataProximaRevisao <= :dataLimite)")
+    List<Motor> findVencendoNaFaixa(@Param("idInicial") Long idInicial, @Param("idFinal") Long idFinal, @Param("dataLimite") LocalDate dataLimite);
+
     // ✅ MÉTODOS DE RELATÓRIO (estão perfeitos)
     @Query("SELECT m.tipo, COUNT(m) FROM Motor m GROUP BY m.tipo")
     List<Object[]> countByTipo();
     
     @Query("SELECT m.status, COUNT(m) FROM Motor m GROUP BY m.status")
     List<Object[]> countByStatus();
+
+    // Limites de ID usados para particionar a varredura preventiva
+    @Query("SELECT COALESCE(MIN(m.id), 0) FROM Motor m")
+    Long findMenorId();
+
+    @Query("SELECT COALESCE(MAX(m.id), 0) FROM Motor m")
+    Long findMaiorId();
 }
\ No newline at end of file
@@ -1,22 +1,69 @@
 package com.proj_db.onibus.repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.proj_db.onibus.model.Onibus;
 
 public interface OnibusRepository extends JpaRepository<Onibus, Long>, JpaSpecificationExecutor<Onibus> {
+    // Leituras que viram DTO: motor, câmbio e pneus no mesmo SELECT; o histórico operacional vem em lote (@BatchSize)
+    @Override
+    @EntityGraph(attributePaths = { "motor", "cambio", "pneus" })
+    Optional<Onibus> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = { "motor", "cambio", "pneus" })
+    List<Onibus> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = { "motor", "cambio", "pneus" })
+    List<Onibus> findAll(Specification<Onibus> spec);
+
+    @EntityGraph(attributePaths = { "motor", "cambio", "pneus" })
     Optional<Onibus> findByChassi(String chassi);
     Optional<Onibus> findByPlaca(String placa);
     Optional<Onibus> findByNumeroFrota(String numeroFrota);
 
+    @Query("SELECT o.status FROM Onibus o WHERE o.id = :id")
+    Optional<Onibus.StatusOnibus> findStatusById(@Param("id") Long id);
+
+    // Status de vários ônibus em uma única consulta, sem carregar pneus e históricos
+    @Query("SELECT o.id, o.status FROM Onibus o WHERE o.id IN :ids")
+    List<Object[]> findStatusByIdIn(@Param("ids") Collection<Long> ids);
+
+    // ID e placa de toda a frota, ordenados por ID, para resolver placas na importação de viagens
+    @Query("SELECT o.id, o.placa FROM Onibus o ORDER BY o.id")
+    List<Object[]> findIdEPlaca();
+
     @Query("SELECT o.marca, COUNT(o) FROM Onibus o GROUP BY o.marca")
     List<Object[]> countByMarca();
     
     @Query("SELECT o.status, COUNT(o) FROM Onibus o GROUP BY o.status")
     List<Object[]> countByStatus();
+
+    // Varredura preventiva paginada por chave (id > :ultimoId): retorna apenas (id, placa, próxima reforma)
+    // dos ônibus cuja reforma vence até a data limite, sem materializar as entidades.
+    @Query("SELECT o.id, o.placa, o.dataProximaReforma " +
+           "FROM Onibus o " +
+           "WHERE o.id > :ultimoId AND o.id <= :idFinal AND o.status NOT IN ('APOSENTADO', 'VENDIDO') " +
+           "AND o.dataProximaReforma <= :dataLimite " +
+           "ORDER BY o.id")
+    List<Object[]> findCandidatosReformaPreventiva(@Param("ultimoId") Long ultimoId, @Param("idFinal") Long idFinal, @Param("dataLimite") LocalDate dataLimite, Pageable pageable);
+
+    // Limites de ID usados para particionar a varredura preventiva
+    @Query("SELECT COALESCE(MIN(o.id), 0) FROM Onibus o")
+    Long findMenorId();
+
+    @Query("SELECT COALESCE(MAX(o.id), 0) FROM Onibus o")
+    Long findMaiorId();
 }
\ No newline at end of file
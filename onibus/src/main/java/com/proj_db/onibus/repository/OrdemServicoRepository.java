@@ -1,9 +1,12 @@
 package com.proj_db.onibus.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -18,6 +21,19 @@ import com.proj_db.onibus.model.OrdemServico.TipoOrdemServico;
 import com.proj_db.onibus.model.Pneu;
 
 public interface OrdemServicoRepository extends JpaRepository<OrdemServico, Long>, JpaSpecificationExecutor<OrdemServico> {
+    // Leituras que viram DTO: itens com produto e o alvo da OS (getAlvo) no mesmo SELECT
+    @Override
+    @EntityGraph(attributePaths = { "itens", "itens.produto", "onibus", "motor", "cambio", "pneu" })
+    Optional<OrdemServico> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = { "itens", "itens.produto", "onibus", "motor", "cambio", "pneu" })
+    List<OrdemServico> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = { "itens", "itens.produto", "onibus", "motor", "cambio", "pneu" })
+    List<OrdemServico> findAll(Specification<OrdemServico> spec);
+
     Optional<OrdemServico> findByNumeroOS(String numeroOS);
     List<OrdemServico> findByStatus(StatusOrdemServico statusOrdemServico);
     boolean existsByCambioAndStatusAndTipo(Cambio cambio, StatusOrdemServico statusOrdemServico, TipoOrdemServico tipoOrdemServico);
@@ -27,6 +43,17 @@ public interface OrdemServicoRepository extends JpaRepository<OrdemServico, Long
     boolean existsByPneuAndStatusIn(Pneu pneu, List<StatusOrdemServico> statusOrdemServicos);
     boolean existsByOnibusAndStatusIn(Onibus onibus, List<StatusOrdemServico> statusOrdemServicos);
 
+    boolean existsByOnibusIdAndStatusIn(Long onibusId, Collection<StatusOrdemServico> status);
+    boolean existsByMotorIdAndStatusIn(Long motorId, Collection<StatusOrdemServico> status);
+    boolean existsByCambioIdAndStatusIn(Long cambioId, Collection<StatusOrdemServico> status);
+    boolean existsByPneuIdAndStatusIn(Long pneuId, Collection<StatusOrdemServico> status);
+
+    // Carga do índice em memória: (onibusId, motorId, cambioId, pneuId) de todas as OS com os status informados
+    @Query("SELECT o.id, m.id, c.id, p.id FROM OrdemServico os " +
+           "LEFT JOIN os.onibus o LEFT JOIN os.motor m LEFT JOIN os.cambio c LEFT JOIN os.pneu p " +
+           "WHERE os.status IN :status")
+    List<Object[]> findAlvosComStatusIn(@Param("status") Collection<StatusOrdemServico> status);
+
     @Query("SELECT o FROM OrdemServico o WHERE o.status = 'ABERTA' AND o.dataPrevisaoConclusao < :hoje")
     List<OrdemServico> findOsAtrasadas(@Param("hoje") LocalDate hoje);
     
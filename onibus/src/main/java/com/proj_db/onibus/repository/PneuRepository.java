@@ -1,21 +1,45 @@
 package com.proj_db.onibus.repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.proj_db.onibus.model.Pneu;
 import com.proj_db.onibus.model.Pneu.StatusPneu;
 
 public interface PneuRepository extends JpaRepository<Pneu, Long>, JpaSpecificationExecutor<Pneu> {
+    // Leituras que viram DTO: o ônibus vem no mesmo SELECT (sem open-in-view não há carga tardia)
+    @Override
+    @EntityGraph(attributePaths = "onibus")
+    Optional<Pneu> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "onibus")
+    List<Pneu> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "onibus")
+    List<Pneu> findAll(Specification<Pneu> spec);
+
+    @EntityGraph(attributePaths = "onibus")
     Optional<Pneu> findByNumeroSerie(String numeroSerie);
     Optional<Pneu> findByCodigoFabricacao(String codigoFabricacao);
     List<Pneu> findByOnibusIdAndStatus(Long onibusId, StatusPneu statusPneu);
     List<Pneu> findByStatus(StatusPneu statusPneu);
 
+    // Pneus em uso da faixa de IDs com manutenção/reforma vencendo por data ou por km (varredura preventiva)
+    @Query("SELECT p FROM Pneu p WHERE p.id BETWEEN :idInicial AND :idFinal AND p.status = 'EM_USO' " +
+           "AND (p.dataProximaManutencao <= :dataLimite OR p.dataProximaReforma <= :dataLimite OR p.kmRodados >= :kmLimite)")
+    List<Pneu> findVencendoNaFaixa(@Param("idInicial") Long idInicial, @Param("idFinal") Long idFinal,
+                                   @Param("dataLimite") LocalDate dataLimite, @Param("kmLimite") Double kmLimite);
+
     @Query("SELECT p.marca, COUNT(p) FROM Pneu p GROUP BY p.marca")
     List<Object[]> countByMarca();
     
@@ -27,4 +51,11 @@ public interface PneuRepository extends JpaRepository<Pneu, Long>, JpaSpecificat
 
     @Query("SELECT p.marca, AVG(p.kmRodados) FROM Pneu p WHERE p.kmRodados > 0 GROUP BY p.marca")
     List<Object[]> avgKmPorMarca();
+
+    // Limites de ID usados para particionar a varredura preventiva
+    @Query("SELECT COALESCE(MIN(p.id), 0) FROM Pneu p")
+    Long findMenorId();
+
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Pneu p")
+    Long findMaiorId();
 }
\ No newline at end of file
@@ -28,9 +28,9 @@ public interface ProdutoRepository extends JpaRepository<Produto, Long>, JpaSpec
     @Query("SELECT e.produto FROM Estoque e WHERE e.quantidadeAtual < e.produto.estoqueMinimo")
     List<Produto> findProdutosComEstoqueAbaixoMinimo();
     
-    @Query("SELECT p, SUM(ios.quantidade) as totalUtilizado " +
-           "FROM ItemOrdemServico ios JOIN ios.produto p " +
-           "WHERE ios.ordemServico.status = 'FINALIZADA' " +
+    // Lê o consumo diário já agregado, não os itens de todas as OS finalizadas
+    @Query("SELECT p, SUM(c.quantidade) as totalUtilizado " +
+           "FROM ConsumoDiarioProduto c JOIN Produto p ON p.id = c.produtoId " +
            "GROUP BY p " +
            "ORDER BY totalUtilizado DESC")
     List<Object[]> findProdutosMaisUtilizados();
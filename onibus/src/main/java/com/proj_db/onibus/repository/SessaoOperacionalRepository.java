@@ -0,0 +1,21 @@
+package com.proj_db.onibus.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.proj_db.onibus.model.SessaoOperacional;
+
+public interface SessaoOperacionalRepository extends JpaRepository<SessaoOperacional, Long> {
+
+    @Query("SELECT s FROM SessaoOperacional s WHERE s.onibus.id = :onibusId AND s.inicio >= :de AND s.inicio < :ate ORDER BY s.inicio")
+    List<SessaoOperacional> findPorOnibusNoPeriodo(@Param("onibusId") Long onibusId, @Param("de") LocalDateTime de, @Param("ate") LocalDateTime ate);
+
+    @Modifying
+    @Query("DELETE FROM SessaoOperacional s WHERE s.onibus.id = :onibusId")
+    int deleteByOnibusId(@Param("onibusId") Long onibusId);
+}
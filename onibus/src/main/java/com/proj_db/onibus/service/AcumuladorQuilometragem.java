@@ -0,0 +1,413 @@
+package com.proj_db.onibus.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.model.Onibus;
+import com.proj_db.onibus.model.Pneu;
+import com.proj_db.onibus.model.SessaoOperacional;
+import com.proj_db.onibus.repository.OnibusRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Modo opcional de gravação adiada (write-behind) da quilometragem das viagens.
+ * Cada viagem é gravada primeiro em um WAL local (um arquivo por segmento) e somada a um DoubleAdder por ônibus.
+ * Na descarga (por intervalo ou ao atingir o limite de registros) o segmento atual é fechado e seus totais são
+ * aplicados em onibus e pneus com incrementos atômicos em SQL, junto com a marca do segmento em odometro_wal_aplicado,
+ * tudo na mesma transação. Na subida, segmentos que sobraram no disco são reaplicados; a marca impede contagem dupla.
+ * Os pneus recebem o incremento do ônibus em que estão instalados no momento da descarga; por isso instalar ou
+ * remover um pneu passa por comPneusFixos, que aplica o pendente antes da troca.
+ * Como a quilometragem da entidade ainda não tem o pendente, um listener do Hibernate soma getKmPendente ao km
+ * de abertura e ao de encerramento das sessões operacionais antes de gravá-las.
+ */
+@Service
+public class AcumuladorQuilometragem implements PreInsertEventListener, PreUpdateEventListener {
+
+    private static final String SQL_MARCAR_SEGMENTO =
+        "INSERT INTO odometro_wal_aplicado (segmento, aplicado_em) VALUES (?, ?) ON CONFLICT (segmento) DO NOTHING";
+    private static final String SQL_SOMAR_KM_ONIBUS =
+        "UPDATE onibus SET quilometragem = quilometragem + ? WHERE id = ?";
+    private static final String SQL_SOMAR_KM_PNEUS =
+        "UPDATE pneus SET km_rodados = km_rodados + ? WHERE onibus_id = ?";
+
+    private static final String PREFIXO_ARQUIVO = "odometro-";
+    private static final String EXTENSAO_ARQUIVO = ".wal";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private OnibusRepository onibusRepository;
+    @Autowired private CacheBuscas cacheBuscas;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    @Value("${onibus.viagens.write-behind.ativo:false}")
+    private boolean ativo;
+
+    @Value("${onibus.viagens.write-behind.diretorio-wal:./wal}")
+    private String diretorioWal;
+
+    @Value("${onibus.viagens.write-behind.limite-registros:1000}")
+    private int limiteRegistros;
+
+    @Value("${onibus.viagens.write-behind.espera-encerramento-ms:30000}")
+    private long esperaEncerramentoMs;
+
+    private final TransactionTemplate transacao;
+
+    // Escritores usam a trava de leitura (compartilhada); a troca de segmento usa a de escrita
+    private final ReentrantReadWriteLock travaSegmento = new ReentrantReadWriteLock();
+    private final ReentrantLock travaDescarga = new ReentrantLock();
+    private final ConcurrentLinkedDeque<Segmento> segmentosFechados = new ConcurrentLinkedDeque<>();
+    private volatile Segmento segmentoAtual;
+
+    public AcumuladorQuilometragem(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    // --- CICLO DE VIDA ---
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        Path diretorio = Paths.get(diretorioWal);
+        if (Files.isDirectory(diretorio)) {
+            // Segmentos deixados por uma parada anterior (mesmo que o modo tenha sido desligado depois)
+            try (Stream<Path> arquivos = Files.list(diretorio)) {
+                for (Path arquivo : arquivos.filter(this::ehArquivoWal).sorted().toList()) {
+                    segmentosFechados.add(Segmento.recuperar(arquivo));
+                }
+            }
+        }
+        if (ativo) {
+            Files.createDirectories(diretorio);
+            segmentoAtual = Segmento.novo(diretorio);
+            EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.PRE_INSERT, this);
+            registry.appendListeners(EventType.PRE_UPDATE, this);
+        }
+        if (!segmentosFechados.isEmpty()) {
+            System.out.println("LOG: Reaplicando " + segmentosFechados.size() + " segmento(s) do WAL de quilometragem.");
+            aplicarSegmentosFechados();
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        // Diferente da descarga agendada, espera a que estiver em andamento terminar para descarregar o que sobrou
+        if (!travaDescarga.tryLock(esperaEncerramentoMs, TimeUnit.MILLISECONDS)) {
+            System.out.println("ALERTA: Descarga do WAL de quilometragem não terminou a tempo; os segmentos serão reaplicados na próxima subida.");
+            return;
+        }
+        try {
+            rotacionarEAplicar();
+        } finally {
+            travaDescarga.unlock();
+        }
+        Segmento atual = segmentoAtual;
+        if (atual != null && atual.registros.get() == 0) {
+            atual.descartar();
+        }
+    }
+
+    // --- REGISTRO ---
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    public void registrar(Long onibusId, Double kmPercorridos) {
+        if (!ativo) {
+            throw new IllegalStateException("O modo de quilometragem acumulada não está ativo.");
+        }
+        if (kmPercorridos == null || kmPercorridos < 0) {
+            throw new IllegalArgumentException("Quilometragem não pode ser negativa.");
+        }
+        Onibus.StatusOnibus status = onibusRepository.findStatusById(onibusId)
+            .orElseThrow(() -> new RuntimeException("Ônibus não encontrado"));
+        if (status != Onibus.StatusOnibus.EM_OPERACAO) {
+            throw new IllegalStateException("Ônibus precisa estar EM_OPERACAO para registrar uma viagem.");
+        }
+
+        int registros;
+        travaSegmento.readLock().lock();
+        try {
+            // O WAL é gravado antes da memória: a viagem só é confirmada ao cliente depois de estar no disco
+            segmentoAtual.gravar(onibusId, kmPercorridos);
+            registros = segmentoAtual.registros.get();
+        } finally {
+            travaSegmento.readLock().unlock();
+        }
+
+        if (registros >= limiteRegistros && !travaDescarga.isLocked()) {
+            Thread.ofVirtual().start(this::descarregar);
+        }
+    }
+
+    // Quilometragem ainda não aplicada no banco, para somar nas leituras.
+    // Entre o commit de um segmento e sua retirada da fila a leitura pode contá-lo duas vezes por um instante.
+    public double getKmPendente(Long onibusId) {
+        if (segmentosFechados.isEmpty() && segmentoAtual == null) return 0.0;
+        double total = 0.0;
+        Segmento atual = segmentoAtual;
+        if (atual != null) total += atual.pendente(onibusId);
+        for (Segmento segmento : segmentosFechados) {
+            total += segmento.pendente(onibusId);
+        }
+        return total;
+    }
+
+    // --- DESCARGA ---
+
+    @Scheduled(fixedDelayString = "${onibus.viagens.write-behind.intervalo-ms:5000}")
+    public void descarregar() {
+        if (!travaDescarga.tryLock()) return; // Já existe uma descarga em andamento
+        try {
+            rotacionarEAplicar();
+        } finally {
+            travaDescarga.unlock();
+        }
+    }
+
+    // Troca de pneus com o WAL vazio: aplica todo o pendente nos pneus atuais e segura novos registros até a troca
+    // (que deve abrir e confirmar a própria transação) terminar. Sem isso, viagens feitas com o pneu antigo iriam
+    // para o novo na próxima descarga. Recusa a troca se o pendente não pôde ser aplicado.
+    public <T> T comPneusFixos(Supplier<T> troca) {
+        if (!ativo && segmentosFechados.isEmpty()) return troca.get();
+        travaDescarga.lock();
+        try {
+            travaSegmento.writeLock().lock();
+            try {
+                rotacionarEAplicar();
+                if (!segmentosFechados.isEmpty()) {
+                    throw new IllegalStateException("Quilometragem pendente do WAL não pôde ser aplicada; tente a troca de pneu novamente.");
+                }
+                return troca.get();
+            } finally {
+                travaSegmento.writeLock().unlock();
+            }
+        } finally {
+            travaDescarga.unlock();
+        }
+    }
+
+    // Chamado com a trava de descarga: fecha o segmento atual (se tiver viagens) e aplica os fechados
+    private void rotacionarEAplicar() {
+        try {
+            if (ativo && segmentoAtual.registros.get() > 0) {
+                Segmento proximo = Segmento.novo(Paths.get(diretorioWal));
+                travaSegmento.writeLock().lock();
+                try {
+                    segmentoAtual.fechar();
+                    segmentosFechados.add(segmentoAtual);
+                    segmentoAtual = proximo;
+                } finally {
+                    travaSegmento.writeLock().unlock();
+                }
+            }
+            aplicarSegmentosFechados();
+        } catch (IOException e) {
+            System.out.println("ALERTA: Falha ao rotacionar o WAL de quilometragem: " + e.getMessage());
+        }
+    }
+
+    private void aplicarSegmentosFechados() {
+        Segmento segmento;
+        while ((segmento = segmentosFechados.peek()) != null) {
+            try {
+                aplicar(segmento);
+            } catch (RuntimeException e) {
+                // O segmento continua no disco e na fila; será reaplicado na próxima descarga
+                System.out.println("ALERTA: Falha ao aplicar o segmento " + segmento.id + " do WAL de quilometragem: " + e.getMessage());
+                return;
+            }
+            segmentosFechados.poll();
+            segmento.descartar();
+        }
+    }
+
+    private void aplicar(Segmento segmento) {
+        Map<Long, Double> totais = segmento.totais();
+        transacao.executeWithoutResult(status -> {
+            int marcado = jdbcTemplate.update(SQL_MARCAR_SEGMENTO, segmento.id, LocalDateTime.now());
+            if (marcado == 0) return; // Já aplicado antes de uma queda; só falta apagar o arquivo
+            List<Object[]> incrementos = new ArrayList<>(totais.size());
+            totais.forEach((onibusId, km) -> incrementos.add(new Object[] { km, onibusId }));
+            jdbcTemplate.batchUpdate(SQL_SOMAR_KM_ONIBUS, incrementos);
+            jdbcTemplate.batchUpdate(SQL_SOMAR_KM_PNEUS, incrementos);
+            cacheBuscas.invalidar(Onibus.class, Pneu.class);
+        });
+    }
+
+    // --- LISTENERS DO HIBERNATE ---
+
+    // Abertura de sessão: o km de início inclui as viagens ainda no WAL (senão iriam para a próxima sessão)
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        if (event.getEntity() instanceof SessaoOperacional sessao && sessao.getKmInicio() != null) {
+            double km = sessao.getKmInicio() + getKmPendente(sessao.getOnibus().getId());
+            sessao.setKmInicio(km);
+            event.getState()[event.getPersister().findAttributeMapping("kmInicio").getStateArrayPosition()] = km;
+        }
+        return false;
+    }
+
+    // Encerramento de sessão: idem para o km de fim, antes do listener de utilização somar a sessão no dia
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        if (!(event.getEntity() instanceof SessaoOperacional sessao) || event.getOldState() == null) return false;
+        int posicaoFim = event.getPersister().findAttributeMapping("fim").getStateArrayPosition();
+        if (event.getOldState()[posicaoFim] != null || sessao.getFim() == null || sessao.getKmFim() == null) return false;
+        double km = sessao.getKmFim() + getKmPendente(sessao.getOnibus().getId());
+        sessao.setKmFim(km);
+        event.getState()[event.getPersister().findAttributeMapping("kmFim").getStateArrayPosition()] = km;
+        return false;
+    }
+
+    private boolean ehArquivoWal(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        return nome.startsWith(PREFIXO_ARQUIVO) && nome.endsWith(EXTENSAO_ARQUIVO);
+    }
+
+    // --- SEGMENTO DO WAL ---
+
+    // Um arquivo do WAL (uma linha "onibusId;km" por viagem) e os totais em memória correspondentes
+    private static final class Segmento {
+        private final String id;
+        private final Path arquivo;
+        private final Map<Long, DoubleAdder> deltas = new ConcurrentHashMap<>();
+        private final AtomicInteger registros = new AtomicInteger();
+        private final Object travaSincronizacao = new Object();
+        private FileChannel canal;
+        private volatile long posicaoEscrita;
+        private long posicaoSincronizada;
+
+        private Segmento(String id, Path arquivo) {
+            this.id = id;
+            this.arquivo = arquivo;
+        }
+
+        static Segmento novo(Path diretorio) throws IOException {
+            String id = UUID.randomUUID().toString();
+            Segmento segmento = new Segmento(id, diretorio.resolve(PREFIXO_ARQUIVO + id + EXTENSAO_ARQUIVO));
+            segmento.canal = FileChannel.open(segmento.arquivo, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return segmento;
+        }
+
+        static Segmento recuperar(Path arquivo) throws IOException {
+            String nome = arquivo.getFileName().toString();
+            String id = nome.substring(PREFIXO_ARQUIVO.length(), nome.length() - EXTENSAO_ARQUIVO.length());
+            Segmento segmento = new Segmento(id, arquivo);
+            for (String linha : Files.readAllLines(arquivo, StandardCharsets.UTF_8)) {
+                String[] partes = linha.split(";");
+                if (partes.length != 2) continue; // Última linha incompleta de uma queda: a viagem não foi confirmada
+                try {
+                    segmento.somar(Long.valueOf(partes[0]), Double.valueOf(partes[1]));
+                } catch (NumberFormatException e) {
+                    // Idem: linha truncada
+                }
+            }
+            return segmento;
+        }
+
+        // Escreve a viagem e espera o fsync em grupo; só então ela entra nos totais em memória
+        void gravar(Long onibusId, Double km) {
+            ByteBuffer registro = ByteBuffer.wrap((onibusId + ";" + km + "\n").getBytes(StandardCharsets.UTF_8));
+            long posicao;
+            try {
+                synchronized (this) {
+                    while (registro.hasRemaining()) {
+                        canal.write(registro);
+                    }
+                    posicao = canal.position();
+                    posicaoEscrita = posicao;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao gravar viagem no WAL de quilometragem.", e);
+            }
+            sincronizar(posicao);
+            somar(onibusId, km);
+        }
+
+        // Commit em grupo: quem chega primeiro faz o fsync de tudo o que já foi escrito; os demais só conferem a posição
+        private void sincronizar(long posicao) {
+            synchronized (travaSincronizacao) {
+                if (posicaoSincronizada >= posicao) return;
+                long alvo = posicaoEscrita;
+                try {
+                    canal.force(false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Falha ao sincronizar o WAL de quilometragem.", e);
+                }
+                posicaoSincronizada = alvo;
+            }
+        }
+
+        private void somar(Long onibusId, Double km) {
+            deltas.computeIfAbsent(onibusId, k -> new DoubleAdder()).add(km);
+            registros.incrementAndGet();
+        }
+
+        double pendente(Long onibusId) {
+            DoubleAdder delta = deltas.get(onibusId);
+            return (delta == null) ? 0.0 : delta.sum();
+        }
+
+        // Ordenado por ID para que descargas concorrentes travem as linhas sempre na mesma ordem
+        Map<Long, Double> totais() {
+            Map<Long, Double> totais = new TreeMap<>();
+            deltas.forEach((onibusId, delta) -> totais.put(onibusId, delta.sum()));
+            return totais;
+        }
+
+        void fechar() throws IOException {
+            if (canal != null) canal.close();
+        }
+
+        void descartar() {
+            try {
+                fechar();
+                Files.deleteIfExists(arquivo);
+            } catch (IOException e) {
+                System.out.println("ALERTA: Não foi possível remover o segmento " + arquivo + " do WAL: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.proj_db.onibus.service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.proj_db.onibus.dto.AlertaEstoqueDTO;
+
+/*
+ * Alertas de estoque baixo por eventos, no lugar do polling de /api/estoque/alertas/estoque-baixo.
+ * Guarda em memória, por produto, o saldo atual e o estoque mínimo (carregados uma vez na subida) e recebe dos
+ * serviços as variações de saldo e as mudanças de mínimo, sempre após o commit. Quando um produto cruza o mínimo,
+ * em qualquer sentido, o alerta é enviado a todos os inscritos no SSE; quem se conecta recebe antes um
+ * "snapshot" com os produtos abaixo do mínimo naquele momento.
+ * Trabalhar com variações (e não com o saldo lido do banco) torna a ordem dos commits concorrentes indiferente
+ * e vale também para os produtos da RazaoEstoque, cujo saldo no banco só chega na descarga do WAL.
+ * Sob a trava os eventos só entram na fila de cada inscrito; o envio pela rede fica numa thread virtual por
+ * inscrito, fora da trava e da thread do commit. Um inscrito cuja fila enche (cliente lento ou travado) é
+ * desconectado: ao reconectar ele recebe um snapshot novo, sem ficar com alertas faltando.
+ */
+@Service
+public class AlertasEstoque {
+
+    private static final class Situacao {
+        Long estoqueId;
+        String nome;
+        int minimo;
+        double atual;
+
+        boolean abaixoDoMinimo() {
+            return atual < minimo;
+        }
+    }
+
+    // Fila de envio de um emissor: só uma thread por vez a esvazia, então os eventos saem na ordem da fila
+    private final class Inscrito {
+        final SseEmitter emissor;
+        final BlockingQueue<SseEmitter.SseEventBuilder> fila = new ArrayBlockingQueue<>(tamanhoFila);
+        final AtomicBoolean enviando = new AtomicBoolean();
+
+        Inscrito(SseEmitter emissor) {
+            this.emissor = emissor;
+        }
+
+        // Não bloqueia: com a fila cheia o inscrito é descartado
+        void enfileirar(SseEmitter.SseEventBuilder evento) {
+            if (!fila.offer(evento)) {
+                System.out.println("ALERTA: Inscrito de alertas de estoque com " + tamanhoFila + " eventos pendentes; desconectado.");
+                desconectar(this);
+                envio.execute(emissor::complete);
+                return;
+            }
+            if (enviando.compareAndSet(false, true)) envio.execute(this::esvaziar);
+        }
+
+        private void esvaziar() {
+            do {
+                SseEmitter.SseEventBuilder evento;
+                while ((evento = fila.poll()) != null) {
+                    try {
+                        emissor.send(evento);
+                    } catch (IOException | IllegalStateException e) {
+                        desconectar(this);
+                        fila.clear();
+                        enviando.set(false);
+                        return;
+                    }
+                }
+                enviando.set(false);
+                // Um evento que chegou entre o último poll e o set acima ainda precisa de quem o envie
+            } while (!fila.isEmpty() && enviando.compareAndSet(false, true));
+        }
+    }
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Value("${onibus.estoque.alertas.sse-timeout-ms:0}")
+    private long timeoutSse;
+
+    @Value("${onibus.estoque.alertas.fila-por-inscrito:256}")
+    private int tamanhoFila;
+
+    private final Map<Long, Situacao> situacoes = new HashMap<>(); // Guardado por synchronized (situacoes)
+    private final List<Inscrito> inscritos = new CopyOnWriteArrayList<>();
+    private final ExecutorService envio = Executors.newVirtualThreadPerTaskExecutor();
+
+    // --- CARGA ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        Map<Long, Situacao> novas = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT e.produto_id, e.id, p.nome, p.estoque_minimo, e.quantidade_atual FROM estoque e JOIN produtos p ON p.id = e.produto_id",
+            rs -> {
+                Situacao s = new Situacao();
+                s.estoqueId = rs.getLong(2);
+                s.nome = rs.getString(3);
+                s.minimo = rs.getInt(4);
+                s.atual = rs.getDouble(5);
+                novas.put(rs.getLong(1), s);
+            });
+        long abaixo;
+        synchronized (situacoes) {
+            situacoes.clear();
+            situacoes.putAll(novas);
+            abaixo = novas.values().stream().filter(Situacao::abaixoDoMinimo).count();
+        }
+        System.out.println("LOG: Alertas de estoque carregados: " + abaixo + " produto(s) abaixo do mínimo.");
+    }
+
+    // --- ATUALIZAÇÃO (chamada pelos serviços dentro da transação; aplicada após o commit) ---
+
+    public void movimentar(Long produtoId, double variacao) {
+        movimentar(Map.of(produtoId, variacao));
+    }
+
+    public void movimentar(Map<Long, Double> variacoesPorProduto) {
+        Map<Long, Double> copia = new HashMap<>(variacoesPorProduto);
+        aposCommit(() -> {
+            synchronized (situacoes) {
+                copia.forEach((produtoId, variacao) -> {
+                    Situacao s = situacoes.get(produtoId);
+                    if (s == null) return; // Produto criado antes da carga: entra na próxima carga
+                    boolean antes = s.abaixoDoMinimo();
+                    s.atual += variacao;
+                    if (s.abaixoDoMinimo() != antes) publicar(paraDTO(produtoId, s));
+                });
+            }
+        });
+    }
+
+    // Produto novo (estoqueId preenchido, saldo zero) ou alteração de nome/mínimo de um existente (estoqueId nulo)
+    public void registrarProduto(Long produtoId, Long estoqueId, String nome, Integer estoqueMinimo) {
+        aposCommit(() -> {
+            synchronized (situacoes) {
+                Situacao s = situacoes.get(produtoId);
+                boolean antes = s != null && s.abaixoDoMinimo();
+                if (s == null) {
+                    if (estoqueId == null) return;
+                    s = new Situacao();
+                    situacoes.put(produtoId, s);
+                }
+                if (estoqueId != null) s.estoqueId = estoqueId;
+                s.nome = nome;
+                s.minimo = estoqueMinimo;
+                if (s.abaixoDoMinimo() != antes) publicar(paraDTO(produtoId, s));
+            }
+        });
+    }
+
+    private void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+
+    // --- CONSULTA E SSE ---
+
+    public List<AlertaEstoqueDTO> abaixoDoMinimo() {
+        synchronized (situacoes) {
+            return situacoes.entrySet().stream()
+                .filter(entrada -> entrada.getValue().abaixoDoMinimo())
+                .map(entrada -> paraDTO(entrada.getKey(), entrada.getValue()))
+                .toList();
+        }
+    }
+
+    public SseEmitter inscrever() {
+        SseEmitter emissor = new SseEmitter(timeoutSse);
+        Inscrito inscrito = new Inscrito(emissor);
+        emissor.onCompletion(() -> desconectar(inscrito));
+        emissor.onTimeout(() -> desconectar(inscrito));
+        emissor.onError(erro -> desconectar(inscrito));
+        // Snapshot e inscrição sob a mesma trava: nenhum cruzamento fica entre os dois. O envio sai da fila depois.
+        synchronized (situacoes) {
+            inscrito.enfileirar(SseEmitter.event().name("snapshot").data(abaixoDoMinimo()));
+            inscritos.add(inscrito);
+        }
+        return emissor;
+    }
+
+    // Comentário periódico para proxies e balanceadores não fecharem conexões sem tráfego
+    @Scheduled(fixedDelayString = "${onibus.estoque.alertas.heartbeat-ms:30000}")
+    public void manterConexoes() {
+        for (Inscrito inscrito : inscritos) {
+            inscrito.enfileirar(SseEmitter.event().comment("ping"));
+        }
+    }
+
+    private void desconectar(Inscrito inscrito) {
+        inscritos.remove(inscrito);
+    }
+
+    // Chamado sob a trava de situacoes, para que os alertas de um produto entrem nas filas na ordem em que ocorreram
+    private void publicar(AlertaEstoqueDTO alerta) {
+        System.out.println((alerta.abaixoDoMinimo() ? "ALERTA: Estoque abaixo do mínimo: " : "LOG: Estoque de volta ao mínimo: ")
+            + alerta.nomeProduto() + " (" + alerta.quantidadeAtual() + "/" + alerta.estoqueMinimo() + ").");
+        for (Inscrito inscrito : inscritos) {
+            inscrito.enfileirar(SseEmitter.event().name("alerta").data(alerta));
+        }
+    }
+
+    private AlertaEstoqueDTO paraDTO(Long produtoId, Situacao s) {
+        return new AlertaEstoqueDTO(produtoId, s.estoqueId, s.nome, s.atual, s.minimo, s.abaixoDoMinimo(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,81 @@
+package com.proj_db.onibus.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.proj_db.onibus.model.Cambio;
+import com.proj_db.onibus.model.Motor;
+import com.proj_db.onibus.model.Onibus;
+import com.proj_db.onibus.model.Pneu;
+
+/*
+ * Preenche, uma única vez, as colunas de próximos vencimentos (proxima_manutencao, proxima_revisao,
+ * proxima_reforma) dos registros criados antes de elas existirem. Cada UPDATE só toca linhas com a coluna nula,
+ * então nas subidas seguintes é um no-op. As regras espelham os métodos recalcularVencimentos() das entidades.
+ * Os históricos já estão nas colunas date[] (MigracaoHistoricos roda antes, na criação dos beans).
+ */
+@Service
+public class BackfillVencimentos {
+
+    // --- MOTOR ---
+    private static final String SQL_MOTOR_REVISAO =
+        "UPDATE motores m SET proxima_revisao = (COALESCE((SELECT MAX(d) FROM unnest(m.historico_retorno_revisao) d), m.data_compra) " +
+        "+ make_interval(months => ?))::date WHERE m.proxima_revisao IS NULL";
+    private static final String SQL_MOTOR_MANUTENCAO =
+        "UPDATE motores m SET proxima_manutencao = (GREATEST(" +
+        "COALESCE((SELECT MAX(d) FROM unnest(m.historico_retorno_manutencao) d), m.data_compra), " +
+        "(SELECT MAX(d) FROM unnest(m.historico_retorno_revisao) d)) " +
+        "+ make_interval(months => ?))::date WHERE m.proxima_manutencao IS NULL";
+
+    // --- CÂMBIO ---
+    private static final String SQL_CAMBIO_REVISAO =
+        "UPDATE cambios c SET proxima_revisao = (COALESCE((SELECT MAX(d) FROM unnest(c.historico_retorno_revisao) d), c.data_compra) " +
+        "+ make_interval(months => ?))::date WHERE c.proxima_revisao IS NULL";
+    private static final String SQL_CAMBIO_MANUTENCAO =
+        "UPDATE cambios c SET proxima_manutencao = (GREATEST(" +
+        "COALESCE((SELECT MAX(d) FROM unnest(c.historico_retorno_manutencao) d), c.data_compra), " +
+        "(SELECT MAX(d) FROM unnest(c.historico_retorno_revisao) d)) " +
+        "+ make_interval(months => ?))::date WHERE c.proxima_manutencao IS NULL";
+
+    // --- PNEU --- (sem instalação nem manutenção, proxima_manutencao permanece nula)
+    private static final String SQL_PNEU_REFORMA =
+        "UPDATE pneus p SET proxima_reforma = COALESCE((SELECT MAX(d) FROM unnest(p.historico_retorno_reforma) d), p.data_compra) " +
+        "+ ? WHERE p.proxima_reforma IS NULL";
+    private static final String SQL_PNEU_MANUTENCAO =
+        "UPDATE pneus p SET proxima_manutencao = COALESCE((SELECT MAX(d) FROM unnest(p.historico_retorno_manutencao) d), p.data_instalacao) " +
+        "+ ? WHERE p.proxima_manutencao IS NULL " +
+        "AND (p.data_instalacao IS NOT NULL OR cardinality(p.historico_retorno_manutencao) > 0)";
+
+    // --- ÔNIBUS ---
+    private static final String SQL_ONIBUS_REFORMA =
+        "UPDATE onibus o SET proxima_reforma = COALESCE((SELECT MAX(d) FROM unnest(o.historico_retorno_reforma) d), o.data_compra) " +
+        "+ ? WHERE o.proxima_reforma IS NULL";
+    private static final String SQL_ONIBUS_MANUTENCAO =
+        "UPDATE onibus o SET proxima_manutencao = COALESCE((SELECT MAX(d) FROM unnest(o.historico_retorno_manutencao) d), o.data_compra) " +
+        "+ ? WHERE o.proxima_manutencao IS NULL";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private CacheBuscas cacheBuscas;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void preencherVencimentosPendentes() {
+        int atualizados = 0;
+        atualizados += jdbcTemplate.update(SQL_MOTOR_REVISAO, Motor.MESES_LIMITE_REVISAO);
+        atualizados += jdbcTemplate.update(SQL_MOTOR_MANUTENCAO, Motor.MESES_LIMITE_MANUTENCAO);
+        atualizados += jdbcTemplate.update(SQL_CAMBIO_REVISAO, Cambio.MESES_LIMITE_REVISAO);
+        atualizados += jdbcTemplate.update(SQL_CAMBIO_MANUTENCAO, Cambio.MESES_LIMITE_MANUTENCAO);
+        atualizados += jdbcTemplate.update(SQL_PNEU_REFORMA, (int) Pneu.DIAS_LIMITE_REFORMA);
+        atualizados += jdbcTemplate.update(SQL_PNEU_MANUTENCAO, (int) Pneu.DIAS_LIMITE_MANUTENCAO);
+        atualizados += jdbcTemplate.update(SQL_ONIBUS_REFORMA, (int) Onibus.DIAS_LIMITE_REFORMA);
+        atualizados += jdbcTemplate.update(SQL_ONIBUS_MANUTENCAO, (int) Onibus.DIAS_LIMITE_MANUTENCAO);
+        if (atualizados > 0) {
+            cacheBuscas.invalidar(Motor.class, Cambio.class, Pneu.class, Onibus.class);
+            System.out.println("LOG: Backfill de vencimentos concluído: " + atualizados + " atualizações.");
+        }
+    }
+}
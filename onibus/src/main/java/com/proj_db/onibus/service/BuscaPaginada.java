@@ -0,0 +1,206 @@
+package com.proj_db.onibus.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+/*
+ * Paginação comum das buscas por Specification. A consulta paginada seleciona só (id, coluna de ordenação), com
+ * LIMIT tamanho + 1 para saber se há próxima página sem COUNT, e as entidades da página são carregadas depois
+ * pelo findAll(Specification) do repositório, que já tem o entity graph usado pelos DTOs. Assim o LIMIT nunca
+ * cai sobre um fetch de coleção (que o Hibernate paginaria em memória).
+ * Aceita página por OFFSET ou cursor keyset (valor da coluna + id, no formato do OnibusImpl.listarPagina);
+ * o COUNT exato só roda quando pedido. Sem pagina, tamanho nem cursor a busca devolve todas as linhas, como
+ * antes da paginação (os seletores do frontend listam tudo). As páginas passam pelo CacheBuscas.
+ */
+@Component
+public class BuscaPaginada {
+
+    public static final String CABECALHO_PAGINA = "X-Pagina";
+    public static final String CABECALHO_TEM_PROXIMA = "X-Tem-Proxima";
+    public static final String CABECALHO_PROXIMO_CURSOR = "X-Proximo-Cursor";
+    public static final String CABECALHO_TOTAL = "X-Total-Count";
+
+    @PersistenceContext private EntityManager entityManager;
+    @Autowired private CacheBuscas cacheBuscas;
+
+    @Value("${onibus.busca.tamanho-padrao:100}")
+    private int tamanhoPadrao;
+
+    @Value("${onibus.busca.tamanho-maximo:1000}")
+    private int tamanhoMaximo;
+
+
+    // criterios é o DTO de busca de onde veio a Specification: junto com os parâmetros normalizados, é a chave do cache.
+    // As entidades viram DTOs de resposta ainda dentro da consulta: o cache guarda a página de DTOs, nunca entidades.
+    public <T, R> PaginaBuscaDTO<R> buscar(Class<T> classe, Object criterios, Specification<T> spec, JpaSpecificationExecutor<T> repositorio,
+                                          ParametrosPaginaDTO parametros, Function<T, R> conversor) {
+        ParametrosPaginaDTO normalizados = normalizar(parametros);
+        return cacheBuscas.obter(classe, criterios, normalizados, () -> consultar(classe, spec, repositorio, normalizados).map(conversor));
+    }
+
+    // Padrões aplicados, para que "?pagina=0&direcao=asc" e "?pagina=0&tamanho=100" caiam na mesma chave.
+    // Sem pagina, tamanho nem cursor o tamanho fica nulo: busca sem limite.
+    private ParametrosPaginaDTO normalizar(ParametrosPaginaDTO parametros) {
+        String ordenarPor = parametros.ordenarPor() != null && !parametros.ordenarPor().isBlank() ? parametros.ordenarPor() : "id";
+        String direcao = "DESC".equalsIgnoreCase(parametros.direcao()) ? "DESC" : "ASC";
+        boolean porCursor = parametros.cursor() != null && !parametros.cursor().isBlank();
+        if (!porCursor && parametros.pagina() == null && parametros.tamanho() == null) {
+            return new ParametrosPaginaDTO(null, null, ordenarPor, direcao, null, Boolean.TRUE.equals(parametros.contar()));
+        }
+        int tamanho = Math.max(1, Math.min(parametros.tamanho() != null ? parametros.tamanho() : tamanhoPadrao, tamanhoMaximo));
+        Integer pagina = porCursor ? null : parametros.pagina() == null ? 0 : Math.max(0, parametros.pagina());
+        return new ParametrosPaginaDTO(pagina, tamanho, ordenarPor, direcao, porCursor ? parametros.cursor() : null,
+            Boolean.TRUE.equals(parametros.contar()));
+    }
+
+    private <T> PaginaBuscaDTO<T> consultar(Class<T> classe, Specification<T> spec, JpaSpecificationExecutor<T> repositorio, ParametrosPaginaDTO parametros) {
+        String ordenarPor = parametros.ordenarPor();
+        boolean crescente = "ASC".equals(parametros.direcao());
+        boolean semLimite = parametros.tamanho() == null;
+        int tamanho = semLimite ? 0 : parametros.tamanho();
+        boolean porCursor = parametros.cursor() != null;
+        int pagina = porCursor || semLimite ? 0 : parametros.pagina();
+        SingularAttribute<? super T, ?> atributo = atributoOrdenavel(classe, ordenarPor);
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(classe);
+        Path<Long> id = root.get("id");
+        Path<Object> coluna = root.get(ordenarPor);
+
+        List<Predicate> filtros = new ArrayList<>();
+        Predicate criterios = spec.toPredicate(root, query, cb);
+        if (criterios != null) filtros.add(criterios);
+        if (porCursor) filtros.add(aposCursor(cb, coluna, id, "id".equals(ordenarPor), atributo.getJavaType(), crescente, parametros.cursor()));
+
+        query.multiselect(id, coluna).where(filtros.toArray(new Predicate[0]));
+        if ("id".equals(ordenarPor)) {
+            query.orderBy(crescente ? cb.asc(id) : cb.desc(id));
+        } else {
+            query.orderBy(crescente ? cb.asc(coluna) : cb.desc(coluna), crescente ? cb.asc(id) : cb.desc(id));
+        }
+
+        TypedQuery<Tuple> consulta = entityManager.createQuery(query);
+        if (!semLimite) consulta.setMaxResults(tamanho + 1);
+        if (!semLimite && !porCursor) consulta.setFirstResult(pagina * tamanho);
+        List<Tuple> linhas = consulta.getResultList();
+
+        boolean temProxima = !semLimite && linhas.size() > tamanho;
+        if (temProxima) linhas = linhas.subList(0, tamanho);
+        String proximoCursor = temProxima ? codificarCursor(linhas.get(tamanho - 1).get(1), linhas.get(tamanho - 1).get(0, Long.class)) : null;
+
+        List<Long> ids = linhas.stream().map(linha -> linha.get(0, Long.class)).toList();
+        List<T> itens = List.of();
+        if (!ids.isEmpty()) {
+            Function<T, Long> idDe = entidade -> (Long) entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entidade);
+            Map<Long, T> porId = repositorio.findAll((r, q, b) -> r.get("id").in(ids)).stream()
+                .collect(Collectors.toMap(idDe, Function.identity()));
+            itens = ids.stream().map(porId::get).toList();
+        }
+        if (semLimite) return new PaginaBuscaDTO<>(itens, null, itens.size(), false, null, parametros.contar() ? (long) itens.size() : null);
+        Long total = parametros.contar() ? repositorio.count(spec) : null;
+        return new PaginaBuscaDTO<>(itens, porCursor ? null : pagina, tamanho, temProxima, proximoCursor, total);
+    }
+
+    // Metadados da página nos cabeçalhos: o corpo continua sendo a lista, como antes da paginação
+    public static HttpHeaders cabecalhos(PaginaBuscaDTO<?> pagina) {
+        HttpHeaders cabecalhos = new HttpHeaders();
+        if (pagina.pagina() != null) cabecalhos.set(CABECALHO_PAGINA, pagina.pagina().toString());
+        cabecalhos.set(CABECALHO_TEM_PROXIMA, Boolean.toString(pagina.temProxima()));
+        if (pagina.proximoCursor() != null) cabecalhos.set(CABECALHO_PROXIMO_CURSOR, pagina.proximoCursor());
+        if (pagina.totalItens() != null) cabecalhos.set(CABECALHO_TOTAL, pagina.totalItens().toString());
+        return cabecalhos;
+    }
+
+    // Só atributos simples da própria entidade: evita ordenar por associações e por nomes arbitrários vindos da URL
+    private <T> SingularAttribute<? super T, ?> atributoOrdenavel(Class<T> classe, String nome) {
+        try {
+            SingularAttribute<? super T, ?> atributo = entityManager.getMetamodel().entity(classe).getSingularAttribute(nome);
+            if (atributo.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) return atributo;
+        } catch (IllegalArgumentException e) {
+            // Cai na mensagem abaixo
+        }
+        throw new IllegalArgumentException("Campo de ordenação inválido: " + nome);
+    }
+
+    // --- CURSOR ---
+
+    // Linhas estritamente depois de (valor, id) na ordem pedida. No PostgreSQL nulos ficam no fim em ASC e no início em DESC.
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Predicate aposCursor(CriteriaBuilder cb, Path<Object> coluna, Path<Long> id, boolean porId, Class<?> tipo, boolean crescente, String cursor) {
+        String conteudo;
+        Long ultimoId;
+        try {
+            conteudo = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            ultimoId = Long.valueOf(conteudo.substring(conteudo.lastIndexOf('|') + 1));
+            conteudo = conteudo.substring(0, conteudo.lastIndexOf('|'));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido.");
+        }
+        Predicate aposId = crescente ? cb.greaterThan(id, ultimoId) : cb.lessThan(id, ultimoId);
+        if (porId) return aposId;
+
+        Comparable valor = conteudo.startsWith("N") ? null : decodificarValor(tipo, conteudo.substring(1));
+        if (valor == null) {
+            return crescente
+                ? cb.and(cb.isNull(coluna), aposId)
+                : cb.or(cb.isNotNull(coluna), cb.and(cb.isNull(coluna), aposId));
+        }
+        Path<Comparable> colunaComparavel = (Path) coluna;
+        Predicate depois = crescente ? cb.greaterThan(colunaComparavel, valor) : cb.lessThan(colunaComparavel, valor);
+        Predicate empate = cb.and(cb.equal(coluna, valor), aposId);
+        return crescente ? cb.or(depois, empate, cb.isNull(coluna)) : cb.or(depois, empate);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Comparable<?> decodificarValor(Class<?> tipo, String valor) {
+        try {
+            if (tipo == String.class) return valor;
+            if (tipo == Long.class || tipo == long.class) return Long.valueOf(valor);
+            if (tipo == Integer.class || tipo == int.class) return Integer.valueOf(valor);
+            if (tipo == Double.class || tipo == double.class) return Double.valueOf(valor);
+            if (tipo == Boolean.class || tipo == boolean.class) return Boolean.valueOf(valor);
+            if (tipo == LocalDate.class) return LocalDate.parse(valor);
+            if (tipo == LocalDateTime.class) return LocalDateTime.parse(valor);
+            if (tipo.isEnum()) return Enum.valueOf((Class<? extends Enum>) tipo, valor);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido.");
+        }
+        throw new IllegalArgumentException("Campo de ordenação sem suporte a cursor: " + tipo.getSimpleName());
+    }
+
+    // "N|id" para valor nulo, "V<valor>|id" caso contrário; o id fica depois do último '|'
+    private String codificarCursor(Object valor, Long ultimoId) {
+        String conteudo = (valor == null ? "N" : "V" + (valor instanceof Enum<?> e ? e.name() : valor.toString())) + "|" + ultimoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+}
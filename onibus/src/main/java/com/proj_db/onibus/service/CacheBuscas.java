@@ -0,0 +1,248 @@
+package com.proj_db.onibus.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.proj_db.onibus.dto.CacheBuscasEstatisticasDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.model.Cambio;
+import com.proj_db.onibus.model.Estoque;
+import com.proj_db.onibus.model.ItemOrdemServico;
+import com.proj_db.onibus.model.Motor;
+import com.proj_db.onibus.model.Onibus;
+import com.proj_db.onibus.model.OrdemServico;
+import com.proj_db.onibus.model.Pneu;
+import com.proj_db.onibus.model.Produto;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Cache das páginas devolvidas pelas buscas por Specification (/search), chaveado pela entidade, pelo DTO de
+ * critérios (records/@Data, comparados por valor) e pelos parâmetros de paginação já normalizados pela
+ * BuscaPaginada. Limitado por número de entradas (a menos usada recentemente sai primeiro) e por tempo de vida.
+ * A invalidação é por tipo de entidade e só depois do commit: um listener do Hibernate acompanha inclusões,
+ * alterações e exclusões feitas pelos serviços, e os caminhos que escrevem por SQL direto ou UPDATE em massa
+ * (quilometragem, reservas, lotes de estoque, OS preventivas) chamam invalidar(...). Cada busca depende também
+ * das entidades que aparecem no DTO de resposta (ex.: a busca de ônibus mostra motor, câmbio e pneus).
+ * Uma consulta que começou antes de uma invalidação não grava o resultado (contador de geração por busca).
+ * As páginas guardadas são de DTOs de resposta, não de entidades (que estariam desanexadas da sessão e seriam as
+ * mesmas instâncias em todas as requisições). Os DTOs de uma página do cache também são compartilhados: quem
+ * precisa ajustar um valor por requisição (km pendente, saldo da RazaoEstoque) trabalha numa cópia.
+ */
+@Service
+public class CacheBuscas implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Map<Class<?>, Set<Class<?>>> DEPENDENCIAS = Map.of(
+        Onibus.class, Set.of(Onibus.class, Motor.class, Cambio.class, Pneu.class),
+        Motor.class, Set.of(Motor.class, Onibus.class),
+        Cambio.class, Set.of(Cambio.class, Onibus.class),
+        Pneu.class, Set.of(Pneu.class, Onibus.class),
+        Produto.class, Set.of(Produto.class),
+        Estoque.class, Set.of(Estoque.class, Produto.class),
+        OrdemServico.class, Set.of(OrdemServico.class, ItemOrdemServico.class, Produto.class,
+            Onibus.class, Motor.class, Cambio.class, Pneu.class)
+    );
+
+    private record Chave(Class<?> entidade, Object criterios, ParametrosPaginaDTO pagina) {}
+
+    private record Entrada(PaginaBuscaDTO<?> pagina, long expiraEm) {}
+
+    // Contadores de uma busca (por entidade); alterados só com a trava do cache
+    private static final class Contadores {
+        long geracao, acertos, falhas, despejos, expiracoes, invalidacoes;
+    }
+
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    @Value("${onibus.busca.cache.ativo:true}")
+    private boolean ativo;
+
+    @Value("${onibus.busca.cache.maximo-entradas:500}")
+    private int maximoEntradas;
+
+    @Value("${onibus.busca.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    // Ordem de acesso: a primeira entrada é a menos usada recentemente
+    private final LinkedHashMap<Chave, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Class<?>, Contadores> contadores = new HashMap<>();
+
+    // Tipos alterados ainda não invalidados, por sessão do Hibernate (uma transação em andamento cada)
+    private final Map<EventSource, Set<Class<?>>> pendentes = new ConcurrentHashMap<>();
+
+    public CacheBuscas() {
+        DEPENDENCIAS.keySet().forEach(entidade -> contadores.put(entidade, new Contadores()));
+    }
+
+    @PostConstruct
+    public void registrarListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    // --- CONSULTA ---
+
+    @SuppressWarnings("unchecked")
+    public <R> PaginaBuscaDTO<R> obter(Class<?> entidade, Object criterios, ParametrosPaginaDTO pagina, Supplier<PaginaBuscaDTO<R>> consulta) {
+        if (!ativo || !DEPENDENCIAS.containsKey(entidade)) return consulta.get();
+        Chave chave = new Chave(entidade, criterios, pagina);
+        long geracao;
+        synchronized (entradas) {
+            Contadores c = contadores.get(entidade);
+            Entrada entrada = entradas.get(chave);
+            if (entrada != null) {
+                if (entrada.expiraEm() > System.currentTimeMillis()) {
+                    c.acertos++;
+                    return (PaginaBuscaDTO<R>) entrada.pagina();
+                }
+                entradas.remove(chave);
+                c.expiracoes++;
+            }
+            c.falhas++;
+            geracao = c.geracao;
+        }
+
+        PaginaBuscaDTO<R> resultado = consulta.get();
+
+        synchronized (entradas) {
+            // Houve invalidação durante a consulta: o resultado pode ser anterior ao commit, então não fica no cache
+            if (contadores.get(entidade).geracao == geracao) {
+                entradas.put(chave, new Entrada(resultado, System.currentTimeMillis() + ttlMs));
+                Iterator<Map.Entry<Chave, Entrada>> it = entradas.entrySet().iterator();
+                while (entradas.size() > maximoEntradas && it.hasNext()) {
+                    contadores.get(it.next().getKey().entidade()).despejos++;
+                    it.remove();
+                }
+            }
+        }
+        return resultado;
+    }
+
+    // --- INVALIDAÇÃO ---
+
+    // Para escritas que não passam pelo Hibernate. Dentro de uma transação só vale depois do commit.
+    public void invalidar(Class<?>... tipos) {
+        Set<Class<?>> alterados = Set.of(tipos);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidarAgora(alterados);
+                }
+            });
+        } else {
+            invalidarAgora(alterados);
+        }
+    }
+
+    public void limpar() {
+        synchronized (entradas) {
+            contadores.values().forEach(c -> { c.geracao++; c.invalidacoes++; });
+            entradas.clear();
+        }
+    }
+
+    private void invalidarAgora(Set<Class<?>> alterados) {
+        Set<Class<?>> afetadas = new HashSet<>();
+        DEPENDENCIAS.forEach((entidade, dependencias) -> {
+            if (dependencias.stream().anyMatch(alterados::contains)) afetadas.add(entidade);
+        });
+        if (afetadas.isEmpty()) return;
+        synchronized (entradas) {
+            for (Class<?> entidade : afetadas) {
+                Contadores c = contadores.get(entidade);
+                c.geracao++;
+                c.invalidacoes++;
+            }
+            entradas.keySet().removeIf(chave -> afetadas.contains(chave.entidade()));
+        }
+    }
+
+    // --- MÉTRICAS ---
+
+    public CacheBuscasEstatisticasDTO estatisticas() {
+        synchronized (entradas) {
+            Map<Class<?>, Integer> porEntidade = new HashMap<>();
+            entradas.keySet().forEach(chave -> porEntidade.merge(chave.entidade(), 1, Integer::sum));
+            List<CacheBuscasEstatisticasDTO.Busca> buscas = new ArrayList<>();
+            long acertos = 0, falhas = 0;
+            for (Map.Entry<Class<?>, Contadores> e : contadores.entrySet()) {
+                Contadores c = e.getValue();
+                acertos += c.acertos;
+                falhas += c.falhas;
+                buscas.add(new CacheBuscasEstatisticasDTO.Busca(e.getKey().getSimpleName(), porEntidade.getOrDefault(e.getKey(), 0),
+                    c.acertos, c.falhas, taxa(c.acertos, c.falhas), c.despejos, c.expiracoes, c.invalidacoes));
+            }
+            buscas.sort((a, b) -> a.entidade().compareTo(b.entidade()));
+            return new CacheBuscasEstatisticasDTO(ativo, entradas.size(), maximoEntradas, ttlMs, acertos, falhas, taxa(acertos, falhas), buscas);
+        }
+    }
+
+    private double taxa(long acertos, long falhas) {
+        return acertos + falhas == 0 ? 0 : (double) acertos / (acertos + falhas);
+    }
+
+    // --- LISTENERS DO HIBERNATE ---
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        marcar(event.getSession(), event.getPersister());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        marcar(event.getSession(), event.getPersister());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        marcar(event.getSession(), event.getPersister());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void marcar(EventSource sessao, EntityPersister persister) {
+        pendentes.computeIfAbsent(sessao, s -> {
+            // Primeira alteração da transação: invalida depois do commit e descarta em qualquer desfecho
+            s.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (sucesso, sessaoAtual) -> {
+                Set<Class<?>> alterados = pendentes.remove(s);
+                if (sucesso && alterados != null) invalidarAgora(alterados);
+            });
+            return ConcurrentHashMap.newKeySet();
+        }).add(persister.getMappedClass());
+    }
+}
@@ -9,11 +9,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.proj_db.onibus.dto.CambioCreateDTO;
+import com.proj_db.onibus.dto.CambioResponseDTO;
 import com.proj_db.onibus.dto.CambioUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaResultadoDTO;
 import com.proj_db.onibus.model.Cambio;
-import com.proj_db.onibus.model.Estoque;
 import com.proj_db.onibus.model.OrdemServico;
-import com.proj_db.onibus.model.OrdemServico.StatusOrdemServico;
 import com.proj_db.onibus.model.OrdemServico.TipoOrdemServico;
 import com.proj_db.onibus.model.Produto;
 import com.proj_db.onibus.repository.CambioRepository;
@@ -27,9 +29,13 @@ public class CambioImpl implements CambioService {
 
     // Injeção de todos os repositórios que vamos precisar
     @Autowired private CambioRepository cambioRepository;
+    @Autowired private BuscaPaginada buscaPaginada;
     @Autowired private OrdemServicoRepository osRepository;
     @Autowired private ProdutoRepository produtoRepository;
     @Autowired private EstoqueRepository estoqueRepository;
+    @Autowired private EstoqueService estoqueService;
+    @Autowired private GeradorNumeroOS geradorNumeroOS;
+    @Autowired private IndiceOsAtiva indiceOsAtiva;
 
     @Override
     public Cambio save(CambioCreateDTO cambio) {
@@ -133,9 +139,8 @@ public class CambioImpl implements CambioService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<Cambio> search(CambioSearchDTO criteria) {
-        // Usa a classe Specification para criar a busca dinâmica
-        return cambioRepository.findAll(CambioSpecification.searchByCriteria(criteria));
+    public PaginaBuscaDTO<CambioResponseDTO> search(CambioSearchDTO criteria, ParametrosPaginaDTO pagina) {
+        return buscaPaginada.buscar(Cambio.class, criteria, CambioSpecification.searchByCriteria(criteria), cambioRepository, pagina, CambioResponseDTO::new);
     }
 
     // --- Lógica de Negócio ---
@@ -178,10 +183,7 @@ public class CambioImpl implements CambioService {
 
         // 1. Cria uma OS Corretiva específica para o descarte
         
-        String prefix = "OS-CORR-DESC-";
-        int prefixLength = prefix.length() + 1;
-        Integer maxNum = osRepository.findMaxNumeroByPrefix(prefix + "%", prefixLength);
-        String numeroOS = String.format("%s%06d", prefix, maxNum + 1);
+        String numeroOS = geradorNumeroOS.proximoNumero("OS-CORR-DESC-", 6);
 
         String desc = "Ordem de Serviço para esgotamento de fluido e preparação para descarte do câmbio " + cambio.getModelo();
         LocalDate hoje = LocalDate.now();
@@ -190,7 +192,7 @@ public class CambioImpl implements CambioService {
         os.setCambio(cambio); // Define o alvo
 
         // 2. Salva a OS no banco. O processo está formalmente iniciado.
-        return osRepository.save(os);
+        return indiceOsAtiva.registrar(osRepository.save(os));
         // O próximo passo seria o usuário "iniciar", "finalizar" esta OS,
         // o que chamaria outros métodos de serviço para esgotar o fluido e, finalmente, descartar o câmbio.
     }
@@ -199,19 +201,28 @@ public class CambioImpl implements CambioService {
     // --- Geração Automática de OS Preventiva ---
 
     @Override
-    public void verificarEGerarOsPreventivas() {
-        List<Cambio> todosOsCambiosAtivos = cambioRepository.findAll();
-        for (Cambio cambio : todosOsCambiosAtivos) {
+    public VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas() {
+        return verificarEGerarOsPreventivas(0L, Long.MAX_VALUE);
+    }
+
+    @Override
+    public VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas(Long idInicial, Long idFinal) {
+        long inicio = System.currentTimeMillis();
+        // Pré-filtra no banco pelos vencimentos materializados; a regra completa é reaplicada em cada câmbio
+        List<Cambio> cambios = cambioRepository.findVencendoNaFaixa(idInicial, idFinal, LocalDate.now().plusDays(30));
+        long criadas = 0;
+        for (Cambio cambio : cambios) {
             // A lógica de verificação agora está centralizada em um único método
-            gerarOsPreventivaSeNecessario(cambio);
+            if (gerarOsPreventivaSeNecessario(cambio)) criadas++;
         }
+        return new VarreduraPreventivaResultadoDTO("Cambio", cambios.size(), criadas, System.currentTimeMillis() - inicio);
     }
 
-    private void gerarOsPreventivaSeNecessario(Cambio cambio) {
+    private boolean gerarOsPreventivaSeNecessario(Cambio cambio) {
         // Verifica se já existe uma OS Preventiva ativa para este câmbio
-        if (osRepository.existsByCambioAndStatusIn(cambio, List.of(StatusOrdemServico.ABERTA, StatusOrdemServico.EM_EXECUCAO))) {
+        if (indiceOsAtiva.possuiOsAtiva(IndiceOsAtiva.TipoAlvo.CAMBIO, cambio.getId())) {
             System.out.println("LOG: Já existe uma OS ativa para o câmbio " + cambio.getId());
-            return;
+            return false;
         }
 
         LocalDate ultimaTrocaFluido = cambio.getDataUltimaTrocaFluido();
@@ -222,8 +233,7 @@ public class CambioImpl implements CambioService {
             String desc = "Revisão Preventiva (30 dias) para Câmbio " + cambio.getModelo();
             // A revisão é necessária, mas a troca de fluido pode não ser.
             // O item de fluido só será adicionado se não houver troca recente.
-            criarOsPreventiva(cambio, desc, "REVISAO", !trocaRecente); 
-            return; // Sai após criar a OS de revisão
+            return criarOsPreventiva(cambio, desc, "REVISAO", !trocaRecente); // Sai após criar a OS de revisão
         }
 
         // LÓGICA PARA MANUTENÇÃO
@@ -231,19 +241,18 @@ public class CambioImpl implements CambioService {
             // Manutenção preventiva (completar fluido) só é criada se NÃO houve troca recente.
             if (trocaRecente) {
                 System.out.println("LOG: Manutenção preventiva para câmbio " + cambio.getId() + " adiada devido a troca de fluido recente.");
-                return;
+                return false;
             }
             String desc = "Manutenção Preventiva (30 dias) para Câmbio " + cambio.getModelo();
-            criarOsPreventiva(cambio, desc, "MANUTENCAO", true);
+            return criarOsPreventiva(cambio, desc, "MANUTENCAO", true);
         }
+        return false;
     }
 
-    private void criarOsPreventiva(Cambio cambio, String desc, String tipoServico, boolean incluirItemFluido) {
+    // Retorna true se a OS foi efetivamente gravada
+    private boolean criarOsPreventiva(Cambio cambio, String desc, String tipoServico, boolean incluirItemFluido) {
         // --- Geração do novo número da OS ---
-        String prefix = "OS-PREV-";
-        int prefixLength = prefix.length() + 1;
-        Integer maxNum = osRepository.findMaxNumeroByPrefix(prefix + "%", prefixLength);
-        String numeroOS = String.format("%s%06d", prefix, maxNum + 1);
+        String numeroOS = geradorNumeroOS.proximoNumero("OS-PREV-", 6);
 
         // --- Cálculo de Datas ---
         LocalDate dataPrevisaoInicio;
@@ -268,23 +277,26 @@ public class CambioImpl implements CambioService {
                     os.adicionarItem(fluido, quantidade, "Troca/complemento de fluido para serviço preventivo.");
                     
                     // Lógica de reserva de estoque
-                    Estoque estoque = estoqueRepository.findByProduto(fluido).orElse(null);
-                    if (estoque != null && estoque.reservarEstoque(quantidade)) {
-                         osRepository.save(os);
+                    if (estoqueRepository.existsByProdutoId(fluido.getId()) && estoqueService.reservar(fluido.getId(), quantidade)) {
+                         indiceOsAtiva.registrar(osRepository.save(os));
                          System.out.println("LOG: OS Preventiva " + numeroOS + " criada para câmbio " + cambio.getId());
                     } else {
                         System.out.println("ALERTA: OS " + numeroOS + " para câmbio " + cambio.getId() + " criada, mas estoque de fluido insuficiente para reserva.");
-                        osRepository.save(os); // Salva mesmo sem estoque, para controle
+                        indiceOsAtiva.registrar(osRepository.save(os)); // Salva mesmo sem estoque, para controle
                     }
+                    return true;
                 }
+                return false;
             } else {
                  System.out.println("ALERTA: Produto de fluido não encontrado para câmbio " + cambio.getId());
-                 osRepository.save(os); // Salva a OS mesmo sem o item
+                 indiceOsAtiva.registrar(osRepository.save(os)); // Salva a OS mesmo sem o item
+                 return true;
             }
         } else {
             // Salva a OS sem o item de fluido, mas com a descrição do serviço principal
-            osRepository.save(os);
+            indiceOsAtiva.registrar(osRepository.save(os));
             System.out.println("LOG: OS Preventiva " + numeroOS + " criada para câmbio " + cambio.getId() + " (sem troca de fluido).");
+            return true;
         }
     }
 
@@ -4,7 +4,11 @@ import java.util.List;
 import java.util.Optional;
 
 import com.proj_db.onibus.dto.CambioCreateDTO;
+import com.proj_db.onibus.dto.CambioResponseDTO;
 import com.proj_db.onibus.dto.CambioUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaResultadoDTO;
 import com.proj_db.onibus.model.Cambio;
 
 public interface CambioService {
@@ -19,7 +23,7 @@ public interface CambioService {
     // --- Buscas Específicas ---
     Optional<Cambio> findByNumeroSerie(String numeroSerie);
     Optional<Cambio> findByCodigoFabricacao(String codigoFabricacao);
-    List<Cambio> search(CambioSearchDTO criteria);
+    PaginaBuscaDTO<CambioResponseDTO> search(CambioSearchDTO criteria, ParametrosPaginaDTO pagina);
 
     // --- Lógica de Negócio (Ciclo de Vida) ---
     Cambio enviarParaManutencao(Long cambioId);
@@ -28,7 +32,8 @@ public interface CambioService {
     Cambio retornarDaRevisao(Long cambioId);
 
     // --- Lógica de OS Preventiva ---
-    void verificarEGerarOsPreventivas(); // Verifica TODOS os câmbios
+    VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas(); // Verifica TODOS os câmbios
+    VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas(Long idInicial, Long idFinal); // Apenas a faixa de IDs informada
 
     // --- Métodos de Relatório (vindos do Repositório) ---
     List<Object[]> countByTipo();
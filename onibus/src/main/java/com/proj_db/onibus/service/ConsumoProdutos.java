@@ -0,0 +1,125 @@
+package com.proj_db.onibus.service;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.dto.ConsumoProdutoDTO;
+import com.proj_db.onibus.model.ItemOrdemServico;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Fato diário de consumo por produto (produto_consumo_diario) e as consultas de demanda feitas sobre ele.
+ * A finalização da OS soma os itens consumidos no dia, na mesma transação da baixa do estoque; as janelas de
+ * 7/30/90 dias e a previsão leem no máximo 90 linhas por produto, sem voltar aos itens das OS.
+ * A previsão é a média diária dos últimos 30 dias multiplicada pelo horizonte pedido.
+ */
+@Service
+public class ConsumoProdutos {
+
+    private static final int DIAS_MEDIA_MOVEL = 30;
+
+    private static final String SQL_SOMAR =
+        "INSERT INTO produto_consumo_diario (produto_id, dia, quantidade, ordens_servico) VALUES (?, ?, ?, 1) " +
+        "ON CONFLICT (produto_id, dia) DO UPDATE SET quantidade = produto_consumo_diario.quantidade + EXCLUDED.quantidade, " +
+        "ordens_servico = produto_consumo_diario.ordens_servico + 1";
+
+    private static final String SQL_JANELAS =
+        "SELECT p.id, p.nome, " +
+        "COALESCE(SUM(c.quantidade) FILTER (WHERE c.dia > CAST(? AS DATE) - 7), 0), " +
+        "COALESCE(SUM(c.quantidade) FILTER (WHERE c.dia > CAST(? AS DATE) - 30), 0), " +
+        "COALESCE(SUM(c.quantidade), 0), " +
+        "COALESCE(e.quantidade_atual - e.quantidade_reservada, 0) " +
+        "FROM produto_consumo_diario c JOIN produtos p ON p.id = c.produto_id LEFT JOIN estoque e ON e.produto_id = p.id " +
+        "WHERE c.dia > CAST(? AS DATE) - 90 ";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory; // Garante que o ddl-auto já criou a tabela
+
+    private final TransactionTemplate transacao;
+
+    public ConsumoProdutos(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    // Primeira subida: monta o fato a partir das OS já finalizadas
+    @PostConstruct
+    public void inicializar() {
+        Long existentes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM produto_consumo_diario", Long.class);
+        if (existentes != null && existentes > 0) return;
+        int linhas = transacao.execute(status -> jdbcTemplate.update(
+            "INSERT INTO produto_consumo_diario (produto_id, dia, quantidade, ordens_servico) " +
+            "SELECT i.produto_id, os.data_conclusao, SUM(i.quantidade), COUNT(DISTINCT os.id) " +
+            "FROM itens_ordem_servico i JOIN ordens_servico os ON os.id = i.ordem_servico_id " +
+            "WHERE os.status = 'FINALIZADA' AND os.data_conclusao IS NOT NULL " +
+            "GROUP BY i.produto_id, os.data_conclusao"));
+        if (linhas > 0) {
+            System.out.println("LOG: Consumo diário de produtos montado a partir das OS finalizadas: " + linhas + " linhas.");
+        }
+    }
+
+    // Chamado na finalização da OS, dentro da transação dela. Produtos em ordem de id para travar as linhas sempre na mesma ordem.
+    public void registrarConsumo(List<ItemOrdemServico> itens, LocalDate dia) {
+        Map<Long, Double> porProduto = new TreeMap<>();
+        for (ItemOrdemServico item : itens) {
+            porProduto.merge(item.getProduto().getId(), item.getQuantidade(), Double::sum);
+        }
+        if (porProduto.isEmpty()) return;
+        jdbcTemplate.batchUpdate(SQL_SOMAR, porProduto.entrySet().stream()
+            .map(e -> new Object[] { e.getKey(), Date.valueOf(dia), e.getValue() })
+            .toList());
+    }
+
+    // --- CONSULTAS ---
+
+    public ConsumoProdutoDTO consultar(Long produtoId, int horizonteDias) {
+        Date hoje = Date.valueOf(LocalDate.now());
+        List<ConsumoProdutoDTO> linhas = jdbcTemplate.query(
+            SQL_JANELAS + "AND c.produto_id = ? GROUP BY p.id, p.nome, e.quantidade_atual, e.quantidade_reservada",
+            (rs, i) -> montar(rs, horizonteDias), hoje, hoje, hoje, produtoId);
+        if (!linhas.isEmpty()) return linhas.get(0);
+
+        // Sem consumo nos últimos 90 dias: devolve zeros com o saldo atual
+        List<Object[]> produto = jdbcTemplate.query(
+            "SELECT p.nome, COALESCE(e.quantidade_atual - e.quantidade_reservada, 0) FROM produtos p " +
+            "LEFT JOIN estoque e ON e.produto_id = p.id WHERE p.id = ?",
+            (rs, i) -> new Object[] { rs.getString(1), rs.getDouble(2) }, produtoId);
+        if (produto.isEmpty()) {
+            throw new RuntimeException("Produto não encontrado com ID: " + produtoId);
+        }
+        return new ConsumoProdutoDTO(produtoId, (String) produto.get(0)[0], 0, 0, 0, 0, horizonteDias, 0, (Double) produto.get(0)[1], null);
+    }
+
+    // Produtos com consumo nos últimos 90 dias, do que deve acabar primeiro para o último
+    public List<ConsumoProdutoDTO> consultarTodos(int horizonteDias) {
+        Date hoje = Date.valueOf(LocalDate.now());
+        return jdbcTemplate.query(
+            SQL_JANELAS + "GROUP BY p.id, p.nome, e.quantidade_atual, e.quantidade_reservada",
+            (rs, i) -> montar(rs, horizonteDias), hoje, hoje, hoje).stream()
+            .sorted((a, b) -> Double.compare(
+                a.diasDeCobertura() != null ? a.diasDeCobertura() : Double.MAX_VALUE,
+                b.diasDeCobertura() != null ? b.diasDeCobertura() : Double.MAX_VALUE))
+            .toList();
+    }
+
+    private ConsumoProdutoDTO montar(ResultSet rs, int horizonteDias) throws SQLException {
+        double consumo30 = rs.getDouble(4);
+        double saldo = rs.getDouble(6);
+        double mediaDiaria = consumo30 / DIAS_MEDIA_MOVEL;
+        Double cobertura = mediaDiaria > 0 ? saldo / mediaDiaria : null;
+        return new ConsumoProdutoDTO(rs.getLong(1), rs.getString(2), rs.getDouble(3), consumo30, rs.getDouble(5),
+            mediaDiaria, horizonteDias, mediaDiaria * horizonteDias, saldo, cobertura);
+    }
+}
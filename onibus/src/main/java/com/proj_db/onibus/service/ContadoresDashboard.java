@@ -0,0 +1,282 @@
+package com.proj_db.onibus.service;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.dto.DashboardConsistenciaDTO;
+import com.proj_db.onibus.dto.DashboardDTO;
+import com.proj_db.onibus.model.Cambio;
+import com.proj_db.onibus.model.Motor;
+import com.proj_db.onibus.model.Onibus;
+import com.proj_db.onibus.model.OrdemServico;
+import com.proj_db.onibus.model.Pneu;
+import com.proj_db.onibus.model.Produto;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+
+/*
+ * Contadores do dashboard (tabela dashboard_contadores), mantidos na mesma transação de cada mudança.
+ * É registrado como listener de inclusão, alteração e exclusão do Hibernate: compara o estado antigo e o novo
+ * das dimensões acompanhadas (status, marca, tipo, categoria) e acumula os deltas da transação. Os deltas são
+ * aplicados com um upsert incremental logo antes do commit, depois do flush e em ordem fixa de chave,
+ * então a linha do contador fica travada só no fim da transação e sem risco de deadlock entre transações.
+ * Escritas por SQL direto nessas colunas (ex.: OS preventivas inseridas em lote) chamam somar(...) na própria
+ * transação, e os deltas entram no mesmo upsert de antes do commit; a verificação periódica recontando as tabelas
+ * de origem corrige qualquer divergência que escape.
+ */
+@Service
+public class ContadoresDashboard implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private record Dimensao(String entidade, Class<?> classe, String propriedade, String tabela, String coluna) {}
+
+    private record Chave(String entidade, String dimensao, String valor) {}
+
+    private static final List<Dimensao> DIMENSOES = List.of(
+        new Dimensao("ONIBUS", Onibus.class, "status", "onibus", "status"),
+        new Dimensao("ONIBUS", Onibus.class, "marca", "onibus", "marca"),
+        new Dimensao("MOTOR", Motor.class, "status", "motores", "status"),
+        new Dimensao("MOTOR", Motor.class, "tipo", "motores", "tipo"),
+        new Dimensao("CAMBIO", Cambio.class, "status", "cambios", "status"),
+        new Dimensao("CAMBIO", Cambio.class, "tipo", "cambios", "tipo"),
+        new Dimensao("PNEU", Pneu.class, "status", "pneus", "status"),
+        new Dimensao("PNEU", Pneu.class, "marca", "pneus", "marca"),
+        new Dimensao("ORDEM_SERVICO", OrdemServico.class, "status", "ordens_servico", "status"),
+        new Dimensao("ORDEM_SERVICO", OrdemServico.class, "tipo", "ordens_servico", "tipo"),
+        new Dimensao("PRODUTO", Produto.class, "categoria", "produtos", "categoria")
+    );
+
+    private static final Comparator<Chave> ORDEM_CHAVES =
+        Comparator.comparing(Chave::entidade).thenComparing(Chave::dimensao).thenComparing(Chave::valor);
+
+    private static final String SQL_INCREMENTAR =
+        "INSERT INTO dashboard_contadores (entidade, dimensao, valor, quantidade) VALUES (?, ?, ?, ?) " +
+        "ON CONFLICT (entidade, dimensao, valor) DO UPDATE SET quantidade = dashboard_contadores.quantidade + EXCLUDED.quantidade";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @PersistenceContext private EntityManager entityManager;
+
+    private final TransactionTemplate transacao;
+
+    // Deltas ainda não aplicados, por sessão do Hibernate (uma transação em andamento cada)
+    private final Map<EventSource, Map<Chave, Long>> pendentes = new ConcurrentHashMap<>();
+
+    public ContadoresDashboard(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void registrarListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+
+        // Primeira subida (ou tabela limpa manualmente): monta os contadores a partir das tabelas de origem
+        Long existentes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dashboard_contadores", Long.class);
+        if (existentes == null || existentes == 0) {
+            reconstruir();
+        }
+    }
+
+    // --- CONSULTA ---
+
+    public DashboardDTO consultar() {
+        Map<String, Map<String, Long>> porDimensao = new HashMap<>();
+        jdbcTemplate.query("SELECT entidade, dimensao, valor, quantidade FROM dashboard_contadores WHERE quantidade <> 0", rs -> {
+            porDimensao.computeIfAbsent(rs.getString(1) + "." + rs.getString(2), k -> new TreeMap<>())
+                .put(rs.getString(3), rs.getLong(4));
+        });
+        return new DashboardDTO(
+            mapa(porDimensao, "ONIBUS.status"), mapa(porDimensao, "ONIBUS.marca"),
+            mapa(porDimensao, "MOTOR.status"), mapa(porDimensao, "MOTOR.tipo"),
+            mapa(porDimensao, "CAMBIO.status"), mapa(porDimensao, "CAMBIO.tipo"),
+            mapa(porDimensao, "PNEU.status"), mapa(porDimensao, "PNEU.marca"),
+            mapa(porDimensao, "ORDEM_SERVICO.status"), mapa(porDimensao, "ORDEM_SERVICO.tipo"),
+            mapa(porDimensao, "PRODUTO.categoria"));
+    }
+
+    private Map<String, Long> mapa(Map<String, Map<String, Long>> porDimensao, String chave) {
+        return porDimensao.getOrDefault(chave, Map.of());
+    }
+
+    // --- RECONSTRUÇÃO E VERIFICAÇÃO ---
+
+    // Recontagem completa. O LOCK espera as transações que já aplicaram deltas e segura as novas até o fim.
+    public int reconstruir() {
+        long inicio = System.currentTimeMillis();
+        int linhas = transacao.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE dashboard_contadores IN EXCLUSIVE MODE");
+            jdbcTemplate.update("DELETE FROM dashboard_contadores");
+            int total = 0;
+            for (Dimensao d : DIMENSOES) {
+                total += jdbcTemplate.update(
+                    "INSERT INTO dashboard_contadores (entidade, dimensao, valor, quantidade) " +
+                    "SELECT ?, ?, CAST(" + d.coluna() + " AS VARCHAR), COUNT(*) FROM " + d.tabela() +
+                    " WHERE " + d.coluna() + " IS NOT NULL GROUP BY " + d.coluna(),
+                    d.entidade(), d.propriedade());
+            }
+            return total;
+        });
+        System.out.println("LOG: Contadores do dashboard reconstruídos: " + linhas + " contadores em "
+            + (System.currentTimeMillis() - inicio) + " ms.");
+        return linhas;
+    }
+
+    public DashboardConsistenciaDTO verificar() {
+        long inicio = System.currentTimeMillis();
+        Map<Chave, Long> reais = new HashMap<>();
+        for (Dimensao d : DIMENSOES) {
+            jdbcTemplate.query("SELECT CAST(" + d.coluna() + " AS VARCHAR), COUNT(*) FROM " + d.tabela() +
+                " WHERE " + d.coluna() + " IS NOT NULL GROUP BY " + d.coluna(),
+                rs -> { reais.put(new Chave(d.entidade(), d.propriedade(), rs.getString(1)), rs.getLong(2)); });
+        }
+        Map<Chave, Long> contadores = new HashMap<>();
+        jdbcTemplate.query("SELECT entidade, dimensao, valor, quantidade FROM dashboard_contadores",
+            rs -> { contadores.put(new Chave(rs.getString(1), rs.getString(2), rs.getString(3)), rs.getLong(4)); });
+
+        Set<Chave> chaves = new HashSet<>(reais.keySet());
+        chaves.addAll(contadores.keySet());
+        List<DashboardConsistenciaDTO.Divergencia> divergencias = new ArrayList<>();
+        chaves.stream().sorted(ORDEM_CHAVES).forEach(chave -> {
+            long contador = contadores.getOrDefault(chave, 0L);
+            long real = reais.getOrDefault(chave, 0L);
+            if (contador != real) {
+                divergencias.add(new DashboardConsistenciaDTO.Divergencia(chave.entidade(), chave.dimensao(), chave.valor(), contador, real));
+            }
+        });
+        return new DashboardConsistenciaDTO(divergencias.isEmpty(), divergencias, System.currentTimeMillis() - inicio);
+    }
+
+    @Scheduled(cron = "${onibus.dashboard.verificacao-cron:0 30 3 * * *}")
+    public void verificarPeriodicamente() {
+        DashboardConsistenciaDTO resultado = verificar();
+        if (!resultado.consistente()) {
+            System.out.println("ALERTA: " + resultado.divergencias().size() + " contadores do dashboard divergentes; reconstruindo.");
+            reconstruir();
+        }
+    }
+
+    // --- ESCRITAS POR SQL DIRETO ---
+
+    // Delta de uma dimensão acompanhada (ex.: OrdemServico.class, "status", ABERTA, +n) na transação corrente,
+    // aplicado junto com os deltas dos listeners logo antes do commit e descartado se ela voltar
+    public void somar(Class<?> classe, String propriedade, Object valor, long delta) {
+        Dimensao dimensao = DIMENSOES.stream()
+            .filter(d -> d.classe() == classe && d.propriedade().equals(propriedade))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Dimensão não acompanhada pelo dashboard: " + classe.getSimpleName() + "." + propriedade));
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Os contadores do dashboard só podem ser alterados dentro de uma transação.");
+        }
+        acumular(entityManager.unwrap(EventSource.class), dimensao, valor, delta);
+    }
+
+    // --- LISTENERS DO HIBERNATE ---
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        for (Dimensao d : dimensoesDe(event.getPersister())) {
+            acumular(event.getSession(), d, event.getState()[posicao(event.getPersister(), d)], 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getOldState() == null) return; // Sem estado anterior não há como calcular o delta
+        for (Dimensao d : dimensoesDe(event.getPersister())) {
+            int posicao = posicao(event.getPersister(), d);
+            Object antigo = event.getOldState()[posicao];
+            Object novo = event.getState()[posicao];
+            if (!Objects.equals(antigo, novo)) {
+                acumular(event.getSession(), d, antigo, -1);
+                acumular(event.getSession(), d, novo, 1);
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        for (Dimensao d : dimensoesDe(event.getPersister())) {
+            acumular(event.getSession(), d, event.getDeletedState()[posicao(event.getPersister(), d)], -1);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private List<Dimensao> dimensoesDe(EntityPersister persister) {
+        Class<?> classe = persister.getMappedClass();
+        return DIMENSOES.stream().filter(d -> d.classe() == classe).toList();
+    }
+
+    private int posicao(EntityPersister persister, Dimensao d) {
+        return persister.findAttributeMapping(d.propriedade()).getStateArrayPosition();
+    }
+
+    private void acumular(EventSource sessao, Dimensao d, Object valor, long delta) {
+        if (valor == null) return;
+        String texto = (valor instanceof Enum<?> e) ? e.name() : valor.toString();
+        Map<Chave, Long> deltas = pendentes.computeIfAbsent(sessao, s -> {
+            // Primeiro delta da transação: aplica antes do commit e descarta em qualquer desfecho
+            s.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) sessaoAtual -> aplicar(s));
+            s.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (sucesso, sessaoAtual) -> pendentes.remove(s));
+            return new TreeMap<>(ORDEM_CHAVES);
+        });
+        deltas.merge(new Chave(d.entidade(), d.propriedade(), texto), delta, Long::sum);
+    }
+
+    private void aplicar(EventSource sessao) {
+        Map<Chave, Long> deltas = pendentes.remove(sessao);
+        if (deltas == null) return;
+        sessao.doWork(conexao -> {
+            try (PreparedStatement ps = conexao.prepareStatement(SQL_INCREMENTAR)) {
+                for (Map.Entry<Chave, Long> entrada : deltas.entrySet()) {
+                    if (entrada.getValue() == 0) continue;
+                    ps.setString(1, entrada.getKey().entidade());
+                    ps.setString(2, entrada.getKey().dimensao());
+                    ps.setString(3, entrada.getKey().valor());
+                    ps.setLong(4, entrada.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+}
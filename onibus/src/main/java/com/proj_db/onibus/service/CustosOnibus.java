@@ -0,0 +1,155 @@
+package com.proj_db.onibus.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.dto.CustoOnibusDTO;
+import com.proj_db.onibus.model.OrdemServico;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Custo total de propriedade por ônibus.
+ * Uma OS de componente conta para o ônibus em que o componente estava instalado na data de conclusão da OS,
+ * segundo os intervalos INSTALADO -> REMOVIDO de historico_componentes; sem intervalo, vale o ônibus da própria OS.
+ * O alvo segue a mesma precedência de OrdemServico.getAlvo() (motor, câmbio, pneu, ônibus).
+ * A razão onibus_custos é somada na finalização de cada OS e recalculada por esse SQL na subida (se vazia)
+ * e todo dia em onibus.custos.reconciliacao-cron; o ranking da frota lê só a razão.
+ */
+@Service
+public class CustosOnibus {
+
+    // Uma linha por (ônibus, origem) com o valor das OS finalizadas atribuídas
+    private static final String SQL_CUSTOS_ATRIBUIDOS =
+        "WITH intervalos AS (" +
+        " SELECT onibus_id, tipo_evento, data_evento, " +
+        " CASE WHEN motor_id IS NOT NULL THEN 'MOTOR' WHEN cambio_id IS NOT NULL THEN 'CAMBIO' ELSE 'PNEU' END AS tipo, " +
+        " COALESCE(motor_id, cambio_id, pneu_id) AS componente_id, " +
+        " LEAD(data_evento) OVER (PARTITION BY motor_id, cambio_id, pneu_id ORDER BY id) AS fim " +
+        " FROM historico_componentes), " +
+        "custos_os AS (" +
+        " SELECT os.id, os.onibus_id, os.data_conclusao, " +
+        " CASE WHEN os.motor_id IS NOT NULL THEN 'MOTOR' WHEN os.cambio_id IS NOT NULL THEN 'CAMBIO' " +
+        " WHEN os.pneu_id IS NOT NULL THEN 'PNEU' ELSE 'ONIBUS' END AS origem, " +
+        " COALESCE(os.motor_id, os.cambio_id, os.pneu_id) AS componente_id, " +
+        " SUM(i.quantidade * i.preco_unitario_registrado) AS valor " +
+        " FROM ordens_servico os JOIN itens_ordem_servico i ON i.ordem_servico_id = os.id " +
+        " WHERE os.status = 'FINALIZADA' GROUP BY os.id) " +
+        "SELECT COALESCE(iv.onibus_id, c.onibus_id) AS onibus_id, c.origem, SUM(c.valor) AS valor, COUNT(*) AS ordens " +
+        "FROM custos_os c LEFT JOIN LATERAL (" +
+        " SELECT h.onibus_id FROM intervalos h WHERE h.tipo_evento = 'INSTALADO' AND h.tipo = c.origem " +
+        " AND h.componente_id = c.componente_id AND h.data_evento <= c.data_conclusao " +
+        " AND (h.fim IS NULL OR h.fim >= c.data_conclusao) ORDER BY h.data_evento DESC LIMIT 1) iv ON TRUE " +
+        "WHERE COALESCE(iv.onibus_id, c.onibus_id) IS NOT NULL ";
+
+    // Pivota as origens em colunas
+    private static final String SQL_PIVOT =
+        "SELECT onibus_id, COALESCE(SUM(valor) FILTER (WHERE origem = 'ONIBUS'), 0) AS custo_onibus, " +
+        "COALESCE(SUM(valor) FILTER (WHERE origem = 'MOTOR'), 0) AS custo_motor, " +
+        "COALESCE(SUM(valor) FILTER (WHERE origem = 'CAMBIO'), 0) AS custo_cambio, " +
+        "COALESCE(SUM(valor) FILTER (WHERE origem = 'PNEU'), 0) AS custo_pneus, SUM(ordens) AS ordens " +
+        "FROM (" + SQL_CUSTOS_ATRIBUIDOS + "%s GROUP BY 1, 2) a GROUP BY onibus_id";
+
+    private static final String SQL_SOMAR =
+        "INSERT INTO onibus_custos (onibus_id, custo_onibus, custo_motor, custo_cambio, custo_pneus, ordens_servico) " +
+        "VALUES (?, ?, ?, ?, ?, 1) ON CONFLICT (onibus_id) DO UPDATE SET " +
+        "custo_onibus = onibus_custos.custo_onibus + EXCLUDED.custo_onibus, custo_motor = onibus_custos.custo_motor + EXCLUDED.custo_motor, " +
+        "custo_cambio = onibus_custos.custo_cambio + EXCLUDED.custo_cambio, custo_pneus = onibus_custos.custo_pneus + EXCLUDED.custo_pneus, " +
+        "ordens_servico = onibus_custos.ordens_servico + 1";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory; // Garante que o ddl-auto já criou a tabela
+
+    private final TransactionTemplate transacao;
+
+    public CustosOnibus(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        Long existentes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM onibus_custos", Long.class);
+        if (existentes == null || existentes == 0) {
+            reconciliar();
+        }
+    }
+
+    // Chamado na finalização da OS, dentro da transação dela. O componente ainda está no ônibus em que foi mantido.
+    public void registrarOsFinalizada(OrdemServico os) {
+        double valor = os.getValorTotal();
+        if (valor == 0) return;
+        Long onibusId = null;
+        double[] custos = new double[4]; // ônibus, motor, câmbio, pneus
+        if (os.getMotor() != null) {
+            custos[1] = valor;
+            if (os.getMotor().getOnibus() != null) onibusId = os.getMotor().getOnibus().getId();
+        } else if (os.getCambio() != null) {
+            custos[2] = valor;
+            if (os.getCambio().getOnibus() != null) onibusId = os.getCambio().getOnibus().getId();
+        } else if (os.getPneu() != null) {
+            custos[3] = valor;
+            if (os.getPneu().getOnibus() != null) onibusId = os.getPneu().getOnibus().getId();
+        } else {
+            custos[0] = valor;
+        }
+        if (onibusId == null && os.getOnibus() != null) onibusId = os.getOnibus().getId();
+        if (onibusId == null) return; // Componente fora de qualquer ônibus: não entra no TCO
+        jdbcTemplate.update(SQL_SOMAR, onibusId, custos[0], custos[1], custos[2], custos[3]);
+    }
+
+    // --- CONSULTAS ---
+
+    // TCO de um ônibus calculado na hora a partir das OS e dos intervalos de instalação
+    public CustoOnibusDTO calcular(Long onibusId) {
+        List<CustoOnibusDTO> linhas = jdbcTemplate.query(
+            "SELECT o.id, o.placa, o.numero_frota, COALESCE(c.custo_onibus, 0), COALESCE(c.custo_motor, 0), " +
+            "COALESCE(c.custo_cambio, 0), COALESCE(c.custo_pneus, 0), COALESCE(c.ordens, 0) FROM onibus o " +
+            "LEFT JOIN (" + String.format(SQL_PIVOT, "AND COALESCE(iv.onibus_id, c.onibus_id) = ?") + ") c ON c.onibus_id = o.id " +
+            "WHERE o.id = ?",
+            this::montar, onibusId, onibusId);
+        if (linhas.isEmpty()) {
+            throw new RuntimeException("Ônibus não encontrado");
+        }
+        return linhas.get(0);
+    }
+
+    // Ranking da frota pelo custo total, lido da razão
+    public List<CustoOnibusDTO> ranking(int limite) {
+        return jdbcTemplate.query(
+            "SELECT o.id, o.placa, o.numero_frota, c.custo_onibus, c.custo_motor, c.custo_cambio, c.custo_pneus, c.ordens_servico " +
+            "FROM onibus_custos c JOIN onibus o ON o.id = c.onibus_id " +
+            "ORDER BY c.custo_onibus + c.custo_motor + c.custo_cambio + c.custo_pneus DESC LIMIT ?",
+            this::montar, limite);
+    }
+
+    private CustoOnibusDTO montar(ResultSet rs, int linha) throws SQLException {
+        double onibus = rs.getDouble(4), motor = rs.getDouble(5), cambio = rs.getDouble(6), pneus = rs.getDouble(7);
+        return new CustoOnibusDTO(rs.getLong(1), rs.getString(2), rs.getString(3), onibus, motor, cambio, pneus,
+            onibus + motor + cambio + pneus, rs.getLong(8));
+    }
+
+    // --- RECONCILIAÇÃO ---
+
+    @Scheduled(cron = "${onibus.custos.reconciliacao-cron:0 15 4 * * *}")
+    public void reconciliar() {
+        long inicio = System.currentTimeMillis();
+        int linhas = transacao.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE onibus_custos IN EXCLUSIVE MODE");
+            jdbcTemplate.update("DELETE FROM onibus_custos");
+            return jdbcTemplate.update(
+                "INSERT INTO onibus_custos (onibus_id, custo_onibus, custo_motor, custo_cambio, custo_pneus, ordens_servico) " +
+                String.format(SQL_PIVOT, ""));
+        });
+        System.out.println("LOG: Razão de custos da frota recalculada: " + linhas + " ônibus em "
+            + (System.currentTimeMillis() - inicio) + " ms.");
+    }
+}
@@ -1,12 +1,23 @@
 package com.proj_db.onibus.service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.proj_db.onibus.dto.EstoqueResponseDTO;
+import com.proj_db.onibus.dto.MovimentacaoEstoqueDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.PaginaKeysetDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.model.Estoque;
 import com.proj_db.onibus.model.Produto;
 import com.proj_db.onibus.repository.EstoqueRepository;
@@ -20,6 +31,27 @@ public class EstoqueImpl implements EstoqueService {
     @Autowired
     private EstoqueRepository estoqueRepository;
 
+    @Autowired
+    private BuscaPaginada buscaPaginada;
+
+    @Autowired
+    private TotaisInventario totaisInventario;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RazaoEstoque razaoEstoque;
+
+    @Autowired
+    private JornalMovimentacoes jornalMovimentacoes;
+
+    @Autowired
+    private AlertasEstoque alertasEstoque;
+
+    @Autowired
+    private CacheBuscas cacheBuscas;
+
     @Override
     @Transactional(readOnly = true)
     public Optional<Estoque> findById(Long id) {
@@ -46,49 +78,231 @@ public class EstoqueImpl implements EstoqueService {
     
     @Override
     @Transactional(readOnly = true)
-    public List<Estoque> search(EstoqueSearchDTO criteria) {
-        return estoqueRepository.findAll(EstoqueSpecification.searchByCriteria(criteria));
+    public PaginaBuscaDTO<EstoqueResponseDTO> search(EstoqueSearchDTO criteria, ParametrosPaginaDTO pagina) {
+        return buscaPaginada.buscar(Estoque.class, criteria, EstoqueSpecification.searchByCriteria(criteria), estoqueRepository, pagina, EstoqueResponseDTO::new);
     }
 
     // --- Ações de Negócio ---
 
     @Override
     public Estoque adicionar(Long produtoId, Double quantidade) {
-        Estoque estoque = findByProdutoId(produtoId)
+        if (razaoEstoque.gerencia(produtoId)) {
+            razaoEstoque.adicionar(produtoId, quantidade);
+            alertasEstoque.movimentar(produtoId, quantidade);
+            return estoqueRepository.findByProdutoId(produtoId).orElseThrow();
+        }
+        // Com a linha travada, o preço lido é o mesmo que uma mudança de preço concorrente usaria
+        Estoque estoque = estoqueRepository.findByProdutoIdParaAtualizacao(produtoId)
             .orElseThrow(() -> new EntityNotFoundException("Registro de estoque não encontrado para o produto ID: " + produtoId));
         
         estoque.adicionarEstoque(quantidade);
+        totaisInventario.somar(estoque.getProduto().getCategoria(), quantidade * estoque.getProduto().getPrecoUnitarioAtual());
+        jornalMovimentacoes.registrar(produtoId, Estoque.TipoRegistro.ENTRADA, quantidade);
+        alertasEstoque.movimentar(produtoId, quantidade);
         return estoqueRepository.save(estoque);
     }
 
     @Override
     public boolean reservar(Long produtoId, Double quantidade) {
-        Estoque estoque = findByProdutoId(produtoId)
-            .orElseThrow(() -> new EntityNotFoundException("Registro de estoque não encontrado para o produto ID: " + produtoId));
-        
-        boolean sucesso = estoque.reservarEstoque(quantidade);
-        if (sucesso) {
-            estoqueRepository.save(estoque);
+        if (quantidade == null || quantidade <= 0) {
+            throw new IllegalArgumentException("Quantidade a ser reservada deve ser positiva.");
+        }
+        if (razaoEstoque.gerencia(produtoId)) {
+            return razaoEstoque.reservar(produtoId, quantidade);
+        }
+        // UPDATE condicional: duas OS disputando as últimas unidades não conseguem reservar ambas
+        if (estoqueRepository.reservarSeDisponivel(produtoId, quantidade) == 1) {
+            cacheBuscas.invalidar(Estoque.class); // UPDATE em massa não passa pelos listeners do Hibernate
+            return true;
+        }
+        if (!estoqueRepository.existsByProdutoId(produtoId)) {
+            throw new EntityNotFoundException("Registro de estoque não encontrado para o produto ID: " + produtoId);
         }
-        return sucesso;
+        return false;
     }
 
     @Override
     public void confirmarConsumoDeReserva(Long produtoId, Double quantidade) {
-        Estoque estoque = findByProdutoId(produtoId)
+        if (razaoEstoque.gerencia(produtoId)) {
+            razaoEstoque.consumir(produtoId, quantidade);
+            alertasEstoque.movimentar(produtoId, -quantidade);
+            return;
+        }
+        Estoque estoque = estoqueRepository.findByProdutoIdParaAtualizacao(produtoId)
             .orElseThrow(() -> new EntityNotFoundException("Registro de estoque não encontrado para o produto ID: " + produtoId));
         
         estoque.confirmarConsumoReserva(quantidade);
+        totaisInventario.somar(estoque.getProduto().getCategoria(), -quantidade * estoque.getProduto().getPrecoUnitarioAtual());
+        jornalMovimentacoes.registrar(produtoId, Estoque.TipoRegistro.SAIDA, quantidade);
+        alertasEstoque.movimentar(produtoId, -quantidade);
         estoqueRepository.save(estoque);
     }
     
     @Override
     public void liberarReserva(Long produtoId, Double quantidade) {
-        Estoque estoque = findByProdutoId(produtoId)
-            .orElseThrow(() -> new EntityNotFoundException("Registro de estoque não encontrado para o produto ID: " + produtoId));
-        
-        estoque.liberarReserva(quantidade);
-        estoqueRepository.save(estoque);
+        if (quantidade == null || quantidade <= 0) {
+            throw new IllegalArgumentException("Quantidade a ser liberada deve ser positiva.");
+        }
+        if (razaoEstoque.gerencia(produtoId)) {
+            razaoEstoque.liberar(produtoId, quantidade);
+            return;
+        }
+        if (estoqueRepository.liberarSeReservado(produtoId, quantidade) == 1) {
+            cacheBuscas.invalidar(Estoque.class);
+            return;
+        }
+        if (!estoqueRepository.existsByProdutoId(produtoId)) {
+            throw new EntityNotFoundException("Registro de estoque não encontrado para o produto ID: " + produtoId);
+        }
+        throw new IllegalStateException("Tentativa de liberar mais do que a quantidade reservada.");
+    }
+
+    // --- Ações em Lote ---
+    // Cada ação trava todas as linhas do lote num único SELECT ... FOR UPDATE em ordem de id (a mesma ordem em
+    // qualquer transação, então lotes concorrentes não entram em deadlock), valida tudo e aplica com um UPDATE.
+    // Produtos mantidos pela RazaoEstoque saem do lote do banco e são validados/aplicados por ela.
+
+    private record LinhaLote(Long estoqueId, String nome, double atual, double reservada, Produto.Categoria categoria, double preco) {}
+
+    @Override
+    public void reservarLote(Map<Long, Double> pedido) {
+        Map<Long, Double> quantidadesPorProduto = new TreeMap<>(pedido);
+        Map<Long, Double> naRazao = separarDaRazao(quantidadesPorProduto);
+        List<String> faltas = new ArrayList<>(razaoEstoque.faltasReserva(naRazao));
+        if (quantidadesPorProduto.isEmpty()) {
+            if (!faltas.isEmpty()) {
+                throw new IllegalStateException("Estoque insuficiente para: " + String.join("; ", faltas));
+            }
+            razaoEstoque.reservarLote(naRazao);
+            return;
+        }
+        Map<Long, LinhaLote> linhas = travarLote(quantidadesPorProduto);
+        quantidadesPorProduto.forEach((produtoId, quantidade) -> {
+            LinhaLote linha = linhas.get(produtoId);
+            if (linha != null && linha.atual() - linha.reservada() < quantidade) {
+                faltas.add(linha.nome() + " (disponível " + (linha.atual() - linha.reservada()) + ", necessário " + quantidade + ")");
+            }
+        });
+        if (!faltas.isEmpty()) {
+            throw new IllegalStateException("Estoque insuficiente para: " + String.join("; ", faltas));
+        }
+        razaoEstoque.reservarLote(naRazao);
+        atualizarLote("quantidade_reservada = e.quantidade_reservada + p.quantidade", quantidadesPorProduto);
+    }
+
+    @Override
+    public void confirmarConsumoLote(Map<Long, Double> pedido) {
+        Map<Long, Double> quantidadesPorProduto = new TreeMap<>(pedido);
+        Map<Long, Double> naRazao = separarDaRazao(quantidadesPorProduto);
+        razaoEstoque.consumirLote(naRazao);
+        alertasEstoque.movimentar(negativos(naRazao));
+        if (quantidadesPorProduto.isEmpty()) return;
+        Map<Long, LinhaLote> linhas = travarLote(quantidadesPorProduto);
+        validarReservas(linhas, quantidadesPorProduto, "consumir");
+        atualizarLote("quantidade_reservada = e.quantidade_reservada - p.quantidade, quantidade_atual = e.quantidade_atual - p.quantidade",
+            quantidadesPorProduto);
+
+        LocalDate hoje = LocalDate.now();
+        jornalMovimentacoes.registrar(quantidadesPorProduto.entrySet().stream()
+            .map(item -> new JornalMovimentacoes.Lancamento(item.getKey(), hoje, item.getValue(), Estoque.TipoRegistro.SAIDA))
+            .toList());
+
+        Map<Produto.Categoria, Double> valorPorCategoria = new TreeMap<>();
+        quantidadesPorProduto.forEach((produtoId, quantidade) -> {
+            LinhaLote linha = linhas.get(produtoId);
+            valorPorCategoria.merge(linha.categoria(), -quantidade * linha.preco(), Double::sum);
+        });
+        valorPorCategoria.forEach(totaisInventario::somar);
+        alertasEstoque.movimentar(negativos(quantidadesPorProduto));
+    }
+
+    @Override
+    public void liberarReservaLote(Map<Long, Double> pedido) {
+        Map<Long, Double> quantidadesPorProduto = new TreeMap<>(pedido);
+        razaoEstoque.liberarLote(separarDaRazao(quantidadesPorProduto));
+        if (quantidadesPorProduto.isEmpty()) return;
+        Map<Long, LinhaLote> linhas = travarLote(quantidadesPorProduto);
+        validarReservas(linhas, quantidadesPorProduto, "liberar");
+        atualizarLote("quantidade_reservada = e.quantidade_reservada - p.quantidade", quantidadesPorProduto);
+    }
+
+    private Map<Long, Double> negativos(Map<Long, Double> quantidadesPorProduto) {
+        Map<Long, Double> variacoes = new HashMap<>();
+        quantidadesPorProduto.forEach((produtoId, quantidade) -> variacoes.put(produtoId, -quantidade));
+        return variacoes;
+    }
+
+    // Remove do mapa (que deve ser mutável) os produtos da razão e os devolve em separado
+    private Map<Long, Double> separarDaRazao(Map<Long, Double> quantidadesPorProduto) {
+        Map<Long, Double> naRazao = new TreeMap<>();
+        quantidadesPorProduto.entrySet().removeIf(entrada -> {
+            if (!razaoEstoque.gerencia(entrada.getKey())) return false;
+            naRazao.put(entrada.getKey(), entrada.getValue());
+            return true;
+        });
+        return naRazao;
+    }
+
+    // Produtos sem registro de estoque ou com quantidade inválida abortam o lote inteiro antes de qualquer alteração
+    private Map<Long, LinhaLote> travarLote(Map<Long, Double> quantidadesPorProduto) {
+        quantidadesPorProduto.forEach((produtoId, quantidade) -> {
+            if (quantidade == null || quantidade <= 0) {
+                throw new IllegalArgumentException("Quantidade do produto ID " + produtoId + " deve ser positiva.");
+            }
+        });
+        Map<Long, LinhaLote> linhas = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT e.id, e.produto_id, p.nome, e.quantidade_atual, e.quantidade_reservada, p.categoria, COALESCE(p.preco_unitario_atual, 0) " +
+            "FROM estoque e JOIN produtos p ON p.id = e.produto_id WHERE e.produto_id = ANY(CAST(? AS BIGINT[])) " +
+            "ORDER BY e.id FOR UPDATE OF e",
+            rs -> {
+                linhas.put(rs.getLong(2), new LinhaLote(rs.getLong(1), rs.getString(3), rs.getDouble(4), rs.getDouble(5),
+                    Produto.Categoria.valueOf(rs.getString(6)), rs.getDouble(7)));
+            },
+            (Object) quantidadesPorProduto.keySet().toArray(new Long[0]));
+        List<Long> semEstoque = quantidadesPorProduto.keySet().stream().filter(id -> !linhas.containsKey(id)).toList();
+        if (!semEstoque.isEmpty()) {
+            throw new EntityNotFoundException("Registro de estoque não encontrado para os produtos ID: " + semEstoque);
+        }
+        return linhas;
+    }
+
+    private void validarReservas(Map<Long, LinhaLote> linhas, Map<Long, Double> quantidadesPorProduto, String acao) {
+        List<String> excessos = new ArrayList<>();
+        quantidadesPorProduto.forEach((produtoId, quantidade) -> {
+            LinhaLote linha = linhas.get(produtoId);
+            if (quantidade > linha.reservada()) {
+                excessos.add(linha.nome() + " (reservado " + linha.reservada() + ", pedido " + quantidade + ")");
+            }
+        });
+        if (!excessos.isEmpty()) {
+            throw new IllegalStateException("Tentativa de " + acao + " mais do que a quantidade reservada: " + String.join("; ", excessos));
+        }
+    }
+
+    private void atualizarLote(String atribuicoes, Map<Long, Double> quantidadesPorProduto) {
+        Object[] arrays = arrays(quantidadesPorProduto);
+        jdbcTemplate.update(
+            "UPDATE estoque e SET " + atribuicoes + " FROM unnest(CAST(? AS BIGINT[]), CAST(? AS FLOAT8[])) AS p(produto_id, quantidade) " +
+            "WHERE e.produto_id = p.produto_id",
+            arrays[0], arrays[1]);
+        cacheBuscas.invalidar(Estoque.class);
+    }
+
+    private Object[] arrays(Map<Long, Double> quantidadesPorProduto) {
+        return new Object[] {
+            quantidadesPorProduto.keySet().toArray(new Long[0]),
+            quantidadesPorProduto.values().toArray(new Double[0])
+        };
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaKeysetDTO<MovimentacaoEstoqueDTO> listarMovimentacoes(Long estoqueId, int tamanho, String cursor) {
+        if (!estoqueRepository.existsById(estoqueId)) {
+            throw new EntityNotFoundException("Registro de estoque não encontrado com ID: " + estoqueId);
+        }
+        return jornalMovimentacoes.listar(estoqueId, tamanho, cursor);
     }
 
     // --- Relatórios e Alertas ---
@@ -102,12 +316,12 @@ public class EstoqueImpl implements EstoqueService {
     @Override
     @Transactional(readOnly = true)
     public Double calcularValorTotalInventario() {
-        return estoqueRepository.calcularValorTotalInventario().orElse(0.0);
+        return totaisInventario.valorTotal();
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Object[]> calcularValorTotalPorCategoria() {
-        return estoqueRepository.calcularValorTotalPorCategoria();
+        return totaisInventario.valorPorCategoria();
     }
 }
\ No newline at end of file
@@ -1,8 +1,14 @@
 package com.proj_db.onibus.service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import com.proj_db.onibus.dto.EstoqueResponseDTO;
+import com.proj_db.onibus.dto.MovimentacaoEstoqueDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.PaginaKeysetDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.model.Estoque;
 import com.proj_db.onibus.model.Produto;
 
@@ -13,7 +19,7 @@ public interface EstoqueService {
     Optional<Estoque> findByProduto(Produto produto);
     Optional<Estoque> findByProdutoId(Long produtoId);
     List<Estoque> findAll();
-    List<Estoque> search(EstoqueSearchDTO criteria);
+    PaginaBuscaDTO<EstoqueResponseDTO> search(EstoqueSearchDTO criteria, ParametrosPaginaDTO pagina);
     
     // --- Ações de Negócio ---
     Estoque adicionar(Long produtoId, Double quantidade);
@@ -21,6 +27,14 @@ public interface EstoqueService {
     void confirmarConsumoDeReserva(Long produtoId, Double quantidade);
     void liberarReserva(Long produtoId, Double quantidade);
 
+    // --- Ações em Lote (todos os itens de uma OS de uma vez; chave = id do produto) ---
+    void reservarLote(Map<Long, Double> quantidadesPorProduto);
+    void confirmarConsumoLote(Map<Long, Double> quantidadesPorProduto);
+    void liberarReservaLote(Map<Long, Double> quantidadesPorProduto);
+
+    // --- Diário de Movimentações (mais recentes primeiro, paginado por keyset) ---
+    PaginaKeysetDTO<MovimentacaoEstoqueDTO> listarMovimentacoes(Long estoqueId, int tamanho, String cursor);
+
     // --- Relatórios e Alertas ---
     List<Estoque> findEstoqueAbaixoDoMinimo();
     Double calcularValorTotalInventario();
@@ -0,0 +1,163 @@
+package com.proj_db.onibus.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/*
+ * Exportação da frota inteira (ônibus, motores, câmbios, pneus) em NDJSON ou CSV, escrita direto na resposta.
+ * A leitura é um scroll forward-only do Hibernate com fetch size, numa transação somente leitura; a sessão é
+ * limpa a cada lote, então a memória fica estável independentemente do tamanho da frota.
+ * Cada linha é o mesmo DTO devolvido pelos endpoints de consulta; no CSV vão as colunas simples do DTO
+ * (objetos aninhados viram o seu id e listas ficam de fora).
+ */
+@Service
+public class ExportadorFrota {
+
+    public enum Formato { NDJSON, CSV }
+
+    // Consultas do scroll: as associações para um que o DTO lê vêm no mesmo SELECT
+    public enum Conjunto {
+        ONIBUS("SELECT o FROM Onibus o LEFT JOIN FETCH o.motor LEFT JOIN FETCH o.cambio ORDER BY o.id"),
+        MOTORES("SELECT m FROM Motor m LEFT JOIN FETCH m.onibus ORDER BY m.id"),
+        CAMBIOS("SELECT c FROM Cambio c LEFT JOIN FETCH c.onibus ORDER BY c.id"),
+        PNEUS("SELECT p FROM Pneu p LEFT JOIN FETCH p.onibus ORDER BY p.id");
+
+        private final String jpql;
+
+        Conjunto(String jpql) { this.jpql = jpql; }
+    }
+
+    @PersistenceContext private EntityManager entityManager;
+    @Autowired private ObjectMapper objectMapper;
+
+    @Value("${onibus.export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${onibus.export.lote-limpeza:500}")
+    private int loteLimpeza;
+
+    private final TransactionTemplate transacaoLeitura;
+
+    public ExportadorFrota(PlatformTransactionManager transactionManager) {
+        this.transacaoLeitura = new TransactionTemplate(transactionManager);
+        this.transacaoLeitura.setReadOnly(true);
+    }
+
+    public <T> StreamingResponseBody exportar(Conjunto conjunto, Class<T> tipo, Function<T, ?> mapeador, Formato formato, boolean gzip) {
+        return saida -> {
+            long inicio = System.currentTimeMillis();
+            OutputStream destino = gzip ? new GZIPOutputStream(saida, 64 * 1024) : saida;
+            BufferedOutputStream escritor = new BufferedOutputStream(destino, 64 * 1024);
+            long linhas = transacaoLeitura.execute(status -> escrever(conjunto, tipo, mapeador, formato, escritor));
+            escritor.flush();
+            if (destino instanceof GZIPOutputStream compactado) compactado.finish();
+            saida.flush();
+            System.out.println("LOG: Exportação " + conjunto + " (" + formato + (gzip ? ", gzip" : "") + "): "
+                + linhas + " linhas em " + (System.currentTimeMillis() - inicio) + " ms.");
+        };
+    }
+
+    // Cabeçalhos da resposta: tipo de conteúdo, nome do arquivo e Content-Encoding quando compactado
+    public static HttpHeaders cabecalhos(String nomeBase, Formato formato, boolean gzip) {
+        HttpHeaders headers = new HttpHeaders();
+        boolean csv = formato == Formato.CSV;
+        headers.setContentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType("application/x-ndjson"));
+        headers.setContentDisposition(ContentDisposition.attachment()
+            .filename(nomeBase + (csv ? ".csv" : ".ndjson") + (gzip ? ".gz" : "")).build());
+        if (gzip) headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return headers;
+    }
+
+    private <T> long escrever(Conjunto conjunto, Class<T> tipo, Function<T, ?> mapeador, Formato formato, OutputStream escritor) {
+        Session session = entityManager.unwrap(Session.class);
+        long linhas = 0;
+        List<String> colunas = null;
+        try (ScrollableResults<T> resultados = session.createQuery(conjunto.jpql, tipo)
+                .setReadOnly(true)
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (resultados.next()) {
+                Object dto = mapeador.apply(resultados.get());
+                if (formato == Formato.NDJSON) {
+                    escritor.write(objectMapper.writeValueAsBytes(dto));
+                    escritor.write('\n');
+                } else {
+                    Map<String, Object> campos = objectMapper.convertValue(dto, new TypeReference<Map<String, Object>>() {});
+                    if (colunas == null) {
+                        colunas = colunasCsv(campos);
+                        escreverLinhaCsv(escritor, new ArrayList<>(colunas));
+                    }
+                    List<Object> valores = new ArrayList<>(colunas.size());
+                    for (String coluna : colunas) valores.add(valorCsv(campos.get(coluna)));
+                    escreverLinhaCsv(escritor, valores);
+                }
+                // Libera as entidades já escritas para o heap não crescer com a frota
+                if (++linhas % loteLimpeza == 0) {
+                    escritor.flush();
+                    session.clear();
+                }
+            }
+        } catch (IOException e) {
+            // Cliente desconectou ou falha de escrita: encerra o scroll e a transação
+            throw new IllegalStateException("Falha ao escrever a exportação: " + e.getMessage(), e);
+        }
+        return linhas;
+    }
+
+    private List<String> colunasCsv(Map<String, Object> campos) {
+        List<String> colunas = new ArrayList<>();
+        campos.forEach((nome, valor) -> {
+            if (!(valor instanceof Collection<?>)) colunas.add(nome);
+        });
+        return colunas;
+    }
+
+    private Object valorCsv(Object valor) {
+        if (valor instanceof Map<?, ?> aninhado) return aninhado.get("id");
+        return valor;
+    }
+
+    private void escreverLinhaCsv(OutputStream escritor, List<Object> valores) throws IOException {
+        StringBuilder linha = new StringBuilder();
+        for (int i = 0; i < valores.size(); i++) {
+            if (i > 0) linha.append(',');
+            Object valor = valores.get(i);
+            if (valor == null) continue;
+            String texto = valor.toString();
+            if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0 || texto.indexOf('\n') >= 0) {
+                linha.append('"').append(texto.replace("\"", "\"\"")).append('"');
+            } else {
+                linha.append(texto);
+            }
+        }
+        linha.append('\n');
+        escritor.write(linha.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
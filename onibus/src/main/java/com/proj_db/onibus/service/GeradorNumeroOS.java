@@ -0,0 +1,80 @@
+package com.proj_db.onibus.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.repository.OrdemServicoRepository;
+
+/*
+ * Gera números de OS únicos por prefixo usando a estratégia hi/lo:
+ * cada instância reserva um bloco de números na tabela os_numeracao (um UPDATE atômico)
+ * e os entrega da memória até o bloco acabar. Números de blocos não usados são descartados
+ * no restart, o que gera lacunas na sequência, mas nunca duplicidade.
+ */
+@Service
+public class GeradorNumeroOS {
+
+    private static final String SQL_RESERVAR_BLOCO =
+        "UPDATE os_numeracao SET ultimo_valor = ultimo_valor + ? WHERE prefixo = ? RETURNING ultimo_valor";
+    private static final String SQL_INICIALIZAR_PREFIXO =
+        "INSERT INTO os_numeracao (prefixo, ultimo_valor) VALUES (?, ?) ON CONFLICT (prefixo) DO NOTHING";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private OrdemServicoRepository osRepository;
+
+    @Value("${onibus.numeracao-os.tamanho-bloco:50}")
+    private int tamanhoBloco;
+
+    private final TransactionTemplate transacaoIsolada;
+    private final Map<String, Bloco> blocos = new ConcurrentHashMap<>();
+
+    public GeradorNumeroOS(PlatformTransactionManager transactionManager) {
+        // A reserva do bloco é confirmada de forma independente da transação de quem pediu o número
+        this.transacaoIsolada = new TransactionTemplate(transactionManager);
+        this.transacaoIsolada.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /*
+     * Retorna o próximo número formatado, ex.: proximoNumero("OS-PREV-", 3) -> "OS-PREV-042".
+     */
+    public String proximoNumero(String prefixo, int digitos) {
+        long valor = blocos.computeIfAbsent(prefixo, p -> new Bloco()).proximo(prefixo);
+        return String.format("%s%0" + digitos + "d", prefixo, valor);
+    }
+
+    private long reservarBloco(String prefixo) {
+        return transacaoIsolada.execute(status -> {
+            try {
+                return jdbcTemplate.queryForObject(SQL_RESERVAR_BLOCO, Long.class, tamanhoBloco, prefixo);
+            } catch (EmptyResultDataAccessException e) {
+                // Primeiro uso do prefixo: parte do maior número já gravado em ordens_servico
+                Integer maxExistente = osRepository.findMaxNumeroByPrefix(prefixo + "%", prefixo.length() + 1);
+                jdbcTemplate.update(SQL_INICIALIZAR_PREFIXO, prefixo, maxExistente.longValue());
+                return jdbcTemplate.queryForObject(SQL_RESERVAR_BLOCO, Long.class, tamanhoBloco, prefixo);
+            }
+        });
+    }
+
+    // Faixa (atual, limite] de números já reservados no banco para um prefixo
+    private class Bloco {
+        private long atual = 0;
+        private long limite = 0;
+
+        synchronized long proximo(String prefixo) {
+            if (atual >= limite) {
+                limite = reservarBloco(prefixo);
+                atual = limite - tamanhoBloco;
+            }
+            return ++atual;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.proj_db.onibus.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.dto.ImportacaoViagensResultadoDTO;
+import com.proj_db.onibus.model.Onibus;
+import com.proj_db.onibus.model.Pneu;
+import com.proj_db.onibus.repository.OnibusRepository;
+
+/*
+ * Importa (ou reprocessa) logs de viagens grandes direto para a quilometragem de ônibus e pneus.
+ * O arquivo é mapeado em memória em janelas e lido byte a byte, sem criar String por linha:
+ * as placas são resolvidas numa tabela pré-carregada que compara bytes, os IDs por busca binária,
+ * e os km são somados num vetor indexado pela posição do ônibus. A cada lote os totais são aplicados
+ * com UPDATEs em batch numa transação própria, e o offset após o lote é o ponto seguro para retomada.
+ *
+ * Formatos aceitos (uma viagem por linha):
+ *   CSV    -> onibus,data,km   (onibus = ID numérico ou placa; separador ',' ou ';'; cabeçalho opcional)
+ *   NDJSON -> {"placa":"ABC1D23","data":"2024-05-01","km":12.5}  ou  {"onibusId":7,...}
+ * Logs históricos não passam pela regra de status EM_OPERACAO: basta o ônibus existir.
+ * O arquivo é informado relativo ao diretório de importação (onibus.importacao.diretorio); caminhos que saiam
+ * dele, por "..", caminho absoluto ou link simbólico, são recusados.
+ */
+@Service
+public class ImportadorViagens {
+
+    private static final long TAMANHO_JANELA = 64L * 1024 * 1024;
+
+    private static final String SQL_SOMAR_KM_ONIBUS =
+        "UPDATE onibus SET quilometragem = quilometragem + ? WHERE id = ?";
+    private static final String SQL_SOMAR_KM_PNEUS =
+        "UPDATE pneus SET km_rodados = km_rodados + ? WHERE onibus_id = ?";
+
+    private static final byte[] CHAVE_PLACA = "\"placa\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CHAVE_ONIBUS_ID = "\"onibusId\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CHAVE_KM = "\"km\"".getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private OnibusRepository onibusRepository;
+    @Autowired private CacheBuscas cacheBuscas;
+
+    @Value("${onibus.importacao.tamanho-lote:50000}")
+    private int tamanhoLote;
+
+    @Value("${onibus.importacao.diretorio:./importacao}")
+    private String diretorioImportacao;
+
+    private final TransactionTemplate transacao;
+
+    public ImportadorViagens(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    // O nome vem da requisição: só vale um arquivo comum dentro do diretório de importação, conferido também
+    // pelo caminho real para que um link simbólico lá dentro não aponte para fora
+    private Path resolverArquivo(String caminhoArquivo) {
+        Path diretorio = Paths.get(diretorioImportacao).toAbsolutePath().normalize();
+        Path arquivo;
+        try {
+            arquivo = diretorio.resolve(caminhoArquivo).normalize();
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Caminho de arquivo inválido: " + caminhoArquivo);
+        }
+        if (!arquivo.startsWith(diretorio) || arquivo.equals(diretorio)) {
+            throw new IllegalArgumentException("Arquivo fora do diretório de importação: " + caminhoArquivo);
+        }
+        if (!Files.isRegularFile(arquivo)) {
+            throw new RuntimeException("Arquivo de viagens não encontrado: " + caminhoArquivo);
+        }
+        try {
+            if (!arquivo.toRealPath().startsWith(diretorio.toRealPath())) {
+                throw new IllegalArgumentException("Arquivo fora do diretório de importação: " + caminhoArquivo);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Arquivo de viagens não encontrado: " + caminhoArquivo);
+        }
+        return arquivo;
+    }
+
+    public ImportacaoViagensResultadoDTO importar(String caminhoArquivo, long offsetInicial) {
+        long inicio = System.currentTimeMillis();
+        Path arquivo = resolverArquivo(caminhoArquivo);
+        String nome = arquivo.getFileName().toString().toLowerCase();
+        boolean ndjson = nome.endsWith(".ndjson") || nome.endsWith(".jsonl");
+
+        Execucao execucao = new Execucao(Frota.carregar(onibusRepository.findIdEPlaca()), ndjson);
+        long offsetConfirmado = offsetInicial;
+        String erro = null;
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (offsetInicial < 0 || offsetInicial > tamanho) {
+                throw new IllegalArgumentException("Offset fora do arquivo: " + offsetInicial);
+            }
+            long posicao = offsetInicial;
+            while (posicao < tamanho) {
+                long tamanhoJanela = Math.min(TAMANHO_JANELA, tamanho - posicao);
+                boolean ultimaJanela = posicao + tamanhoJanela == tamanho;
+                MappedByteBuffer janela = canal.map(FileChannel.MapMode.READ_ONLY, posicao, tamanhoJanela);
+
+                int limite = janela.limit();
+                int inicioLinha = 0;
+                for (int i = 0; i < limite; i++) {
+                    if (janela.get(i) != '\n') continue;
+                    execucao.processarLinha(janela, inicioLinha, i, posicao + inicioLinha == 0);
+                    inicioLinha = i + 1;
+                    if (execucao.linhasNoLote >= tamanhoLote) {
+                        aplicarLote(execucao);
+                        offsetConfirmado = posicao + inicioLinha;
+                        System.out.println("LOG: Importação de viagens em " + caminhoArquivo + ": offset " + offsetConfirmado
+                            + ", " + execucao.linhasLidas + " linhas lidas.");
+                    }
+                }
+                if (ultimaJanela && inicioLinha < limite) {
+                    // Última linha sem quebra de linha no final do arquivo
+                    execucao.processarLinha(janela, inicioLinha, limite, posicao + inicioLinha == 0);
+                    inicioLinha = limite;
+                }
+                if (inicioLinha == 0) {
+                    throw new IllegalStateException("Linha maior que a janela de leitura no offset " + posicao);
+                }
+                // A próxima janela começa no início da linha que ficou incompleta nesta
+                posicao += inicioLinha;
+            }
+            aplicarLote(execucao);
+            offsetConfirmado = posicao;
+        } catch (IOException | RuntimeException e) {
+            // Lotes já aplicados estão confirmados; a importação pode ser retomada a partir de offsetConfirmado
+            erro = e.getMessage();
+            System.out.println("ALERTA: Importação de viagens interrompida no offset " + offsetConfirmado + ": " + erro);
+        }
+
+        long tempoMs = System.currentTimeMillis() - inicio;
+        double linhasPorSegundo = execucao.linhasLidas * 1000.0 / Math.max(1, tempoMs);
+        ImportacaoViagensResultadoDTO resultado = new ImportacaoViagensResultadoDTO(
+            caminhoArquivo, offsetInicial, offsetConfirmado, execucao.linhasLidas, execucao.linhasImportadas,
+            execucao.linhasRejeitadas, tempoMs, linhasPorSegundo, erro);
+        System.out.println("LOG: Importação de viagens concluída: " + resultado);
+        return resultado;
+    }
+
+    private void aplicarLote(Execucao execucao) {
+        Frota frota = execucao.frota;
+        List<Object[]> incrementos = new ArrayList<>();
+        // O vetor segue a ordem dos IDs, então as linhas são travadas sempre na mesma ordem
+        for (int i = 0; i < frota.ids.length; i++) {
+            if (execucao.kmPorOnibus[i] != 0.0) {
+                incrementos.add(new Object[] { execucao.kmPorOnibus[i], frota.ids[i] });
+            }
+        }
+        if (!incrementos.isEmpty()) {
+            transacao.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(SQL_SOMAR_KM_ONIBUS, incrementos);
+                jdbcTemplate.batchUpdate(SQL_SOMAR_KM_PNEUS, incrementos);
+                cacheBuscas.invalidar(Onibus.class, Pneu.class);
+            });
+        }
+        execucao.linhasImportadas += execucao.linhasNoLote;
+        execucao.linhasNoLote = 0;
+        Arrays.fill(execucao.kmPorOnibus, 0.0);
+    }
+
+    // --- ESTADO DE UMA IMPORTAÇÃO E PARSER ---
+
+    private static final class Execucao {
+        private final Frota frota;
+        private final boolean ndjson;
+        private final double[] kmPorOnibus;
+        private long linhasLidas;
+        private long linhasImportadas;
+        private long linhasRejeitadas;
+        private int linhasNoLote;
+
+        Execucao(Frota frota, boolean ndjson) {
+            this.frota = frota;
+            this.ndjson = ndjson;
+            this.kmPorOnibus = new double[frota.ids.length];
+        }
+
+        void processarLinha(MappedByteBuffer buf, int inicio, int fim, boolean primeiraLinhaDoArquivo) {
+            if (fim > inicio && buf.get(fim - 1) == '\r') fim--;
+            if (fim <= inicio) return; // Linha em branco
+
+            int indice;
+            double km;
+            if (ndjson) {
+                int valorPlaca = localizarValor(buf, inicio, fim, CHAVE_PLACA);
+                if (valorPlaca >= 0 && buf.get(valorPlaca) == '"') {
+                    int fimPlaca = indiceDe(buf, valorPlaca + 1, fim, (byte) '"');
+                    indice = (fimPlaca < 0) ? -1 : frota.indicePorPlaca(buf, valorPlaca + 1, fimPlaca);
+                } else {
+                    int valorId = localizarValor(buf, inicio, fim, CHAVE_ONIBUS_ID);
+                    indice = (valorId < 0) ? -1 : frota.indicePorId(lerLong(buf, valorId, fimDoNumero(buf, valorId, fim)));
+                }
+                int valorKm = localizarValor(buf, inicio, fim, CHAVE_KM);
+                km = (valorKm < 0) ? Double.NaN : lerDecimal(buf, valorKm, fimDoNumero(buf, valorKm, fim));
+            } else {
+                int separador1 = indiceDeSeparador(buf, inicio, fim);
+                int separador2 = (separador1 < 0) ? -1 : indiceDeSeparador(buf, separador1 + 1, fim);
+                if (separador2 < 0) {
+                    indice = -1;
+                    km = Double.NaN;
+                } else {
+                    indice = resolverOnibusCsv(buf, inicio, separador1);
+                    km = lerDecimal(buf, separador2 + 1, fim);
+                }
+                if (primeiraLinhaDoArquivo && Double.isNaN(km)) {
+                    return; // Cabeçalho
+                }
+            }
+
+            linhasLidas++;
+            if (indice < 0 || Double.isNaN(km) || km < 0) {
+                linhasRejeitadas++;
+                return;
+            }
+            kmPorOnibus[indice] += km;
+            linhasNoLote++;
+        }
+
+        private int resolverOnibusCsv(MappedByteBuffer buf, int inicio, int fim) {
+            while (inicio < fim && (buf.get(inicio) == ' ' || buf.get(inicio) == '"')) inicio++;
+            while (fim > inicio && (buf.get(fim - 1) == ' ' || buf.get(fim - 1) == '"')) fim--;
+            if (fim <= inicio) return -1;
+            boolean numerico = true;
+            for (int i = inicio; i < fim && numerico; i++) {
+                numerico = buf.get(i) >= '0' && buf.get(i) <= '9';
+            }
+            // Placas sempre têm letras; um campo só de dígitos é o ID do ônibus
+            return numerico ? frota.indicePorId(lerLong(buf, inicio, fim)) : frota.indicePorPlaca(buf, inicio, fim);
+        }
+
+        private static int indiceDeSeparador(MappedByteBuffer buf, int inicio, int fim) {
+            for (int i = inicio; i < fim; i++) {
+                byte b = buf.get(i);
+                if (b == ',' || b == ';') return i;
+            }
+            return -1;
+        }
+
+        private static int indiceDe(MappedByteBuffer buf, int inicio, int fim, byte alvo) {
+            for (int i = inicio; i < fim; i++) {
+                if (buf.get(i) == alvo) return i;
+            }
+            return -1;
+        }
+
+        // Posição do primeiro byte do valor associado à chave (já com aspas), ou -1
+        private static int localizarValor(MappedByteBuffer buf, int inicio, int fim, byte[] chave) {
+            externo:
+            for (int i = inicio; i <= fim - chave.length; i++) {
+                for (int j = 0; j < chave.length; j++) {
+                    if (buf.get(i + j) != chave[j]) continue externo;
+                }
+                int p = i + chave.length;
+                while (p < fim && (buf.get(p) == ' ' || buf.get(p) == ':')) p++;
+                return (p < fim) ? p : -1;
+            }
+            return -1;
+        }
+
+        private static int fimDoNumero(MappedByteBuffer buf, int inicio, int fim) {
+            int p = inicio;
+            while (p < fim && buf.get(p) != ',' && buf.get(p) != '}' && buf.get(p) != ' ') p++;
+            return p;
+        }
+
+        private static long lerLong(MappedByteBuffer buf, int inicio, int fim) {
+            if (fim <= inicio || fim - inicio > 18) return -1;
+            long valor = 0;
+            for (int i = inicio; i < fim; i++) {
+                byte b = buf.get(i);
+                if (b < '0' || b > '9') return -1;
+                valor = valor * 10 + (b - '0');
+            }
+            return valor;
+        }
+
+        // Decimal simples (sinal, parte inteira, '.' ou ',' e fração); NaN se inválido
+        private static double lerDecimal(MappedByteBuffer buf, int inicio, int fim) {
+            while (inicio < fim && (buf.get(inicio) == ' ' || buf.get(inicio) == '"')) inicio++;
+            while (fim > inicio && (buf.get(fim - 1) == ' ' || buf.get(fim - 1) == '"')) fim--;
+            if (fim <= inicio) return Double.NaN;
+
+            boolean negativo = buf.get(inicio) == '-';
+            if (negativo) inicio++;
+            long mantissa = 0;
+            int casasDecimais = -1;
+            int digitos = 0;
+            for (int i = inicio; i < fim; i++) {
+                byte b = buf.get(i);
+                if (b >= '0' && b <= '9') {
+                    if (++digitos > 17) return Double.NaN;
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (casasDecimais >= 0) casasDecimais++;
+                } else if ((b == '.' || b == ',') && casasDecimais < 0) {
+                    casasDecimais = 0;
+                } else {
+                    return Double.NaN;
+                }
+            }
+            if (digitos == 0) return Double.NaN;
+            double valor = (casasDecimais > 0) ? mantissa / Math.pow(10, casasDecimais) : mantissa;
+            return negativo ? -valor : valor;
+        }
+    }
+
+    // --- FROTA PRÉ-CARREGADA ---
+
+    // IDs ordenados (o índice no vetor é a posição do ônibus) e tabela de placas com endereçamento aberto
+    private static final class Frota {
+        private final long[] ids;
+        private final byte[][] placas;
+        private final int[] indicesPlaca;
+        private final int mascara;
+
+        private Frota(long[] ids, byte[][] placas, int[] indicesPlaca) {
+            this.ids = ids;
+            this.placas = placas;
+            this.indicesPlaca = indicesPlaca;
+            this.mascara = placas.length - 1;
+        }
+
+        // Linhas (id, placa) já ordenadas por ID
+        static Frota carregar(List<Object[]> linhas) {
+            long[] ids = new long[linhas.size()];
+            int capacidade = Integer.highestOneBit(Math.max(2, linhas.size() * 2) - 1) << 1;
+            byte[][] placas = new byte[capacidade][];
+            int[] indicesPlaca = new int[capacidade];
+            Frota frota = new Frota(ids, placas, indicesPlaca);
+            for (int i = 0; i < linhas.size(); i++) {
+                ids[i] = (Long) linhas.get(i)[0];
+                byte[] placa = normalizar(((String) linhas.get(i)[1]).getBytes(StandardCharsets.US_ASCII));
+                int slot = hash(placa, 0, placa.length) & frota.mascara;
+                while (placas[slot] != null) slot = (slot + 1) & frota.mascara;
+                placas[slot] = placa;
+                indicesPlaca[slot] = i;
+            }
+            return frota;
+        }
+
+        int indicePorId(long id) {
+            if (id < 0) return -1;
+            int indice = Arrays.binarySearch(ids, id);
+            return (indice >= 0) ? indice : -1;
+        }
+
+        int indicePorPlaca(MappedByteBuffer buf, int inicio, int fim) {
+            int slot = hashNormalizado(buf, inicio, fim) & mascara;
+            while (placas[slot] != null) {
+                if (igualNormalizado(placas[slot], buf, inicio, fim)) return indicesPlaca[slot];
+                slot = (slot + 1) & mascara;
+            }
+            return -1;
+        }
+
+        // Placa sem hífen e em maiúsculas: "abc-1234" e "ABC1234" são a mesma
+        private static byte[] normalizar(byte[] placa) {
+            int n = 0;
+            byte[] saida = new byte[placa.length];
+            for (byte b : placa) {
+                if (b == '-' || b == ' ') continue;
+                saida[n++] = maiuscula(b);
+            }
+            return Arrays.copyOf(saida, n);
+        }
+
+        private static byte maiuscula(byte b) {
+            return (b >= 'a' && b <= 'z') ? (byte) (b - 32) : b;
+        }
+
+        private static int hash(byte[] bytes, int inicio, int fim) {
+            int h = 0x811C9DC5;
+            for (int i = inicio; i < fim; i++) {
+                h = (h ^ bytes[i]) * 0x01000193;
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static int hashNormalizado(MappedByteBuffer buf, int inicio, int fim) {
+            int h = 0x811C9DC5;
+            for (int i = inicio; i < fim; i++) {
+                byte b = buf.get(i);
+                if (b == '-' || b == ' ') continue;
+                h = (h ^ maiuscula(b)) * 0x01000193;
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean igualNormalizado(byte[] placa, MappedByteBuffer buf, int inicio, int fim) {
+            int j = 0;
+            for (int i = inicio; i < fim; i++) {
+                byte b = buf.get(i);
+                if (b == '-' || b == ' ') continue;
+                if (j >= placa.length || placa[j++] != maiuscula(b)) return false;
+            }
+            return j == placa.length;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.proj_db.onibus.service;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.proj_db.onibus.dto.AutocompleteDTO;
+import com.proj_db.onibus.model.Cambio;
+import com.proj_db.onibus.model.Motor;
+import com.proj_db.onibus.model.Onibus;
+import com.proj_db.onibus.model.Pneu;
+import com.proj_db.onibus.model.Produto;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Índice de trigramas em memória para o autocomplete de placas, chassis, números de frota, números de série e
+ * nome/código interno de produtos. Os LIKE '%x%' das Specifications não usam índice B-tree; aqui cada trigrama
+ * do valor normalizado (minúsculo, sem acento, só letras e dígitos) aponta para um BitSet das entradas que o
+ * contêm, e a busca intersecta os BitSets dos trigramas da consulta e confere só os candidatos.
+ * Carregado na subida com uma consulta por tabela e mantido por listener do Hibernate, aplicando as mudanças
+ * só depois do commit. Alterações por SQL direto nessas colunas só entram na próxima subida.
+ */
+@Service
+public class IndiceAutocomplete implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    public enum TipoEntidade { ONIBUS, MOTOR, CAMBIO, PNEU, PRODUTO }
+
+    private record Campo(TipoEntidade tipo, Class<?> classe, String propriedade, String tabela, String coluna) {}
+
+    private record Entrada(TipoEntidade tipo, Long id, String campo, String valor, String normalizado) {}
+
+    private record Candidato(Entrada entrada, int relevancia) {}
+
+    private static final List<Campo> CAMPOS = List.of(
+        new Campo(TipoEntidade.ONIBUS, Onibus.class, "placa", "onibus", "placa"),
+        new Campo(TipoEntidade.ONIBUS, Onibus.class, "chassi", "onibus", "chassi"),
+        new Campo(TipoEntidade.ONIBUS, Onibus.class, "numeroFrota", "onibus", "numero_frota"),
+        new Campo(TipoEntidade.MOTOR, Motor.class, "numeroSerie", "motores", "numero_serie"),
+        new Campo(TipoEntidade.CAMBIO, Cambio.class, "numeroSerie", "cambios", "numero_serie"),
+        new Campo(TipoEntidade.PNEU, Pneu.class, "numeroSerie", "pneus", "numero_serie"),
+        new Campo(TipoEntidade.PRODUTO, Produto.class, "nome", "produtos", "nome"),
+        new Campo(TipoEntidade.PRODUTO, Produto.class, "codigoInterno", "produtos", "codigo_interno")
+    );
+
+    // Exato antes de prefixo antes de "contém"; empate pelo valor mais curto e depois alfabético
+    private static final Comparator<Candidato> ORDEM_RESULTADO = Comparator
+        .comparingInt(Candidato::relevancia)
+        .thenComparingInt((Candidato c) -> c.entrada().normalizado().length())
+        .thenComparing(c -> c.entrada().valor());
+
+    public static final int LIMITE_MAXIMO = 50;
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    // Guardados pela trava: posição da entrada -> entrada (null = livre), chave -> posição, trigrama -> posições
+    private final List<Entrada> entradas = new ArrayList<>();
+    private final Map<String, Integer> posicoes = new HashMap<>();
+    private final Map<String, BitSet> trigramas = new HashMap<>();
+    private final Deque<Integer> livres = new ArrayDeque<>();
+
+    @PostConstruct
+    public void registrarListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    // --- CARGA ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        List<Entrada> novas = new ArrayList<>();
+        for (Campo c : CAMPOS) {
+            jdbcTemplate.query("SELECT id, " + c.coluna() + " FROM " + c.tabela() + " WHERE " + c.coluna() + " IS NOT NULL",
+                rs -> {
+                    novas.add(entrada(c, rs.getLong(1), rs.getString(2)));
+                });
+        }
+        trava.writeLock().lock();
+        try {
+            entradas.clear();
+            posicoes.clear();
+            trigramas.clear();
+            livres.clear();
+            novas.forEach(this::inserir);
+        } finally {
+            trava.writeLock().unlock();
+        }
+        System.out.println("LOG: Índice de autocomplete carregado: " + novas.size() + " valores, " + trigramas.size() + " trigramas.");
+    }
+
+    // --- BUSCA ---
+
+    // Até 'limite' sugestões para q; cada palavra de q precisa aparecer no valor (ex.: "filtro oleo")
+    public List<AutocompleteDTO> buscar(String q, Set<TipoEntidade> tipos, int limite) {
+        List<String> termos = new ArrayList<>();
+        if (q != null) {
+            for (String palavra : q.trim().split("\\s+")) {
+                String termo = normalizar(palavra);
+                if (!termo.isEmpty()) termos.add(termo);
+            }
+        }
+        if (termos.isEmpty()) return List.of();
+        int k = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        String consulta = String.join("", termos);
+
+        // Heap dos k melhores com o pior no topo
+        PriorityQueue<Candidato> melhores = new PriorityQueue<>(ORDEM_RESULTADO.reversed());
+        trava.readLock().lock();
+        try {
+            BitSet candidatos = null;
+            for (String termo : termos) {
+                for (String trigrama : trigramasDe(termo)) {
+                    BitSet posicoesTrigrama = trigramas.get(trigrama);
+                    if (posicoesTrigrama == null) return List.of();
+                    if (candidatos == null) {
+                        candidatos = (BitSet) posicoesTrigrama.clone();
+                    } else {
+                        candidatos.and(posicoesTrigrama);
+                    }
+                }
+            }
+            if (candidatos == null) {
+                // Só termos com menos de 3 caracteres: não há trigrama, confere todas as entradas
+                candidatos = new BitSet();
+                candidatos.set(0, entradas.size());
+            }
+            for (int i = candidatos.nextSetBit(0); i >= 0; i = candidatos.nextSetBit(i + 1)) {
+                Entrada e = entradas.get(i);
+                if (e == null || !tipos.contains(e.tipo())) continue;
+                if (!termos.stream().allMatch(e.normalizado()::contains)) continue;
+                int relevancia = e.normalizado().equals(consulta) ? 0 : e.normalizado().startsWith(termos.get(0)) ? 1 : 2;
+                melhores.add(new Candidato(e, relevancia));
+                if (melhores.size() > k) melhores.poll();
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+        List<Candidato> ordenados = new ArrayList<>(melhores);
+        ordenados.sort(ORDEM_RESULTADO);
+        return ordenados.stream()
+            .map(c -> new AutocompleteDTO(c.entrada().tipo().name(), c.entrada().id(), c.entrada().campo(), c.entrada().valor()))
+            .toList();
+    }
+
+    // --- LISTENERS DO HIBERNATE ---
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        for (Campo c : camposDe(event.getPersister())) {
+            Object novo = event.getState()[posicao(event.getPersister(), c)];
+            aposCommit(event.getSession().getActionQueue(), c, (Long) event.getId(), null, novo);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        for (Campo c : camposDe(event.getPersister())) {
+            int posicao = posicao(event.getPersister(), c);
+            Object novo = event.getState()[posicao];
+            Object antigo = event.getOldState() != null ? event.getOldState()[posicao] : null;
+            if (event.getOldState() == null || !Objects.equals(antigo, novo)) {
+                aposCommit(event.getSession().getActionQueue(), c, (Long) event.getId(), antigo, novo);
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        for (Campo c : camposDe(event.getPersister())) {
+            aposCommit(event.getSession().getActionQueue(), c, (Long) event.getId(), null, null);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void aposCommit(ActionQueue fila, Campo c, Long id, Object antigo, Object novo) {
+        fila.registerProcess((AfterTransactionCompletionProcess) (sucesso, sessao) -> {
+            if (!sucesso) return;
+            trava.writeLock().lock();
+            try {
+                remover(chave(c, id));
+                if (novo != null) inserir(entrada(c, id, novo.toString()));
+            } finally {
+                trava.writeLock().unlock();
+            }
+        });
+    }
+
+    private List<Campo> camposDe(EntityPersister persister) {
+        Class<?> classe = persister.getMappedClass();
+        return CAMPOS.stream().filter(c -> c.classe() == classe).toList();
+    }
+
+    private int posicao(EntityPersister persister, Campo c) {
+        return persister.findAttributeMapping(c.propriedade()).getStateArrayPosition();
+    }
+
+    // --- ESTRUTURA (chamar com a trava de escrita) ---
+
+    private void inserir(Entrada e) {
+        String chave = chave(e.tipo(), e.id(), e.campo());
+        remover(chave);
+        int posicao = livres.isEmpty() ? entradas.size() : livres.pop();
+        if (posicao == entradas.size()) {
+            entradas.add(e);
+        } else {
+            entradas.set(posicao, e);
+        }
+        posicoes.put(chave, posicao);
+        for (String trigrama : trigramasDe(e.normalizado())) {
+            trigramas.computeIfAbsent(trigrama, t -> new BitSet()).set(posicao);
+        }
+    }
+
+    private void remover(String chave) {
+        Integer posicao = posicoes.remove(chave);
+        if (posicao == null) return;
+        for (String trigrama : trigramasDe(entradas.get(posicao).normalizado())) {
+            BitSet bits = trigramas.get(trigrama);
+            bits.clear(posicao);
+            if (bits.isEmpty()) trigramas.remove(trigrama);
+        }
+        entradas.set(posicao, null);
+        livres.push(posicao);
+    }
+
+    private Entrada entrada(Campo c, Long id, String valor) {
+        return new Entrada(c.tipo(), id, c.propriedade(), valor, normalizar(valor));
+    }
+
+    private String chave(Campo c, Long id) {
+        return chave(c.tipo(), id, c.propriedade());
+    }
+
+    private String chave(TipoEntidade tipo, Long id, String campo) {
+        return tipo + ":" + id + ":" + campo;
+    }
+
+    private static Set<String> trigramasDe(String normalizado) {
+        Set<String> resultado = new HashSet<>();
+        for (int i = 0; i + 3 <= normalizado.length(); i++) {
+            resultado.add(normalizado.substring(i, i + 3));
+        }
+        return resultado;
+    }
+
+    // "ABC-1D23" e "abc1d23" viram o mesmo texto; acentos e pontuação são ignorados
+    private static String normalizar(String valor) {
+        return Normalizer.normalize(valor, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT)
+            .replaceAll("[^a-z0-9]", "");
+    }
+}
@@ -0,0 +1,172 @@
+package com.proj_db.onibus.service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.proj_db.onibus.dto.IndiceOsAtivaConsistenciaDTO;
+import com.proj_db.onibus.model.OrdemServico;
+import com.proj_db.onibus.model.OrdemServico.StatusOrdemServico;
+import com.proj_db.onibus.repository.OrdemServicoRepository;
+
+/*
+ * Índice em memória dos ativos (ônibus, motor, câmbio, pneu) que possuem OS ABERTA ou EM_EXECUCAO.
+ * Um BitSet por tipo de alvo, indexado pelo ID, substitui o existsBy...AndStatusIn por ativo nas varreduras.
+ * É carregado na subida com uma única consulta e atualizado pelos serviços a cada transição de OS,
+ * sempre após o commit, para que rollbacks não deixem o índice divergente do banco.
+ * Encerrar uma OS confirma no banco e limpa o bit sob a mesma trava que as marcações usam, de modo que uma
+ * abertura concorrente, cujo bit só é marcado depois do seu commit, nunca é apagada por uma leitura anterior a ele.
+ */
+@Service
+public class IndiceOsAtiva {
+
+    public enum TipoAlvo { ONIBUS, MOTOR, CAMBIO, PNEU }
+
+    public static final List<StatusOrdemServico> STATUS_ATIVOS = List.of(StatusOrdemServico.ABERTA, StatusOrdemServico.EM_EXECUCAO);
+
+    @Autowired private OrdemServicoRepository osRepository;
+
+    private final Map<TipoAlvo, BitSet> indices = new EnumMap<>(TipoAlvo.class);
+
+    public IndiceOsAtiva() {
+        for (TipoAlvo tipo : TipoAlvo.values()) {
+            indices.put(tipo, new BitSet());
+        }
+    }
+
+    // --- CARGA ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reconstruir() {
+        // Carrega sob a trava: uma marcação feita depois da consulta não é sobrescrita pelo putAll
+        Map<TipoAlvo, BitSet> novos;
+        synchronized (indices) {
+            novos = carregarDoBanco();
+            indices.putAll(novos);
+        }
+        System.out.println("LOG: Índice de OS ativas carregado: " + novos.values().stream().mapToInt(BitSet::cardinality).sum() + " alvos.");
+    }
+
+    private Map<TipoAlvo, BitSet> carregarDoBanco() {
+        Map<TipoAlvo, BitSet> novos = new EnumMap<>(TipoAlvo.class);
+        for (TipoAlvo tipo : TipoAlvo.values()) {
+            novos.put(tipo, new BitSet());
+        }
+        for (Object[] linha : osRepository.findAlvosComStatusIn(STATUS_ATIVOS)) {
+            for (TipoAlvo tipo : TipoAlvo.values()) {
+                Long id = (Long) linha[tipo.ordinal()];
+                if (id != null) novos.get(tipo).set(Math.toIntExact(id));
+            }
+        }
+        return novos;
+    }
+
+    // --- CONSULTA ---
+
+    public boolean possuiOsAtiva(TipoAlvo tipo, Long id) {
+        synchronized (indices) {
+            return indices.get(tipo).get(Math.toIntExact(id));
+        }
+    }
+
+    // --- ATUALIZAÇÃO (chamada pelos serviços após salvar a OS) ---
+
+    public OrdemServico registrar(OrdemServico os) {
+        boolean ativa = STATUS_ATIVOS.contains(os.getStatus());
+        Map<TipoAlvo, Long> alvos = new EnumMap<>(TipoAlvo.class);
+        if (os.getOnibus() != null) alvos.put(TipoAlvo.ONIBUS, os.getOnibus().getId());
+        if (os.getMotor() != null) alvos.put(TipoAlvo.MOTOR, os.getMotor().getId());
+        if (os.getCambio() != null) alvos.put(TipoAlvo.CAMBIO, os.getCambio().getId());
+        if (os.getPneu() != null) alvos.put(TipoAlvo.PNEU, os.getPneu().getId());
+
+        aposCommit(() -> alvos.forEach((tipo, id) -> {
+            if (ativa) {
+                marcar(tipo, id);
+            } else {
+                desmarcarSemOsAtiva(tipo, id);
+            }
+        }));
+        return os;
+    }
+
+    // Usado pelas inserções em lote via JDBC, que não passam pela entidade
+    public void registrarAbertura(TipoAlvo tipo, Collection<Long> ids) {
+        List<Long> copia = new ArrayList<>(ids);
+        aposCommit(() -> copia.forEach(id -> marcar(tipo, id)));
+    }
+
+    private void marcar(TipoAlvo tipo, Long id) {
+        synchronized (indices) {
+            indices.get(tipo).set(Math.toIntExact(id));
+        }
+    }
+
+    // Um ativo pode ter mais de uma OS ativa: ao encerrar uma delas, só limpa o bit se o banco não tiver outra.
+    // Consulta e atualização ficam na mesma seção crítica; a abertura que o banco ainda não mostrar marca o bit
+    // no seu próprio afterCommit, que espera esta trava e portanto acontece depois da limpeza.
+    private void desmarcarSemOsAtiva(TipoAlvo tipo, Long id) {
+        synchronized (indices) {
+            indices.get(tipo).set(Math.toIntExact(id), existeOsAtivaNoBanco(tipo, id));
+        }
+    }
+
+    private boolean existeOsAtivaNoBanco(TipoAlvo tipo, Long id) {
+        return switch (tipo) {
+            case ONIBUS -> osRepository.existsByOnibusIdAndStatusIn(id, STATUS_ATIVOS);
+            case MOTOR -> osRepository.existsByMotorIdAndStatusIn(id, STATUS_ATIVOS);
+            case CAMBIO -> osRepository.existsByCambioIdAndStatusIn(id, STATUS_ATIVOS);
+            case PNEU -> osRepository.existsByPneuIdAndStatusIn(id, STATUS_ATIVOS);
+        };
+    }
+
+    private void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+
+    // --- VERIFICAÇÃO DE CONSISTÊNCIA ---
+
+    // Compara o índice com o banco. Transações em andamento podem gerar divergências momentâneas.
+    @Transactional(readOnly = true)
+    public List<IndiceOsAtivaConsistenciaDTO> verificarConsistencia() {
+        Map<TipoAlvo, BitSet> banco = carregarDoBanco();
+        List<IndiceOsAtivaConsistenciaDTO> resultado = new ArrayList<>();
+        for (TipoAlvo tipo : TipoAlvo.values()) {
+            BitSet memoria;
+            synchronized (indices) {
+                memoria = (BitSet) indices.get(tipo).clone();
+            }
+            BitSet ausentes = (BitSet) banco.get(tipo).clone();
+            ausentes.andNot(memoria);
+            BitSet excedentes = (BitSet) memoria.clone();
+            excedentes.andNot(banco.get(tipo));
+            resultado.add(new IndiceOsAtivaConsistenciaDTO(
+                tipo.name(), memoria.cardinality(), banco.get(tipo).cardinality(), paraLista(ausentes), paraLista(excedentes)));
+        }
+        return resultado;
+    }
+
+    private List<Long> paraLista(BitSet bits) {
+        return bits.stream().mapToObj(Long::valueOf).toList();
+    }
+}
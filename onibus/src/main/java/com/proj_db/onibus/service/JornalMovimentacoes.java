@@ -0,0 +1,201 @@
+package com.proj_db.onibus.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.dto.MovimentacaoEstoqueDTO;
+import com.proj_db.onibus.dto.PaginaKeysetDTO;
+import com.proj_db.onibus.model.Estoque;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Diário de movimentações de estoque: estoque_movimentacoes só recebe INSERTs e é particionada por mês de
+ * data_registro, então o histórico de um produto de muito giro não pesa na linha de estoque e as consultas por
+ * período só leem as partições do intervalo. As datas da última entrada/saída ficam em colunas do próprio estoque.
+ * A tabela particionada não é criada pelo ddl-auto: ela e as partições (do mês mais antigo até
+ * onibus.estoque.jornal.meses-adiante meses à frente) são criadas aqui em toda subida e renovadas todo mês.
+ * A partição DEFAULT recebe o que cair fora delas (cron perdido, reaplicação de WAL, lançamento retroativo), para
+ * que o registro nunca derrube a movimentação; ao criar a partição de um mês, as linhas dele saem da DEFAULT.
+ * Na primeira subida o antigo @ElementCollection estoque_historico_movimentacao é copiado e apagado.
+ */
+@Service
+public class JornalMovimentacoes {
+
+    public record Lancamento(Long produtoId, LocalDate data, double quantidade, Estoque.TipoRegistro tipo) {}
+
+    private static final int TAMANHO_MAXIMO_PAGINA = 500;
+    private static final DateTimeFormatter SUFIXO_PARTICAO = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String SQL_INSERIR =
+        "INSERT INTO estoque_movimentacoes (estoque_id, data_registro, quantidade_movimentada, tipo_registro) " +
+        "SELECT id, ?, ?, ? FROM estoque WHERE produto_id = ?";
+    private static final String SQL_ULTIMA_ENTRADA =
+        "UPDATE estoque SET data_ultima_entrada = GREATEST(data_ultima_entrada, ?) WHERE produto_id = ?";
+    private static final String SQL_ULTIMA_SAIDA =
+        "UPDATE estoque SET data_ultima_saida = GREATEST(data_ultima_saida, ?) WHERE produto_id = ?";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory; // Garante que o ddl-auto já criou as colunas de estoque
+
+    @Value("${onibus.estoque.jornal.meses-adiante:3}")
+    private int mesesAdiante;
+
+    private final TransactionTemplate transacao;
+
+    public JornalMovimentacoes(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    // --- ESTRUTURA E MIGRAÇÃO ---
+
+    @PostConstruct
+    public void preparar() {
+        transacao.executeWithoutResult(status -> {
+            jdbcTemplate.execute(
+                "CREATE TABLE IF NOT EXISTS estoque_movimentacoes (" +
+                "id BIGINT GENERATED ALWAYS AS IDENTITY, " +
+                "estoque_id BIGINT NOT NULL, " +
+                "data_registro DATE NOT NULL, " +
+                "quantidade_movimentada FLOAT8 NOT NULL, " +
+                "tipo_registro VARCHAR(10) NOT NULL, " +
+                "PRIMARY KEY (data_registro, id)) PARTITION BY RANGE (data_registro)");
+            jdbcTemplate.execute(
+                "CREATE INDEX IF NOT EXISTS idx_estoque_movimentacoes_estoque " +
+                "ON estoque_movimentacoes (estoque_id, data_registro DESC, id DESC)");
+
+            Boolean legado = jdbcTemplate.queryForObject("SELECT to_regclass('estoque_historico_movimentacao') IS NOT NULL", Boolean.class);
+            LocalDate inicio = null;
+            if (Boolean.TRUE.equals(legado)) {
+                Date maisAntiga = jdbcTemplate.queryForObject("SELECT MIN(data_registro) FROM estoque_historico_movimentacao", Date.class);
+                if (maisAntiga != null) inicio = maisAntiga.toLocalDate();
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS estoque_movimentacoes_default PARTITION OF estoque_movimentacoes DEFAULT");
+            if (inicio != null) garantirParticoes(YearMonth.from(inicio));
+            garantirParticoes(YearMonth.now().minusMonths(1));
+
+            if (Boolean.TRUE.equals(legado)) {
+                int copiados = jdbcTemplate.update(
+                    "INSERT INTO estoque_movimentacoes (estoque_id, data_registro, quantidade_movimentada, tipo_registro) " +
+                    "SELECT estoque_id, data_registro, quantidade_movimentada, tipo_registro FROM estoque_historico_movimentacao " +
+                    "ORDER BY data_registro");
+                jdbcTemplate.update(
+                    "UPDATE estoque e SET data_ultima_entrada = m.entrada, data_ultima_saida = m.saida FROM (" +
+                    "SELECT estoque_id, MAX(data_registro) FILTER (WHERE tipo_registro = 'ENTRADA') AS entrada, " +
+                    "MAX(data_registro) FILTER (WHERE tipo_registro = 'SAIDA') AS saida " +
+                    "FROM estoque_historico_movimentacao GROUP BY estoque_id) m WHERE e.id = m.estoque_id");
+                jdbcTemplate.execute("DROP TABLE estoque_historico_movimentacao");
+                System.out.println("LOG: Histórico de estoque migrado para o diário de movimentações: " + copiados + " registros.");
+            }
+        });
+    }
+
+    @Scheduled(cron = "${onibus.estoque.jornal.particoes-cron:0 0 1 1 * *}")
+    public void renovarParticoes() {
+        transacao.executeWithoutResult(status -> garantirParticoes(YearMonth.now()));
+    }
+
+    // Cria as partições mensais que faltam de 'desde' até meses-adiante à frente do mês corrente
+    private void garantirParticoes(YearMonth desde) {
+        YearMonth ate = YearMonth.now().plusMonths(mesesAdiante);
+        for (YearMonth mes = desde; !mes.isAfter(ate); mes = mes.plusMonths(1)) {
+            String particao = "estoque_movimentacoes_" + mes.format(SUFIXO_PARTICAO);
+            Boolean existe = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, particao);
+            if (Boolean.TRUE.equals(existe)) continue;
+            String inicioMes = "'" + mes.atDay(1) + "'";
+            String fimMes = "'" + mes.plusMonths(1).atDay(1) + "'";
+            Boolean naDefault = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM estoque_movimentacoes_default WHERE data_registro >= " + inicioMes + " AND data_registro < " + fimMes + ")",
+                Boolean.class);
+            if (!Boolean.TRUE.equals(naDefault)) {
+                jdbcTemplate.execute("CREATE TABLE " + particao + " PARTITION OF estoque_movimentacoes FOR VALUES FROM (" + inicioMes + ") TO (" + fimMes + ")");
+                continue;
+            }
+            // O PostgreSQL não cria a partição enquanto a DEFAULT tiver linhas do intervalo: elas passam para uma
+            // tabela avulsa, que é anexada como partição do mês
+            jdbcTemplate.execute("CREATE TABLE " + particao + " (LIKE estoque_movimentacoes INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int movidas = jdbcTemplate.update(
+                "WITH movidas AS (DELETE FROM estoque_movimentacoes_default WHERE data_registro >= " + inicioMes + " AND data_registro < " + fimMes +
+                " RETURNING id, estoque_id, data_registro, quantidade_movimentada, tipo_registro) " +
+                "INSERT INTO " + particao + " (id, estoque_id, data_registro, quantidade_movimentada, tipo_registro) SELECT * FROM movidas");
+            jdbcTemplate.execute("ALTER TABLE estoque_movimentacoes ATTACH PARTITION " + particao + " FOR VALUES FROM (" + inicioMes + ") TO (" + fimMes + ")");
+            System.out.println("LOG: Partição " + particao + " criada com " + movidas + " lançamento(s) vindos da partição DEFAULT.");
+        }
+    }
+
+    // --- ESCRITA ---
+
+    public void registrar(Long produtoId, Estoque.TipoRegistro tipo, double quantidade) {
+        registrar(List.of(new Lancamento(produtoId, LocalDate.now(), quantidade, tipo)));
+    }
+
+    // Acrescenta os lançamentos e avança as datas de última entrada/saída, na transação de quem chamou
+    public void registrar(List<Lancamento> lancamentos) {
+        if (lancamentos.isEmpty()) return;
+        List<Object[]> linhas = new ArrayList<>(lancamentos.size());
+        List<Object[]> entradas = new ArrayList<>();
+        List<Object[]> saidas = new ArrayList<>();
+        for (Lancamento l : lancamentos) {
+            Date data = Date.valueOf(l.data());
+            linhas.add(new Object[] { data, l.quantidade(), l.tipo().name(), l.produtoId() });
+            (l.tipo() == Estoque.TipoRegistro.ENTRADA ? entradas : saidas).add(new Object[] { data, l.produtoId() });
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERIR, linhas);
+        jdbcTemplate.batchUpdate(SQL_ULTIMA_ENTRADA, entradas);
+        jdbcTemplate.batchUpdate(SQL_ULTIMA_SAIDA, saidas);
+    }
+
+    // --- LEITURA ---
+
+    // Lançamentos do mais recente para o mais antigo, por keyset (data_registro, id): cada página é uma varredura
+    // curta do índice, e o limite superior de data deixa o PostgreSQL ignorar as partições mais novas que o cursor
+    public PaginaKeysetDTO<MovimentacaoEstoqueDTO> listar(Long estoqueId, int tamanho, String cursor) {
+        int limite = Math.max(1, Math.min(tamanho, TAMANHO_MAXIMO_PAGINA));
+        String sql = "SELECT id, data_registro, quantidade_movimentada, tipo_registro FROM estoque_movimentacoes WHERE estoque_id = ? ";
+        List<Object> parametros = new ArrayList<>(List.of(estoqueId));
+        if (cursor != null && !cursor.isBlank()) {
+            LocalDate ultimaData;
+            Long ultimoId;
+            try {
+                String conteudo = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separador = conteudo.indexOf('|');
+                ultimaData = LocalDate.parse(conteudo.substring(0, separador));
+                ultimoId = Long.valueOf(conteudo.substring(separador + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de paginação inválido.");
+            }
+            sql += "AND data_registro <= ? AND (data_registro, id) < (?, ?) ";
+            parametros.addAll(List.of(Date.valueOf(ultimaData), Date.valueOf(ultimaData), ultimoId));
+        }
+        sql += "ORDER BY data_registro DESC, id DESC LIMIT ?";
+        parametros.add(limite + 1);
+
+        List<MovimentacaoEstoqueDTO> itens = jdbcTemplate.query(sql,
+            (rs, i) -> new MovimentacaoEstoqueDTO(rs.getLong(1), rs.getDate(2).toLocalDate(), rs.getDouble(3),
+                Estoque.TipoRegistro.valueOf(rs.getString(4))),
+            parametros.toArray());
+        String proximoCursor = null;
+        if (itens.size() > limite) {
+            itens = new ArrayList<>(itens.subList(0, limite));
+            MovimentacaoEstoqueDTO ultimo = itens.get(limite - 1);
+            proximoCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((ultimo.data() + "|" + ultimo.id()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new PaginaKeysetDTO<>(itens, proximoCursor);
+    }
+}
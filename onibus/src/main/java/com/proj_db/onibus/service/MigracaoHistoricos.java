@@ -0,0 +1,82 @@
+package com.proj_db.onibus.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Migra os históricos de datas (envio/retorno de manutenção, revisão e reforma) das antigas tabelas de
+ * @ElementCollection para as colunas date[] das próprias entidades. Roda na criação do bean, antes de o servidor
+ * aceitar requisições e antes do BackfillVencimentos, que já lê as colunas novas.
+ * Só preenche linhas com a coluna nula, então nas subidas seguintes é um no-op. As tabelas antigas são apagadas
+ * na mesma transação da cópia: sem mapeamento, a chave estrangeira delas impediria excluir motores, câmbios,
+ * pneus e ônibus que tinham histórico.
+ */
+@Service
+public class MigracaoHistoricos {
+
+    private record Historico(String tabela, String coluna, String tabelaAntiga, String chave, String colunaAntiga) {}
+
+    private static final List<Historico> HISTORICOS = List.of(
+        new Historico("motores", "historico_envio_manutencao", "motor_historico_envio_manutencao", "motor_id", "historico_envio_manutencao"),
+        new Historico("motores", "historico_envio_revisao", "motor_historico_envio_revisao", "motor_id", "historico_envio_revisao"),
+        new Historico("motores", "historico_retorno_manutencao", "motor_historico_retorno_manutencao", "motor_id", "historico_retorno_manutencao"),
+        new Historico("motores", "historico_retorno_revisao", "motor_historico_retorno_revisao", "motor_id", "historico_retorno_revisao"),
+
+        new Historico("cambios", "historico_envio_manutencao", "cambio_historico_envio_manutencao", "cambio_id", "data_envio"),
+        new Historico("cambios", "historico_envio_revisao", "cambio_historico_envio_revisao", "cambio_id", "data_envio"),
+        new Historico("cambios", "historico_retorno_manutencao", "cambio_historico_retorno_manutencao", "cambio_id", "data_retorno"),
+        new Historico("cambios", "historico_retorno_revisao", "cambio_historico_retorno_revisao", "cambio_id", "data_retorno"),
+
+        new Historico("pneus", "historico_envio_manutencao", "pneu_historico_envio_manutencao", "pneu_id", "historico_envio_manutencao"),
+        new Historico("pneus", "historico_envio_reforma", "pneu_historico_envio_reforma", "pneu_id", "historico_envio_reforma"),
+        new Historico("pneus", "historico_retorno_manutencao", "pneu_historico_retorno_manutencao", "pneu_id", "historico_retorno_manutencao"),
+        new Historico("pneus", "historico_retorno_reforma", "pneu_historico_retorno_reforma", "pneu_id", "historico_retorno_reforma"),
+
+        new Historico("onibus", "historico_envio_manutencao", "onibus_historico_envio_manutencao", "onibus_id", "historico_envio_manutencao"),
+        new Historico("onibus", "historico_envio_reforma", "onibus_historico_envio_reforma", "onibus_id", "historico_envio_reforma"),
+        new Historico("onibus", "historico_retorno_manutencao", "onibus_historico_retorno_manutencao", "onibus_id", "historico_retorno_manutencao"),
+        new Historico("onibus", "historico_retorno_reforma", "onibus_historico_retorno_reforma", "onibus_id", "historico_retorno_reforma")
+    );
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory; // Garante que o ddl-auto já criou as colunas novas
+
+    private final TransactionTemplate transacao;
+
+    public MigracaoHistoricos(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrar() {
+        int migradas = transacao.execute(status -> {
+            int total = 0;
+            for (Historico h : HISTORICOS) {
+                Boolean existe = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, h.tabelaAntiga());
+                if (Boolean.TRUE.equals(existe)) {
+                    // Os bags não tinham coluna de ordem: a ordem cronológica é a das próprias datas
+                    total += jdbcTemplate.update(
+                        "UPDATE " + h.tabela() + " t SET " + h.coluna() + " = a.datas FROM (" +
+                        "SELECT " + h.chave() + " AS id, array_agg(" + h.colunaAntiga() + " ORDER BY " + h.colunaAntiga() + ") AS datas " +
+                        "FROM " + h.tabelaAntiga() + " WHERE " + h.colunaAntiga() + " IS NOT NULL GROUP BY " + h.chave() + ") a " +
+                        "WHERE t.id = a.id AND t." + h.coluna() + " IS NULL");
+                    jdbcTemplate.execute("DROP TABLE " + h.tabelaAntiga());
+                }
+                // Registros sem histórico ficam com o array vazio, como os criados pela aplicação
+                jdbcTemplate.update("UPDATE " + h.tabela() + " SET " + h.coluna() + " = '{}' WHERE " + h.coluna() + " IS NULL");
+            }
+            return total;
+        });
+        if (migradas > 0) {
+            System.out.println("LOG: Migração de históricos para colunas date[] concluída: " + migradas + " registros.");
+        }
+    }
+}
@@ -9,10 +9,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.proj_db.onibus.dto.MotorCreateDTO;
+import com.proj_db.onibus.dto.MotorResponseDTO;
 import com.proj_db.onibus.dto.MotorUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaResultadoDTO;
 import com.proj_db.onibus.model.Motor;
 import com.proj_db.onibus.model.OrdemServico;
-import com.proj_db.onibus.model.OrdemServico.StatusOrdemServico;
 import com.proj_db.onibus.model.OrdemServico.TipoOrdemServico;
 import com.proj_db.onibus.repository.EstoqueRepository;
 import com.proj_db.onibus.repository.MotorRepository;
@@ -24,9 +27,13 @@ import com.proj_db.onibus.repository.ProdutoRepository;
 public class MotorImpl implements MotorService {
 
     @Autowired private MotorRepository motorRepository;
+    @Autowired private BuscaPaginada buscaPaginada;
     @Autowired private OrdemServicoRepository osRepository;
     @Autowired private ProdutoRepository produtoRepository;
     @Autowired private EstoqueRepository estoqueRepository;
+    @Autowired private EstoqueService estoqueService;
+    @Autowired private GeradorNumeroOS geradorNumeroOS;
+    @Autowired private IndiceOsAtiva indiceOsAtiva;
 
     @Override
     public Motor save(MotorCreateDTO motorDetails) {
@@ -103,8 +110,8 @@ public class MotorImpl implements MotorService {
     public Optional<Motor> findByNumeroSerie(String numeroSerie) { return motorRepository.findByNumeroSerie(numeroSerie); }
 
     @Override @Transactional(readOnly = true)
-    public List<Motor> search(MotorSearchDTO criteria) {
-        return motorRepository.findAll(MotorSpecification.searchByCriteria(criteria));
+    public PaginaBuscaDTO<MotorResponseDTO> search(MotorSearchDTO criteria, ParametrosPaginaDTO pagina) {
+        return buscaPaginada.buscar(Motor.class, criteria, MotorSpecification.searchByCriteria(criteria), motorRepository, pagina, MotorResponseDTO::new);
     }
 
     // --- Lógica de Negócio ---
@@ -147,10 +154,7 @@ public class MotorImpl implements MotorService {
 
         // 1. Cria uma OS Corretiva específica para o descarte
         
-        String prefix = "OS-CORR-DESC-";
-        int prefixLength = prefix.length() + 1;
-        Integer maxNum = osRepository.findMaxNumeroByPrefix(prefix + "%", prefixLength);
-        String numeroOS = String.format("%s%06d", prefix, maxNum + 1);
+        String numeroOS = geradorNumeroOS.proximoNumero("OS-CORR-DESC-", 6);
 
         String desc = "Ordem de Serviço para esgotamento de fluido e preparação para descarte do Motor " + motor.getModelo();
         LocalDate hoje = LocalDate.now();
@@ -159,23 +163,32 @@ public class MotorImpl implements MotorService {
         os.setMotor(motor); // Define o alvo
 
         // 2. Salva a OS no banco. O processo está formalmente iniciado.
-        return osRepository.save(os);
+        return indiceOsAtiva.registrar(osRepository.save(os));
         // O próximo passo seria o usuário "iniciar", "finalizar" esta OS,
         // o que chamaria outros métodos de serviço para esgotar o fluido e, finalmente, descartar o Motor.
     }
 
     // --- Geração Automática de OS Preventiva ---
     @Override
-    public void verificarEGerarOsPreventivas() {
-        List<Motor> todosOsMotoresAtivos = motorRepository.findAll();
-        for (Motor motor : todosOsMotoresAtivos) {
-            gerarOsPreventivaSeNecessario(motor);
+    public VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas() {
+        return verificarEGerarOsPreventivas(0L, Long.MAX_VALUE);
+    }
+
+    @Override
+    public VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas(Long idInicial, Long idFinal) {
+        long inicio = System.currentTimeMillis();
+        // Pré-filtra no banco pelos vencimentos materializados; a regra completa é reaplicada em cada motor
+        List<Motor> motores = motorRepository.findVencendoNaFaixa(idInicial, idFinal, LocalDate.now().plusDays(30));
+        long criadas = 0;
+        for (Motor motor : motores) {
+            if (gerarOsPreventivaSeNecessario(motor)) criadas++;
         }
+        return new VarreduraPreventivaResultadoDTO("Motor", motores.size(), criadas, System.currentTimeMillis() - inicio);
     }
 
-    private void gerarOsPreventivaSeNecessario(Motor motor) {
-        if (osRepository.existsByMotorAndStatusIn(motor, List.of(StatusOrdemServico.ABERTA, StatusOrdemServico.EM_EXECUCAO))) {
-            return; // Já existe OS ativa
+    private boolean gerarOsPreventivaSeNecessario(Motor motor) {
+        if (indiceOsAtiva.possuiOsAtiva(IndiceOsAtiva.TipoAlvo.MOTOR, motor.getId())) {
+            return false; // Já existe OS ativa
         }
 
         LocalDate ultimaTrocaOleo = motor.getDataUltimaTrocaOleo();
@@ -183,19 +196,19 @@ public class MotorImpl implements MotorService {
 
         if (motor.revisaoPrestesVencer()) {
             criarOsPreventiva(motor, "Revisão Preventiva (30 dias) para Motor " + motor.getModelo(), "REVISAO", !trocaRecente);
-            return;
+            return true;
         }
 
         if (motor.manutencaoPrestesVencer()) {
-            if (trocaRecente) return;
+            if (trocaRecente) return false;
             criarOsPreventiva(motor, "Manutenção Preventiva (30 dias) para Motor " + motor.getModelo(), "MANUTENCAO", true);
+            return true;
         }
+        return false;
     }
 
     private void criarOsPreventiva(Motor motor, String desc, String tipoServico, boolean incluirItemOleo) {
-        String prefix = "OS-PREV-";
-        Integer maxNum = osRepository.findMaxNumeroByPrefix(prefix + "%", prefix.length() + 1);
-        String numeroOS = String.format("%s%03d", prefix, maxNum + 1);
+        String numeroOS = geradorNumeroOS.proximoNumero("OS-PREV-", 3);
 
         LocalDate dataPrevisaoInicio = "REVISAO".equals(tipoServico) ? 
             LocalDate.now().plusDays(motor.getDiasRestantesRevisao()) : 
@@ -210,11 +223,13 @@ public class MotorImpl implements MotorService {
                 Double quantidade = "REVISAO".equals(tipoServico) ? motor.getCapacidadeOleo() : (motor.getCapacidadeOleo() - motor.getQuantidadeOleo());
                 if (quantidade > 0) {
                     os.adicionarItem(oleo, quantidade, "Troca/complemento de óleo para serviço preventivo.");
-                    estoqueRepository.findByProduto(oleo).ifPresent(estoque -> estoque.reservarEstoque(quantidade));
+                    if (estoqueRepository.existsByProdutoId(oleo.getId())) {
+                        estoqueService.reservar(oleo.getId(), quantidade);
+                    }
                 }
             });
         }
-        osRepository.save(os);
+        indiceOsAtiva.registrar(osRepository.save(os));
         System.out.println("LOG: OS Preventiva " + numeroOS + " criada para motor " + motor.getId());
     }
 
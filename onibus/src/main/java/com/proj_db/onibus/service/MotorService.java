@@ -4,7 +4,11 @@ import java.util.List;
 import java.util.Optional;
 
 import com.proj_db.onibus.dto.MotorCreateDTO;
+import com.proj_db.onibus.dto.MotorResponseDTO;
 import com.proj_db.onibus.dto.MotorUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaResultadoDTO;
 import com.proj_db.onibus.model.Motor;
 
 public interface MotorService {
@@ -18,7 +22,7 @@ public interface MotorService {
 
     // --- Buscas Específicas ---
     Optional<Motor> findByNumeroSerie(String numeroSerie);
-    List<Motor> search(MotorSearchDTO criteria);
+    PaginaBuscaDTO<MotorResponseDTO> search(MotorSearchDTO criteria, ParametrosPaginaDTO pagina);
 
     // --- Lógica de Negócio (Ciclo de Vida) ---
     Motor enviarParaManutencao(Long motorId);
@@ -27,7 +31,8 @@ public interface MotorService {
     Motor retornarDaRevisao(Long motorId);
 
     // --- Lógica de OS Preventiva ---
-    void verificarEGerarOsPreventivas();
+    VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas();
+    VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas(Long idInicial, Long idFinal); // Apenas a faixa de IDs informada
 
     // --- Métodos de Relatório ---
     List<Object[]> countByTipo();
@@ -1,15 +1,35 @@
 package com.proj_db.onibus.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate; // Importa todos os modelos
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 import org.springframework.beans.factory.annotation.Autowired; // Importa todos os repositórios
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.proj_db.onibus.dto.OnibusCreateDTO;
+import com.proj_db.onibus.dto.OnibusListaItemDTO;
+import com.proj_db.onibus.dto.OnibusResponseDTO;
 import com.proj_db.onibus.dto.OnibusUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.PaginaKeysetDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.dto.RegistroViagemDTO;
+import com.proj_db.onibus.dto.RegistroViagensLoteResultadoDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaResultadoDTO;
 import com.proj_db.onibus.model.Cambio;
 import com.proj_db.onibus.model.Motor;
 import com.proj_db.onibus.model.Onibus;
@@ -22,16 +42,51 @@ import com.proj_db.onibus.repository.MotorRepository;
 import com.proj_db.onibus.repository.OnibusRepository;
 import com.proj_db.onibus.repository.OrdemServicoRepository;
 import com.proj_db.onibus.repository.PneuRepository;
+import com.proj_db.onibus.repository.SessaoOperacionalRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 
 @Service
 @Transactional
 public class OnibusImpl implements OnibusService {
 
     @Autowired private OnibusRepository onibusRepository;
+    @Autowired private BuscaPaginada buscaPaginada;
     @Autowired private MotorRepository motorRepository;
     @Autowired private CambioRepository cambioRepository;
     @Autowired private PneuRepository pneuRepository;
     @Autowired private OrdemServicoRepository osRepository;
+    @Autowired private SessaoOperacionalRepository sessaoOperacionalRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private GeradorNumeroOS geradorNumeroOS;
+    @Autowired private IndiceOsAtiva indiceOsAtiva;
+    @Autowired private CacheBuscas cacheBuscas;
+    @Autowired private ContadoresDashboard contadoresDashboard;
+    @Autowired private AcumuladorQuilometragem acumuladorQuilometragem;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @PersistenceContext private EntityManager entityManager;
+
+    private static final int TAMANHO_MAXIMO_PAGINA = 500;
+
+    // Quantidade de ônibus lidos por página na varredura preventiva
+    @Value("${onibus.preventiva.tamanho-lote:500}")
+    private int tamanhoLotePreventiva;
+
+    private static final String SQL_INSERIR_OS_PREVENTIVA =
+        "INSERT INTO ordens_servico (numero_os, tipo, status, descricao, data_abertura, data_previsao_inicio, data_previsao_conclusao, onibus_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // A condição de status repete a regra de Onibus.registrarViagem e protege contra mudança concorrente de status
+    private static final String SQL_SOMAR_KM_ONIBUS =
+        "UPDATE onibus SET quilometragem = quilometragem + ? WHERE id = ? AND status = 'EM_OPERACAO'";
+    private static final String SQL_SOMAR_KM_PNEUS =
+        "UPDATE pneus SET km_rodados = km_rodados + ? WHERE onibus_id = ?";
 
     // --- CRUD Básico ---
 
@@ -90,6 +145,7 @@ public class OnibusImpl implements OnibusService {
         if (onibus.getStatus() == Onibus.StatusOnibus.EM_OPERACAO) {
             throw new IllegalStateException("Não é possível excluir um ônibus que está em operação.");
         }
+        sessaoOperacionalRepository.deleteByOnibusId(id);
         onibusRepository.delete(onibus);
     }
 
@@ -115,8 +171,100 @@ public class OnibusImpl implements OnibusService {
     
     @Override
     @Transactional(readOnly = true)
-    public List<Onibus> search(OnibusSearchDTO criteria) {
-        return onibusRepository.findAll(OnibusSpecification.searchByCriteria(criteria));
+    public PaginaBuscaDTO<OnibusResponseDTO> search(OnibusSearchDTO criteria, ParametrosPaginaDTO pagina) {
+        return buscaPaginada.buscar(Onibus.class, criteria, OnibusSpecification.searchByCriteria(criteria), onibusRepository, pagina, OnibusResponseDTO::new);
+    }
+
+    // --- Listagem Paginada (keyset) ---
+
+    @Override @Transactional(readOnly = true)
+    public PaginaKeysetDTO<OnibusListaItemDTO> listarPagina(OrdenacaoOnibus ordenarPor, boolean crescente, int tamanho, String cursor) {
+        int limite = Math.max(1, Math.min(tamanho, TAMANHO_MAXIMO_PAGINA));
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OnibusListaItemDTO> query = cb.createQuery(OnibusListaItemDTO.class);
+        Root<Onibus> root = query.from(Onibus.class);
+
+        // Só as colunas da linha: nenhuma entidade é materializada
+        query.select(cb.construct(OnibusListaItemDTO.class,
+            root.get("id"), root.get("placa"), root.get("numeroFrota"), root.get("modelo"), root.get("status"),
+            root.get("quilometragem"), root.get("dataProximaManutencao"), root.get("dataProximaReforma")));
+
+        Path<Long> id = root.get("id");
+        Path<Object> coluna = root.get(ordenarPor.getAtributo());
+        if (cursor != null && !cursor.isBlank()) {
+            query.where(predicadoAposCursor(cb, coluna, id, ordenarPor, crescente, cursor));
+        }
+        if (ordenarPor == OrdenacaoOnibus.ID) {
+            query.orderBy(crescente ? cb.asc(id) : cb.desc(id));
+        } else {
+            query.orderBy(crescente ? cb.asc(coluna) : cb.desc(coluna), crescente ? cb.asc(id) : cb.desc(id));
+        }
+
+        // Busca uma linha a mais só para saber se existe próxima página
+        List<OnibusListaItemDTO> itens = entityManager.createQuery(query).setMaxResults(limite + 1).getResultList();
+        String proximoCursor = null;
+        if (itens.size() > limite) {
+            itens = new ArrayList<>(itens.subList(0, limite));
+            proximoCursor = codificarCursor(ordenarPor, itens.get(limite - 1));
+        }
+        return new PaginaKeysetDTO<>(itens, proximoCursor);
+    }
+
+    // Linhas estritamente depois de (valor, id) na ordem pedida. No PostgreSQL nulos ficam no fim em ASC e no início em DESC.
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Predicate predicadoAposCursor(CriteriaBuilder cb, Path<Object> coluna, Path<Long> id,
+                                          OrdenacaoOnibus ordenarPor, boolean crescente, String cursor) {
+        String conteudo;
+        Long ultimoId;
+        try {
+            conteudo = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            ultimoId = Long.valueOf(conteudo.substring(conteudo.lastIndexOf('|') + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido.");
+        }
+        Predicate aposId = crescente ? cb.greaterThan(id, ultimoId) : cb.lessThan(id, ultimoId);
+        if (ordenarPor == OrdenacaoOnibus.ID) return aposId;
+
+        Comparable valor = decodificarValor(ordenarPor, conteudo.substring(0, conteudo.lastIndexOf('|')));
+        Path<Comparable> colunaComparavel = (Path) coluna;
+        if (valor == null) {
+            return crescente
+                ? cb.and(cb.isNull(coluna), aposId)
+                : cb.or(cb.isNotNull(coluna), cb.and(cb.isNull(coluna), aposId));
+        }
+        Predicate depois = crescente ? cb.greaterThan(colunaComparavel, valor) : cb.lessThan(colunaComparavel, valor);
+        Predicate empate = cb.and(cb.equal(coluna, valor), aposId);
+        if (crescente && ordenarPor.isAnulavel()) {
+            return cb.or(depois, empate, cb.isNull(coluna));
+        }
+        return cb.or(depois, empate);
+    }
+
+    private Comparable<?> decodificarValor(OrdenacaoOnibus ordenarPor, String valor) {
+        if (ordenarPor.isAnulavel() && valor.isEmpty()) return null;
+        try {
+            return switch (ordenarPor) {
+                case QUILOMETRAGEM -> Double.valueOf(valor);
+                case PROXIMA_MANUTENCAO, PROXIMA_REFORMA -> LocalDate.parse(valor);
+                default -> valor;
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido.");
+        }
+    }
+
+    private String codificarCursor(OrdenacaoOnibus ordenarPor, OnibusListaItemDTO ultimo) {
+        Object valor = switch (ordenarPor) {
+            case ID -> "";
+            case PLACA -> ultimo.placa();
+            case NUMERO_FROTA -> ultimo.numeroFrota();
+            case MODELO -> ultimo.modelo();
+            case QUILOMETRAGEM -> ultimo.quilometragem();
+            case PROXIMA_MANUTENCAO -> ultimo.dataProximaManutencao();
+            case PROXIMA_REFORMA -> ultimo.dataProximaReforma();
+        };
+        String conteudo = (valor == null ? "" : valor.toString()) + "|" + ultimo.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(conteudo.getBytes(StandardCharsets.UTF_8));
     }
 
     // --- Lógica de Negócio (Ciclo de Vida) ---
@@ -186,6 +334,77 @@ public class OnibusImpl implements OnibusService {
         return onibusRepository.save(onibus);
     }
 
+    /*
+     * Lançamento de viagens em lote: valida os status com uma única consulta e aplica os incrementos de km
+     * do ônibus e dos pneus com dois UPDATEs em batch via JDBC, sem carregar o grafo das entidades.
+     * Várias viagens do mesmo ônibus no lote são somadas em um único incremento.
+     */
+    @Override
+    public RegistroViagensLoteResultadoDTO registrarViagens(List<RegistroViagemDTO> viagens) {
+        long inicio = System.currentTimeMillis();
+        String[] erros = new String[viagens.size()];
+
+        List<Long> ids = viagens.stream().map(RegistroViagemDTO::onibusId).filter(id -> id != null).distinct().toList();
+        Map<Long, Onibus.StatusOnibus> statusPorOnibus = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Object[] linha : onibusRepository.findStatusByIdIn(ids)) {
+                statusPorOnibus.put((Long) linha[0], (Onibus.StatusOnibus) linha[1]);
+            }
+        }
+
+        // Ordenado por ID para que lotes concorrentes travem as linhas sempre na mesma ordem
+        Map<Long, Double> kmPorOnibus = new TreeMap<>();
+        Map<Long, List<Integer>> linhasPorOnibus = new HashMap<>();
+        for (int i = 0; i < viagens.size(); i++) {
+            RegistroViagemDTO viagem = viagens.get(i);
+            if (viagem.onibusId() == null || viagem.kmPercorridos() == null) {
+                erros[i] = "ID do ônibus e quilometragem são obrigatórios.";
+            } else if (viagem.kmPercorridos() < 0) {
+                erros[i] = "Quilometragem não pode ser negativa.";
+            } else if (!statusPorOnibus.containsKey(viagem.onibusId())) {
+                erros[i] = "Ônibus não encontrado";
+            } else if (statusPorOnibus.get(viagem.onibusId()) != Onibus.StatusOnibus.EM_OPERACAO) {
+                erros[i] = "Ônibus precisa estar EM_OPERACAO para registrar uma viagem.";
+            } else {
+                kmPorOnibus.merge(viagem.onibusId(), viagem.kmPercorridos(), Double::sum);
+                linhasPorOnibus.computeIfAbsent(viagem.onibusId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+
+        if (!kmPorOnibus.isEmpty()) {
+            List<Object[]> incrementos = kmPorOnibus.entrySet().stream()
+                .map(e -> new Object[] { e.getValue(), e.getKey() })
+                .toList();
+            int[] atualizados = jdbcTemplate.batchUpdate(SQL_SOMAR_KM_ONIBUS, incrementos);
+
+            // Só incrementa os pneus dos ônibus que de fato foram atualizados (status pode ter mudado após a consulta)
+            List<Object[]> incrementosPneus = new ArrayList<>();
+            for (int i = 0; i < atualizados.length; i++) {
+                if (atualizados[i] > 0) {
+                    incrementosPneus.add(incrementos.get(i));
+                } else {
+                    for (int linha : linhasPorOnibus.get((Long) incrementos.get(i)[1])) {
+                        erros[linha] = "Ônibus precisa estar EM_OPERACAO para registrar uma viagem.";
+                    }
+                }
+            }
+            if (!incrementosPneus.isEmpty()) {
+                jdbcTemplate.batchUpdate(SQL_SOMAR_KM_PNEUS, incrementosPneus);
+            }
+            cacheBuscas.invalidar(Onibus.class, Pneu.class);
+        }
+
+        List<RegistroViagensLoteResultadoDTO.Linha> linhas = new ArrayList<>(viagens.size());
+        int registradas = 0;
+        for (int i = 0; i < viagens.size(); i++) {
+            boolean ok = erros[i] == null;
+            if (ok) registradas++;
+            linhas.add(new RegistroViagensLoteResultadoDTO.Linha(i, viagens.get(i).onibusId(), ok, erros[i]));
+        }
+        return new RegistroViagensLoteResultadoDTO(
+            viagens.size(), registradas, viagens.size() - registradas, System.currentTimeMillis() - inicio, linhas);
+    }
+
     // --- Gerenciamento de Componentes ---
 
     @Override
@@ -218,19 +437,27 @@ public class OnibusImpl implements OnibusService {
         return onibusRepository.save(onibus);
     }
 
+    // Troca de pneu fora da transação da classe: a transação é aberta dentro de comPneusFixos, que aplica antes a
+    // km pendente do write-behind nos pneus atuais e só libera novos registros de viagem depois do commit
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Onibus instalarPneu(Long onibusId, Long pneuId, Pneu.PosicaoPneu posicao) {
-        Onibus onibus = findById(onibusId).orElseThrow(() -> new RuntimeException("Ônibus não encontrado"));
-        Pneu pneu = pneuRepository.findById(pneuId).orElseThrow(() -> new RuntimeException("Pneu não encontrado"));
-        onibus.instalarPneu(pneu, posicao);
-        return onibusRepository.save(onibus);
+        return acumuladorQuilometragem.comPneusFixos(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            Onibus onibus = findById(onibusId).orElseThrow(() -> new RuntimeException("Ônibus não encontrado"));
+            Pneu pneu = pneuRepository.findById(pneuId).orElseThrow(() -> new RuntimeException("Pneu não encontrado"));
+            onibus.instalarPneu(pneu, posicao);
+            return onibusRepository.save(onibus);
+        }));
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Onibus removerPneu(Long onibusId, Pneu.PosicaoPneu posicao) {
-        Onibus onibus = findById(onibusId).orElseThrow(() -> new RuntimeException("Ônibus não encontrado"));
-        onibus.removerPneu(posicao);
-        return onibusRepository.save(onibus);
+        return acumuladorQuilometragem.comPneusFixos(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            Onibus onibus = findById(onibusId).orElseThrow(() -> new RuntimeException("Ônibus não encontrado"));
+            onibus.removerPneu(posicao);
+            return onibusRepository.save(onibus);
+        }));
     }
 
     public OrdemServico aposentarOnibusViaOS(Long onibusId) {
@@ -246,10 +473,7 @@ public class OnibusImpl implements OnibusService {
         }
 
         // 1. Gera um número único para a OS de aposentadoria
-        String prefix = "OS-APOSENT-";
-        int prefixLength = prefix.length() + 1;
-        Integer maxNum = osRepository.findMaxNumeroByPrefix(prefix + "%", prefixLength);
-        String numeroOS = String.format("%s%06d", prefix, maxNum + 1);
+        String numeroOS = geradorNumeroOS.proximoNumero("OS-APOSENT-", 6);
 
         String desc = "Ordem de Serviço para descomissionamento completo e preparação para aposentadoria do Ônibus " + onibus.getPlaca();
         LocalDate hoje = LocalDate.now();
@@ -259,32 +483,68 @@ public class OnibusImpl implements OnibusService {
         os.setOnibus(onibus); // Define o ônibus como o alvo da OS
 
         // 3. Salva a OS, formalizando o início do processo
-        return osRepository.save(os);
+        return indiceOsAtiva.registrar(osRepository.save(os));
     }
 
     // --- Lógica de OS Preventiva ---
-    
+
     @Override
-    public void verificarEGerarOsPreventivas() {
-        List<Onibus> onibusAtivos = onibusRepository.findAll(); 
-        for (Onibus onibus : onibusAtivos) {
-            // Verifica se o próprio ônibus precisa de reforma
-            if (onibus.reformaPrestesVencer()) {
-                if (!osRepository.existsByOnibusAndStatusIn(onibus, List.of(StatusOrdemServico.ABERTA, StatusOrdemServico.EM_EXECUCAO))) {
-                    String prefix = "OS-PREV-";
-                    Integer maxNum = osRepository.findMaxNumeroByPrefix(prefix + "%", prefix.length() + 1);
-                    String numeroOS = String.format("%s%03d", prefix, maxNum + 1);
-                    
-                    String desc = "Reforma Preventiva (30 dias) para Ônibus " + onibus.getPlaca();
-                    LocalDate dataPrevisaoInicio = LocalDate.now().plusDays(onibus.getDiasRestantesReforma());
-                    
-                    OrdemServico os = new OrdemServico(numeroOS, TipoOrdemServico.PREVENTIVA, desc, dataPrevisaoInicio, dataPrevisaoInicio.plusDays(30));
-                    os.setOnibus(onibus);
-                    osRepository.save(os);
-                    System.out.println("LOG: OS Preventiva " + numeroOS + " criada para o ônibus " + onibus.getId());
-                }
+    public VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas() {
+        return verificarEGerarOsPreventivas(0L, Long.MAX_VALUE);
+    }
+
+    /*
+     * Percorre a faixa de IDs em páginas por chave (id), filtrando no banco apenas os ônibus com reforma vencendo.
+     * A existência de OS ativa é verificada uma vez por página e as novas OS são gravadas em lote via JDBC.
+     */
+    @Override
+    public VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas(Long idInicial, Long idFinal) {
+        long inicio = System.currentTimeMillis();
+        LocalDate hoje = LocalDate.now();
+        // reformaPrestesVencer() <=> proximaReforma <= hoje + DIAS_ALERTA_PREVENTIVA
+        LocalDate dataLimite = hoje.plusDays(Onibus.DIAS_ALERTA_PREVENTIVA);
+
+        long verificados = 0;
+        long criadas = 0;
+        Long ultimoId = idInicial - 1;
+        List<Object[]> lote;
+        do {
+            lote = onibusRepository.findCandidatosReformaPreventiva(ultimoId, idFinal, dataLimite, PageRequest.of(0, tamanhoLotePreventiva));
+            if (lote.isEmpty()) break;
+            verificados += lote.size();
+            ultimoId = (Long) lote.get(lote.size() - 1)[0];
+
+            List<Object[]> novasOs = new ArrayList<>();
+            List<Long> onibusComNovaOs = new ArrayList<>();
+            for (Object[] linha : lote) {
+                Long onibusId = (Long) linha[0];
+                if (indiceOsAtiva.possuiOsAtiva(IndiceOsAtiva.TipoAlvo.ONIBUS, onibusId)) continue;
+
+                String numeroOS = geradorNumeroOS.proximoNumero("OS-PREV-", 3);
+                String desc = "Reforma Preventiva (30 dias) para Ônibus " + linha[1];
+                LocalDate dataPrevisaoInicio = (LocalDate) linha[2];
+
+                novasOs.add(new Object[] {
+                    numeroOS, TipoOrdemServico.PREVENTIVA.name(), StatusOrdemServico.ABERTA.name(), desc,
+                    hoje, dataPrevisaoInicio, dataPrevisaoInicio.plusDays(30), onibusId
+                });
+                onibusComNovaOs.add(onibusId);
             }
-        }
+            if (!novasOs.isEmpty()) {
+                jdbcTemplate.batchUpdate(SQL_INSERIR_OS_PREVENTIVA, novasOs);
+                // O INSERT direto não passa pelos listeners do Hibernate: os contadores do dashboard entram à mão
+                contadoresDashboard.somar(OrdemServico.class, "status", StatusOrdemServico.ABERTA, novasOs.size());
+                contadoresDashboard.somar(OrdemServico.class, "tipo", TipoOrdemServico.PREVENTIVA, novasOs.size());
+                cacheBuscas.invalidar(OrdemServico.class);
+                indiceOsAtiva.registrarAbertura(IndiceOsAtiva.TipoAlvo.ONIBUS, onibusComNovaOs);
+                criadas += novasOs.size();
+            }
+        } while (lote.size() == tamanhoLotePreventiva);
+
+        VarreduraPreventivaResultadoDTO resultado = new VarreduraPreventivaResultadoDTO(
+            "Onibus", verificados, criadas, System.currentTimeMillis() - inicio);
+        System.out.println("LOG: Varredura preventiva de ônibus [" + idInicial + ", " + idFinal + "] concluída: " + resultado);
+        return resultado;
     }
 
     // --- Métodos de Relatório ---
@@ -4,7 +4,15 @@ import java.util.List;
 import java.util.Optional;
 
 import com.proj_db.onibus.dto.OnibusCreateDTO;
+import com.proj_db.onibus.dto.OnibusListaItemDTO;
+import com.proj_db.onibus.dto.OnibusResponseDTO;
 import com.proj_db.onibus.dto.OnibusUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.PaginaKeysetDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.dto.RegistroViagemDTO;
+import com.proj_db.onibus.dto.RegistroViagensLoteResultadoDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaResultadoDTO;
 import com.proj_db.onibus.model.Onibus;
 import com.proj_db.onibus.model.Pneu;
 
@@ -19,7 +27,8 @@ public interface OnibusService {
 
     // --- Buscas Específicas ---
     Optional<Onibus> findByChassi(String chassi);
-    List<Onibus> search(OnibusSearchDTO criteria);
+    PaginaBuscaDTO<OnibusResponseDTO> search(OnibusSearchDTO criteria, ParametrosPaginaDTO pagina);
+    PaginaKeysetDTO<OnibusListaItemDTO> listarPagina(OrdenacaoOnibus ordenarPor, boolean crescente, int tamanho, String cursor);
 
     // --- Lógica de Negócio (Ciclo de Vida do Ônibus) ---
     Onibus colocarEmOperacao(Long onibusId);
@@ -33,6 +42,7 @@ public interface OnibusService {
 
     // --- Lógica de Operação ---
     Onibus registrarViagem(Long onibusId, Double kmPercorridos);
+    RegistroViagensLoteResultadoDTO registrarViagens(List<RegistroViagemDTO> viagens);
 
     // --- Gerenciamento de Componentes ---
     Onibus instalarMotor(Long onibusId, Long motorId);
@@ -43,12 +53,35 @@ public interface OnibusService {
     Onibus removerPneu(Long onibusId, Pneu.PosicaoPneu posicao);
 
     // --- Lógica de OS Preventiva ---
-    void verificarEGerarOsPreventivas();
+    VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas();
+    VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas(Long idInicial, Long idFinal); // Apenas a faixa de IDs informada
 
     // --- Métodos de Relatório ---
     List<Object[]> countByStatus();
     List<Object[]> countByMarca();
     
+    // Colunas aceitas na listagem paginada (o ID sempre desempata)
+    enum OrdenacaoOnibus {
+        ID("id", false),
+        PLACA("placa", false),
+        NUMERO_FROTA("numeroFrota", false),
+        MODELO("modelo", false),
+        QUILOMETRAGEM("quilometragem", false),
+        PROXIMA_MANUTENCAO("dataProximaManutencao", true),
+        PROXIMA_REFORMA("dataProximaReforma", true);
+
+        private final String atributo;
+        private final boolean anulavel;
+
+        OrdenacaoOnibus(String atributo, boolean anulavel) {
+            this.atributo = atributo;
+            this.anulavel = anulavel;
+        }
+
+        public String getAtributo() { return atributo; }
+        public boolean isAnulavel() { return anulavel; }
+    }
+
     // DTO (Data Transfer Object) para a busca
     record OnibusSearchDTO(
         String chassi,
@@ -3,14 +3,15 @@ package com.proj_db.onibus.service;
 import org.springframework.data.jpa.domain.Specification;
 
 import com.proj_db.onibus.model.Onibus;
+import com.proj_db.onibus.model.Pneu;
 
-import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 
 public class OnibusSpecification {
 
     public static Specification<Onibus> searchByCriteria(OnibusService.OnibusSearchDTO criteria) {
         return (root, query, builder) -> {
-            query.distinct(true); // Evita resultados duplicados por causa dos joins
             var predicate = builder.conjunction();
             
             if (criteria.chassi() != null) {
@@ -32,13 +33,17 @@ public class OnibusSpecification {
                 predicate = builder.and(predicate, builder.equal(root.get("status"), criteria.status()));
             }
             if (criteria.motorId() != null) {
-                predicate = builder.and(predicate, builder.equal(root.join("motor", JoinType.LEFT).get("id"), criteria.motorId()));
+                predicate = builder.and(predicate, builder.equal(root.get("motor").get("id"), criteria.motorId()));
             }
             if (criteria.cambioId() != null) {
-                predicate = builder.and(predicate, builder.equal(root.join("cambio", JoinType.LEFT).get("id"), criteria.cambioId()));
+                predicate = builder.and(predicate, builder.equal(root.get("cambio").get("id"), criteria.cambioId()));
             }
             if (criteria.pneuId() != null) {
-                predicate = builder.and(predicate, builder.equal(root.join("pneus", JoinType.LEFT).get("id"), criteria.pneuId()));
+                // EXISTS correlacionado em vez de join na coleção: não multiplica linhas, então dispensa o DISTINCT
+                Subquery<Long> pneu = query.subquery(Long.class);
+                Root<Pneu> p = pneu.from(Pneu.class);
+                pneu.select(p.get("id")).where(builder.equal(p.get("onibus"), root), builder.equal(p.get("id"), criteria.pneuId()));
+                predicate = builder.and(predicate, builder.exists(pneu));
             }
             
             return predicate;
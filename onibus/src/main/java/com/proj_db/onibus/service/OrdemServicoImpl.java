@@ -1,15 +1,20 @@
 package com.proj_db.onibus.service;
 
 import java.util.List; // Importa todos os modelos
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 import org.springframework.beans.factory.annotation.Autowired; // Importa todos os repositórios
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.proj_db.onibus.dto.OrdemServicoCreateDTO;
+import com.proj_db.onibus.dto.OrdemServicoResponseDTO;
 import com.proj_db.onibus.dto.OrdemServicoSearchDTO;
 import com.proj_db.onibus.dto.OrdemServicoUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.model.Cambio;
 import com.proj_db.onibus.model.ItemOrdemServico;
 import com.proj_db.onibus.model.Motor;
@@ -33,12 +38,16 @@ public class OrdemServicoImpl implements OrdemServicoService {
 
     // --- DEPENDÊNCIAS ---
     @Autowired private OrdemServicoRepository osRepository;
+    @Autowired private BuscaPaginada buscaPaginada;
     @Autowired private OnibusRepository onibusRepository;
     @Autowired private MotorRepository motorRepository;
     @Autowired private CambioRepository cambioRepository;
     @Autowired private PneuRepository pneuRepository;
     @Autowired private ProdutoRepository produtoRepository;
     @Autowired private EstoqueService estoqueService;
+    @Autowired private IndiceOsAtiva indiceOsAtiva;
+    @Autowired private ConsumoProdutos consumoProdutos;
+    @Autowired private CustosOnibus custosOnibus;
 
     // --- CRUD BÁSICO ---
 
@@ -63,7 +72,7 @@ public class OrdemServicoImpl implements OrdemServicoService {
             throw new IllegalArgumentException("Uma Ordem de Serviço deve ter pelo menos um alvo.");
         }
         
-        return osRepository.save(os);
+        return indiceOsAtiva.registrar(osRepository.save(os));
     }
 
     @Override
@@ -107,8 +116,8 @@ public class OrdemServicoImpl implements OrdemServicoService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrdemServico> search(OrdemServicoSearchDTO criteria) {
-        return osRepository.findAll(OrdemServicoSpecification.searchByCriteria(criteria));
+    public PaginaBuscaDTO<OrdemServicoResponseDTO> search(OrdemServicoSearchDTO criteria, ParametrosPaginaDTO pagina) {
+        return buscaPaginada.buscar(OrdemServico.class, criteria, OrdemServicoSpecification.searchByCriteria(criteria), osRepository, pagina, OrdemServicoResponseDTO::new);
     }
 
     // --- AÇÕES PRINCIPAIS DO FLUXO DE TRABALHO ---
@@ -117,13 +126,8 @@ public class OrdemServicoImpl implements OrdemServicoService {
     public OrdemServico startExecution(Long osId) {
         OrdemServico os = findById(osId).orElseThrow(() -> new EntityNotFoundException("OS não encontrada."));
         
-        // 1. Reserva todos os itens no estoque
-        for (ItemOrdemServico item : os.getItens()) {
-            boolean sucesso = estoqueService.reservar(item.getProduto().getId(), item.getQuantidade());
-            if (!sucesso) {
-                throw new IllegalStateException("Estoque insuficiente para o produto: " + item.getProduto().getNome());
-            }
-        }
+        // 1. Reserva todos os itens no estoque de uma vez (falha informando todos os produtos em falta)
+        estoqueService.reservarLote(quantidadesPorProduto(os));
 
         // 2. Muda o status do alvo principal (se aplicável) e do ônibus pai
         Object alvo = os.getAlvo();
@@ -142,7 +146,7 @@ public class OrdemServicoImpl implements OrdemServicoService {
         
         // 3. Muda o status da OS
         os.iniciarExecucao();
-        return osRepository.save(os);
+        return indiceOsAtiva.registrar(osRepository.save(os));
     }
 
     @Override
@@ -150,9 +154,7 @@ public class OrdemServicoImpl implements OrdemServicoService {
         OrdemServico os = findById(osId).orElseThrow(() -> new EntityNotFoundException("OS não encontrada."));
         
         // 1. Consome os itens que foram reservados
-        for (ItemOrdemServico item : os.getItens()) {
-            estoqueService.confirmarConsumoDeReserva(item.getProduto().getId(), item.getQuantidade());
-        }
+        estoqueService.confirmarConsumoLote(quantidadesPorProduto(os));
 
         // 2. Muda o status do alvo principal de volta para DISPONÍVEL
         Object alvo = os.getAlvo();
@@ -161,9 +163,11 @@ public class OrdemServicoImpl implements OrdemServicoService {
         if (alvo instanceof Pneu pneu) pneu.retornarDaManutencao();
         if (alvo instanceof Onibus onibus) onibus.retornarDaManutencao();
         
-        // 3. Muda o status da OS
+        // 3. Muda o status da OS e soma os itens no consumo diário dos produtos e no custo do ônibus
         os.finalizar();
-        return osRepository.save(os);
+        consumoProdutos.registrarConsumo(os.getItens(), os.getDataConclusao());
+        custosOnibus.registrarOsFinalizada(os);
+        return indiceOsAtiva.registrar(osRepository.save(os));
     }
 
     @Override
@@ -172,13 +176,19 @@ public class OrdemServicoImpl implements OrdemServicoService {
         
         // Libera os itens que foram reservados, apenas se a OS já estava em execução
         if (os.getStatus() == StatusOrdemServico.EM_EXECUCAO) {
-            for (ItemOrdemServico item : os.getItens()) {
-                estoqueService.liberarReserva(item.getProduto().getId(), item.getQuantidade());
-            }
+            estoqueService.liberarReservaLote(quantidadesPorProduto(os));
         }
         
         os.cancelar();
-        return osRepository.save(os);
+        return indiceOsAtiva.registrar(osRepository.save(os));
+    }
+
+    private Map<Long, Double> quantidadesPorProduto(OrdemServico os) {
+        Map<Long, Double> quantidades = new TreeMap<>();
+        for (ItemOrdemServico item : os.getItens()) {
+            quantidades.merge(item.getProduto().getId(), item.getQuantidade(), Double::sum);
+        }
+        return quantidades;
     }
 
     // --- GERENCIAMENTO DE ITENS ---
@@ -4,8 +4,11 @@ import java.util.List;
 import java.util.Optional;
 
 import com.proj_db.onibus.dto.OrdemServicoCreateDTO;
+import com.proj_db.onibus.dto.OrdemServicoResponseDTO;
 import com.proj_db.onibus.dto.OrdemServicoSearchDTO;
 import com.proj_db.onibus.dto.OrdemServicoUpdateDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.model.OrdemServico;
 
 // <<< Imports para os DTOs externos que estão na pasta /dto
@@ -18,7 +21,7 @@ public interface OrdemServicoService {
 
     Optional<OrdemServico> findById(Long id);
     List<OrdemServico> findAll();
-    List<OrdemServico> search(OrdemServicoSearchDTO criteria);
+    PaginaBuscaDTO<OrdemServicoResponseDTO> search(OrdemServicoSearchDTO criteria, ParametrosPaginaDTO pagina);
 
     // --- Ações Principais do Fluxo de Trabalho ---
     OrdemServico startExecution(Long osId);
@@ -3,15 +3,16 @@ package com.proj_db.onibus.service;
 import org.springframework.data.jpa.domain.Specification;
 
 import com.proj_db.onibus.dto.OrdemServicoSearchDTO;
+import com.proj_db.onibus.model.ItemOrdemServico;
 import com.proj_db.onibus.model.OrdemServico;
 
-import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 
 public class OrdemServicoSpecification {
 
     public static Specification<OrdemServico> searchByCriteria(OrdemServicoSearchDTO c) {
         return (root, query, builder) -> {
-            query.distinct(true);
             var predicate = builder.conjunction();
             
             if (c.getNumeroOS() != null) {
@@ -31,8 +32,11 @@ public class OrdemServicoSpecification {
             }
             // ... (lógica similar para cambioId e pneuId) ...
             if (c.getProdutoId() != null) {
-                // Join para buscar OS que contenham um determinado produto
-                predicate = builder.and(predicate, builder.equal(root.join("itens", JoinType.LEFT).get("produto").get("id"), c.getProdutoId()));
+                // OS que contenham um determinado produto, por EXISTS correlacionado (sem join nos itens nem DISTINCT)
+                Subquery<Long> item = query.subquery(Long.class);
+                Root<ItemOrdemServico> i = item.from(ItemOrdemServico.class);
+                item.select(i.get("id")).where(builder.equal(i.get("ordemServico"), root), builder.equal(i.get("produto").get("id"), c.getProdutoId()));
+                predicate = builder.and(predicate, builder.exists(item));
             }
             if (c.getDataAberturaInicio() != null) {
                 predicate = builder.and(predicate, builder.greaterThanOrEqualTo(root.get("dataAbertura"), c.getDataAberturaInicio()));
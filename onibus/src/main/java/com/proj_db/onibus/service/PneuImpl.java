@@ -8,10 +8,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.dto.PneuCreateDTO;
+import com.proj_db.onibus.dto.PneuResponseDTO;
 import com.proj_db.onibus.dto.PneuUpdateDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaResultadoDTO;
 import com.proj_db.onibus.model.OrdemServico;
-import com.proj_db.onibus.model.OrdemServico.StatusOrdemServico;
 import com.proj_db.onibus.model.OrdemServico.TipoOrdemServico;
 import com.proj_db.onibus.model.Pneu;
 import com.proj_db.onibus.repository.OrdemServicoRepository;
@@ -22,7 +25,10 @@ import com.proj_db.onibus.repository.PneuRepository;
 public class PneuImpl implements PneuService {
 
     @Autowired private PneuRepository pneuRepository;
+    @Autowired private BuscaPaginada buscaPaginada;
     @Autowired private OrdemServicoRepository osRepository;
+    @Autowired private GeradorNumeroOS geradorNumeroOS;
+    @Autowired private IndiceOsAtiva indiceOsAtiva;
 
     @Override
     public Pneu save(PneuCreateDTO pneuDetails) {
@@ -93,8 +99,8 @@ public class PneuImpl implements PneuService {
     public Optional<Pneu> findByNumeroSerie(String numeroSerie) { return pneuRepository.findByNumeroSerie(numeroSerie); }
 
     @Override @Transactional(readOnly = true)
-    public List<Pneu> search(PneuSearchDTO criteria) {
-        return pneuRepository.findAll(PneuSpecification.searchByCriteria(criteria));
+    public PaginaBuscaDTO<PneuResponseDTO> search(PneuSearchDTO criteria, ParametrosPaginaDTO pagina) {
+        return buscaPaginada.buscar(Pneu.class, criteria, PneuSpecification.searchByCriteria(criteria), pneuRepository, pagina, PneuResponseDTO::new);
     }
 
     // --- Lógica de Negócio ---
@@ -139,10 +145,7 @@ public class PneuImpl implements PneuService {
         }
 
         // 1. Gera um número único para a OS de descarte
-        String prefix = "OS-DESC-PNEU-";
-        int prefixLength = prefix.length() + 1;
-        Integer maxNum = osRepository.findMaxNumeroByPrefix(prefix + "%", prefixLength);
-        String numeroOS = String.format("%s%06d", prefix, maxNum + 1);
+        String numeroOS = geradorNumeroOS.proximoNumero("OS-DESC-PNEU-", 6);
 
         String desc = "Ordem de Serviço para inspeção final e preparação para descarte do Pneu " + pneu.getModelo() + " (Série: " + pneu.getNumeroSerie() + ")";
         LocalDate hoje = LocalDate.now();
@@ -152,23 +155,33 @@ public class PneuImpl implements PneuService {
         os.setPneu(pneu); // Define o pneu como o alvo da OS
 
         // 3. Salva a OS, formalizando o início do processo
-        return osRepository.save(os);
+        return indiceOsAtiva.registrar(osRepository.save(os));
     }
 
     // --- Geração Automática de OS Preventiva ---
 
     @Override
-    public void verificarEGerarOsPreventivas() {
+    public VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas() {
+        return verificarEGerarOsPreventivas(0L, Long.MAX_VALUE);
+    }
+
+    @Override
+    public VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas(Long idInicial, Long idFinal) {
+        long inicio = System.currentTimeMillis();
         // Busca apenas pneus que estão EM_USO para verificar a necessidade de manutenção.
-        List<Pneu> pneusEmUso = pneuRepository.findByStatus(Pneu.StatusPneu.EM_USO);
+        // O banco já descarta os pneus longe de qualquer vencimento (por data ou por km)
+        List<Pneu> pneusEmUso = pneuRepository.findVencendoNaFaixa(idInicial, idFinal,
+            LocalDate.now().plusDays(Pneu.DIAS_ALERTA_PREVENTIVA), Pneu.KM_LIMITE_MANUTENCAO - Pneu.KM_ALERTA_MANUTENCAO);
+        long criadas = 0;
         for (Pneu pneu : pneusEmUso) {
-            gerarOsPreventivaSeNecessario(pneu);
+            if (gerarOsPreventivaSeNecessario(pneu)) criadas++;
         }
+        return new VarreduraPreventivaResultadoDTO("Pneu", pneusEmUso.size(), criadas, System.currentTimeMillis() - inicio);
     }
 
-    private void gerarOsPreventivaSeNecessario(Pneu pneu) {
-        if (osRepository.existsByPneuAndStatusIn(pneu, List.of(StatusOrdemServico.ABERTA, StatusOrdemServico.EM_EXECUCAO))) {
-            return; // Já existe OS ativa
+    private boolean gerarOsPreventivaSeNecessario(Pneu pneu) {
+        if (indiceOsAtiva.possuiOsAtiva(IndiceOsAtiva.TipoAlvo.PNEU, pneu.getId())) {
+            return false; // Já existe OS ativa
         }
 
         String desc = null;
@@ -183,9 +196,7 @@ public class PneuImpl implements PneuService {
         }
 
         if (desc != null) {
-            String prefix = "OS-PREV-";
-            Integer maxNum = osRepository.findMaxNumeroByPrefix(prefix + "%", prefix.length() + 1);
-            String numeroOS = String.format("%s%03d", prefix, maxNum + 1);
+            String numeroOS = geradorNumeroOS.proximoNumero("OS-PREV-", 3);
 
             OrdemServico os = new OrdemServico(numeroOS, TipoOrdemServico.PREVENTIVA, desc, dataPrevisaoInicio, dataPrevisaoInicio.plusDays(3));
             os.setPneu(pneu);
@@ -193,9 +204,11 @@ public class PneuImpl implements PneuService {
 
             // OS de pneu geralmente não adiciona itens automaticamente, apenas agenda o serviço.
             // Itens como "mão de obra" podem ser adicionados manualmente depois.
-            osRepository.save(os);
+            indiceOsAtiva.registrar(osRepository.save(os));
             System.out.println("LOG: OS Preventiva " + numeroOS + " criada para pneu " + pneu.getId());
+            return true;
         }
+        return false;
     }
 
     // --- Métodos de Relatório ---
@@ -3,8 +3,12 @@ package com.proj_db.onibus.service;
 import java.util.List;
 import java.util.Optional;
 
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.dto.PneuCreateDTO;
+import com.proj_db.onibus.dto.PneuResponseDTO;
 import com.proj_db.onibus.dto.PneuUpdateDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaResultadoDTO;
 import com.proj_db.onibus.model.Pneu;
 
 public interface PneuService {
@@ -18,7 +22,7 @@ public interface PneuService {
 
     // --- Buscas Específicas ---
     Optional<Pneu> findByNumeroSerie(String numeroSerie);
-    List<Pneu> search(PneuSearchDTO criteria);
+    PaginaBuscaDTO<PneuResponseDTO> search(PneuSearchDTO criteria, ParametrosPaginaDTO pagina);
 
     // --- Lógica de Negócio (Ciclo de Vida) ---
     Pneu enviarParaManutencao(Long pneuId);
@@ -28,7 +32,8 @@ public interface PneuService {
     void descartarPneu(Long pneuId); // Descarte é um processo final
 
     // --- Lógica de OS Preventiva ---
-    void verificarEGerarOsPreventivas();
+    VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas();
+    VarreduraPreventivaResultadoDTO verificarEGerarOsPreventivas(Long idInicial, Long idFinal); // Apenas a faixa de IDs informada
 
     // --- Métodos de Relatório ---
     List<Object[]> countByStatus();
@@ -3,11 +3,15 @@ package com.proj_db.onibus.service;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.dto.ProdutoCreateDTO;
+import com.proj_db.onibus.dto.ProdutoResponseDTO;
 import com.proj_db.onibus.dto.ProdutoUpdateDTO;
 import com.proj_db.onibus.model.Estoque;
 import com.proj_db.onibus.model.Produto;
@@ -19,7 +23,10 @@ import com.proj_db.onibus.repository.ProdutoRepository;
 public class ProdutoImpl implements ProdutoService {
 
     @Autowired private ProdutoRepository produtoRepository;
+    @Autowired private BuscaPaginada buscaPaginada;
     @Autowired private EstoqueRepository estoqueRepository;
+    @Autowired private TotaisInventario totaisInventario;
+    @Autowired private AlertasEstoque alertasEstoque;
 
     // --- CRUD e Lógica de Negócio ---
 
@@ -59,6 +66,7 @@ public class ProdutoImpl implements ProdutoService {
         novoEstoque.setProduto(produtoSalvo);
         novoEstoque.setLocalizacaoFisica("A DEFINIR"); // Localização padrão
         estoqueRepository.save(novoEstoque);
+        alertasEstoque.registrarProduto(produtoSalvo.getId(), novoEstoque.getId(), produtoSalvo.getNome(), produtoSalvo.getEstoqueMinimo());
         
         return produtoSalvo;
     }
@@ -81,6 +89,15 @@ public class ProdutoImpl implements ProdutoService {
             });
         }
 
+        // Troca de categoria leva o valor em estoque do produto para o total da nova categoria
+        if (produtoDetails.getCategoria() != produtoExistente.getCategoria()) {
+            estoqueRepository.findByProdutoIdParaAtualizacao(id).ifPresent(estoque -> {
+                double valor = estoque.getQuantidadeAtual() * produtoExistente.getPrecoUnitarioAtual();
+                totaisInventario.somar(produtoExistente.getCategoria(), -valor);
+                totaisInventario.somar(produtoDetails.getCategoria(), valor);
+            });
+        }
+
         // Atualiza os atributos do produto
         produtoExistente.setNome(produtoDetails.getNome());
         produtoExistente.setMarca(produtoDetails.getMarca());
@@ -89,15 +106,22 @@ public class ProdutoImpl implements ProdutoService {
         produtoExistente.setUnidadeMedida(produtoDetails.getUnidadeMedida());
         produtoExistente.setEstoqueMinimo(produtoDetails.getEstoqueMinimo());
         produtoExistente.setCodigoBarras(produtoDetails.getCodigoBarras());
+        alertasEstoque.registrarProduto(id, null, produtoExistente.getNome(), produtoExistente.getEstoqueMinimo());
         
         return produtoRepository.save(produtoExistente);
     }
     
     @Override
     public Produto updatePrice(Long id, Double novoPreco) {
+        // Trava o estoque antes de carregar o produto: entradas e consumos concorrentes esperam esta transação
+        Estoque estoque = estoqueRepository.findByProdutoIdParaAtualizacao(id).orElse(null);
         Produto produto = findById(id).orElseThrow(() -> new RuntimeException("Produto não encontrado com ID: " + id));
+        Double precoAnterior = produto.getPrecoUnitarioAtual();
         // Usa o método do modelo para atualizar o preço, garantindo que o histórico seja criado
         produto.atualizarPreco(novoPreco);
+        if (estoque != null && precoAnterior != null) {
+            totaisInventario.somar(produto.getCategoria(), estoque.getQuantidadeAtual() * (produto.getPrecoUnitarioAtual() - precoAnterior));
+        }
         return produtoRepository.save(produto);
     }
 
@@ -137,8 +161,8 @@ public class ProdutoImpl implements ProdutoService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<Produto> search(ProdutoSearchDTO criteria) {
-        return produtoRepository.findAll(ProdutoSpecification.searchByCriteria(criteria));
+    public PaginaBuscaDTO<ProdutoResponseDTO> search(ProdutoSearchDTO criteria, ParametrosPaginaDTO pagina) {
+        return buscaPaginada.buscar(Produto.class, criteria, ProdutoSpecification.searchByCriteria(criteria), produtoRepository, pagina, ProdutoResponseDTO::new);
     }
 
     // --- Lógica de Negócio Adicional ---
@@ -160,7 +184,10 @@ public class ProdutoImpl implements ProdutoService {
     @Override
     @Transactional(readOnly = true)
     public List<Object[]> findProdutosMaisUtilizados() {
-        return produtoRepository.findProdutosMaisUtilizados();
+        List<Object[]> linhas = produtoRepository.findProdutosMaisUtilizados();
+        // O Produto vai inteiro para o JSON: sem open-in-view o histórico de preços precisa ser carregado aqui (em lote)
+        linhas.forEach(linha -> Hibernate.initialize(((Produto) linha[0]).getHistoricoPrecoUnitario()));
+        return linhas;
     }
 
     @Override
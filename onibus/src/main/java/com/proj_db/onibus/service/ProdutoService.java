@@ -3,7 +3,10 @@ package com.proj_db.onibus.service;
 import java.util.List;
 import java.util.Optional;
 
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
 import com.proj_db.onibus.dto.ProdutoCreateDTO;
+import com.proj_db.onibus.dto.ProdutoResponseDTO;
 import com.proj_db.onibus.dto.ProdutoUpdateDTO;
 import com.proj_db.onibus.model.Produto;
 
@@ -18,7 +21,7 @@ public interface ProdutoService {
     Optional<Produto> findById(Long id);
     List<Produto> findAll();
     Optional<Produto> findByCodigoInterno(String codigoInterno);
-    List<Produto> search(ProdutoSearchDTO criteria);
+    PaginaBuscaDTO<ProdutoResponseDTO> search(ProdutoSearchDTO criteria, ParametrosPaginaDTO pagina);
 
     String gerarProximoCodigoInterno();
 
@@ -0,0 +1,685 @@
+package com.proj_db.onibus.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.model.Estoque;
+import com.proj_db.onibus.model.Produto;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+
+/*
+ * Razão de estoque em memória, opcional, para os produtos de maior movimento (óleo, fluido, filtros).
+ * Com onibus.estoque.razao.ativo=true, os saldos (atual e reservado) dos produtos em onibus.estoque.razao.produtos
+ * (ids separados por vírgula; vazio = todos) passam a ser mantidos aqui, com uma trava por faixa de produtos em vez
+ * da trava da linha de estoque. Cada transação grava seus movimentos no WAL local antes do commit (um fsync para
+ * todas as transações que chegarem juntas) e a descarga assíncrona aplica os totais de cada segmento em estoque,
+ * no diário de movimentações e nos totais do inventário, com a marca do segmento, como no AcumuladorQuilometragem.
+ * Na subida os segmentos restantes são aplicados e os saldos recarregados do banco.
+ *
+ * Só entram na descarga os movimentos de transações confirmadas: depois do commit a transação grava a marca "C" no
+ * segmento, e antes dele grava seu id em estoque_wal_transacao, na mesma transação do banco. Na reaplicação, uma
+ * transação sem marca no arquivo e sem linha na tabela não chegou ao commit e é ignorada; a tabela cobre a queda
+ * entre o commit e a marca.
+ *
+ * Reserva e consumo valem na memória assim que feitos (reduzem o disponível) e são desfeitos se a transação voltar;
+ * entrada e liberação só aparecem depois do commit, para ninguém reservar um saldo que ainda pode sumir.
+ * Enquanto um segmento não é aplicado, consultas feitas direto no banco (ex.: estoque abaixo do mínimo) veem o saldo anterior.
+ */
+@Service
+public class RazaoEstoque {
+
+    private enum TipoMovimento {
+        ENTRADA(1, 0, Estoque.TipoRegistro.ENTRADA),
+        RESERVA(0, 1, null),
+        LIBERACAO(0, -1, null),
+        CONSUMO(-1, -1, Estoque.TipoRegistro.SAIDA);
+
+        final int sinalAtual;
+        final int sinalReservada;
+        final Estoque.TipoRegistro registroHistorico;
+
+        TipoMovimento(int sinalAtual, int sinalReservada, Estoque.TipoRegistro registroHistorico) {
+            this.sinalAtual = sinalAtual;
+            this.sinalReservada = sinalReservada;
+            this.registroHistorico = registroHistorico;
+        }
+    }
+
+    private record Movimento(long produtoId, TipoMovimento tipo, double quantidade, LocalDate data) {}
+
+    // Guardado pela trava da faixa do produto
+    private static final class Saldo {
+        double atual;
+        double reservada;
+        double liberando; // Liberações feitas por transações ainda não confirmadas
+
+        double disponivel() {
+            return atual - reservada;
+        }
+    }
+
+    private static final String SQL_MARCAR_SEGMENTO =
+        "INSERT INTO estoque_wal_aplicado (segmento, aplicado_em) VALUES (?, ?) ON CONFLICT (segmento) DO NOTHING";
+    private static final String SQL_APLICAR_SALDO =
+        "UPDATE estoque SET quantidade_atual = quantidade_atual + ?, quantidade_reservada = quantidade_reservada + ? WHERE produto_id = ?";
+    private static final String SQL_CONFIRMAR_TRANSACAO =
+        "INSERT INTO estoque_wal_transacao (transacao, registrada_em) VALUES (?, ?)";
+    private static final String SQL_APAGAR_TRANSACOES =
+        "DELETE FROM estoque_wal_transacao WHERE transacao = ANY(CAST(? AS VARCHAR[]))";
+
+    private static final String PREFIXO_ARQUIVO = "estoque-";
+    private static final String EXTENSAO_ARQUIVO = ".wal";
+    private static final int FAIXAS = 64;
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TotaisInventario totaisInventario;
+    @Autowired private CacheBuscas cacheBuscas;
+    @Autowired private JornalMovimentacoes jornalMovimentacoes; // Também garante que o diário já existe quando o WAL é reaplicado
+    @Autowired private EntityManagerFactory entityManagerFactory; // Garante que o ddl-auto já criou as tabelas de marcas
+
+    @Value("${onibus.estoque.razao.ativo:false}")
+    private boolean ativo;
+
+    @Value("${onibus.estoque.razao.produtos:}")
+    private String produtosConfigurados;
+
+    @Value("${onibus.estoque.razao.diretorio-wal:./wal}")
+    private String diretorioWal;
+
+    @Value("${onibus.estoque.razao.limite-registros:5000}")
+    private int limiteRegistros;
+
+    private final TransactionTemplate transacao;
+
+    private final ReentrantLock[] travas = new ReentrantLock[FAIXAS];
+    private final Map<Long, Saldo> saldos = new ConcurrentHashMap<>();
+    private Set<Long> produtosGerenciados; // null = todos
+
+    private final ReentrantReadWriteLock travaSegmento = new ReentrantReadWriteLock();
+    private final ReentrantLock travaDescarga = new ReentrantLock();
+    private final ConcurrentLinkedDeque<Segmento> segmentosFechados = new ConcurrentLinkedDeque<>();
+    private volatile Segmento segmentoAtual;
+
+    public RazaoEstoque(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < FAIXAS; i++) {
+            travas[i] = new ReentrantLock();
+        }
+    }
+
+    // --- CICLO DE VIDA ---
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        Path diretorio = Paths.get(diretorioWal);
+        if (Files.isDirectory(diretorio)) {
+            try (Stream<Path> arquivos = Files.list(diretorio)) {
+                for (Path arquivo : arquivos.filter(this::ehArquivoWal).sorted().toList()) {
+                    segmentosFechados.add(Segmento.recuperar(arquivo));
+                }
+            }
+        }
+        if (!segmentosFechados.isEmpty()) {
+            System.out.println("LOG: Reaplicando " + segmentosFechados.size() + " segmento(s) do WAL de estoque.");
+            segmentosFechados.forEach(this::confirmarPeloBanco);
+            aplicarSegmentosFechados();
+            if (!segmentosFechados.isEmpty()) {
+                // Sem isso os saldos carregados abaixo ficariam atrás do WAL
+                throw new IllegalStateException("Não foi possível reaplicar o WAL de estoque; a razão não pode ser iniciada.");
+            }
+        }
+        if (ativo) {
+            if (!produtosConfigurados.isBlank()) {
+                produtosGerenciados = Arrays.stream(produtosConfigurados.split(","))
+                    .map(String::trim).filter(s -> !s.isEmpty()).map(Long::valueOf).collect(Collectors.toSet());
+            }
+            Files.createDirectories(diretorio);
+            segmentoAtual = Segmento.novo(diretorio);
+            System.out.println("LOG: Razão de estoque em memória ativa para "
+                + (produtosGerenciados == null ? "todos os produtos." : produtosGerenciados.size() + " produto(s)."));
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        descarregar();
+        Segmento atual = segmentoAtual;
+        if (atual != null && atual.registros.get() == 0) {
+            atual.descartar();
+        }
+    }
+
+    public boolean gerencia(Long produtoId) {
+        return ativo && (produtosGerenciados == null || produtosGerenciados.contains(produtoId));
+    }
+
+    // Saldo atual e reservado vistos pela razão, ou null se o produto não é gerenciado
+    public double[] saldo(Long produtoId) {
+        if (!gerencia(produtoId)) return null;
+        ReentrantLock trava = travaDe(produtoId);
+        trava.lock();
+        try {
+            Saldo saldo = carregar(produtoId);
+            return new double[] { saldo.atual, saldo.reservada };
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    // --- MOVIMENTOS ---
+
+    public void adicionar(Long produtoId, double quantidade) {
+        validarQuantidade(quantidade, "adicionada");
+        ReentrantLock trava = travaDe(produtoId);
+        trava.lock();
+        try {
+            carregar(produtoId); // Só valida que o produto tem estoque; o saldo muda no commit
+        } finally {
+            trava.unlock();
+        }
+        registrar(new Movimento(produtoId, TipoMovimento.ENTRADA, quantidade, LocalDate.now()), false);
+    }
+
+    public boolean reservar(Long produtoId, double quantidade) {
+        validarQuantidade(quantidade, "reservada");
+        ReentrantLock trava = travaDe(produtoId);
+        trava.lock();
+        try {
+            Saldo saldo = carregar(produtoId);
+            if (saldo.disponivel() < quantidade) return false;
+            saldo.reservada += quantidade;
+        } finally {
+            trava.unlock();
+        }
+        registrar(new Movimento(produtoId, TipoMovimento.RESERVA, quantidade, LocalDate.now()), true);
+        return true;
+    }
+
+    public void liberar(Long produtoId, double quantidade) {
+        liberarLote(Map.of(produtoId, quantidade));
+    }
+
+    public void consumir(Long produtoId, double quantidade) {
+        consumirLote(Map.of(produtoId, quantidade));
+    }
+
+    // Produtos do lote sem saldo disponível suficiente, sem reservar nada (o lote misto do EstoqueImpl junta com as faltas do banco)
+    public List<String> faltasReserva(Map<Long, Double> quantidadesPorProduto) {
+        List<String> faltas = new ArrayList<>();
+        quantidadesPorProduto.forEach((produtoId, quantidade) -> {
+            double[] saldo = saldo(produtoId);
+            if (saldo[0] - saldo[1] < quantidade) {
+                faltas.add("produto ID " + produtoId + " (disponível " + (saldo[0] - saldo[1]) + ", necessário " + quantidade + ")");
+            }
+        });
+        return faltas;
+    }
+
+    public void reservarLote(Map<Long, Double> quantidadesPorProduto) {
+        aplicarLote(quantidadesPorProduto, TipoMovimento.RESERVA,
+            (saldo, quantidade) -> saldo.disponivel() < quantidade ? "disponível " + saldo.disponivel() : null);
+    }
+
+    public void consumirLote(Map<Long, Double> quantidadesPorProduto) {
+        aplicarLote(quantidadesPorProduto, TipoMovimento.CONSUMO,
+            (saldo, quantidade) -> saldo.reservada - saldo.liberando < quantidade ? "reservado " + (saldo.reservada - saldo.liberando) : null);
+    }
+
+    public void liberarLote(Map<Long, Double> quantidadesPorProduto) {
+        aplicarLote(quantidadesPorProduto, TipoMovimento.LIBERACAO,
+            (saldo, quantidade) -> saldo.reservada - saldo.liberando < quantidade ? "reservado " + (saldo.reservada - saldo.liberando) : null);
+    }
+
+    private interface Validacao {
+        String falha(Saldo saldo, double quantidade);
+    }
+
+    // Trava as faixas do lote em ordem crescente, valida todos os produtos e só então altera os saldos
+    private void aplicarLote(Map<Long, Double> quantidadesPorProduto, TipoMovimento tipo, Validacao validacao) {
+        if (quantidadesPorProduto.isEmpty()) return;
+        quantidadesPorProduto.values().forEach(q -> validarQuantidade(q, "movimentada"));
+        Set<Integer> faixas = new TreeSet<>();
+        quantidadesPorProduto.keySet().forEach(id -> faixas.add(faixaDe(id)));
+        List<Movimento> movimentos = new ArrayList<>();
+        for (Integer faixa : faixas) travas[faixa].lock();
+        try {
+            List<String> falhas = new ArrayList<>();
+            quantidadesPorProduto.forEach((produtoId, quantidade) -> {
+                String falha = validacao.falha(carregar(produtoId), quantidade);
+                if (falha != null) falhas.add("produto ID " + produtoId + " (" + falha + ", pedido " + quantidade + ")");
+            });
+            if (!falhas.isEmpty()) {
+                throw new IllegalStateException("Movimentação de estoque recusada: " + String.join("; ", falhas));
+            }
+            LocalDate hoje = LocalDate.now();
+            quantidadesPorProduto.forEach((produtoId, quantidade) -> {
+                Saldo saldo = saldos.get(produtoId);
+                switch (tipo) {
+                    case RESERVA -> saldo.reservada += quantidade;
+                    case CONSUMO -> { saldo.atual -= quantidade; saldo.reservada -= quantidade; }
+                    case LIBERACAO -> saldo.liberando += quantidade;
+                    default -> throw new IllegalArgumentException("Tipo de movimento inválido para lote: " + tipo);
+                }
+                movimentos.add(new Movimento(produtoId, tipo, quantidade, hoje));
+            });
+        } finally {
+            for (Integer faixa : faixas) travas[faixa].unlock();
+        }
+        for (Movimento movimento : movimentos) {
+            registrar(movimento, tipo != TipoMovimento.LIBERACAO);
+        }
+    }
+
+    // --- TRANSAÇÃO ---
+
+    // Movimentos da transação corrente: gravados no WAL antes do commit, desfeitos na memória se ela voltar
+    private final class MovimentosTransacao implements TransactionSynchronization {
+        final String id = UUID.randomUUID().toString();
+        final List<Movimento> imediatos = new ArrayList<>();
+        final List<Movimento> adiados = new ArrayList<>();
+        Segmento segmento; // Onde os movimentos foram gravados; a marca de commit vai para o mesmo segmento
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            List<Movimento> todos = new ArrayList<>(imediatos);
+            todos.addAll(adiados);
+            segmento = gravarNoWal(id, todos, false);
+            // Na mesma transação do banco: se a queda vier antes da marca no arquivo, a reaplicação acha o commit aqui
+            jdbcTemplate.update(SQL_CONFIRMAR_TRANSACAO, id, LocalDateTime.now());
+        }
+
+        @Override
+        public void afterCommit() {
+            aplicarAdiados(adiados);
+            if (segmento != null) segmento.confirmar(id);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(RazaoEstoque.this);
+            if (status == STATUS_COMMITTED) return;
+            for (Movimento movimento : imediatos) {
+                alterarSaldo(movimento.produtoId(), saldo -> {
+                    saldo.atual -= movimento.tipo().sinalAtual * movimento.quantidade();
+                    saldo.reservada -= movimento.tipo().sinalReservada * movimento.quantidade();
+                });
+            }
+            for (Movimento movimento : adiados) {
+                if (movimento.tipo() == TipoMovimento.LIBERACAO) {
+                    alterarSaldo(movimento.produtoId(), saldo -> saldo.liberando -= movimento.quantidade());
+                }
+            }
+            // Sem marca de commit os movimentos já gravados não são aplicados, nem agora nem numa reaplicação
+            if (segmento != null) segmento.descartarTransacao(id);
+        }
+    }
+
+    private void aplicarAdiados(List<Movimento> adiados) {
+        for (Movimento movimento : adiados) {
+            alterarSaldo(movimento.produtoId(), saldo -> {
+                if (movimento.tipo() == TipoMovimento.ENTRADA) {
+                    saldo.atual += movimento.quantidade();
+                } else {
+                    saldo.reservada -= movimento.quantidade();
+                    saldo.liberando -= movimento.quantidade();
+                }
+            });
+        }
+    }
+
+    private void registrar(Movimento movimento, boolean imediato) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Fora de transação não há o que desfazer: grava já confirmado e aplica na hora
+            gravarNoWal(UUID.randomUUID().toString(), List.of(movimento), true);
+            if (!imediato) aplicarAdiados(List.of(movimento));
+            return;
+        }
+        MovimentosTransacao movimentos = (MovimentosTransacao) TransactionSynchronizationManager.getResource(this);
+        if (movimentos == null) {
+            movimentos = new MovimentosTransacao();
+            TransactionSynchronizationManager.bindResource(this, movimentos);
+            TransactionSynchronizationManager.registerSynchronization(movimentos);
+        }
+        (imediato ? movimentos.imediatos : movimentos.adiados).add(movimento);
+    }
+
+    private interface AlteracaoSaldo {
+        void aplicar(Saldo saldo);
+    }
+
+    private void alterarSaldo(Long produtoId, AlteracaoSaldo alteracao) {
+        ReentrantLock trava = travaDe(produtoId);
+        trava.lock();
+        try {
+            alteracao.aplicar(saldos.get(produtoId));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    // Chamado com a trava da faixa: na primeira vez o saldo vem do banco, que ainda não tem movimentos pendentes deste produto
+    private Saldo carregar(Long produtoId) {
+        Saldo saldo = saldos.get(produtoId);
+        if (saldo != null) return saldo;
+        List<Saldo> linhas = jdbcTemplate.query(
+            "SELECT quantidade_atual, quantidade_reservada FROM estoque WHERE produto_id = ?",
+            (rs, i) -> {
+                Saldo s = new Saldo();
+                s.atual = rs.getDouble(1);
+                s.reservada = rs.getDouble(2);
+                return s;
+            }, produtoId);
+        if (linhas.isEmpty()) {
+            throw new EntityNotFoundException("Registro de estoque não encontrado para o produto ID: " + produtoId);
+        }
+        saldos.put(produtoId, linhas.get(0));
+        return linhas.get(0);
+    }
+
+    private int faixaDe(Long produtoId) {
+        return (int) (Long.hashCode(produtoId) & (FAIXAS - 1));
+    }
+
+    private ReentrantLock travaDe(Long produtoId) {
+        return travas[faixaDe(produtoId)];
+    }
+
+    private void validarQuantidade(Double quantidade, String acao) {
+        if (quantidade == null || quantidade <= 0) {
+            throw new IllegalArgumentException("Quantidade a ser " + acao + " deve ser positiva.");
+        }
+    }
+
+    // --- WAL E DESCARGA ---
+
+    // Grava os movimentos da transação e espera o fsync; devolve o segmento usado, ou null se não havia movimentos
+    private Segmento gravarNoWal(String transacao, List<Movimento> movimentos, boolean confirmada) {
+        if (movimentos.isEmpty()) return null;
+        Segmento segmento;
+        int registros;
+        travaSegmento.readLock().lock();
+        try {
+            segmento = segmentoAtual;
+            long posicao = segmento.gravar(transacao, movimentos, confirmada);
+            try {
+                segmento.sincronizar(posicao);
+            } catch (UncheckedIOException e) {
+                if (!confirmada) segmento.descartarTransacao(transacao); // A transação volta sem chegar ao commit
+                throw e;
+            }
+            registros = segmento.registros.get();
+        } finally {
+            travaSegmento.readLock().unlock();
+        }
+        if (registros >= limiteRegistros && !travaDescarga.isLocked()) {
+            Thread.ofVirtual().start(this::descarregar);
+        }
+        return segmento;
+    }
+
+    @Scheduled(fixedDelayString = "${onibus.estoque.razao.intervalo-ms:1000}")
+    public void descarregar() {
+        if (!travaDescarga.tryLock()) return;
+        try {
+            if (ativo && segmentoAtual.registros.get() > 0) {
+                Segmento proximo = Segmento.novo(Paths.get(diretorioWal));
+                travaSegmento.writeLock().lock();
+                try {
+                    // O arquivo continua aberto até a aplicação: as marcas de commit ainda pendentes vão para ele
+                    segmentosFechados.add(segmentoAtual);
+                    segmentoAtual = proximo;
+                } finally {
+                    travaSegmento.writeLock().unlock();
+                }
+            }
+            aplicarSegmentosFechados();
+        } catch (IOException e) {
+            System.out.println("ALERTA: Falha ao rotacionar o WAL de estoque: " + e.getMessage());
+        } finally {
+            travaDescarga.unlock();
+        }
+    }
+
+    private void aplicarSegmentosFechados() {
+        Segmento segmento;
+        while ((segmento = segmentosFechados.peek()) != null) {
+            if (segmento.pendentes.get() > 0) return; // Transações entre o fsync e o commit; fica para a próxima descarga
+            try {
+                aplicar(segmento);
+            } catch (RuntimeException e) {
+                System.out.println("ALERTA: Falha ao aplicar o segmento " + segmento.id + " do WAL de estoque: " + e.getMessage());
+                return;
+            }
+            segmentosFechados.poll();
+            segmento.descartar();
+        }
+    }
+
+    private void aplicar(Segmento segmento) {
+        transacao.executeWithoutResult(status -> {
+            String[] transacoes = segmento.confirmadas.toArray(new String[0]);
+            if (transacoes.length > 0) jdbcTemplate.update(SQL_APAGAR_TRANSACOES, (Object) transacoes);
+            int marcado = jdbcTemplate.update(SQL_MARCAR_SEGMENTO, segmento.id, LocalDateTime.now());
+            if (marcado == 0) return; // Já aplicado antes de uma queda
+
+            Map<Long, double[]> deltas = new TreeMap<>(); // Ordem de produto: descargas e lotes travam na mesma ordem
+            List<JornalMovimentacoes.Lancamento> historico = new ArrayList<>();
+            for (Movimento m : segmento.movimentosConfirmados()) {
+                double[] delta = deltas.computeIfAbsent(m.produtoId(), k -> new double[2]);
+                delta[0] += m.tipo().sinalAtual * m.quantidade();
+                delta[1] += m.tipo().sinalReservada * m.quantidade();
+                if (m.tipo().registroHistorico != null) {
+                    historico.add(new JornalMovimentacoes.Lancamento(m.produtoId(), m.data(), m.quantidade(), m.tipo().registroHistorico));
+                }
+            }
+            List<Object[]> incrementos = new ArrayList<>(deltas.size());
+            deltas.forEach((produtoId, delta) -> incrementos.add(new Object[] { delta[0], delta[1], produtoId }));
+            if (incrementos.isEmpty()) return;
+            jdbcTemplate.batchUpdate(SQL_APLICAR_SALDO, incrementos);
+            jornalMovimentacoes.registrar(historico);
+            cacheBuscas.invalidar(Estoque.class);
+
+            // Totais do inventário: a variação do saldo atual, valorizada pelo preço do produto agora
+            Map<Produto.Categoria, Double> valorPorCategoria = new HashMap<>();
+            jdbcTemplate.query(
+                "SELECT id, categoria, COALESCE(preco_unitario_atual, 0) FROM produtos WHERE id = ANY(CAST(? AS BIGINT[]))",
+                rs -> {
+                    double delta = deltas.get(rs.getLong(1))[0];
+                    valorPorCategoria.merge(Produto.Categoria.valueOf(rs.getString(2)), delta * rs.getDouble(3), Double::sum);
+                },
+                (Object) deltas.keySet().toArray(new Long[0]));
+            valorPorCategoria.forEach(totaisInventario::somar);
+        });
+    }
+
+    // Reaplicação: transações sem marca no arquivo cujo id está em estoque_wal_transacao chegaram ao commit
+    private void confirmarPeloBanco(Segmento segmento) {
+        String[] semMarca = segmento.porTransacao.keySet().stream()
+            .filter(t -> !segmento.confirmadas.contains(t)).toArray(String[]::new);
+        if (semMarca.length == 0) return;
+        List<String> confirmadas = jdbcTemplate.queryForList(
+            "SELECT transacao FROM estoque_wal_transacao WHERE transacao = ANY(CAST(? AS VARCHAR[]))", String.class, (Object) semMarca);
+        confirmadas.forEach(segmento.confirmadas::add);
+        if (confirmadas.size() < semMarca.length) {
+            System.out.println("LOG: Segmento " + segmento.id + " do WAL de estoque: " + (semMarca.length - confirmadas.size())
+                + " transação(ões) sem commit ignorada(s).");
+        }
+    }
+
+    private boolean ehArquivoWal(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        return nome.startsWith(PREFIXO_ARQUIVO) && nome.endsWith(EXTENSAO_ARQUIVO);
+    }
+
+    // --- SEGMENTO DO WAL ---
+
+    // Um arquivo do WAL: "M;transação;produtoId;TIPO;quantidade;data" por movimento e "C;transação" no commit
+    private static final class Segmento {
+        private final String id;
+        private final Path arquivo;
+        private final Map<String, List<Movimento>> porTransacao = new ConcurrentHashMap<>();
+        private final Set<String> confirmadas = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger pendentes = new AtomicInteger(); // Gravadas e ainda sem commit nem rollback
+        private final AtomicInteger registros = new AtomicInteger();
+        private final Object travaSincronizacao = new Object();
+        private FileChannel canal;
+        private volatile long posicaoEscrita;
+        private long posicaoSincronizada;
+
+        private Segmento(String id, Path arquivo) {
+            this.id = id;
+            this.arquivo = arquivo;
+        }
+
+        static Segmento novo(Path diretorio) throws IOException {
+            String id = UUID.randomUUID().toString();
+            Segmento segmento = new Segmento(id, diretorio.resolve(PREFIXO_ARQUIVO + id + EXTENSAO_ARQUIVO));
+            segmento.canal = FileChannel.open(segmento.arquivo, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return segmento;
+        }
+
+        static Segmento recuperar(Path arquivo) throws IOException {
+            String nome = arquivo.getFileName().toString();
+            String id = nome.substring(PREFIXO_ARQUIVO.length(), nome.length() - EXTENSAO_ARQUIVO.length());
+            Segmento segmento = new Segmento(id, arquivo);
+            for (String linha : Files.readAllLines(arquivo, StandardCharsets.UTF_8)) {
+                String[] partes = linha.split(";");
+                if (partes.length == 2 && partes[0].equals("C")) {
+                    segmento.confirmadas.add(partes[1]);
+                    continue;
+                }
+                if (partes.length != 6 || !partes[0].equals("M")) continue; // Linha incompleta de uma queda
+                try {
+                    segmento.porTransacao.computeIfAbsent(partes[1], t -> new ArrayList<>())
+                        .add(new Movimento(Long.parseLong(partes[2]), TipoMovimento.valueOf(partes[3]),
+                            Double.parseDouble(partes[4]), LocalDate.parse(partes[5])));
+                    segmento.registros.incrementAndGet();
+                } catch (IllegalArgumentException | java.time.DateTimeException e) {
+                    // Idem: linha truncada
+                }
+            }
+            return segmento;
+        }
+
+        // Grava os movimentos de uma transação de uma vez (já com a marca de commit se confirmada); devolve a posição a sincronizar
+        long gravar(String transacao, List<Movimento> lote, boolean confirmada) {
+            StringBuilder texto = new StringBuilder();
+            for (Movimento m : lote) {
+                texto.append("M;").append(transacao).append(';').append(m.produtoId()).append(';').append(m.tipo()).append(';')
+                    .append(m.quantidade()).append(';').append(m.data()).append('\n');
+            }
+            if (confirmada) texto.append("C;").append(transacao).append('\n');
+            escrever(texto.toString());
+            porTransacao.put(transacao, List.copyOf(lote));
+            if (confirmada) {
+                confirmadas.add(transacao);
+            } else {
+                pendentes.incrementAndGet();
+            }
+            registros.addAndGet(lote.size());
+            return posicaoEscrita;
+        }
+
+        // Marca de commit: sem fsync próprio, porque a linha em estoque_wal_transacao já garante o commit numa queda
+        void confirmar(String transacao) {
+            try {
+                escrever("C;" + transacao + "\n");
+            } catch (UncheckedIOException e) {
+                System.out.println("ALERTA: Falha ao gravar a marca de commit no WAL de estoque: " + e.getMessage());
+            }
+            confirmadas.add(transacao);
+            pendentes.decrementAndGet();
+        }
+
+        void descartarTransacao(String transacao) {
+            porTransacao.remove(transacao);
+            pendentes.decrementAndGet();
+        }
+
+        List<Movimento> movimentosConfirmados() {
+            List<Movimento> movimentos = new ArrayList<>();
+            confirmadas.forEach(t -> movimentos.addAll(porTransacao.getOrDefault(t, List.of())));
+            return movimentos;
+        }
+
+        private void escrever(String texto) {
+            ByteBuffer registro = ByteBuffer.wrap(texto.getBytes(StandardCharsets.UTF_8));
+            try {
+                synchronized (this) {
+                    while (registro.hasRemaining()) {
+                        canal.write(registro);
+                    }
+                    posicaoEscrita = canal.position();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao gravar movimentos no WAL de estoque.", e);
+            }
+        }
+
+        // Commit em grupo: quem chega primeiro faz o fsync de tudo o que já foi escrito; os demais só conferem a posição
+        void sincronizar(long posicao) {
+            synchronized (travaSincronizacao) {
+                if (posicaoSincronizada >= posicao) return;
+                long alvo = posicaoEscrita;
+                try {
+                    canal.force(false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Falha ao sincronizar o WAL de estoque.", e);
+                }
+                posicaoSincronizada = alvo;
+            }
+        }
+
+        void fechar() throws IOException {
+            if (canal != null) canal.close();
+        }
+
+        void descartar() {
+            try {
+                fechar();
+                Files.deleteIfExists(arquivo);
+            } catch (IOException e) {
+                System.out.println("ALERTA: Não foi possível remover o segmento " + arquivo + " do WAL: " + e.getMessage());
+            }
+        }
+    }
+}
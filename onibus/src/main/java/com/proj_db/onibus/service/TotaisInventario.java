@@ -0,0 +1,100 @@
+package com.proj_db.onibus.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.model.Produto;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Valor do inventário por categoria como total corrente (tabela estoque_total_categoria).
+ * Cada entrada, consumo ou mudança de preço soma a sua diferença ao total da categoria dentro da transação
+ * que fez a alteração, então os relatórios de valor total são uma leitura de poucas linhas.
+ * A reconciliação recalcula tudo a partir de estoque x preço atual; roda na subida (depois de preencher
+ * produtos.preco_unitario_atual para os produtos antigos) e todo dia no horário de onibus.estoque.reconciliacao-cron.
+ */
+@Service
+public class TotaisInventario {
+
+    private static final String SQL_SOMAR =
+        "INSERT INTO estoque_total_categoria (categoria, valor) VALUES (?, ?) " +
+        "ON CONFLICT (categoria) DO UPDATE SET valor = estoque_total_categoria.valor + EXCLUDED.valor";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory; // Garante que o ddl-auto já criou a tabela e a coluna de preço
+
+    private final TransactionTemplate transacao;
+
+    public TotaisInventario(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        // Produtos cadastrados antes da coluna preco_unitario_atual: copia o preço mais recente do histórico
+        int preenchidos = transacao.execute(status -> jdbcTemplate.update(
+            "UPDATE produtos p SET preco_unitario_atual = COALESCE((SELECT h.preco_unitario FROM produto_historico_preco h " +
+            "WHERE h.produto_id = p.id ORDER BY h.data_registro DESC LIMIT 1), 0) WHERE p.preco_unitario_atual IS NULL"));
+        if (preenchidos > 0) {
+            System.out.println("LOG: Preço unitário atual preenchido a partir do histórico para " + preenchidos + " produtos.");
+        }
+        reconciliar();
+    }
+
+    // --- ATUALIZAÇÃO INCREMENTAL (chamada dentro da transação do serviço) ---
+
+    public void somar(Produto.Categoria categoria, double diferenca) {
+        if (categoria == null || diferenca == 0) return;
+        jdbcTemplate.update(SQL_SOMAR, categoria.name(), diferenca);
+    }
+
+    // --- CONSULTAS ---
+
+    public Double valorTotal() {
+        Double total = jdbcTemplate.queryForObject("SELECT SUM(valor) FROM estoque_total_categoria", Double.class);
+        return total != null ? total : 0.0;
+    }
+
+    public List<Object[]> valorPorCategoria() {
+        return jdbcTemplate.query("SELECT categoria, valor FROM estoque_total_categoria ORDER BY categoria",
+            (rs, i) -> new Object[] { Produto.Categoria.valueOf(rs.getString(1)), rs.getDouble(2) });
+    }
+
+    // --- RECONCILIAÇÃO ---
+
+    @Scheduled(cron = "${onibus.estoque.reconciliacao-cron:0 0 4 * * *}")
+    public void reconciliar() {
+        long inicio = System.currentTimeMillis();
+        transacao.executeWithoutResult(status -> {
+            // Espera as transações que já somaram diferenças e segura as novas até o recálculo terminar
+            jdbcTemplate.execute("LOCK TABLE estoque_total_categoria IN EXCLUSIVE MODE");
+            List<Object[]> anteriores = valorPorCategoria();
+            jdbcTemplate.update("DELETE FROM estoque_total_categoria");
+            jdbcTemplate.update(
+                "INSERT INTO estoque_total_categoria (categoria, valor) " +
+                "SELECT p.categoria, SUM(e.quantidade_atual * COALESCE(p.preco_unitario_atual, 0)) " +
+                "FROM estoque e JOIN produtos p ON p.id = e.produto_id GROUP BY p.categoria");
+            List<Object[]> recalculados = valorPorCategoria();
+            if (!anteriores.isEmpty() && !mesmosValores(anteriores, recalculados)) {
+                System.out.println("ALERTA: Totais do inventário divergiam do recálculo e foram corrigidos.");
+            }
+        });
+        System.out.println("LOG: Totais do inventário reconciliados em " + (System.currentTimeMillis() - inicio) + " ms.");
+    }
+
+    private boolean mesmosValores(List<Object[]> a, List<Object[]> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i)[0] != b.get(i)[0] || Math.abs((Double) a.get(i)[1] - (Double) b.get(i)[1]) > 0.01) return false;
+        }
+        return true;
+    }
+}
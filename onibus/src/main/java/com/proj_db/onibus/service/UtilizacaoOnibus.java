@@ -0,0 +1,188 @@
+package com.proj_db.onibus.service;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.dto.SessaoOperacionalDTO;
+import com.proj_db.onibus.dto.UtilizacaoOnibusDTO;
+import com.proj_db.onibus.model.SessaoOperacional;
+import com.proj_db.onibus.repository.SessaoOperacionalRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Sessões operacionais e agregados diários de utilização por ônibus (onibus_utilizacao_diaria).
+ * Quando uma sessão é encerrada (retirarDeOperacao, inclusive quando chamado por manutenção, reforma ou
+ * aposentadoria) o listener de UPDATE do Hibernate divide o intervalo entre os dias que ele atravessa e soma
+ * tempo, sessões e km nas linhas desses dias, no flush da mesma transação. Os relatórios de frota leem só esses
+ * agregados; a visão semanal agrupa as no máximo 7 linhas diárias de cada ônibus por semana.
+ */
+@Service
+public class UtilizacaoOnibus implements PostUpdateEventListener {
+
+    public enum Agrupamento { DIA, SEMANA }
+
+    private static final String SQL_SOMAR_DIA =
+        "INSERT INTO onibus_utilizacao_diaria (onibus_id, dia, segundos_operacao, sessoes, km) VALUES (?, ?, ?, ?, ?) " +
+        "ON CONFLICT (onibus_id, dia) DO UPDATE SET segundos_operacao = onibus_utilizacao_diaria.segundos_operacao + EXCLUDED.segundos_operacao, " +
+        "sessoes = onibus_utilizacao_diaria.sessoes + EXCLUDED.sessoes, km = onibus_utilizacao_diaria.km + EXCLUDED.km";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private SessaoOperacionalRepository sessaoRepository;
+
+    private final TransactionTemplate transacao;
+
+    public UtilizacaoOnibus(PlatformTransactionManager transactionManager) {
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+            .getService(EventListenerRegistry.class).appendListeners(EventType.POST_UPDATE, this);
+
+        boolean migrou = migrarHistoricoOperacional();
+        Long agregados = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM onibus_utilizacao_diaria", Long.class);
+        if (migrou || agregados == null || agregados == 0) {
+            reconstruir();
+        }
+    }
+
+    // --- CONSULTAS ---
+
+    public List<SessaoOperacionalDTO> listarSessoes(Long onibusId, LocalDate de, LocalDate ate) {
+        return transacao.execute(status -> sessaoRepository
+            .findPorOnibusNoPeriodo(onibusId, de.atStartOfDay(), ate.plusDays(1).atStartOfDay())
+            .stream().map(SessaoOperacionalDTO::de).toList());
+    }
+
+    // Só aparecem ônibus com alguma sessão encerrada no período
+    public List<UtilizacaoOnibusDTO> relatorioFrota(LocalDate de, LocalDate ate, Agrupamento agrupamento) {
+        String periodo = agrupamento == Agrupamento.SEMANA ? "CAST(date_trunc('week', u.dia) AS DATE)" : "u.dia";
+        return jdbcTemplate.query(
+            "SELECT u.onibus_id, o.placa, " + periodo + " AS periodo, SUM(u.segundos_operacao), SUM(u.sessoes), SUM(u.km), " +
+            "COUNT(*) FILTER (WHERE u.segundos_operacao > 0) " +
+            "FROM onibus_utilizacao_diaria u JOIN onibus o ON o.id = u.onibus_id " +
+            "WHERE u.dia BETWEEN ? AND ? GROUP BY u.onibus_id, o.placa, periodo ORDER BY periodo, u.onibus_id",
+            (rs, i) -> {
+                LocalDate inicioPeriodo = rs.getDate(3).toLocalDate();
+                long sessoes = rs.getLong(5);
+                double km = rs.getDouble(6);
+                return new UtilizacaoOnibusDTO(rs.getLong(1), rs.getString(2), inicioPeriodo, rs.getLong(4) / 3600.0,
+                    sessoes, km, sessoes > 0 ? km / sessoes : null,
+                    diasNoPeriodo(inicioPeriodo, agrupamento, de, ate) - rs.getLong(7));
+            },
+            Date.valueOf(de), Date.valueOf(ate));
+    }
+
+    // Dias do período que caem dentro do intervalo consultado (a primeira e a última semana podem estar cortadas)
+    private long diasNoPeriodo(LocalDate inicioPeriodo, Agrupamento agrupamento, LocalDate de, LocalDate ate) {
+        if (agrupamento == Agrupamento.DIA) return 1;
+        LocalDate inicio = inicioPeriodo.isBefore(de) ? de : inicioPeriodo;
+        LocalDate fim = inicioPeriodo.plusDays(6).isAfter(ate) ? ate : inicioPeriodo.plusDays(6);
+        return ChronoUnit.DAYS.between(inicio, fim) + 1;
+    }
+
+    // --- RECONSTRUÇÃO ---
+
+    public void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        int linhas = transacao.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE onibus_utilizacao_diaria IN EXCLUSIVE MODE");
+            jdbcTemplate.update("DELETE FROM onibus_utilizacao_diaria");
+            return jdbcTemplate.update(
+                "INSERT INTO onibus_utilizacao_diaria (onibus_id, dia, segundos_operacao, sessoes, km) " +
+                "SELECT s.onibus_id, CAST(d AS DATE), " +
+                "CAST(SUM(EXTRACT(EPOCH FROM LEAST(s.fim, d + INTERVAL '1 day') - GREATEST(s.inicio, d))) AS BIGINT), " +
+                "SUM(CASE WHEN CAST(s.fim AS DATE) = CAST(d AS DATE) THEN 1 ELSE 0 END), " +
+                "SUM(CASE WHEN CAST(s.fim AS DATE) = CAST(d AS DATE) THEN s.km_fim - s.km_inicio ELSE 0 END) " +
+                "FROM onibus_sessoes_operacionais s " +
+                "CROSS JOIN LATERAL generate_series(date_trunc('day', s.inicio), date_trunc('day', s.fim), INTERVAL '1 day') d " +
+                "WHERE s.fim IS NOT NULL GROUP BY s.onibus_id, CAST(d AS DATE)");
+        });
+        System.out.println("LOG: Utilização diária da frota reconstruída: " + linhas + " linhas em "
+            + (System.currentTimeMillis() - inicio) + " ms.");
+    }
+
+    // Converte a antiga coleção onibus_historico_operacional (registros soltos de INICIO/FIM, só com data) em sessões
+    private boolean migrarHistoricoOperacional() {
+        Boolean existe = jdbcTemplate.queryForObject("SELECT to_regclass('onibus_historico_operacional') IS NOT NULL", Boolean.class);
+        if (!Boolean.TRUE.equals(existe)) return false;
+
+        int sessoes = transacao.execute(status -> {
+            // Cada INICIO forma par com o registro seguinte do mesmo ônibus se ele for um FIM; o último INICIO
+            // de um ônibus que ainda está EM_OPERACAO vira a sessão em aberto. INICIOs sem par são descartados.
+            int total = jdbcTemplate.update(
+                "INSERT INTO onibus_sessoes_operacionais (onibus_id, inicio, fim, km_inicio, km_fim) " +
+                "SELECT r.onibus_id, CAST(r.data_registro AS TIMESTAMP), " +
+                "CASE WHEN r.prox_tipo = 'FIM_OPERACAO' THEN CAST(r.prox_data AS TIMESTAMP) END, " +
+                "r.quilometragem_no_registro, CASE WHEN r.prox_tipo = 'FIM_OPERACAO' THEN r.prox_km END " +
+                "FROM (SELECT h.*, LEAD(tipo_registro) OVER w AS prox_tipo, LEAD(data_registro) OVER w AS prox_data, " +
+                "LEAD(quilometragem_no_registro) OVER w AS prox_km FROM onibus_historico_operacional h " +
+                "WINDOW w AS (PARTITION BY onibus_id ORDER BY data_registro, quilometragem_no_registro, tipo_registro DESC)) r " +
+                "JOIN onibus o ON o.id = r.onibus_id " +
+                "WHERE r.tipo_registro = 'INICIO_OPERACAO' " +
+                "AND (r.prox_tipo = 'FIM_OPERACAO' OR (r.prox_tipo IS NULL AND o.status = 'EM_OPERACAO'))");
+            jdbcTemplate.update(
+                "UPDATE onibus o SET sessao_operacional_atual_id = s.id FROM onibus_sessoes_operacionais s " +
+                "WHERE s.onibus_id = o.id AND s.fim IS NULL AND o.sessao_operacional_atual_id IS NULL");
+            jdbcTemplate.execute("DROP TABLE onibus_historico_operacional");
+            return total;
+        });
+        System.out.println("LOG: Histórico operacional migrado para " + sessoes + " sessões operacionais.");
+        return true;
+    }
+
+    // --- LISTENER DO HIBERNATE ---
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof SessaoOperacional sessao) || event.getOldState() == null) return;
+        int posicaoFim = event.getPersister().findAttributeMapping("fim").getStateArrayPosition();
+        if (event.getOldState()[posicaoFim] != null || sessao.getFim() == null) return; // Só no encerramento
+
+        Long onibusId = sessao.getOnibus().getId();
+        LocalDate ultimoDia = sessao.getFim().toLocalDate();
+        event.getSession().doWork(conexao -> {
+            try (PreparedStatement ps = conexao.prepareStatement(SQL_SOMAR_DIA)) {
+                for (LocalDate dia = sessao.getInicio().toLocalDate(); !dia.isAfter(ultimoDia); dia = dia.plusDays(1)) {
+                    LocalDateTime inicioDia = dia.atStartOfDay();
+                    LocalDateTime de = sessao.getInicio().isAfter(inicioDia) ? sessao.getInicio() : inicioDia;
+                    LocalDateTime ate = sessao.getFim().isBefore(inicioDia.plusDays(1)) ? sessao.getFim() : inicioDia.plusDays(1);
+                    boolean diaDoEncerramento = dia.equals(ultimoDia);
+                    ps.setLong(1, onibusId);
+                    ps.setDate(2, Date.valueOf(dia));
+                    ps.setLong(3, Duration.between(de, ate).toSeconds());
+                    ps.setInt(4, diaDoEncerramento ? 1 : 0);
+                    ps.setDouble(5, diaDoEncerramento ? sessao.getKmFim() - sessao.getKmInicio() : 0.0);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+}
@@ -0,0 +1,149 @@
+package com.proj_db.onibus.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.proj_db.onibus.dto.VarreduraPreventivaRelatorioDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaResultadoDTO;
+import com.proj_db.onibus.repository.CambioRepository;
+import com.proj_db.onibus.repository.MotorRepository;
+import com.proj_db.onibus.repository.OnibusRepository;
+import com.proj_db.onibus.repository.PneuRepository;
+
+/*
+ * Coordena a varredura de OS preventivas de Motor, Câmbio, Pneu e Ônibus.
+ * Cada entidade é dividida em faixas de ID processadas em threads virtuais; cada faixa roda
+ * em sua própria transação (chamada via proxy do serviço). O semáforo limita quantas faixas
+ * usam o banco ao mesmo tempo: cada uma pode segurar duas conexões (a da faixa e a transação
+ * isolada do GeradorNumeroOS), então o limite deve ficar abaixo da metade do pool do Hikari.
+ */
+@Service
+public class VarreduraPreventivaCoordenador {
+
+    @Autowired private MotorService motorService;
+    @Autowired private CambioService cambioService;
+    @Autowired private PneuService pneuService;
+    @Autowired private OnibusService onibusService;
+
+    @Autowired private MotorRepository motorRepository;
+    @Autowired private CambioRepository cambioRepository;
+    @Autowired private PneuRepository pneuRepository;
+    @Autowired private OnibusRepository onibusRepository;
+
+    @Value("${onibus.preventiva.particoes:8}")
+    private int particoesPorEntidade;
+
+    @Value("${onibus.preventiva.max-paralelismo:4}")
+    private int maxParalelismo;
+
+    private final AtomicBoolean emExecucao = new AtomicBoolean(false);
+
+    @Scheduled(cron = "${onibus.preventiva.cron:0 0 2 * * *}")
+    public void executarAgendado() {
+        try {
+            VarreduraPreventivaRelatorioDTO relatorio = executarParalelo();
+            System.out.println("LOG: Varredura preventiva agendada concluída: " + relatorio);
+        } catch (IllegalStateException e) {
+            System.out.println("ALERTA: " + e.getMessage());
+        }
+    }
+
+    public VarreduraPreventivaRelatorioDTO executarParalelo() {
+        iniciarExecucao();
+        long inicio = System.currentTimeMillis();
+        Semaphore permissoes = new Semaphore(Math.max(1, maxParalelismo));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<VarreduraPreventivaResultadoDTO>> porEntidade = List.of(
+                varrerEntidade("Motor", motorRepository.findMenorId(), motorRepository.findMaiorId(),
+                    motorService::verificarEGerarOsPreventivas, permissoes, executor),
+                varrerEntidade("Cambio", cambioRepository.findMenorId(), cambioRepository.findMaiorId(),
+                    cambioService::verificarEGerarOsPreventivas, permissoes, executor),
+                varrerEntidade("Pneu", pneuRepository.findMenorId(), pneuRepository.findMaiorId(),
+                    pneuService::verificarEGerarOsPreventivas, permissoes, executor),
+                varrerEntidade("Onibus", onibusRepository.findMenorId(), onibusRepository.findMaiorId(),
+                    onibusService::verificarEGerarOsPreventivas, permissoes, executor)
+            );
+            List<VarreduraPreventivaResultadoDTO> resultados = porEntidade.stream().map(CompletableFuture::join).toList();
+            return new VarreduraPreventivaRelatorioDTO("PARALELO", resultados, System.currentTimeMillis() - inicio);
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    // Mesma varredura em lotes, sem as faixas: uma entidade depois da outra, cada uma numa só transação e thread.
+    // Serve de referência para medir o ganho das faixas paralelas (o laço antigo, registro a registro, não existe mais).
+    public VarreduraPreventivaRelatorioDTO executarSerial() {
+        iniciarExecucao();
+        long inicio = System.currentTimeMillis();
+        try {
+            List<VarreduraPreventivaResultadoDTO> resultados = List.of(
+                motorService.verificarEGerarOsPreventivas(),
+                cambioService.verificarEGerarOsPreventivas(),
+                pneuService.verificarEGerarOsPreventivas(),
+                onibusService.verificarEGerarOsPreventivas()
+            );
+            return new VarreduraPreventivaRelatorioDTO("SERIAL", resultados, System.currentTimeMillis() - inicio);
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    private void iniciarExecucao() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            throw new IllegalStateException("Já existe uma varredura preventiva em execução.");
+        }
+    }
+
+    private CompletableFuture<VarreduraPreventivaResultadoDTO> varrerEntidade(String entidade, Long menorId, Long maiorId,
+            BiFunction<Long, Long, VarreduraPreventivaResultadoDTO> varredura, Semaphore permissoes, ExecutorService executor) {
+        long inicio = System.currentTimeMillis();
+        List<CompletableFuture<VarreduraPreventivaResultadoDTO>> particoes = new ArrayList<>();
+        if (maiorId > 0) {
+            long total = maiorId - menorId + 1;
+            long tamanhoFaixa = Math.max(1, (total + particoesPorEntidade - 1) / particoesPorEntidade);
+            for (long idInicial = menorId; idInicial <= maiorId; idInicial += tamanhoFaixa) {
+                long inicioFaixa = idInicial;
+                long fimFaixa = Math.min(maiorId, idInicial + tamanhoFaixa - 1);
+                particoes.add(CompletableFuture.supplyAsync(
+                    () -> executarParticao(varredura, inicioFaixa, fimFaixa, permissoes), executor));
+            }
+        }
+        return CompletableFuture.allOf(particoes.toArray(new CompletableFuture[0]))
+            .thenApply(v -> {
+                long verificados = 0;
+                long criadas = 0;
+                for (CompletableFuture<VarreduraPreventivaResultadoDTO> particao : particoes) {
+                    VarreduraPreventivaResultadoDTO parcial = particao.join();
+                    verificados += parcial.registrosVerificados();
+                    criadas += parcial.osCriadas();
+                }
+                return new VarreduraPreventivaResultadoDTO(entidade, verificados, criadas, System.currentTimeMillis() - inicio);
+            });
+    }
+
+    private VarreduraPreventivaResultadoDTO executarParticao(BiFunction<Long, Long, VarreduraPreventivaResultadoDTO> varredura,
+            long idInicial, long idFinal, Semaphore permissoes) {
+        try {
+            permissoes.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Varredura preventiva interrompida.", e);
+        }
+        try {
+            return varredura.apply(idInicial, idFinal);
+        } finally {
+            permissoes.release();
+        }
+    }
+}
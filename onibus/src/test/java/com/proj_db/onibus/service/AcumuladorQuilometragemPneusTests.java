@@ -0,0 +1,104 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.proj_db.onibus.dto.OnibusCreateDTO;
+import com.proj_db.onibus.dto.PneuCreateDTO;
+import com.proj_db.onibus.model.Pneu;
+
+/*
+ * Troca de pneu com quilometragem ainda no WAL do write-behind: a km das viagens feitas com o pneu antigo vai
+ * para ele (a troca descarrega antes), e o pneu novo só recebe as viagens feitas depois de instalado.
+ * A descarga agendada fica num intervalo longo para não interferir; o teste descarrega explicitamente.
+ */
+@SpringBootTest(properties = {
+	"onibus.viagens.write-behind.ativo=true",
+	"onibus.viagens.write-behind.diretorio-wal=target/wal-teste-pneus",
+	"onibus.viagens.write-behind.intervalo-ms=3600000"
+})
+class AcumuladorQuilometragemPneusTests {
+
+	@Autowired private AcumuladorQuilometragem acumuladorQuilometragem;
+	@Autowired private OnibusService onibusService;
+	@Autowired private PneuService pneuService;
+	@Autowired private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void pneuTrocadoAntesDaDescargaFicaComAKmDasSuasViagens() {
+		Long onibusId = criarOnibus();
+		Long pneuAntigo = criarPneu();
+		Long pneuNovo = criarPneu();
+		double kmOnibus = quilometragem(onibusId);
+		double kmAntigo = kmRodados(pneuAntigo);
+		double kmNovo = kmRodados(pneuNovo);
+
+		onibusService.instalarPneu(onibusId, pneuAntigo, Pneu.PosicaoPneu.DD);
+		mudarStatus(onibusId, "EM_OPERACAO");
+		acumuladorQuilometragem.registrar(onibusId, 100.0);
+
+		// Troca com os 100 km ainda pendentes
+		mudarStatus(onibusId, "DISPONIVEL");
+		onibusService.removerPneu(onibusId, Pneu.PosicaoPneu.DD);
+		onibusService.instalarPneu(onibusId, pneuNovo, Pneu.PosicaoPneu.DD);
+		assertEquals(0.0, acumuladorQuilometragem.getKmPendente(onibusId), 1e-9);
+
+		mudarStatus(onibusId, "EM_OPERACAO");
+		acumuladorQuilometragem.registrar(onibusId, 30.0);
+		acumuladorQuilometragem.descarregar();
+
+		assertEquals(kmAntigo + 100.0, kmRodados(pneuAntigo), 1e-9);
+		assertEquals(kmNovo + 30.0, kmRodados(pneuNovo), 1e-9);
+		assertEquals(kmOnibus + 130.0, quilometragem(onibusId), 1e-9);
+	}
+
+	// --- AUXILIARES ---
+
+	private void mudarStatus(Long onibusId, String status) {
+		jdbcTemplate.update("UPDATE onibus SET status = ? WHERE id = ?", status, onibusId);
+	}
+
+	private double quilometragem(Long onibusId) {
+		return jdbcTemplate.queryForObject("SELECT quilometragem FROM onibus WHERE id = ?", Double.class, onibusId);
+	}
+
+	private double kmRodados(Long pneuId) {
+		return jdbcTemplate.queryForObject("SELECT km_rodados FROM pneus WHERE id = ?", Double.class, pneuId);
+	}
+
+	private Long criarOnibus() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		OnibusCreateDTO dto = new OnibusCreateDTO();
+		dto.setChassi("TESTE-CH-" + sufixo);
+		dto.setPlaca("TST-" + sufixo);
+		dto.setModelo("Teste");
+		dto.setMarca("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setCapacidade(40);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroFrota("T-" + sufixo);
+		dto.setDataCompra(LocalDate.now());
+		return onibusService.save(dto).getId();
+	}
+
+	private Long criarPneu() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		PneuCreateDTO dto = new PneuCreateDTO();
+		dto.setMarca("Teste");
+		dto.setMedida("295/80R22.5");
+		dto.setModelo("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroSerie("TESTE-NS-" + sufixo);
+		dto.setDataCompra(LocalDate.now());
+		dto.setPeriodoGarantiaMeses(12);
+		return pneuService.save(dto).getId();
+	}
+}
@@ -0,0 +1,130 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.proj_db.onibus.dto.OrdemServicoSearchDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.dto.PneuCreateDTO;
+import com.proj_db.onibus.dto.ProdutoCreateDTO;
+import com.proj_db.onibus.model.Produto;
+
+/*
+ * Planos dos filtros por EXISTS: o SQL que o Hibernate gera para a busca por pneuId (OnibusSpecification) e por
+ * produtoId (OrdemServicoSpecification) é capturado pelo StatementInspector e passa por EXPLAIN VERBOSE.
+ * O plano não pode ter o passo de DISTINCT (Unique ou HashAggregate sobre as linhas) do antigo join na coleção
+ * e tem de ter um semi-join. O plano do join com DISTINCT de antes vai para o log, para comparação.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.proj_db.onibus.service.BuscaPaginadaPlanoTests$CapturaSql")
+class BuscaPaginadaPlanoTests {
+
+	private static final ParametrosPaginaDTO SEM_LIMITE = new ParametrosPaginaDTO(null, null, null, null, null, false);
+	private static final Pattern PASSO_DISTINCT = Pattern.compile("^\\s*(->\\s*)?(Unique|HashAggregate|GroupAggregate)\\b", Pattern.MULTILINE);
+
+	@Autowired private OnibusService onibusService;
+	@Autowired private OrdemServicoService ordemServicoService;
+	@Autowired private PneuService pneuService;
+	@Autowired private ProdutoService produtoService;
+	@Autowired private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void limparCaptura() {
+		CapturaSql.COMANDOS.clear();
+	}
+
+	@Test
+	void filtroPorPneuUsaSemiJoinSemDistinct() {
+		Long pneuId = criarPneu();
+		onibusService.search(new OnibusService.OnibusSearchDTO(null, null, null, null, null, null, null, null, pneuId), SEM_LIMITE);
+
+		String plano = explicar(consultaComExists(), pneuId);
+		System.out.println("LOG: Plano da busca de ônibus por pneuId (EXISTS):\n" + plano);
+		System.out.println("LOG: Plano do join com DISTINCT de antes:\n" + explicar(
+			"SELECT DISTINCT o.* FROM onibus o JOIN pneus p ON p.onibus_id = o.id WHERE p.id = ? ORDER BY o.id", pneuId));
+
+		assertFalse(PASSO_DISTINCT.matcher(plano).find(), plano);
+		// pneus.id é a chave primária: o PostgreSQL pode reduzir o semi-join a um join com o lado interno único
+		assertTrue(plano.contains("Semi Join") || plano.contains("Inner Unique: true"), plano);
+	}
+
+	@Test
+	void filtroPorProdutoUsaSemiJoinSemDistinct() {
+		Long produtoId = criarProduto();
+		OrdemServicoSearchDTO criterios = new OrdemServicoSearchDTO();
+		criterios.setProdutoId(produtoId);
+		ordemServicoService.search(criterios, SEM_LIMITE);
+
+		String plano = explicar(consultaComExists(), produtoId);
+		System.out.println("LOG: Plano da busca de OS por produtoId (EXISTS):\n" + plano);
+		System.out.println("LOG: Plano do join com DISTINCT de antes:\n" + explicar(
+			"SELECT DISTINCT os.* FROM ordens_servico os JOIN itens_ordem_servico i ON i.ordem_servico_id = os.id WHERE i.produto_id = ? ORDER BY os.id", produtoId));
+
+		assertFalse(PASSO_DISTINCT.matcher(plano).find(), plano);
+		assertTrue(plano.contains("Semi Join"), plano);
+	}
+
+	// --- AUXILIARES ---
+
+	// Só o SQL dos filtros tem EXISTS; o carregamento das entidades por id e o COUNT ficam de fora
+	private String consultaComExists() {
+		return CapturaSql.COMANDOS.stream()
+			.filter(sql -> sql.toLowerCase().contains("exists"))
+			.findFirst()
+			.orElseThrow(() -> new AssertionError("Busca não gerou SQL com EXISTS: " + CapturaSql.COMANDOS));
+	}
+
+	private String explicar(String sql, Object... parametros) {
+		List<String> linhas = jdbcTemplate.queryForList("EXPLAIN (VERBOSE) " + sql, String.class, parametros);
+		return String.join("\n", linhas);
+	}
+
+	private Long criarPneu() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		PneuCreateDTO dto = new PneuCreateDTO();
+		dto.setMarca("Teste");
+		dto.setMedida("295/80R22.5");
+		dto.setModelo("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroSerie("TESTE-NS-" + sufixo);
+		dto.setDataCompra(LocalDate.now());
+		dto.setPeriodoGarantiaMeses(12);
+		return pneuService.save(dto).getId();
+	}
+
+	private Long criarProduto() {
+		ProdutoCreateDTO dto = new ProdutoCreateDTO();
+		dto.setNome("Produto de teste de plano");
+		dto.setMarca("Teste");
+		dto.setUnidadeMedida(Produto.UnidadeMedida.UNIDADE);
+		dto.setCodigoInterno("TESTE-" + UUID.randomUUID().toString().substring(0, 8));
+		dto.setCategoria(Produto.Categoria.OUTRO);
+		dto.setPrecoInicial(1.0);
+		dto.setEstoqueMinimo(1);
+		return produtoService.save(dto).getId();
+	}
+
+	// Registrado pela propriedade do Hibernate, que instancia a classe pelo nome
+	public static class CapturaSql implements StatementInspector {
+		static final List<String> COMANDOS = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			COMANDOS.add(sql);
+			return sql;
+		}
+	}
+}
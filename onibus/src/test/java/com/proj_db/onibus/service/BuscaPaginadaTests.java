@@ -0,0 +1,190 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.proj_db.onibus.dto.OnibusCreateDTO;
+import com.proj_db.onibus.dto.OrdemServicoCreateDTO;
+import com.proj_db.onibus.dto.OrdemServicoResponseDTO;
+import com.proj_db.onibus.dto.OrdemServicoSearchDTO;
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.dto.ProdutoCreateDTO;
+import com.proj_db.onibus.model.OrdemServico;
+import com.proj_db.onibus.model.Produto;
+
+/*
+ * Paginação das buscas por Specification: limites de página e tamanho, ordenação só por atributos simples,
+ * percurso por cursor e filtro por EXISTS (OS com o mesmo produto em vários itens aparece uma vez só).
+ * Cada teste cria o próprio ônibus, então os filtros por onibusId isolam as OS dele.
+ */
+@SpringBootTest
+class BuscaPaginadaTests {
+
+	@Autowired private OrdemServicoService ordemServicoService;
+	@Autowired private OnibusService onibusService;
+	@Autowired private ProdutoService produtoService;
+
+	private String sufixo;
+	private Long onibusId;
+	private Long produtoId;
+	private final List<Long> osIds = new ArrayList<>();
+
+	@BeforeEach
+	void criarOrdens() {
+		sufixo = UUID.randomUUID().toString().substring(0, 8);
+		onibusId = criarOnibus();
+		produtoId = criarProduto();
+		// Três OS do mesmo ônibus: as duas primeiras com o produto em dois itens cada, a terceira sem ele
+		for (int i = 0; i < 3; i++) {
+			Long osId = criarOs(i);
+			if (i < 2) {
+				ordemServicoService.addItem(osId, produtoId, 1.0, "Item A");
+				ordemServicoService.addItem(osId, produtoId, 2.0, "Item B");
+			}
+			osIds.add(osId);
+		}
+	}
+
+	@Test
+	void filtroPorProdutoNaoDuplicaOs() {
+		PaginaBuscaDTO<OrdemServicoResponseDTO> pagina = buscar(porProduto(), new ParametrosPaginaDTO(0, 10, null, null, null, true));
+		List<Long> ids = pagina.itens().stream().map(OrdemServicoResponseDTO::getId).toList();
+		assertEquals(List.of(osIds.get(0), osIds.get(1)), ids);
+		assertEquals(2L, pagina.totalItens());
+		assertFalse(pagina.temProxima());
+	}
+
+	@Test
+	void paginasPorOffsetCobremTudoUmaVez() {
+		List<Long> vistos = new ArrayList<>();
+		for (int p = 0; p < 3; p++) {
+			PaginaBuscaDTO<OrdemServicoResponseDTO> pagina = buscar(porOnibus(), new ParametrosPaginaDTO(p, 1, "id", "ASC", null, false));
+			assertEquals(1, pagina.itens().size());
+			assertEquals(p < 2, pagina.temProxima());
+			assertNull(pagina.totalItens());
+			vistos.add(pagina.itens().get(0).getId());
+		}
+		assertEquals(osIds, vistos);
+
+		PaginaBuscaDTO<OrdemServicoResponseDTO> alemDoFim = buscar(porOnibus(), new ParametrosPaginaDTO(7, 1, null, null, null, null));
+		assertTrue(alemDoFim.itens().isEmpty());
+		assertFalse(alemDoFim.temProxima());
+	}
+
+	@Test
+	void limitesDePaginaETamanhoSaoNormalizados() {
+		PaginaBuscaDTO<OrdemServicoResponseDTO> negativa = buscar(porOnibus(), new ParametrosPaginaDTO(-5, 0, null, null, null, null));
+		assertEquals(0, negativa.pagina());
+		assertEquals(1, negativa.tamanho());
+		assertEquals(1, negativa.itens().size());
+
+		PaginaBuscaDTO<OrdemServicoResponseDTO> enorme = buscar(porOnibus(), new ParametrosPaginaDTO(null, Integer.MAX_VALUE, null, null, null, null));
+		assertEquals(1000, enorme.tamanho());
+		assertEquals(3, enorme.itens().size());
+
+		PaginaBuscaDTO<OrdemServicoResponseDTO> padrao = buscar(porOnibus(), new ParametrosPaginaDTO(0, null, null, null, null, null));
+		assertEquals(0, padrao.pagina());
+		assertEquals(100, padrao.tamanho());
+
+		// Sem pagina, tamanho nem cursor (os seletores do frontend): tudo, sem próxima página
+		PaginaBuscaDTO<OrdemServicoResponseDTO> semLimite = buscar(porOnibus(), new ParametrosPaginaDTO(null, null, null, "desc", null, true));
+		assertNull(semLimite.pagina());
+		assertFalse(semLimite.temProxima());
+		assertEquals(3L, semLimite.totalItens());
+		assertEquals(List.of(osIds.get(2), osIds.get(1), osIds.get(0)), semLimite.itens().stream().map(OrdemServicoResponseDTO::getId).toList());
+	}
+
+	@Test
+	void ordenacaoDescendenteECursor() {
+		// numeroOS cresce com a ordem de criação, então DESC devolve as OS de trás para frente
+		List<Long> vistos = new ArrayList<>();
+		String cursor = null;
+		do {
+			PaginaBuscaDTO<OrdemServicoResponseDTO> pagina = buscar(porOnibus(), new ParametrosPaginaDTO(null, 2, "numeroOS", "desc", cursor, null));
+			if (cursor != null) assertNull(pagina.pagina()); // Página por cursor não tem número
+			pagina.itens().forEach(os -> vistos.add(os.getId()));
+			cursor = pagina.proximoCursor();
+		} while (cursor != null);
+		assertEquals(List.of(osIds.get(2), osIds.get(1), osIds.get(0)), vistos);
+	}
+
+	@Test
+	void ordenacaoECursorInvalidosSaoRecusados() {
+		assertThrows(IllegalArgumentException.class,
+			() -> buscar(porOnibus(), new ParametrosPaginaDTO(0, 10, "campoQueNaoExiste", null, null, null)));
+		assertThrows(IllegalArgumentException.class,
+			() -> buscar(porOnibus(), new ParametrosPaginaDTO(0, 10, "itens", null, null, null)));
+		assertThrows(IllegalArgumentException.class,
+			() -> buscar(porOnibus(), new ParametrosPaginaDTO(0, 10, "onibus", null, null, null)));
+		assertThrows(IllegalArgumentException.class,
+			() -> buscar(porOnibus(), new ParametrosPaginaDTO(null, 10, "id", null, "não é base64!", null)));
+	}
+
+	// --- AUXILIARES ---
+
+	private PaginaBuscaDTO<OrdemServicoResponseDTO> buscar(OrdemServicoSearchDTO criterios, ParametrosPaginaDTO pagina) {
+		return ordemServicoService.search(criterios, pagina);
+	}
+
+	private OrdemServicoSearchDTO porOnibus() {
+		OrdemServicoSearchDTO criterios = new OrdemServicoSearchDTO();
+		criterios.setOnibusId(onibusId);
+		return criterios;
+	}
+
+	private OrdemServicoSearchDTO porProduto() {
+		OrdemServicoSearchDTO criterios = porOnibus();
+		criterios.setProdutoId(produtoId);
+		return criterios;
+	}
+
+	private Long criarOs(int ordem) {
+		OrdemServicoCreateDTO dto = new OrdemServicoCreateDTO();
+		dto.setNumeroOS("TESTE-" + sufixo + "-" + ordem);
+		dto.setTipo(OrdemServico.TipoOrdemServico.CORRETIVA);
+		dto.setDataPrevisaoInicio(LocalDate.now());
+		dto.setDataPrevisaoConclusao(LocalDate.now().plusDays(1));
+		dto.setOnibusId(onibusId);
+		return ordemServicoService.create(dto).getId();
+	}
+
+	private Long criarOnibus() {
+		OnibusCreateDTO dto = new OnibusCreateDTO();
+		dto.setChassi("TESTE-CH-" + sufixo);
+		dto.setPlaca("TST-" + sufixo);
+		dto.setModelo("Teste");
+		dto.setMarca("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setCapacidade(40);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroFrota("T-" + sufixo);
+		dto.setDataCompra(LocalDate.now());
+		return onibusService.save(dto).getId();
+	}
+
+	private Long criarProduto() {
+		ProdutoCreateDTO dto = new ProdutoCreateDTO();
+		dto.setNome("Produto de teste de busca");
+		dto.setMarca("Teste");
+		dto.setUnidadeMedida(Produto.UnidadeMedida.UNIDADE);
+		dto.setCodigoInterno("TESTE-" + sufixo);
+		dto.setCategoria(Produto.Categoria.OUTRO);
+		dto.setPrecoInicial(1.0);
+		dto.setEstoqueMinimo(1);
+		return produtoService.save(dto).getId();
+	}
+}
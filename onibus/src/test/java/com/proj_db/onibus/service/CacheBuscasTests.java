@@ -0,0 +1,144 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.dto.PaginaBuscaDTO;
+import com.proj_db.onibus.dto.ParametrosPaginaDTO;
+import com.proj_db.onibus.dto.ProdutoCreateDTO;
+import com.proj_db.onibus.dto.ProdutoResponseDTO;
+import com.proj_db.onibus.model.Estoque;
+import com.proj_db.onibus.model.Produto;
+
+/*
+ * Invalidação do cache de buscas: só depois do commit (nem antes, nem em rollback), pelo listener do Hibernate
+ * e pelas dependências entre entidades; e uma consulta que correu junto com uma invalidação não fica no cache.
+ * As consultas são funções que contam as chamadas, com critérios únicos por teste como chave. O cache guarda a
+ * página de DTOs de resposta que o serviço devolve, não entidades.
+ */
+@SpringBootTest
+class CacheBuscasTests {
+
+	private static final ParametrosPaginaDTO PAGINA = new ParametrosPaginaDTO(0, 10, "id", "ASC", null, false);
+
+	@Autowired private CacheBuscas cacheBuscas;
+	@Autowired private ProdutoService produtoService;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transacao;
+	private String criterios;
+	private final AtomicInteger consultas = new AtomicInteger();
+
+	@BeforeEach
+	void preparar() {
+		transacao = new TransactionTemplate(transactionManager);
+		criterios = "teste-" + UUID.randomUUID();
+	}
+
+	@Test
+	void invalidacaoSoValeDepoisDoCommit() {
+		buscar(Produto.class);
+		buscar(Produto.class);
+		assertEquals(1, consultas.get());
+
+		transacao.executeWithoutResult(status -> {
+			cacheBuscas.invalidar(Produto.class);
+			buscar(Produto.class); // Ainda antes do commit: outras transações não veem a escrita, o cache continua valendo
+			assertEquals(1, consultas.get());
+		});
+		buscar(Produto.class);
+		assertEquals(2, consultas.get());
+
+		transacao.executeWithoutResult(status -> {
+			cacheBuscas.invalidar(Produto.class);
+			status.setRollbackOnly();
+		});
+		buscar(Produto.class);
+		assertEquals(2, consultas.get());
+	}
+
+	@Test
+	void escritaPeloHibernateInvalidaDependentes() {
+		Long produtoId = criarProduto("TESTE-" + UUID.randomUUID().toString().substring(0, 8));
+		buscar(Produto.class);
+		buscar(Estoque.class);
+		assertEquals(2, consultas.get());
+
+		// O Estoque depende de Produto (o DTO mostra o produto), então as duas buscas saem do cache
+		produtoService.updatePrice(produtoId, 2.0);
+		buscar(Produto.class);
+		buscar(Estoque.class);
+		assertEquals(4, consultas.get());
+	}
+
+	@Test
+	void consultaQueCorreuComInvalidacaoNaoFicaNoCache() {
+		// A invalidação chega enquanto a consulta roda: o resultado pode ser anterior à escrita e é descartado
+		cacheBuscas.obter(Produto.class, criterios, PAGINA, () -> {
+			consultas.incrementAndGet();
+			cacheBuscas.invalidar(Produto.class);
+			return paginaVazia();
+		});
+		buscar(Produto.class);
+		assertEquals(2, consultas.get());
+
+		// A consulta seguinte, sem corrida, fica
+		buscar(Produto.class);
+		assertEquals(2, consultas.get());
+	}
+
+	@Test
+	void buscaDoServicoGuardaAPaginaDeDTOs() {
+		String codigo = "TESTE-" + UUID.randomUUID().toString().substring(0, 8);
+		Long produtoId = criarProduto(codigo);
+		ProdutoService.ProdutoSearchDTO porCodigo = new ProdutoService.ProdutoSearchDTO(null, null, codigo, null, null);
+
+		PaginaBuscaDTO<ProdutoResponseDTO> primeira = produtoService.search(porCodigo, PAGINA);
+		PaginaBuscaDTO<ProdutoResponseDTO> segunda = produtoService.search(porCodigo, PAGINA);
+		assertSame(primeira, segunda);
+		assertEquals(List.of(produtoId), primeira.itens().stream().map(ProdutoResponseDTO::getId).toList());
+
+		// Depois de uma escrita a página é refeita a partir do banco
+		produtoService.updatePrice(produtoId, 2.0);
+		PaginaBuscaDTO<ProdutoResponseDTO> refeita = produtoService.search(porCodigo, PAGINA);
+		assertNotSame(primeira, refeita);
+		assertEquals(List.of(produtoId), refeita.itens().stream().map(ProdutoResponseDTO::getId).toList());
+	}
+
+	// --- AUXILIARES ---
+
+	private <T> void buscar(Class<T> entidade) {
+		cacheBuscas.obter(entidade, criterios, PAGINA, () -> {
+			consultas.incrementAndGet();
+			return paginaVazia();
+		});
+	}
+
+	private static <T> PaginaBuscaDTO<T> paginaVazia() {
+		return new PaginaBuscaDTO<>(List.of(), 0, 10, false, null, null);
+	}
+
+	private Long criarProduto(String codigoInterno) {
+		ProdutoCreateDTO dto = new ProdutoCreateDTO();
+		dto.setNome("Produto de teste do cache");
+		dto.setMarca("Teste");
+		dto.setUnidadeMedida(Produto.UnidadeMedida.UNIDADE);
+		dto.setCodigoInterno(codigoInterno);
+		dto.setCategoria(Produto.Categoria.OUTRO);
+		dto.setPrecoInicial(1.0);
+		dto.setEstoqueMinimo(1);
+		return produtoService.save(dto).getId();
+	}
+}
@@ -0,0 +1,156 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.proj_db.onibus.dto.ProdutoCreateDTO;
+import com.proj_db.onibus.model.Produto;
+
+/*
+ * Reservas concorrentes em um único produto pelo caminho do banco (UPDATE condicional): com 64 threads
+ * disputando as mesmas unidades, a reservada nunca passa da atual e os totais finais batem exatamente.
+ */
+@SpringBootTest
+class EstoqueReservaConcorrenteTests {
+
+	private static final int THREADS = 64;
+	private static final int OPERACOES_POR_THREAD = 50;
+	private static final double ESTOQUE_INICIAL = 500.0;
+
+	@Autowired private EstoqueService estoqueService;
+	@Autowired private ProdutoService produtoService;
+	@Autowired private JdbcTemplate jdbcTemplate;
+
+	private Long produtoId;
+
+	@BeforeEach
+	void criarProduto() {
+		ProdutoCreateDTO dto = new ProdutoCreateDTO();
+		dto.setNome("Produto de teste de reserva");
+		dto.setMarca("Teste");
+		dto.setUnidadeMedida(Produto.UnidadeMedida.UNIDADE);
+		dto.setCodigoInterno("TESTE-" + UUID.randomUUID().toString().substring(0, 8));
+		dto.setCategoria(Produto.Categoria.OUTRO);
+		dto.setPrecoInicial(1.0);
+		dto.setEstoqueMinimo(1);
+		produtoId = produtoService.save(dto).getId();
+		estoqueService.adicionar(produtoId, ESTOQUE_INICIAL);
+	}
+
+	@Test
+	void reservasAlemDoDisponivelNaoPassamDoEstoque() throws Exception {
+		// 64 x 50 = 3200 tentativas de 1 unidade para 500 unidades: exatamente 500 devem ser aceitas
+		AtomicInteger aceitas = new AtomicInteger();
+		long nanos = executar(() -> {
+			for (int i = 0; i < OPERACOES_POR_THREAD; i++) {
+				if (estoqueService.reservar(produtoId, 1.0)) aceitas.incrementAndGet();
+			}
+		});
+
+		assertEquals((int) ESTOQUE_INICIAL, aceitas.get());
+		assertSaldo(ESTOQUE_INICIAL, ESTOQUE_INICIAL);
+		relatar("reservar (disputa)", THREADS * OPERACOES_POR_THREAD, nanos);
+	}
+
+	@Test
+	void reservarELiberarConcorrentesDevolvemTudo() throws Exception {
+		// Cada thread reserva e libera em sequência; ao fim cada uma deixa 2 unidades reservadas
+		AtomicLong operacoes = new AtomicLong();
+		long nanos = executar(() -> {
+			for (int i = 0; i < OPERACOES_POR_THREAD; i++) {
+				if (estoqueService.reservar(produtoId, 3.0)) {
+					estoqueService.liberarReserva(produtoId, 3.0);
+					operacoes.addAndGet(2);
+				} else {
+					operacoes.incrementAndGet();
+				}
+			}
+			while (!estoqueService.reservar(produtoId, 2.0)) {
+				operacoes.incrementAndGet();
+			}
+			operacoes.incrementAndGet();
+		});
+
+		assertSaldo(ESTOQUE_INICIAL, THREADS * 2.0);
+		relatar("reservar + liberarReserva", operacoes.get(), nanos);
+	}
+
+	// --- AUXILIARES ---
+
+	// Roda a tarefa em todas as threads ao mesmo tempo, conferindo a invariante no banco durante a execução
+	private long executar(Runnable tarefa) throws Exception {
+		ExecutorService threads = Executors.newFixedThreadPool(THREADS + 1);
+		CountDownLatch largada = new CountDownLatch(1);
+		AtomicBoolean rodando = new AtomicBoolean(true);
+		List<String> violacoes = new ArrayList<>();
+		try {
+			Future<?> monitor = threads.submit(() -> {
+				while (rodando.get()) {
+					double[] saldo = saldo();
+					if (saldo[1] > saldo[0] || saldo[1] < 0) {
+						synchronized (violacoes) {
+							violacoes.add("reservada " + saldo[1] + " > atual " + saldo[0]);
+						}
+					}
+				}
+			});
+			List<Future<?>> trabalhos = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				trabalhos.add(threads.submit(() -> {
+					largada.await();
+					tarefa.run();
+					return null;
+				}));
+			}
+			long inicio = System.nanoTime();
+			largada.countDown();
+			for (Future<?> trabalho : trabalhos) {
+				trabalho.get(2, TimeUnit.MINUTES);
+			}
+			long nanos = System.nanoTime() - inicio;
+			rodando.set(false);
+			monitor.get(1, TimeUnit.MINUTES);
+			assertTrue(violacoes.isEmpty(), "Invariante violada: " + violacoes);
+			return nanos;
+		} finally {
+			rodando.set(false);
+			threads.shutdownNow();
+		}
+	}
+
+	private double[] saldo() {
+		Map<String, Object> linha = jdbcTemplate.queryForMap(
+			"SELECT quantidade_atual, quantidade_reservada FROM estoque WHERE produto_id = ?", produtoId);
+		return new double[] { ((Number) linha.get("quantidade_atual")).doubleValue(), ((Number) linha.get("quantidade_reservada")).doubleValue() };
+	}
+
+	private void assertSaldo(double atual, double reservada) {
+		double[] saldo = saldo();
+		assertEquals(atual, saldo[0], 1e-9);
+		assertEquals(reservada, saldo[1], 1e-9);
+	}
+
+	private void relatar(String cenario, long operacoes, long nanos) {
+		System.out.printf("LOG: %s com %d threads: %d operações em %.1f ms (%.0f op/s)%n",
+			cenario, THREADS, operacoes, nanos / 1e6, operacoes / (nanos / 1e9));
+	}
+}
@@ -0,0 +1,113 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.dto.OnibusCreateDTO;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Comandos SQL e tempo por transição enviarParaManutencao/retornarDaManutencao com os históricos em date[]:
+ * o número de comandos por transição não pode crescer com o tamanho do histórico (um UPDATE da linha).
+ * Para comparação, o log mostra o custo do bag de @ElementCollection de antes, emulado por JDBC numa tabela
+ * à parte: a cada alteração o Hibernate apagava todas as datas do ônibus e reinseria uma a uma.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class HistoricoTransicoesTempoTests {
+
+	private static final int TRANSICOES = 20; // Pares envio + retorno
+	private static final int HISTORICO_LONGO = 500;
+
+	@Autowired private OnibusService onibusService;
+	@Autowired private JdbcTemplate jdbcTemplate;
+	@Autowired private EntityManagerFactory entityManagerFactory;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	@Test
+	void comandosPorTransicaoNaoCrescemComOHistorico() {
+		Long onibusId = criarOnibus();
+		Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		double[] curto = medirTransicoes(onibusId, estatisticas);
+
+		// Mesmo ônibus com HISTORICO_LONGO datas em cada lista de manutenção
+		jdbcTemplate.update("UPDATE onibus SET historico_envio_manutencao = ARRAY(SELECT DATE '2000-01-01' + g FROM generate_series(1, ?) g), "
+			+ "historico_retorno_manutencao = ARRAY(SELECT DATE '2000-01-02' + g FROM generate_series(1, ?) g) WHERE id = ?",
+			HISTORICO_LONGO, HISTORICO_LONGO, onibusId);
+		double[] longo = medirTransicoes(onibusId, estatisticas);
+
+		double[] bag = medirBagLegado(HISTORICO_LONGO);
+
+		System.out.printf("LOG: date[] com até %d datas: %.1f comandos e %.2f ms por transição%n", 2 * TRANSICOES, curto[0], curto[1]);
+		System.out.printf("LOG: date[] com %d datas: %.1f comandos e %.2f ms por transição%n", HISTORICO_LONGO, longo[0], longo[1]);
+		System.out.printf("LOG: bag legado com %d datas: %.1f comandos e %.2f ms por transição%n", HISTORICO_LONGO, bag[0], bag[1]);
+		assertEquals(curto[0], longo[0], 1e-9);
+	}
+
+	// --- AUXILIARES ---
+
+	// { comandos preparados por transição, ms por transição }
+	private double[] medirTransicoes(Long onibusId, Statistics estatisticas) {
+		estatisticas.clear();
+		long inicio = System.nanoTime();
+		for (int i = 0; i < TRANSICOES; i++) {
+			onibusService.enviarParaManutencao(onibusId);
+			onibusService.retornarDaManutencao(onibusId);
+		}
+		long tempo = System.nanoTime() - inicio;
+		return new double[] { (double) estatisticas.getPrepareStatementCount() / (2 * TRANSICOES), tempo / 1e6 / (2 * TRANSICOES) };
+	}
+
+	// Uma transação por transição: DELETE de todas as datas do ônibus e um INSERT por data, incluindo a nova
+	private double[] medirBagLegado(int datas) {
+		String tabela = "bench_historico_bag_" + UUID.randomUUID().toString().substring(0, 8);
+		jdbcTemplate.execute("CREATE TABLE " + tabela + " (onibus_id BIGINT NOT NULL, data DATE)");
+		try {
+			TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+			LocalDate base = LocalDate.of(2000, 1, 1);
+			long comandos = 0;
+			long inicio = System.nanoTime();
+			for (int t = 0; t < 2 * TRANSICOES; t++) {
+				int tamanho = datas + t + 1;
+				comandos += transacao.execute(status -> {
+					jdbcTemplate.update("DELETE FROM " + tabela + " WHERE onibus_id = ?", 1L);
+					for (int d = 0; d < tamanho; d++) {
+						jdbcTemplate.update("INSERT INTO " + tabela + " (onibus_id, data) VALUES (?, ?)", 1L, base.plusDays(d));
+					}
+					return 1L + tamanho;
+				});
+			}
+			long tempo = System.nanoTime() - inicio;
+			return new double[] { (double) comandos / (2 * TRANSICOES), tempo / 1e6 / (2 * TRANSICOES) };
+		} finally {
+			jdbcTemplate.execute("DROP TABLE " + tabela);
+		}
+	}
+
+	private Long criarOnibus() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		OnibusCreateDTO dto = new OnibusCreateDTO();
+		dto.setChassi("TESTE-CH-" + sufixo);
+		dto.setPlaca("TST-" + sufixo);
+		dto.setModelo("Teste");
+		dto.setMarca("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setCapacidade(40);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroFrota("T-" + sufixo);
+		dto.setDataCompra(LocalDate.now());
+		return onibusService.save(dto).getId();
+	}
+}
@@ -0,0 +1,141 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.proj_db.onibus.dto.ImportacaoViagensResultadoDTO;
+import com.proj_db.onibus.dto.OnibusCreateDTO;
+
+/*
+ * Retomada do importador de viagens: uma importação que parou no meio do log devolve o offset do último lote
+ * aplicado, e importar o log completo a partir dele soma cada viagem exatamente uma vez.
+ * Lotes de 3 linhas para que o log pequeno do teste atravesse várias transações. Os logs ficam no diretório de
+ * importação do teste e são informados pelo nome; caminhos que saem do diretório são recusados.
+ */
+@SpringBootTest(properties = {
+	"onibus.importacao.tamanho-lote=3",
+	"onibus.importacao.diretorio=" + ImportadorViagensRetomadaTests.DIRETORIO
+})
+class ImportadorViagensRetomadaTests {
+
+	@Autowired private ImportadorViagens importadorViagens;
+	@Autowired private OnibusService onibusService;
+	@Autowired private JdbcTemplate jdbcTemplate;
+
+	static final String DIRETORIO = "target/importacao-teste";
+
+	private final Path diretorio = Paths.get(DIRETORIO);
+
+	@BeforeEach
+	void criarDiretorio() throws Exception {
+		Files.createDirectories(diretorio);
+	}
+
+	@Test
+	void retomaDoOffsetSemContarViagensDuasVezes() throws Exception {
+		Long onibusA = criarOnibus();
+		Long onibusB = criarOnibus();
+		double kmAntesA = quilometragem(onibusA);
+		double kmAntesB = quilometragem(onibusB);
+
+		StringBuilder inicio = new StringBuilder("onibus,data,km\n");
+		for (int i = 1; i <= 6; i++) {
+			inicio.append(i % 2 == 0 ? onibusA : onibusB).append(",2024-05-0").append(i).append(',').append(i).append(".5\n");
+		}
+		StringBuilder resto = new StringBuilder();
+		for (int i = 7; i <= 10; i++) {
+			resto.append(i % 2 == 0 ? onibusA : onibusB).append(String.format(";2024-05-%02d;", i)).append(i).append("\r\n");
+		}
+		resto.append("linha quebrada\n");
+		byte[] bytesInicio = inicio.toString().getBytes(StandardCharsets.UTF_8);
+
+		// Log interrompido: só as 6 primeiras viagens chegaram ao arquivo
+		String nome = "viagens-" + UUID.randomUUID() + ".csv";
+		Path log = diretorio.resolve(nome);
+		Files.write(log, bytesInicio);
+		ImportacaoViagensResultadoDTO parcial = importadorViagens.importar(nome, 0);
+		assertNull(parcial.erro());
+		assertEquals(6, parcial.linhasImportadas());
+		assertEquals(bytesInicio.length, parcial.offsetFinal());
+		assertEquals(kmAntesA + 2.5 + 4.5 + 6.5, quilometragem(onibusA), 1e-9);
+		assertEquals(kmAntesB + 1.5 + 3.5 + 5.5, quilometragem(onibusB), 1e-9);
+
+		// Log completo, retomado do offset devolvido
+		Files.write(log, (inicio.toString() + resto).getBytes(StandardCharsets.UTF_8));
+		ImportacaoViagensResultadoDTO retomada = importadorViagens.importar(nome, parcial.offsetFinal());
+		assertNull(retomada.erro());
+		assertEquals(parcial.offsetFinal(), retomada.offsetInicial());
+		assertEquals(Files.size(log), retomada.offsetFinal());
+		assertEquals(5, retomada.linhasLidas());
+		assertEquals(4, retomada.linhasImportadas());
+		assertEquals(1, retomada.linhasRejeitadas());
+		assertEquals(kmAntesA + 2.5 + 4.5 + 6.5 + 8 + 10, quilometragem(onibusA), 1e-9);
+		assertEquals(kmAntesB + 1.5 + 3.5 + 5.5 + 7 + 9, quilometragem(onibusB), 1e-9);
+
+		// Retomar do fim não reaplica nada
+		ImportacaoViagensResultadoDTO repetida = importadorViagens.importar(nome, retomada.offsetFinal());
+		assertEquals(0, repetida.linhasLidas());
+		assertEquals(kmAntesA + 31.5, quilometragem(onibusA), 1e-9);
+	}
+
+	@Test
+	void offsetForaDoArquivoDevolveErroSemAplicar() throws Exception {
+		String nome = "curto-" + UUID.randomUUID() + ".csv";
+		Path log = diretorio.resolve(nome);
+		Files.writeString(log, "1,2024-05-01,10\n");
+		ImportacaoViagensResultadoDTO resultado = importadorViagens.importar(nome, Files.size(log) + 1);
+		assertNotNull(resultado.erro());
+		assertEquals(resultado.offsetInicial(), resultado.offsetFinal());
+		assertEquals(0, resultado.linhasImportadas());
+	}
+
+	@Test
+	void arquivoForaDoDiretorioDeImportacaoERecusado() throws Exception {
+		Path fora = Files.createTempFile("viagens-fora", ".csv");
+		try {
+			Files.writeString(fora, "1,2024-05-01,10\n");
+			assertThrows(IllegalArgumentException.class, () -> importadorViagens.importar(fora.toAbsolutePath().toString(), 0));
+			assertThrows(IllegalArgumentException.class, () -> importadorViagens.importar("../" + DIRETORIO + "/../../pom.xml", 0));
+			assertThrows(IllegalArgumentException.class, () -> importadorViagens.importar("../../pom.xml", 0));
+			assertThrows(IllegalArgumentException.class, () -> importadorViagens.importar(".", 0));
+		} finally {
+			Files.deleteIfExists(fora);
+		}
+	}
+
+	// --- AUXILIARES ---
+
+	private Long criarOnibus() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		OnibusCreateDTO dto = new OnibusCreateDTO();
+		dto.setChassi("TESTE-CH-" + sufixo);
+		dto.setPlaca("TST-" + sufixo);
+		dto.setModelo("Teste");
+		dto.setMarca("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setCapacidade(40);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroFrota("T-" + sufixo);
+		dto.setDataCompra(LocalDate.now());
+		return onibusService.save(dto).getId();
+	}
+
+	private double quilometragem(Long onibusId) {
+		return jdbcTemplate.queryForObject("SELECT quilometragem FROM onibus WHERE id = ?", Double.class, onibusId);
+	}
+}
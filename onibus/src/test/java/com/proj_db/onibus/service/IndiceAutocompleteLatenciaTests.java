@@ -0,0 +1,97 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.proj_db.onibus.dto.AutocompleteDTO;
+import com.proj_db.onibus.dto.ProdutoCreateDTO;
+import com.proj_db.onibus.model.Produto;
+import com.proj_db.onibus.service.IndiceAutocomplete.TipoEntidade;
+
+/*
+ * Latência do autocomplete por tecla: cada prefixo do nome digitado ("fi", "fil", "filt", ...) consultado no
+ * índice em memória (GET /api/autocomplete) contra o LIKE '%x%' que a tela fazia em /produtos/search.
+ * Os produtos criados entram no índice pelo listener do Hibernate; o nome completo tem de vir como primeira sugestão.
+ * Mediana e p99 de cada caminho vão para o log.
+ */
+@SpringBootTest
+class IndiceAutocompleteLatenciaTests {
+
+	private static final int PRODUTOS = 300;
+	private static final int RODADAS = 20;
+
+	@Autowired private IndiceAutocomplete indiceAutocomplete;
+	@Autowired private ProdutoService produtoService;
+	@Autowired private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void sugestoesPorTeclaContraLike() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < PRODUTOS; i++) {
+			ids.add(criarProduto("Filtro de oleo " + sufixo + " lote " + i));
+		}
+		String digitado = "filtro de oleo " + sufixo + " lote " + (PRODUTOS - 1);
+		Long esperado = ids.get(PRODUTOS - 1);
+
+		List<String> prefixos = new ArrayList<>();
+		for (int n = 2; n <= digitado.length(); n++) {
+			prefixos.add(digitado.substring(0, n));
+		}
+		List<AutocompleteDTO> sugestoes = indiceAutocomplete.buscar(digitado, EnumSet.of(TipoEntidade.PRODUTO), 10);
+		assertEquals(esperado, sugestoes.get(0).id(), sugestoes.toString());
+
+		long[] indice = medir(prefixos, prefixo -> indiceAutocomplete.buscar(prefixo, EnumSet.of(TipoEntidade.PRODUTO), 10));
+		long[] like = medir(prefixos, prefixo -> jdbcTemplate.queryForList(
+			"SELECT id, nome FROM produtos WHERE lower(nome) LIKE ? ORDER BY id LIMIT 10", "%" + prefixo + "%"));
+
+		System.out.printf("LOG: Autocomplete, %d consultas por caminho: índice mediana %.3f ms, p99 %.3f ms | LIKE mediana %.3f ms, p99 %.3f ms%n",
+			indice.length, percentil(indice, 50), percentil(indice, 99), percentil(like, 50), percentil(like, 99));
+	}
+
+	// --- AUXILIARES ---
+
+	// Uma rodada de aquecimento e depois RODADAS passadas pela sequência de teclas; devolve os tempos ordenados
+	private long[] medir(List<String> prefixos, Consumer<String> consulta) {
+		prefixos.forEach(consulta);
+		long[] tempos = new long[RODADAS * prefixos.size()];
+		int i = 0;
+		for (int r = 0; r < RODADAS; r++) {
+			for (String prefixo : prefixos) {
+				long inicio = System.nanoTime();
+				consulta.accept(prefixo);
+				tempos[i++] = System.nanoTime() - inicio;
+			}
+		}
+		Arrays.sort(tempos);
+		return tempos;
+	}
+
+	private double percentil(long[] ordenados, int p) {
+		int posicao = (int) Math.ceil(p / 100.0 * ordenados.length) - 1;
+		return ordenados[Math.max(0, posicao)] / 1e6;
+	}
+
+	private Long criarProduto(String nome) {
+		ProdutoCreateDTO dto = new ProdutoCreateDTO();
+		dto.setNome(nome);
+		dto.setMarca("Teste");
+		dto.setUnidadeMedida(Produto.UnidadeMedida.UNIDADE);
+		dto.setCodigoInterno("TESTE-" + UUID.randomUUID().toString().substring(0, 8));
+		dto.setCategoria(Produto.Categoria.OUTRO);
+		dto.setPrecoInicial(1.0);
+		dto.setEstoqueMinimo(1);
+		return produtoService.save(dto).getId();
+	}
+}
@@ -0,0 +1,92 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.proj_db.onibus.dto.OnibusCreateDTO;
+import com.proj_db.onibus.dto.OrdemServicoCreateDTO;
+import com.proj_db.onibus.model.OrdemServico;
+import com.proj_db.onibus.service.IndiceOsAtiva.TipoAlvo;
+
+/*
+ * Encerramento de uma OS concorrente com a abertura de outra no mesmo ônibus: a cada rodada uma thread cancela a
+ * OS aberta na rodada anterior enquanto outra abre uma nova. Ao fim de cada rodada o ônibus continua com OS ativa,
+ * e o índice tem de dizer o mesmo (a limpeza do cancelamento não pode apagar o bit da abertura).
+ */
+@SpringBootTest
+class IndiceOsAtivaConcorrenciaTests {
+
+	private static final int RODADAS = 50;
+
+	@Autowired private IndiceOsAtiva indiceOsAtiva;
+	@Autowired private OrdemServicoService ordemServicoService;
+	@Autowired private OnibusService onibusService;
+
+	@Test
+	void cancelamentoConcorrenteNaoApagaOsAbertaNoMesmoAtivo() throws Exception {
+		Long onibusId = criarOnibus();
+		Long anterior = abrirOs(onibusId).getId();
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < RODADAS; i++) {
+				Long encerrar = anterior;
+				CountDownLatch largada = new CountDownLatch(1);
+				Future<?> cancelamento = executor.submit(() -> {
+					largada.await();
+					return ordemServicoService.cancel(encerrar);
+				});
+				Future<OrdemServico> abertura = executor.submit(() -> {
+					largada.await();
+					return abrirOs(onibusId);
+				});
+				largada.countDown();
+				cancelamento.get();
+				anterior = abertura.get().getId();
+
+				assertTrue(indiceOsAtiva.possuiOsAtiva(TipoAlvo.ONIBUS, onibusId), "rodada " + i);
+			}
+		}
+
+		ordemServicoService.cancel(anterior);
+		assertFalse(indiceOsAtiva.possuiOsAtiva(TipoAlvo.ONIBUS, onibusId));
+	}
+
+	// --- AUXILIARES ---
+
+	private OrdemServico abrirOs(Long onibusId) {
+		OrdemServicoCreateDTO dto = new OrdemServicoCreateDTO();
+		dto.setNumeroOS("TESTE-OS-" + UUID.randomUUID().toString().substring(0, 8));
+		dto.setTipo(OrdemServico.TipoOrdemServico.CORRETIVA);
+		dto.setDescricao("Teste de concorrência do índice");
+		dto.setDataPrevisaoInicio(LocalDate.now());
+		dto.setDataPrevisaoConclusao(LocalDate.now().plusDays(1));
+		dto.setOnibusId(onibusId);
+		return ordemServicoService.create(dto);
+	}
+
+	private Long criarOnibus() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		OnibusCreateDTO dto = new OnibusCreateDTO();
+		dto.setChassi("TESTE-CH-" + sufixo);
+		dto.setPlaca("TST-" + sufixo);
+		dto.setModelo("Teste");
+		dto.setMarca("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setCapacidade(40);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroFrota("T-" + sufixo);
+		dto.setDataCompra(LocalDate.now());
+		return onibusService.save(dto).getId();
+	}
+}
@@ -0,0 +1,87 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.proj_db.onibus.dto.OnibusCreateDTO;
+import com.proj_db.onibus.model.Onibus;
+
+/*
+ * Ida e volta da migração dos históricos: datas de uma antiga tabela de @ElementCollection (fora de ordem)
+ * viram a coluna date[] em ordem cronológica, a tabela antiga some, uma segunda execução não muda nada e
+ * a entidade lê e regrava o array sem perder as datas migradas.
+ */
+@SpringBootTest
+class MigracaoHistoricosTests {
+
+	private static final LocalDate D1 = LocalDate.of(2023, 1, 10);
+	private static final LocalDate D2 = LocalDate.of(2023, 6, 2);
+	private static final LocalDate D3 = LocalDate.of(2024, 2, 29);
+
+	@Autowired private MigracaoHistoricos migracaoHistoricos;
+	@Autowired private OnibusService onibusService;
+	@Autowired private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void historicoLegadoVoltaOrdenadoPelaEntidade() {
+		Long onibusId = criarOnibus();
+
+		// Estado de antes da migração: coluna nula e as datas na tabela do bag, sem ordem
+		jdbcTemplate.update("UPDATE onibus SET historico_envio_manutencao = NULL, historico_retorno_manutencao = NULL WHERE id = ?", onibusId);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS onibus_historico_envio_manutencao");
+		jdbcTemplate.execute("CREATE TABLE onibus_historico_envio_manutencao (onibus_id BIGINT NOT NULL, historico_envio_manutencao DATE)");
+		for (LocalDate data : List.of(D3, D1, D2)) {
+			jdbcTemplate.update("INSERT INTO onibus_historico_envio_manutencao VALUES (?, ?)", onibusId, data);
+		}
+		jdbcTemplate.update("INSERT INTO onibus_historico_envio_manutencao VALUES (?, NULL)", onibusId);
+
+		migracaoHistoricos.migrar();
+
+		assertFalse(tabelaExiste("onibus_historico_envio_manutencao"));
+		Onibus migrado = onibusService.findById(onibusId).orElseThrow();
+		assertEquals(List.of(D1, D2, D3), migrado.getHistoricoEnvioManutencao());
+		assertTrue(migrado.getHistoricoRetornoManutencao().isEmpty());
+
+		// Segunda execução (próxima subida): nada a migrar, nada muda
+		migracaoHistoricos.migrar();
+		assertEquals(List.of(D1, D2, D3), onibusService.findById(onibusId).orElseThrow().getHistoricoEnvioManutencao());
+
+		// A aplicação continua acrescentando no fim do array migrado
+		onibusService.enviarParaManutencao(onibusId);
+		onibusService.retornarDaManutencao(onibusId);
+		Onibus atualizado = onibusService.findById(onibusId).orElseThrow();
+		assertEquals(List.of(D1, D2, D3, LocalDate.now()), atualizado.getHistoricoEnvioManutencao());
+		assertEquals(List.of(LocalDate.now()), atualizado.getHistoricoRetornoManutencao());
+	}
+
+	// --- AUXILIARES ---
+
+	private boolean tabelaExiste(String tabela) {
+		return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, tabela));
+	}
+
+	private Long criarOnibus() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		OnibusCreateDTO dto = new OnibusCreateDTO();
+		dto.setChassi("TESTE-CH-" + sufixo);
+		dto.setPlaca("TST-" + sufixo);
+		dto.setModelo("Teste");
+		dto.setMarca("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setCapacidade(40);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroFrota("T-" + sufixo);
+		dto.setDataCompra(LocalDate.now());
+		return onibusService.save(dto).getId();
+	}
+}
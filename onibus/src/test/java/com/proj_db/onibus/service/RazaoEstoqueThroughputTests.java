@@ -0,0 +1,122 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.proj_db.onibus.dto.ProdutoCreateDTO;
+import com.proj_db.onibus.model.Produto;
+import com.proj_db.onibus.repository.EstoqueRepository;
+
+/*
+ * Vazão de reservar + liberar em um produto disputado: pela RazaoEstoque (saldo em memória, WAL com commit em
+ * grupo) contra os UPDATEs condicionais que o EstoqueImpl usa sem a razão. Como a razão ativa cobre todos os
+ * produtos, o lado do banco chama o repositório direto, cada operação na própria transação como no serviço.
+ * Depois da descarga, o saldo gravado no banco tem que bater com o da razão.
+ */
+@SpringBootTest(properties = {
+	"onibus.estoque.razao.ativo=true",
+	"onibus.estoque.razao.diretorio-wal=target/wal-teste-razao"
+})
+class RazaoEstoqueThroughputTests {
+
+	private static final int THREADS = 16;
+	private static final int PARES_POR_THREAD = 200;
+
+	@Autowired private EstoqueService estoqueService;
+	@Autowired private ProdutoService produtoService;
+	@Autowired private EstoqueRepository estoqueRepository;
+	@Autowired private RazaoEstoque razaoEstoque;
+	@Autowired private JdbcTemplate jdbcTemplate;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	@Test
+	void razaoComparadaAoCaminhoDoBanco() throws Exception {
+		Long produtoRazao = criarProduto();
+		Long produtoBanco = criarProduto();
+		estoqueService.adicionar(produtoRazao, 100.0);
+		jdbcTemplate.update("UPDATE estoque SET quantidade_atual = 100 WHERE produto_id = ?", produtoBanco);
+		TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+
+		long nanosRazao = executar(() -> {
+			if (estoqueService.reservar(produtoRazao, 1.0)) estoqueService.liberarReserva(produtoRazao, 1.0);
+		});
+		long nanosBanco = executar(() -> {
+			if (transacao.execute(status -> estoqueRepository.reservarSeDisponivel(produtoBanco, 1.0)) == 1) {
+				transacao.executeWithoutResult(status -> estoqueRepository.liberarSeReservado(produtoBanco, 1.0));
+			}
+		});
+
+		long operacoes = 2L * THREADS * PARES_POR_THREAD;
+		double vazaoRazao = operacoes / (nanosRazao / 1e9);
+		double vazaoBanco = operacoes / (nanosBanco / 1e9);
+		System.out.printf("LOG: RazaoEstoque: %.0f op/s | EstoqueImpl (UPDATE condicional): %.0f op/s | razão/banco = %.2fx (%d threads, %d operações)%n",
+			vazaoRazao, vazaoBanco, vazaoRazao / vazaoBanco, THREADS, operacoes);
+
+		double[] saldoRazao = razaoEstoque.saldo(produtoRazao);
+		assertEquals(100.0, saldoRazao[0], 1e-9);
+		assertEquals(0.0, saldoRazao[1], 1e-9);
+		razaoEstoque.descarregar();
+		Map<String, Object> linha = jdbcTemplate.queryForMap(
+			"SELECT quantidade_atual, quantidade_reservada FROM estoque WHERE produto_id = ?", produtoRazao);
+		assertEquals(100.0, ((Number) linha.get("quantidade_atual")).doubleValue(), 1e-9);
+		assertEquals(0.0, ((Number) linha.get("quantidade_reservada")).doubleValue(), 1e-9);
+		assertTrue(vazaoRazao > 0 && vazaoBanco > 0);
+	}
+
+	// --- AUXILIARES ---
+
+	private Long criarProduto() {
+		ProdutoCreateDTO dto = new ProdutoCreateDTO();
+		dto.setNome("Produto de teste da razão");
+		dto.setMarca("Teste");
+		dto.setUnidadeMedida(Produto.UnidadeMedida.UNIDADE);
+		dto.setCodigoInterno("TESTE-" + UUID.randomUUID().toString().substring(0, 8));
+		dto.setCategoria(Produto.Categoria.OUTRO);
+		dto.setPrecoInicial(1.0);
+		dto.setEstoqueMinimo(1);
+		return produtoService.save(dto).getId();
+	}
+
+	// Roda o par de operações PARES_POR_THREAD vezes em cada thread, todas largando juntas; devolve o tempo total
+	private long executar(Runnable par) throws Exception {
+		ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch largada = new CountDownLatch(1);
+		try {
+			List<Future<?>> trabalhos = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				trabalhos.add(threads.submit(() -> {
+					largada.await();
+					for (int i = 0; i < PARES_POR_THREAD; i++) {
+						par.run();
+					}
+					return null;
+				}));
+			}
+			long inicio = System.nanoTime();
+			largada.countDown();
+			for (Future<?> trabalho : trabalhos) {
+				trabalho.get(5, TimeUnit.MINUTES);
+			}
+			return System.nanoTime() - inicio;
+		} finally {
+			threads.shutdownNow();
+		}
+	}
+}
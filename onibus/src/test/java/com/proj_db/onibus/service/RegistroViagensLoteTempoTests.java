@@ -0,0 +1,107 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.proj_db.onibus.dto.OnibusCreateDTO;
+import com.proj_db.onibus.dto.RegistroViagemDTO;
+import com.proj_db.onibus.dto.RegistroViagensLoteResultadoDTO;
+
+/*
+ * Tempo do lançamento em lote (POST /api/onibus/viagens) contra as mesmas viagens lançadas uma a uma
+ * (registrar-viagem, uma transação e um UPDATE por viagem). Cada caminho usa a sua própria frota e as duas somam
+ * a mesma quilometragem. Uma rodada curta de cada aquece o caminho antes da medida; os tempos vão para o log.
+ */
+@SpringBootTest
+class RegistroViagensLoteTempoTests {
+
+	private static final int ONIBUS = 20;
+	private static final int VIAGENS = 1000;
+	private static final int AQUECIMENTO = 50;
+
+	@Autowired private OnibusService onibusService;
+	@Autowired private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void loteContraChamadasIndividuais() {
+		List<Long> frotaIndividual = criarFrota();
+		List<Long> frotaLote = criarFrota();
+
+		umaAUma(viagens(frotaIndividual, AQUECIMENTO));
+		onibusService.registrarViagens(viagens(frotaLote, AQUECIMENTO));
+		double kmAntesIndividual = quilometragem(frotaIndividual);
+		double kmAntesLote = quilometragem(frotaLote);
+
+		List<RegistroViagemDTO> individuais = viagens(frotaIndividual, VIAGENS);
+		long inicio = System.nanoTime();
+		umaAUma(individuais);
+		long tempoIndividual = System.nanoTime() - inicio;
+
+		List<RegistroViagemDTO> lote = viagens(frotaLote, VIAGENS);
+		inicio = System.nanoTime();
+		RegistroViagensLoteResultadoDTO resultado = onibusService.registrarViagens(lote);
+		long tempoLote = System.nanoTime() - inicio;
+
+		System.out.printf("LOG: %d viagens em %d ônibus: individual %.1f ms | lote %.1f ms | individual/lote = %.1fx%n",
+			VIAGENS, ONIBUS, tempoIndividual / 1e6, tempoLote / 1e6, (double) tempoIndividual / tempoLote);
+		assertEquals(VIAGENS, resultado.registradas());
+		double kmEsperado = individuais.stream().mapToDouble(RegistroViagemDTO::kmPercorridos).sum();
+		assertEquals(kmAntesIndividual + kmEsperado, quilometragem(frotaIndividual), 1e-6);
+		assertEquals(kmAntesLote + kmEsperado, quilometragem(frotaLote), 1e-6);
+	}
+
+	// --- AUXILIARES ---
+
+	private void umaAUma(List<RegistroViagemDTO> viagens) {
+		viagens.forEach(viagem -> onibusService.registrarViagem(viagem.onibusId(), viagem.kmPercorridos()));
+	}
+
+	// Mesma sequência de km para as duas frotas: a viagem i vai para o ônibus i % ONIBUS
+	private List<RegistroViagemDTO> viagens(List<Long> frota, int quantidade) {
+		List<RegistroViagemDTO> viagens = new ArrayList<>();
+		for (int i = 0; i < quantidade; i++) {
+			viagens.add(new RegistroViagemDTO(frota.get(i % frota.size()), 1.0 + (i % 7)));
+		}
+		return viagens;
+	}
+
+	private List<Long> criarFrota() {
+		List<Long> frota = new ArrayList<>();
+		for (int i = 0; i < ONIBUS; i++) {
+			Long id = criarOnibus();
+			jdbcTemplate.update("UPDATE onibus SET status = 'EM_OPERACAO' WHERE id = ?", id);
+			frota.add(id);
+		}
+		return frota;
+	}
+
+	private Long criarOnibus() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		OnibusCreateDTO dto = new OnibusCreateDTO();
+		dto.setChassi("TESTE-CH-" + sufixo);
+		dto.setPlaca("TST-" + sufixo);
+		dto.setModelo("Teste");
+		dto.setMarca("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setCapacidade(40);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroFrota("T-" + sufixo);
+		dto.setDataCompra(LocalDate.now());
+		return onibusService.save(dto).getId();
+	}
+
+	private double quilometragem(List<Long> frota) {
+		return frota.stream()
+			.mapToDouble(id -> jdbcTemplate.queryForObject("SELECT quilometragem FROM onibus WHERE id = ?", Double.class, id))
+			.sum();
+	}
+}
@@ -0,0 +1,97 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.proj_db.onibus.dto.OnibusCreateDTO;
+import com.proj_db.onibus.dto.RegistroViagemDTO;
+import com.proj_db.onibus.dto.RegistroViagensLoteResultadoDTO;
+
+/*
+ * Lançamento de viagens em lote com linhas válidas e inválidas misturadas: cada linha inválida volta com o
+ * seu erro, na posição original, e só as válidas somam km (várias do mesmo ônibus num único incremento).
+ */
+@SpringBootTest
+class RegistroViagensLoteTests {
+
+	@Autowired private OnibusService onibusService;
+	@Autowired private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void loteMistoRegistraSoAsLinhasValidas() {
+		Long emOperacao = criarOnibus();
+		Long parado = criarOnibus();
+		jdbcTemplate.update("UPDATE onibus SET status = 'EM_OPERACAO' WHERE id = ?", emOperacao);
+		double kmAntes = quilometragem(emOperacao);
+		double kmParadoAntes = quilometragem(parado);
+
+		List<RegistroViagemDTO> viagens = Arrays.asList(
+			new RegistroViagemDTO(emOperacao, 10.0),
+			new RegistroViagemDTO(null, 5.0),
+			new RegistroViagemDTO(emOperacao, -5.0),
+			new RegistroViagemDTO(Long.MAX_VALUE, 3.0),
+			new RegistroViagemDTO(parado, 7.0),
+			new RegistroViagemDTO(emOperacao, 2.5),
+			new RegistroViagemDTO(emOperacao, null)
+		);
+		RegistroViagensLoteResultadoDTO resultado = onibusService.registrarViagens(viagens);
+
+		assertEquals(7, resultado.total());
+		assertEquals(2, resultado.registradas());
+		assertEquals(5, resultado.rejeitadas());
+		boolean[] esperado = { true, false, false, false, false, true, false };
+		for (int i = 0; i < esperado.length; i++) {
+			RegistroViagensLoteResultadoDTO.Linha linha = resultado.linhas().get(i);
+			assertEquals(i, linha.indice());
+			assertEquals(viagens.get(i).onibusId(), linha.onibusId());
+			assertEquals(esperado[i], linha.ok(), "linha " + i);
+			if (esperado[i]) assertNull(linha.erro()); else assertFalse(linha.erro().isBlank());
+		}
+		assertEquals("Quilometragem não pode ser negativa.", resultado.linhas().get(2).erro());
+		assertEquals("Ônibus não encontrado", resultado.linhas().get(3).erro());
+		assertTrue(resultado.linhas().get(4).erro().contains("EM_OPERACAO"));
+
+		assertEquals(kmAntes + 12.5, quilometragem(emOperacao), 1e-9);
+		assertEquals(kmParadoAntes, quilometragem(parado), 1e-9);
+	}
+
+	@Test
+	void loteVazioNaoFalha() {
+		RegistroViagensLoteResultadoDTO resultado = onibusService.registrarViagens(List.of());
+		assertEquals(0, resultado.total());
+		assertTrue(resultado.linhas().isEmpty());
+	}
+
+	// --- AUXILIARES ---
+
+	private Long criarOnibus() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		OnibusCreateDTO dto = new OnibusCreateDTO();
+		dto.setChassi("TESTE-CH-" + sufixo);
+		dto.setPlaca("TST-" + sufixo);
+		dto.setModelo("Teste");
+		dto.setMarca("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setCapacidade(40);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroFrota("T-" + sufixo);
+		dto.setDataCompra(LocalDate.now());
+		return onibusService.save(dto).getId();
+	}
+
+	private double quilometragem(Long onibusId) {
+		return jdbcTemplate.queryForObject("SELECT quilometragem FROM onibus WHERE id = ?", Double.class, onibusId);
+	}
+}
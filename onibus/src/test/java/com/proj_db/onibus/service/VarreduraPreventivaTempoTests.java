@@ -0,0 +1,85 @@
+package com.proj_db.onibus.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.proj_db.onibus.dto.OnibusCreateDTO;
+import com.proj_db.onibus.dto.PneuCreateDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaRelatorioDTO;
+import com.proj_db.onibus.dto.VarreduraPreventivaResultadoDTO;
+
+/*
+ * Tempo da varredura preventiva em sequência contra a varredura em faixas paralelas, sobre a mesma base.
+ * Uma primeira execução cria as OS que faltavam; as duas medidas rodam depois dela, então verificam os mesmos
+ * registros e não criam nada (nenhuma OS duplicada). Os tempos vão para o log.
+ */
+@SpringBootTest
+class VarreduraPreventivaTempoTests {
+
+	private static final int REGISTROS_POR_ENTIDADE = 200;
+
+	@Autowired private VarreduraPreventivaCoordenador coordenador;
+	@Autowired private OnibusService onibusService;
+	@Autowired private PneuService pneuService;
+
+	@Test
+	void serialEParaleloVerificamOsMesmosRegistros() {
+		for (int i = 0; i < REGISTROS_POR_ENTIDADE; i++) {
+			criarOnibus();
+			criarPneu();
+		}
+		coordenador.executarSerial(); // Aquecimento: cria as OS pendentes
+
+		VarreduraPreventivaRelatorioDTO serial = coordenador.executarSerial();
+		VarreduraPreventivaRelatorioDTO paralelo = coordenador.executarParalelo();
+
+		System.out.printf("LOG: Varredura preventiva: serial %d ms, paralela %d ms%n", serial.tempoTotalMs(), paralelo.tempoTotalMs());
+		assertEquals(serial.entidades().size(), paralelo.entidades().size());
+		for (int i = 0; i < serial.entidades().size(); i++) {
+			VarreduraPreventivaResultadoDTO s = serial.entidades().get(i);
+			VarreduraPreventivaResultadoDTO p = paralelo.entidades().get(i);
+			System.out.printf("LOG:   %s: %d verificados, serial %d ms, paralela %d ms%n", s.entidade(), s.registrosVerificados(), s.tempoMs(), p.tempoMs());
+			assertEquals(s.entidade(), p.entidade());
+			assertEquals(s.registrosVerificados(), p.registrosVerificados(), s.entidade());
+			assertEquals(0, s.osCriadas(), s.entidade());
+			assertEquals(0, p.osCriadas(), p.entidade());
+		}
+	}
+
+	// --- AUXILIARES ---
+
+	private void criarOnibus() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		OnibusCreateDTO dto = new OnibusCreateDTO();
+		dto.setChassi("TESTE-CH-" + sufixo);
+		dto.setPlaca("TST-" + sufixo);
+		dto.setModelo("Teste");
+		dto.setMarca("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setCapacidade(40);
+		dto.setAnoFabricacao(2010);
+		dto.setNumeroFrota("T-" + sufixo);
+		dto.setDataCompra(LocalDate.now().minusYears(10));
+		onibusService.save(dto);
+	}
+
+	private void criarPneu() {
+		String sufixo = UUID.randomUUID().toString().substring(0, 8);
+		PneuCreateDTO dto = new PneuCreateDTO();
+		dto.setMarca("Teste");
+		dto.setMedida("295/80R22.5");
+		dto.setModelo("Teste");
+		dto.setCodigoFabricacao("TESTE-CF-" + sufixo);
+		dto.setAnoFabricacao(2020);
+		dto.setNumeroSerie("TESTE-NS-" + sufixo);
+		dto.setDataCompra(LocalDate.now().minusYears(1));
+		dto.setPeriodoGarantiaMeses(12);
+		pneuService.save(dto);
+	}
+}